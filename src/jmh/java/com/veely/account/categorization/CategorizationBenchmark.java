@@ -0,0 +1,120 @@
+package com.veely.account.categorization;
+
+import com.veely.account.domain.BankCategorizationRule;
+import com.veely.account.domain.BankTransactionCategory;
+import com.veely.account.domain.Counterparty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Categorizzazione di un milione di descrizioni bancarie sintetiche (30-60 caratteri, maiuscole,
+ * punteggiatura e qualche accento) con {@code rules} regole a parola chiave più quattro regole
+ * senza parola chiave (espressione regolare, importo, controparte), come {@link CategorizationRules#categorize}
+ * viene usato dall'import e dalla categorizzazione massiva. Un'operazione è il milione di descrizioni.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CategorizationBenchmark {
+
+    private static final String[] WORDS = {"BONIFICO", "SEPA", "A FAVORE DI", "PAGAMENTO", "POS", "CARTA", "ADDEBITO",
+            "SDD", "RATA", "MUTUO", "COMMISSIONI", "CANONE", "UTENZA", "FATTURA", "N.", "DEL", "RIF.", "CRO", "CAFFÈ", "S.R.L."};
+
+    @Param({"2000"})
+    public int rules;
+
+    @Param({"1000000"})
+    public int descriptions;
+
+    private CategorizationRules compiled;
+    private String[] texts;
+    private BigDecimal[] amounts;
+    private Long[] counterparties;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(11);
+        List<String> keywords = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            keywords.add(word(random) + " " + token(random));
+        }
+
+        List<BankCategorizationRule> entities = new ArrayList<>(rules + 4);
+        for (int i = 0; i < rules; i++) {
+            entities.add(rule(i, keywords.get(i), null, null, null));
+        }
+        entities.add(rule(rules, null, "rata\\s+mutuo\\s+\\d+", null, null));
+        entities.add(rule(rules + 1, null, null, new BigDecimal("-5000.00"), null));
+        entities.add(rule(rules + 2, null, "commissioni", null, null));
+        entities.add(rule(rules + 3, null, null, null, 42L));
+        compiled = CategorizationRules.compile(entities);
+
+        texts = new String[descriptions];
+        amounts = new BigDecimal[descriptions];
+        counterparties = new Long[descriptions];
+        for (int i = 0; i < descriptions; i++) {
+            StringBuilder sb = new StringBuilder();
+            while (sb.length() < 30 + random.nextInt(31)) {
+                sb.append(random.nextInt(4) == 0 ? keywords.get(random.nextInt(rules)).toUpperCase() : word(random))
+                        .append(' ').append(token(random)).append(' ');
+            }
+            texts[i] = sb.toString();
+            amounts[i] = BigDecimal.valueOf(random.nextLong(-1_000_000, 1_000_000), 2);
+            counterparties[i] = random.nextInt(10) == 0 ? (long) random.nextInt(100) : null;
+        }
+    }
+
+    @Benchmark
+    public long categorize() {
+        long categorized = 0;
+        for (int i = 0; i < descriptions; i++) {
+            if (compiled.categorize(texts[i], amounts[i], counterparties[i]) != null) categorized++;
+        }
+        return categorized;
+    }
+
+    private static String word(SplittableRandom random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String token(SplittableRandom random) {
+        return Integer.toString(random.nextInt(36 * 36 * 36), 36);
+    }
+
+    private static BankCategorizationRule rule(int id, String keyword, String pattern, BigDecimal minAmount, Long counterpartyId) {
+        BankTransactionCategory category = new BankTransactionCategory();
+        category.setId((long) (id % 50 + 1));
+        BankCategorizationRule rule = new BankCategorizationRule();
+        rule.setId((long) id + 1);
+        rule.setCategory(category);
+        rule.setKeyword(keyword);
+        rule.setPattern(pattern);
+        rule.setMinAmount(minAmount);
+        rule.setPriority(id % 7 * 10);
+        if (counterpartyId != null) {
+            Counterparty counterparty = new Counterparty();
+            counterparty.setId(counterpartyId);
+            rule.setCounterparty(counterparty);
+        }
+        return rule;
+    }
+}
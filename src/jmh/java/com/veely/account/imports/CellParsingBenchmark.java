@@ -0,0 +1,92 @@
+package com.veely.account.imports;
+
+import com.veely.account.imports.XlsxRowReader.CellKind;
+import com.veely.account.imports.XlsxRowReader.SheetRow;
+import com.veely.account.imports.XlsxRowReader.XlsxCell;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Convertitori di cella di {@link ExcelDictionaryImporter} ({@code s}, {@code bd}, {@code date})
+ * su 10.000 righe sintetiche con i tipi di cella del lettore XLSX in streaming:
+ * testo, importi con virgola o punto, date come seriale Excel o come testo dd/MM/yyyy e ISO.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CellParsingBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private List<SheetRow> rows;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        rows = new ArrayList<>(ROWS);
+        for (int r = 0; r < ROWS; r++) {
+            List<XlsxCell> cells = List.of(
+                    new XlsxCell(CellKind.STRING, "  CODE." + r + "  ", false),
+                    amount(random),
+                    date(random));
+            rows.add(new SheetRow(r + 1, cells, false));
+        }
+    }
+
+    @Benchmark
+    public void text(Blackhole bh) {
+        for (SheetRow row : rows) {
+            bh.consume(ExcelDictionaryImporter.s(row, 0));
+        }
+    }
+
+    @Benchmark
+    public void decimal(Blackhole bh) {
+        for (SheetRow row : rows) {
+            bh.consume(ExcelDictionaryImporter.bd(row, 1));
+        }
+    }
+
+    @Benchmark
+    public void date(Blackhole bh) {
+        for (SheetRow row : rows) {
+            bh.consume(ExcelDictionaryImporter.date(row, 2));
+        }
+    }
+
+    private static XlsxCell amount(SplittableRandom random) {
+        String cents = Long.toString(random.nextLong(0, 10_000_000));
+        return switch (random.nextInt(3)) {
+            case 0 -> new XlsxCell(CellKind.NUMERIC, cents, false);
+            case 1 -> new XlsxCell(CellKind.STRING, cents + ",5", false);
+            default -> new XlsxCell(CellKind.STRING, cents + ".25", false);
+        };
+    }
+
+    private static XlsxCell date(SplittableRandom random) {
+        int day = random.nextInt(1, 29);
+        int month = random.nextInt(1, 13);
+        return switch (random.nextInt(3)) {
+            case 0 -> new XlsxCell(CellKind.NUMERIC, Integer.toString(random.nextInt(40_000, 47_000)), true);
+            case 1 -> new XlsxCell(CellKind.STRING, day + "/" + month + "/2024", false);
+            default -> new XlsxCell(CellKind.STRING, String.format("2024-%02d-%02d", month, day), false);
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package com.veely.account.imports;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picco dell'heap occupato durante ogni iterazione, campionato ogni millisecondo da un thread
+ * demone dopo un GC iniziale; il risultato ({@code heap.peak}, MB) è la media sulle iterazioni.
+ * Misura l'occupazione istantanea, spazzatura compresa: confrontare solo esecuzioni con lo stesso -Xmx.
+ */
+public class HeapPeakProfiler implements InternalProfiler {
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final AtomicLong peak = new AtomicLong();
+    private volatile boolean sampling;
+    private Thread sampler;
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        System.gc();
+        peak.set(memory.getHeapMemoryUsage().getUsed());
+        sampling = true;
+        sampler = new Thread(() -> {
+            while (sampling) {
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }, "heap-peak-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        sampling = false;
+        try {
+            sampler.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+        return List.of(new ScalarResult("heap.peak", peak.get() / (1024.0 * 1024.0), "MB", AggregationPolicy.AVG));
+    }
+
+    @Override
+    public String getDescription() {
+        return "Picco dell'heap occupato durante l'iterazione";
+    }
+}
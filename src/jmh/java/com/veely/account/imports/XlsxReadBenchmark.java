@@ -0,0 +1,102 @@
+package com.veely.account.imports;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lettura di un piano dei conti generato (codice, descrizione, importo, flag) con
+ * {@code new XSSFWorkbook(is)}, come faceva ExcelDictionaryImporter, e con {@link XlsxRowReader}.
+ * Il picco dell'heap di ogni lettura si ottiene con {@link HeapPeakProfiler}:
+ * <pre>
+ *   mvn -Pbenchmarks -DskipTests verify -Djmh.args="XlsxReadBenchmark -prof com.veely.account.imports.HeapPeakProfiler"
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:+UseG1GC"})
+@State(Scope.Benchmark)
+public class XlsxReadBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        file = Files.createTempFile("veely-piano-conti", ".xlsx");
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(100)) {
+            Sheet sheet = wb.createSheet("Conti");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Codice");
+            header.createCell(1).setCellValue("Descrizione");
+            header.createCell(2).setCellValue("Importo");
+            header.createCell(3).setCellValue("Attivo");
+            for (int r = 1; r <= rows; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(String.format("%02d.%02d.%04d", r % 90 + 10, r % 97, r));
+                row.createCell(1).setCellValue("Conto di dettaglio numero " + r);
+                row.createCell(2).setCellValue(r * 1.25);
+                row.createCell(3).setCellValue(r % 7 != 0);
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                wb.write(out);
+            }
+            wb.dispose();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void xssfWorkbook(Blackhole bh) throws Exception {
+        DataFormatter formatter = new DataFormatter();
+        try (InputStream in = Files.newInputStream(file); XSSFWorkbook wb = new XSSFWorkbook(in)) {
+            Sheet sheet = wb.getSheetAt(0);
+            for (int r = 1; r <= sheet.getLastRowNum(); r++) {
+                Row row = sheet.getRow(r);
+                if (row == null) continue;
+                for (int c = 0; c < 4; c++) {
+                    bh.consume(formatter.formatCellValue(row.getCell(c)));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole bh) throws Exception {
+        XlsxRowReader.read(file, 1, row -> {
+            for (int c = 0; c < 4; c++) {
+                bh.consume(row.text(c));
+            }
+        });
+    }
+}
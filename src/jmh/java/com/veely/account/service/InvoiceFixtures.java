@@ -0,0 +1,76 @@
+package com.veely.account.service;
+
+import com.veely.account.domain.Invoice;
+import com.veely.account.domain.InvoiceDirection;
+import com.veely.account.domain.InvoiceLine;
+import com.veely.account.domain.VatCode;
+import com.veely.account.domain.WithholdingType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fatture sintetiche per i benchmark: aliquote IVA miste (22, 10, 4, esente, senza codice)
+ * e ritenute con e senza imponibile ridotto, generate con seme fisso così ogni run misura gli stessi dati.
+ */
+final class InvoiceFixtures {
+
+    private static final VatCode[] VAT_CODES = {
+            vatCode(1L, "22"), vatCode(2L, "10"), vatCode(3L, "4"), vatCode(4L, "0"), null
+    };
+
+    private static final WithholdingType[] WITHHOLDINGS = {
+            null, null, null, withholding(1L, "20", "100"), withholding(2L, "20", "50"), withholding(3L, "4", null)
+    };
+
+    private static final InvoiceDirection ACTIVE = direction(1L, "ACTIVE");
+    private static final InvoiceDirection PASSIVE = direction(2L, "PASSIVE");
+
+    private InvoiceFixtures() {
+    }
+
+    static Invoice invoice(long id, int lineCount, SplittableRandom random) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setDirection(random.nextBoolean() ? ACTIVE : PASSIVE);
+        List<InvoiceLine> lines = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            InvoiceLine line = new InvoiceLine();
+            line.setId(id * 10_000 + i);
+            line.setInvoice(invoice);
+            line.setDescription("Riga " + i);
+            line.setNetAmount(BigDecimal.valueOf(random.nextLong(1, 1_000_000), 2));
+            line.setVatCode(VAT_CODES[random.nextInt(VAT_CODES.length)]);
+            line.setWithholdingType(WITHHOLDINGS[random.nextInt(WITHHOLDINGS.length)]);
+            lines.add(line);
+        }
+        invoice.setLines(lines);
+        return invoice;
+    }
+
+    private static VatCode vatCode(Long id, String rate) {
+        VatCode vatCode = new VatCode();
+        vatCode.setId(id);
+        vatCode.setCode(rate);
+        vatCode.setRate(new BigDecimal(rate));
+        return vatCode;
+    }
+
+    private static WithholdingType withholding(Long id, String rate, String taxablePercent) {
+        WithholdingType wt = new WithholdingType();
+        wt.setId(id);
+        wt.setCode("R" + id);
+        wt.setRate(new BigDecimal(rate));
+        wt.setTaxablePercent(taxablePercent != null ? new BigDecimal(taxablePercent) : null);
+        return wt;
+    }
+
+    private static InvoiceDirection direction(Long id, String code) {
+        InvoiceDirection direction = new InvoiceDirection();
+        direction.setId(id);
+        direction.setCode(code);
+        return direction;
+    }
+}
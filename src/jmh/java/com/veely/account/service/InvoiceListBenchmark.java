@@ -0,0 +1,100 @@
+package com.veely.account.service;
+
+import com.veely.account.VeelyAccountApplication;
+import com.veely.account.domain.Invoice;
+import com.veely.account.repository.InvoiceRepository;
+import com.veely.account.service.dto.InvoiceListRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Una pagina della lista fatture letta come proiezione {@link InvoiceListRow} (una SELECT in join,
+ * nessuna entità gestita) contro la stessa pagina letta come entità {@link Invoice} con direzione,
+ * stato e controparte dereferenziati riga per riga, come faceva il template prima della proiezione.
+ * Va eseguito con il profiler GC, che riporta i byte allocati per pagina ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * mvn -Pbenchmarks -DskipTests verify \
+ *   '-Djmh.args=InvoiceListBenchmark -f 1 -prof gc -jvmArgsAppend -Dspring.datasource.url=jdbc:mysql://localhost:3306/veely_bench'
+ * </pre>
+ * Le fatture sono quelle di {@link InvoiceSeed}; entrambe le letture avvengono in una transazione
+ * in sola lettura, come {@link InvoiceService#searchPage}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvoiceListBenchmark {
+
+    private static final Sort LIST_ORDER = Sort.by(Sort.Direction.DESC, "issueDate").and(Sort.by(Sort.Direction.DESC, "id"));
+
+    @Param({"20000"})
+    public int rows;
+
+    @Param({"50", "200"})
+    public int size;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceRepository invoiceRepository;
+    private TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(VeelyAccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--logging.level.root=WARN", "--spring.jpa.show-sql=false");
+        invoiceRepository = context.getBean(InvoiceRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        InvoiceSeed.ensure(context.getBean(JdbcTemplate.class), rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<InvoiceListRow> projection() {
+        return readOnly.execute(status -> invoiceRepository.findListRows(null, LIST_ORDER, size));
+    }
+
+    @Benchmark
+    public long entities() {
+        Specification<Invoice> all = (root, query, cb) -> null;
+        return readOnly.execute(status -> {
+            long rendered = 0;
+            for (Invoice invoice : invoiceRepository.findBy(all, q -> q.sortBy(LIST_ORDER).limit(size).all())) {
+                // le colonne della vecchia lista: ogni riferimento lazy non ancora in sessione è una SELECT
+                rendered += invoice.getDirection().getDescription().length()
+                        + invoice.getStatus().getDescription().length()
+                        + invoice.getCounterparty().getName().length();
+            }
+            return rendered;
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.veely.account.service;
+
+import com.veely.account.VeelyAccountApplication;
+import com.veely.account.service.dto.InvoiceCursor;
+import com.veely.account.service.dto.InvoiceListRow;
+import com.veely.account.service.dto.InvoicePage;
+import com.veely.account.service.dto.InvoiceSearchCriteria;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pagina N della lista fatture ({@link InvoiceService#searchPage}) contro la pagina 1: con il keyset il costo
+ * resta quello di una seek sull'indice di issue_date, mentre la stessa pagina letta con LIMIT/OFFSET
+ * scorre tutte le righe che la precedono. {@code keysetKeys} e {@code offsetKeys} leggono solo le chiavi
+ * (id, issue_date), senza join e proiezione: separano il costo della seek da quello del piano della query
+ * completa, che dipende dal database.
+ * <p>
+ * Avvia il contesto applicativo sul database configurato, quindi va puntato su uno schema di prova:
+ * <pre>
+ * mvn -Pbenchmarks -DskipTests verify \
+ *   '-Djmh.args=InvoicePaging -f 1 -jvmArgsAppend -Dspring.datasource.url=jdbc:mysql://localhost:3306/veely_bench'
+ * </pre>
+ * Al primo avvio aggiunge fatture fino a {@code rows} righe in tabella ({@link InvoiceSeed}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvoicePagingBenchmark {
+
+    private static final InvoiceSearchCriteria ALL = InvoiceSearchCriteria.builder().build();
+
+    @Param({"200000"})
+    public int rows;
+
+    @Param({"1", "100", "2000"})
+    public int page;
+
+    @Param({"50"})
+    public int size;
+
+    private ConfigurableApplicationContext context;
+    private InvoiceService service;
+    private JdbcTemplate jdbc;
+    private String after;
+    private InvoiceCursor cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(VeelyAccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--logging.level.root=WARN", "--spring.jpa.show-sql=false");
+        service = context.getBean(InvoiceService.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        InvoiceSeed.ensure(jdbc, rows);
+
+        // cursore dell'ultima riga della pagina precedente, come lo restituirebbe la navigazione
+        cursor = page == 1 ? null : jdbc.queryForObject(
+                "SELECT issue_date, id FROM invoices ORDER BY issue_date DESC, id DESC LIMIT 1 OFFSET ?",
+                (rs, n) -> new InvoiceCursor(rs.getDate(1).toLocalDate(), rs.getLong(2)),
+                (page - 1) * size - 1);
+        after = cursor == null ? null : cursor.encode();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InvoicePage<InvoiceListRow> keyset() {
+        return service.searchPage(ALL, after, null, size);
+    }
+
+    @Benchmark
+    public List<Long> keysetKeys() {
+        if (cursor == null) {
+            return jdbc.queryForList("SELECT id FROM invoices ORDER BY issue_date DESC, id DESC LIMIT ?", Long.class, size + 1);
+        }
+        return jdbc.queryForList("""
+                SELECT id FROM invoices
+                WHERE issue_date <= ? AND (issue_date < ? OR id < ?)
+                ORDER BY issue_date DESC, id DESC LIMIT ?""",
+                Long.class, Date.valueOf(cursor.issueDate()), Date.valueOf(cursor.issueDate()), cursor.id(), size + 1);
+    }
+
+    @Benchmark
+    public List<Long> offsetKeys() {
+        return jdbc.queryForList("SELECT id FROM invoices ORDER BY issue_date DESC, id DESC LIMIT ? OFFSET ?",
+                Long.class, size + 1, (page - 1) * size);
+    }
+}
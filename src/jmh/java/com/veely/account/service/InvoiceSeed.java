@@ -0,0 +1,67 @@
+package com.veely.account.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fatture "BENCH-n" per i benchmark su database: date di emissione sparse su dieci anni e
+ * {@value #COUNTERPARTIES} controparti "BENCH-CP-n" a rotazione, generate con seme fisso.
+ * Aggiunge righe solo finché la tabella non arriva al numero richiesto.
+ */
+final class InvoiceSeed {
+
+    static final int COUNTERPARTIES = 200;
+
+    private InvoiceSeed() {
+    }
+
+    static void ensure(JdbcTemplate jdbc, int rows) {
+        long existing = jdbc.queryForObject("SELECT COUNT(*) FROM invoices", Long.class);
+        if (existing >= rows) {
+            return;
+        }
+        long direction = jdbc.queryForObject("SELECT id FROM invoice_directions WHERE code = 'ACTIVE'", Long.class);
+        long status = jdbc.queryForObject("SELECT id FROM invoice_statuses WHERE code = 'ISSUED'", Long.class);
+        List<Long> counterparties = counterparties(jdbc);
+        long first = jdbc.queryForObject("SELECT COUNT(*) FROM invoices WHERE number LIKE 'BENCH-%'", Long.class);
+
+        SplittableRandom random = new SplittableRandom(5);
+        LocalDate start = LocalDate.of(2015, 1, 1);
+        List<Object[]> batch = new ArrayList<>(5_000);
+        for (long n = first; n < first + rows - existing; n++) {
+            LocalDate issue = start.plusDays(random.nextInt(3_650));
+            batch.add(new Object[]{direction, status, counterparties.get((int) (n % counterparties.size())),
+                    "BENCH-" + n, issue.getYear(), Date.valueOf(issue)});
+            if (batch.size() == 5_000) {
+                insert(jdbc, batch);
+            }
+        }
+        insert(jdbc, batch);
+    }
+
+    private static List<Long> counterparties(JdbcTemplate jdbc) {
+        List<Long> ids = jdbc.queryForList("SELECT id FROM counterparties WHERE name LIKE 'BENCH-CP-%' ORDER BY id", Long.class);
+        if (ids.size() < COUNTERPARTIES) {
+            long kind = jdbc.queryForObject("SELECT MIN(id) FROM counterparty_kinds", Long.class);
+            List<Object[]> missing = new ArrayList<>();
+            for (int i = ids.size(); i < COUNTERPARTIES; i++) {
+                missing.add(new Object[]{kind, "BENCH-CP-" + i});
+            }
+            jdbc.batchUpdate("INSERT INTO counterparties(kind_id, name) VALUES (?, ?)", missing);
+            ids = jdbc.queryForList("SELECT id FROM counterparties WHERE name LIKE 'BENCH-CP-%' ORDER BY id", Long.class);
+        }
+        return ids;
+    }
+
+    private static void insert(JdbcTemplate jdbc, List<Object[]> batch) {
+        jdbc.batchUpdate("""
+                INSERT INTO invoices(direction_id, status_id, counterparty_id, number, year, issue_date)
+                VALUES (?, ?, ?, ?, ?, ?)""", batch);
+        batch.clear();
+    }
+}
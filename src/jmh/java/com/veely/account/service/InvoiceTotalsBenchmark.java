@@ -0,0 +1,46 @@
+package com.veely.account.service;
+
+import com.veely.account.domain.Invoice;
+import com.veely.account.service.dto.InvoiceTotals;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totali di una singola fattura ({@link InvoiceTotalsCalculator#compute}, usato da
+ * {@link InvoiceService#calculateTotals(Invoice)}) al crescere delle righe.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvoiceTotalsBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int lines;
+
+    private Invoice invoice;
+
+    @Setup
+    public void setUp() {
+        invoice = InvoiceFixtures.invoice(1L, lines, new SplittableRandom(42));
+    }
+
+    @Benchmark
+    public InvoiceTotals invoiceTotals() {
+        return InvoiceTotalsCalculator.compute(invoice.getDirection().getCode(), invoice.getLines());
+    }
+}
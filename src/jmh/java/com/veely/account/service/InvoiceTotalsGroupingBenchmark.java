@@ -0,0 +1,57 @@
+package com.veely.account.service;
+
+import com.veely.account.domain.Invoice;
+import com.veely.account.domain.InvoiceLine;
+import com.veely.account.service.dto.InvoiceTotals;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raggruppamento delle righe per fattura e calcolo dei totali ({@link InvoiceTotalsCalculator#computeAll},
+ * usato da {@link InvoiceService#calculateTotals(List)} dopo la lettura delle righe) su 10.000 fatture
+ * (1-20 righe ciascuna), con le righe già in memoria.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvoiceTotalsGroupingBenchmark {
+
+    private static final int INVOICES = 10_000;
+
+    private List<Invoice> invoices;
+    private List<InvoiceLine> lines;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        invoices = new ArrayList<>(INVOICES);
+        lines = new ArrayList<>();
+        for (long id = 1; id <= INVOICES; id++) {
+            Invoice invoice = InvoiceFixtures.invoice(id, random.nextInt(1, 21), random);
+            invoices.add(invoice);
+            lines.addAll(invoice.getLines());
+        }
+    }
+
+    @Benchmark
+    public Map<Long, InvoiceTotals> calculateTotals() {
+        return InvoiceTotalsCalculator.computeAll(invoices, lines);
+    }
+}
@@ -0,0 +1,86 @@
+package com.veely.account.service;
+
+import com.veely.account.domain.Invoice;
+import com.veely.account.domain.InvoiceLine;
+import com.veely.account.service.InvoiceTotalsCalculator.LineAmounts;
+import com.veely.account.service.dto.InvoiceTotals;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confronto tra il calcolo BigDecimal riga per riga, {@link InvoiceTotalsCalculator#compute} sul kernel
+ * a interi e il batch su array primitivi di {@link InvoiceTotalsKernel#accumulate}.
+ * Con {@code -Djmh.args="-prof gc"} si vedono anche i byte allocati per operazione.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvoiceTotalsKernelBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int lines;
+
+    private List<InvoiceLine> invoiceLines;
+    private long[] amounts;
+    private int[] vatRates;
+    private int[] withholdingRates;
+    private int[] taxablePercents;
+    private final long[] totals = new long[3];
+
+    @Setup
+    public void setUp() {
+        Invoice invoice = InvoiceFixtures.invoice(1L, lines, new SplittableRandom(42));
+        invoiceLines = invoice.getLines();
+        amounts = new long[lines];
+        vatRates = new int[lines];
+        withholdingRates = new int[lines];
+        taxablePercents = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            InvoiceLine line = invoiceLines.get(i);
+            amounts[i] = InvoiceTotalsKernel.cents(line.getNetAmount());
+            vatRates[i] = line.getVatCode() != null ? InvoiceTotalsKernel.rate(line.getVatCode().getRate()) : 0;
+            withholdingRates[i] = line.getWithholdingType() != null ? InvoiceTotalsKernel.rate(line.getWithholdingType().getRate()) : 0;
+            taxablePercents[i] = line.getWithholdingType() != null && line.getWithholdingType().getTaxablePercent() != null
+                    ? InvoiceTotalsKernel.rate(line.getWithholdingType().getTaxablePercent())
+                    : InvoiceTotalsKernel.FULL_TAXABLE;
+        }
+    }
+
+    @Benchmark
+    public LineAmounts bigDecimal() {
+        LineAmounts sum = LineAmounts.NONE;
+        for (InvoiceLine line : invoiceLines) {
+            sum = sum.plus(InvoiceTotalsCalculator.lineAmounts(line));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public InvoiceTotals compute() {
+        return InvoiceTotalsCalculator.compute("PASSIVE", invoiceLines);
+    }
+
+    @Benchmark
+    public long[] primitiveBatch() {
+        Arrays.fill(totals, 0);
+        InvoiceTotalsKernel.accumulate(amounts, vatRates, withholdingRates, taxablePercents, 0, lines, totals);
+        return totals;
+    }
+}
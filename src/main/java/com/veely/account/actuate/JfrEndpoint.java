@@ -0,0 +1,178 @@
+package com.veely.account.actuate;
+
+import com.veely.account.config.JfrProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * /actuator/jfr: registrazioni JFR su richiesta, per leggere GC e allocazioni accanto agli eventi
+ * applicativi (package {@code com.veely.account.jfr}).
+ * POST avvia una registrazione ({@code settings} = default o profile, {@code seconds} obbligatorio),
+ * GET /{id} ne scarica il dump .jfr, DELETE /{id} la ferma e la chiude.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "jfr")
+@RequiredArgsConstructor
+public class JfrEndpoint {
+
+    private static final String NAME_PREFIX = "veely-";
+    private static final Set<String> SETTINGS = Set.of("default", "profile");
+
+    private final JfrProperties properties;
+
+    public record RecordingInfo(long id, String name, RecordingState state, Instant start, Duration duration,
+                                long size) {
+
+        static RecordingInfo of(Recording recording) {
+            return new RecordingInfo(recording.getId(), recording.getName(), recording.getState(),
+                    recording.getStartTime(), recording.getDuration(), recording.getSize());
+        }
+    }
+
+    @ReadOperation
+    public List<RecordingInfo> recordings() {
+        if (!FlightRecorder.isAvailable()) {
+            return List.of();
+        }
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .map(RecordingInfo::of)
+                .toList();
+    }
+
+    /**
+     * Avvia una registrazione limitata: durata obbligatoria (al massimo {@code veely.jfr.max-duration}),
+     * dimensione ed età dei dati su disco limitate da {@code veely.jfr.max-size} e {@code veely.jfr.max-age}.
+     */
+    @WriteOperation
+    public RecordingInfo start(@Nullable String settings, long seconds) throws IOException, ParseException {
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("JFR non disponibile su questa JVM");
+        }
+        String configuration = settings != null ? settings : "default";
+        if (!SETTINGS.contains(configuration)) {
+            throw new InvalidEndpointRequestException("settings non valido: " + configuration,
+                    "settings deve essere uno di " + SETTINGS);
+        }
+        Duration duration = Duration.ofSeconds(seconds);
+        if (seconds <= 0 || duration.compareTo(properties.getMaxDuration()) > 0) {
+            throw new InvalidEndpointRequestException("seconds non valido: " + seconds,
+                    "seconds deve essere tra 1 e " + properties.getMaxDuration().toSeconds());
+        }
+        if (activeRecordings() >= properties.getMaxRecordings()) {
+            throw new InvalidEndpointRequestException("troppe registrazioni attive",
+                    "già attive " + properties.getMaxRecordings() + " registrazioni: chiuderne una con DELETE");
+        }
+        Recording recording = new Recording(Configuration.getConfiguration(configuration));
+        recording.setName(NAME_PREFIX + Instant.now());
+        recording.setToDisk(true);
+        recording.setDuration(duration);
+        recording.setMaxSize(properties.getMaxSize().toBytes());
+        recording.setMaxAge(properties.getMaxAge());
+        recording.start();
+        log.info("🎥 Registrazione JFR {} avviata ({}, {} s).", recording.getId(), recording.getName(), seconds);
+        return RecordingInfo.of(recording);
+    }
+
+    private static long activeRecordings() {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(recording -> recording.getName().startsWith(NAME_PREFIX))
+                .filter(recording -> recording.getState() == RecordingState.RUNNING
+                        || recording.getState() == RecordingState.DELAYED)
+                .count();
+    }
+
+    /**
+     * Dump della registrazione in un file temporaneo, cancellato a fine download.
+     * La registrazione resta attiva: si possono scaricare più dump della stessa.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public Resource dump(@Selector long id) throws IOException {
+        Recording recording = find(id);
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            return null;
+        }
+        Path file = Files.createTempFile("veely-" + id + "-", ".jfr");
+        try {
+            recording.dump(file);
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+        return new TemporaryFileResource(file);
+    }
+
+    @DeleteOperation
+    public void stop(@Selector long id) {
+        Recording recording = find(id);
+        if (recording == null) {
+            return;
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        recording.close();
+        log.info("🎥 Registrazione JFR {} chiusa.", id);
+    }
+
+    private static Recording find(long id) {
+        if (!FlightRecorder.isAvailable()) {
+            return null;
+        }
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(recording -> recording.getId() == id)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public String getFilename() {
+            return "veely.jfr";
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.veely.account.actuate;
+
+import com.veely.account.service.LookupCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/lookupcache: hit/miss per lista di riferimento; DELETE svuota la cache.
+ */
+@Component
+@Endpoint(id = "lookupcache")
+@RequiredArgsConstructor
+public class LookupCacheEndpoint {
+
+    private final LookupCache lookupCache;
+
+    @ReadOperation
+    public List<LookupCache.Stats> stats() {
+        return lookupCache.stats();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        lookupCache.invalidateAll();
+    }
+}
@@ -0,0 +1,31 @@
+package com.veely.account.actuate;
+
+import com.veely.account.vat.VatReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * /actuator/vatreport: mesi chiusi in cache; DELETE li fa ricalcolare (dopo una rettifica di un periodo liquidato).
+ */
+@Component
+@Endpoint(id = "vatreport")
+@RequiredArgsConstructor
+public class VatReportCacheEndpoint {
+
+    private final VatReportService vatReportService;
+
+    @ReadOperation
+    public Map<String, Integer> stats() {
+        return Map.of("closedMonthsCached", vatReportService.closedPeriodsCached());
+    }
+
+    @DeleteOperation
+    public void clear() {
+        vatReportService.evictClosedPeriods();
+    }
+}
@@ -0,0 +1,30 @@
+package com.veely.account.aging;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Fasce dello scadenzario per giorni di ritardo rispetto alla scadenza.
+ */
+public enum AgingBucket {
+    CURRENT,
+    DAYS_30,
+    DAYS_60,
+    DAYS_90,
+    OVER_90;
+
+    /**
+     * Fascia alla data {@code asOf}; senza scadenza la fattura scade alla data di emissione.
+     */
+    static AgingBucket of(LocalDate dueDate, LocalDate issueDate, LocalDate asOf) {
+        return of(ChronoUnit.DAYS.between(dueDate != null ? dueDate : issueDate, asOf));
+    }
+
+    static AgingBucket of(long daysOverdue) {
+        if (daysOverdue <= 0) return CURRENT;
+        if (daysOverdue <= 30) return DAYS_30;
+        if (daysOverdue <= 60) return DAYS_60;
+        if (daysOverdue <= 90) return DAYS_90;
+        return OVER_90;
+    }
+}
@@ -0,0 +1,11 @@
+package com.veely.account.aging;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Scadenzario alla data {@code asOf}: righe per direzione e controparte (ordinate per totale decrescente)
+ * e totali per direzione.
+ */
+public record AgingReport(LocalDate asOf, List<AgingRow> rows, List<AgingRow> totals, long elapsedMillis) {
+}
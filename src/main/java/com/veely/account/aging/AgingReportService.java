@@ -0,0 +1,131 @@
+package com.veely.account.aging;
+
+import com.veely.account.exports.JdbcStreaming;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Scadenzario crediti/debiti delle fatture aperte (stato ISSUED, come per la riconciliazione).
+ * <p>
+ * Il residuo è il netto a pagare di invoice_totals, senza risommare le righe; le fatture senza scadenza
+ * scadono alla data di emissione. Le fatture aperte sono lette in streaming
+ * (indice {@code idx_invoices_status_due}) e sommate in centesimi per direzione e controparte
+ * in un solo passaggio: in memoria resta un accumulatore per controparte, non le fatture.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AgingReportService {
+
+    private static final String SELECT = """
+            SELECT d.code AS direction, i.counterparty_id, c.name, i.issue_date, i.due_date, t.payable_total
+            FROM invoices i
+            JOIN invoice_statuses s ON s.id = i.status_id
+            JOIN invoice_directions d ON d.id = i.direction_id
+            JOIN counterparties c ON c.id = i.counterparty_id
+            LEFT JOIN invoice_totals t ON t.invoice_id = i.id
+            WHERE s.code = 'ISSUED'""";
+
+    private final JdbcTemplate jdbc;
+
+    /**
+     * @param direction      ACTIVE, PASSIVE o null per entrambe
+     * @param counterpartyId facoltativo
+     */
+    public AgingReport report(LocalDate asOf, String direction, Long counterpartyId) {
+        long start = System.nanoTime();
+        StringBuilder sql = new StringBuilder(SELECT);
+        List<Object> args = new ArrayList<>();
+        if (StringUtils.hasText(direction)) {
+            sql.append(" AND d.code = ?");
+            args.add(direction.trim().toUpperCase(Locale.ROOT));
+        }
+        if (counterpartyId != null) {
+            sql.append(" AND i.counterparty_id = ?");
+            args.add(counterpartyId);
+        }
+
+        Map<Key, Accumulator> byCounterparty = new HashMap<>();
+        JdbcStreaming.query(jdbc, sql.toString(), args.toArray(), rs -> {
+            Date due = rs.getDate("due_date");
+            BigDecimal payable = rs.getBigDecimal("payable_total");
+            Key key = new Key(rs.getString("direction"), rs.getLong("counterparty_id"));
+            Accumulator acc = byCounterparty.get(key);
+            if (acc == null) {
+                acc = new Accumulator(rs.getString("name"));
+                byCounterparty.put(key, acc);
+            }
+            acc.add(AgingBucket.of(due != null ? due.toLocalDate() : null, rs.getDate("issue_date").toLocalDate(), asOf),
+                    payable != null ? payable.movePointRight(2).longValueExact() : 0L);
+        });
+
+        List<AgingRow> rows = new ArrayList<>(byCounterparty.size());
+        Map<String, Accumulator> byDirection = new TreeMap<>();
+        byCounterparty.forEach((key, acc) -> {
+            rows.add(acc.toRow(key.direction(), key.counterpartyId(), acc.name));
+            byDirection.computeIfAbsent(key.direction(), d -> new Accumulator(null)).add(acc);
+        });
+        rows.sort(Comparator.comparing(AgingRow::direction).thenComparing(AgingRow::total, Comparator.reverseOrder()));
+        List<AgingRow> totals = new ArrayList<>();
+        byDirection.forEach((d, acc) -> totals.add(acc.toRow(d, null, null)));
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        log.info("⏳ Scadenzario al {}: {} controparti, {} fatture aperte in {} ms.", asOf, rows.size(),
+                totals.stream().mapToLong(AgingRow::invoices).sum(), elapsed);
+        return new AgingReport(asOf, rows, totals, elapsed);
+    }
+
+    private record Key(String direction, long counterpartyId) {
+    }
+
+    /**
+     * Somme in centesimi per fascia.
+     */
+    private static final class Accumulator {
+        private final String name;
+        private final long[] cents = new long[AgingBucket.values().length];
+        private long invoices;
+
+        Accumulator(String name) {
+            this.name = name;
+        }
+
+        void add(AgingBucket bucket, long amountCents) {
+            cents[bucket.ordinal()] += amountCents;
+            invoices++;
+        }
+
+        void add(Accumulator other) {
+            for (int i = 0; i < cents.length; i++) {
+                cents[i] += other.cents[i];
+            }
+            invoices += other.invoices;
+        }
+
+        AgingRow toRow(String direction, Long counterpartyId, String counterpartyName) {
+            long total = 0;
+            for (long c : cents) total += c;
+            return new AgingRow(direction, counterpartyId, counterpartyName, invoices,
+                    amount(AgingBucket.CURRENT), amount(AgingBucket.DAYS_30), amount(AgingBucket.DAYS_60),
+                    amount(AgingBucket.DAYS_90), amount(AgingBucket.OVER_90), BigDecimal.valueOf(total, 2));
+        }
+
+        private BigDecimal amount(AgingBucket bucket) {
+            return BigDecimal.valueOf(cents[bucket.ordinal()], 2);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.veely.account.aging;
+
+import java.math.BigDecimal;
+
+/**
+ * Importi da incassare (ACTIVE) o da pagare (PASSIVE) per fascia di ritardo.
+ * Nelle righe di totale per direzione {@code counterpartyId} e {@code counterpartyName} sono null.
+ */
+public record AgingRow(String direction, Long counterpartyId, String counterpartyName, long invoices,
+                       BigDecimal current, BigDecimal days30, BigDecimal days60, BigDecimal days90, BigDecimal over90,
+                       BigDecimal total) {
+}
@@ -0,0 +1,35 @@
+package com.veely.account.bootstrap;
+
+import com.veely.account.ledger.CounterpartyLedgerService;
+import com.veely.account.service.InvoiceTotalsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ricostruzione completa di invoice_totals all'avvio (backfill o riallineamento dopo
+ * modifiche massive, es. aliquote cambiate da un re-import dei dizionari), seguita da quella
+ * dei partitari che ne dipendono.
+ * Si abilita una tantum con veely.totals.rebuild-on-startup=true.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InvoiceTotalsRebuildRunner implements CommandLineRunner {
+
+    private final InvoiceTotalsService invoiceTotalsService;
+    private final CounterpartyLedgerService counterpartyLedgerService;
+    private final Environment env;
+
+    @Override
+    public void run(String... args) {
+        boolean enabled = Boolean.parseBoolean(env.getProperty("veely.totals.rebuild-on-startup", "false"));
+        if (!enabled) return;
+
+        log.info("🔁 Ricostruzione totali fattura...");
+        invoiceTotalsService.rebuildAll();
+        counterpartyLedgerService.rebuildAll();
+    }
+}
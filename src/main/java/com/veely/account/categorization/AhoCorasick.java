@@ -0,0 +1,149 @@
+package com.veely.account.categorization;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntConsumer;
+
+/**
+ * Automa di Aho-Corasick su testo normalizzato (a-z, 0-9 e spazio, come prodotto da
+ * CounterpartySearchIndex.normalize). La tabella delle transizioni è completa, quindi la
+ * scansione fa un accesso ad array per carattere: il costo dipende dalla lunghezza del testo
+ * e dal numero di occorrenze trovate, non dal numero di pattern.
+ * <p>
+ * {@link #match} normalizza il testo mentre lo scorre (minuscole, accenti tolti, sequenze di
+ * separatori ridotte a uno spazio, uno spazio in testa e in coda), senza costruire stringhe.
+ */
+final class AhoCorasick {
+
+    private static final int ALPHABET = 37;
+    private static final int SEPARATOR = 36;
+
+    /** Simbolo dei caratteri latini accentati/estesi (U+0080-U+024F): la lettera base se ASCII, altrimenti separatore. */
+    private static final byte[] LATIN = latinSymbols();
+
+    private final int[] delta;
+    private final int[][] outputs;
+
+    /**
+     * @param patterns pattern già normalizzati; l'id di ogni pattern è la sua posizione nella lista
+     */
+    AhoCorasick(List<String> patterns) {
+        int capacity = 1;
+        for (String p : patterns) capacity += p.length();
+        int[] trie = new int[capacity * ALPHABET];
+        Arrays.fill(trie, -1);
+        int[][] out = new int[capacity][];
+        int nodes = 1;
+
+        for (int id = 0; id < patterns.size(); id++) {
+            String p = patterns.get(id);
+            int node = 0;
+            for (int i = 0; i < p.length(); i++) {
+                int c = symbol(p.charAt(i));
+                int next = trie[node * ALPHABET + c];
+                if (next < 0) {
+                    next = nodes++;
+                    trie[node * ALPHABET + c] = next;
+                }
+                node = next;
+            }
+            out[node] = append(out[node], id);
+        }
+
+        // BFS: collegamenti di fallimento e chiusura della tabella delle transizioni
+        int[] fail = new int[nodes];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int child = trie[c];
+            if (child < 0) {
+                trie[c] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int[] inherited = out[fail[node]];
+            if (inherited != null) {
+                for (int id : inherited) out[node] = append(out[node], id);
+            }
+            for (int c = 0; c < ALPHABET; c++) {
+                int child = trie[node * ALPHABET + c];
+                int viaFail = trie[fail[node] * ALPHABET + c];
+                if (child < 0) {
+                    trie[node * ALPHABET + c] = viaFail;
+                } else {
+                    fail[child] = viaFail;
+                    queue.add(child);
+                }
+            }
+        }
+        this.delta = Arrays.copyOf(trie, nodes * ALPHABET);
+        this.outputs = Arrays.copyOf(out, nodes);
+    }
+
+    /**
+     * Passa a {@code onMatch} l'id di ogni pattern trovato nel testo grezzo (più volte se ricorre più volte).
+     */
+    void match(CharSequence text, IntConsumer onMatch) {
+        int node = step(0, SEPARATOR, onMatch);
+        boolean separator = true;
+        for (int i = 0; i < text.length(); i++) {
+            int symbol = fold(text.charAt(i));
+            if (symbol == SEPARATOR) {
+                if (separator) continue;
+                separator = true;
+            } else {
+                separator = false;
+            }
+            node = step(node, symbol, onMatch);
+        }
+        if (!separator) step(node, SEPARATOR, onMatch);
+    }
+
+    private int step(int node, int symbol, IntConsumer onMatch) {
+        int next = delta[node * ALPHABET + symbol];
+        int[] ids = outputs[next];
+        if (ids != null) {
+            for (int id : ids) onMatch.accept(id);
+        }
+        return next;
+    }
+
+    /** Simbolo di un carattere di un pattern già normalizzato: a-z -> 0-25, 0-9 -> 26-35, spazio -> 36. */
+    private static int symbol(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c >= '0' && c <= '9') return 26 + (c - '0');
+        return SEPARATOR;
+    }
+
+    /** Come {@link #symbol}, ma per testo grezzo: maiuscole e lettere accentate sono ricondotte alla base. */
+    private static int fold(char c) {
+        if (c < 0x80) {
+            if (c >= 'A' && c <= 'Z') return c - 'A';
+            return symbol(c);
+        }
+        if (c <= 0x24F) return LATIN[c - 0x80];
+        return symbol(Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).toLowerCase(Locale.ROOT).charAt(0));
+    }
+
+    private static byte[] latinSymbols() {
+        byte[] table = new byte[0x250 - 0x80];
+        for (char c = 0x80; c < 0x250; c++) {
+            char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).toLowerCase(Locale.ROOT).charAt(0);
+            table[c - 0x80] = (byte) symbol(base);
+        }
+        return table;
+    }
+
+    private static int[] append(int[] ids, int id) {
+        if (ids == null) return new int[]{id};
+        int[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = id;
+        return grown;
+    }
+}
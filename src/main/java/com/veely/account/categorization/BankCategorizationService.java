@@ -0,0 +1,180 @@
+package com.veely.account.categorization;
+
+import com.veely.account.domain.BankCategorizationRule;
+import com.veely.account.domain.BankTransactionCategory;
+import com.veely.account.domain.Counterparty;
+import com.veely.account.repository.BankCategorizationRuleRepository;
+import com.veely.account.repository.BankTransactionCategoryRepository;
+import com.veely.account.repository.CounterpartyRepository;
+import com.veely.account.service.dto.CategorizationRuleDto;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Gestione delle regole di categorizzazione e loro applicazione massiva ai movimenti
+ * ancora UNCATEGORIZED. L'import degli estratti conto applica le stesse regole in linea.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BankCategorizationService {
+
+    /** Movimenti letti (per id crescente) e aggiornati per ogni blocco della categorizzazione massiva. */
+    private static final int CHUNK_SIZE = 5000;
+
+    private final BankCategorizationRuleRepository ruleRepository;
+    private final BankTransactionCategoryRepository categoryRepository;
+    private final CounterpartyRepository counterpartyRepository;
+    private final CategorizationRuleIndex ruleIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbc;
+
+    @Transactional(readOnly = true)
+    public List<CategorizationRuleDto> listRules() {
+        return ruleRepository.findAll(Sort.by("priority", "id")).stream().map(this::toDto).toList();
+    }
+
+    @Transactional
+    public CategorizationRuleDto create(CategorizationRuleDto dto) {
+        BankCategorizationRule rule = new BankCategorizationRule();
+        applyData(rule, dto);
+        BankCategorizationRule saved = ruleRepository.save(rule);
+        eventPublisher.publishEvent(new CategorizationRulesChangedEvent());
+        return toDto(saved);
+    }
+
+    @Transactional
+    public CategorizationRuleDto update(Long id, CategorizationRuleDto dto) {
+        BankCategorizationRule rule = ruleRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Regola non trovata: " + id));
+        applyData(rule, dto);
+        BankCategorizationRule saved = ruleRepository.save(rule);
+        eventPublisher.publishEvent(new CategorizationRulesChangedEvent());
+        return toDto(saved);
+    }
+
+    @Transactional
+    public void delete(Long id) {
+        BankCategorizationRule rule = ruleRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Regola non trovata: " + id));
+        ruleRepository.delete(rule);
+        eventPublisher.publishEvent(new CategorizationRulesChangedEvent());
+    }
+
+    /**
+     * Applica le regole correnti ai movimenti UNCATEGORIZED e restituisce quanti ne ha categorizzati.
+     * Lavora a blocchi di {@value #CHUNK_SIZE} movimenti per id crescente, ognuno con il proprio
+     * commit: la memoria resta costante anche su milioni di righe.
+     */
+    public int applyToUncategorized() {
+        CategorizationRules rules = ruleIndex.current();
+        if (rules.size() == 0) return 0;
+        Long uncategorized = jdbc.queryForObject(
+                "SELECT id FROM bank_transaction_categories WHERE code = 'UNCATEGORIZED'", Long.class);
+
+        long start = System.nanoTime();
+        long lastId = 0;
+        int scanned = 0;
+        int categorized = 0;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>();
+            long[] maxId = {lastId};
+            int[] read = {0};
+            jdbc.query("""
+                SELECT id, description, amount, counterparty_id
+                FROM bank_transactions
+                WHERE category_id = ? AND id > ?
+                ORDER BY id
+                LIMIT ?
+            """, rs -> {
+                long id = rs.getLong("id");
+                read[0]++;
+                maxId[0] = id;
+                Long category = rules.categorize(rs.getString("description"), rs.getBigDecimal("amount"),
+                        rs.getObject("counterparty_id", Long.class));
+                if (category != null && !category.equals(uncategorized)) {
+                    updates.add(new Object[]{category, id, uncategorized});
+                }
+            }, uncategorized, lastId, CHUNK_SIZE);
+            if (read[0] == 0) break;
+            if (!updates.isEmpty()) {
+                jdbc.batchUpdate("UPDATE bank_transactions SET category_id = ? WHERE id = ? AND category_id = ?", updates);
+            }
+            scanned += read[0];
+            categorized += updates.size();
+            lastId = maxId[0];
+            if (read[0] < CHUNK_SIZE) break;
+        }
+        log.info("🏷️ Categorizzazione: {} movimenti esaminati, {} categorizzati ({} ms).",
+                scanned, categorized, (System.nanoTime() - start) / 1_000_000);
+        return categorized;
+    }
+
+    private void applyData(BankCategorizationRule rule, CategorizationRuleDto dto) {
+        String keyword = StringUtils.hasText(dto.getKeyword()) ? dto.getKeyword().trim() : null;
+        String pattern = StringUtils.hasText(dto.getPattern()) ? dto.getPattern() : null;
+        if (keyword != null && CategorizationRules.keyword(keyword) == null) {
+            throw new IllegalArgumentException("La parola chiave deve contenere almeno una lettera o una cifra");
+        }
+        if (pattern != null) {
+            try {
+                CategorizationRules.pattern(pattern);
+            } catch (PatternSyntaxException ex) {
+                throw new IllegalArgumentException("Espressione regolare non valida: " + ex.getDescription());
+            }
+        }
+        BigDecimal min = dto.getMinAmount();
+        BigDecimal max = dto.getMaxAmount();
+        if (min != null && max != null && min.compareTo(max) > 0) {
+            throw new IllegalArgumentException("Importo minimo maggiore del massimo");
+        }
+        if (keyword == null && pattern == null && min == null && max == null && dto.getCounterpartyId() == null) {
+            throw new IllegalArgumentException("Indicare almeno una condizione (parola chiave, espressione, importo o controparte)");
+        }
+
+        BankTransactionCategory category = categoryRepository.findById(dto.getCategoryId())
+                .orElseThrow(() -> new EntityNotFoundException("Categoria non trovata: " + dto.getCategoryId()));
+        Counterparty counterparty = null;
+        if (dto.getCounterpartyId() != null) {
+            counterparty = counterpartyRepository.findById(dto.getCounterpartyId())
+                    .orElseThrow(() -> new EntityNotFoundException("Controparte non trovata: " + dto.getCounterpartyId()));
+        }
+
+        rule.setName(dto.getName().trim());
+        rule.setCategory(category);
+        rule.setKeyword(keyword);
+        rule.setPattern(pattern);
+        rule.setMinAmount(min);
+        rule.setMaxAmount(max);
+        rule.setCounterparty(counterparty);
+        rule.setPriority(dto.getPriority() != null ? dto.getPriority() : 100);
+        rule.setActive(dto.getActive() == null || dto.getActive());
+    }
+
+    private CategorizationRuleDto toDto(BankCategorizationRule rule) {
+        return CategorizationRuleDto.builder()
+                .id(rule.getId())
+                .name(rule.getName())
+                .categoryId(rule.getCategory().getId())
+                .keyword(rule.getKeyword())
+                .pattern(rule.getPattern())
+                .minAmount(rule.getMinAmount())
+                .maxAmount(rule.getMaxAmount())
+                .counterpartyId(rule.getCounterparty() != null ? rule.getCounterparty().getId() : null)
+                .priority(rule.getPriority())
+                .active(rule.getActive())
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.veely.account.categorization;
+
+import com.veely.account.repository.BankCategorizationRuleRepository;
+import com.veely.account.service.CounterpartyChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Regole di categorizzazione compilate. La ricompilazione costruisce un nuovo
+ * {@link CategorizationRules} e lo sostituisce con una sola scrittura volatile: chi sta
+ * categorizzando continua con lo snapshot che ha in mano, mai con uno a metà.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategorizationRuleIndex {
+
+    private final BankCategorizationRuleRepository ruleRepository;
+
+    private volatile CategorizationRules current = CategorizationRules.EMPTY;
+
+    public CategorizationRules current() {
+        return current;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        recompile();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRulesChanged(CategorizationRulesChangedEvent event) {
+        recompile();
+    }
+
+    /**
+     * Le regole legate a una controparte sono cancellate con lei (fk_rule_counterparty ON DELETE CASCADE)
+     * senza passare dal servizio delle regole: l'eliminazione della controparte va trattata come una modifica.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCounterpartyChanged(CounterpartyChangedEvent event) {
+        if (event.current() == null && event.id() != null && current.references(event.id())) {
+            recompile();
+        }
+    }
+
+    public synchronized void recompile() {
+        long start = System.nanoTime();
+        CategorizationRules compiled = CategorizationRules.compile(
+                ruleRepository.findByActiveTrue(Sort.by("priority", "id")));
+        current = compiled;
+        log.info("🏷️ Regole di categorizzazione compilate: {} ({} ms).",
+                compiled.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
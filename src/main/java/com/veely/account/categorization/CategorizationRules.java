@@ -0,0 +1,125 @@
+package com.veely.account.categorization;
+
+import com.veely.account.domain.BankCategorizationRule;
+import com.veely.account.service.CounterpartySearchIndex;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Regole attive compilate, immutabili e condivisibili tra thread.
+ * <p>
+ * Le regole sono ordinate per priorità (poi id): la posizione è il "rango" e vince il rango
+ * più basso tra quelle soddisfatte. Le parole chiave di tutte le regole sono in un unico automa
+ * ({@link AhoCorasick}): una scansione della descrizione normalizzata dice quali regole con
+ * parola chiave sono candidate, e solo per quelle si controllano le altre condizioni
+ * (espressione regolare, importo, controparte). Le regole senza parola chiave sono provate
+ * in ordine di rango e solo finché possono ancora battere la migliore trovata: vanno tenute poche.
+ */
+public final class CategorizationRules {
+
+    static final CategorizationRules EMPTY = new CategorizationRules(List.of());
+
+    private final Rule[] rules;
+    private final AhoCorasick keywords;
+    private final int[] keywordRanks;
+    private final int[] unkeyedRanks;
+
+    private CategorizationRules(List<Rule> sorted) {
+        this.rules = sorted.toArray(Rule[]::new);
+        List<String> patterns = new ArrayList<>();
+        List<Integer> keyed = new ArrayList<>();
+        List<Integer> unkeyed = new ArrayList<>();
+        for (int rank = 0; rank < rules.length; rank++) {
+            if (rules[rank].keyword() != null) {
+                patterns.add(rules[rank].keyword());
+                keyed.add(rank);
+            } else {
+                unkeyed.add(rank);
+            }
+        }
+        this.keywords = new AhoCorasick(patterns);
+        this.keywordRanks = keyed.stream().mapToInt(Integer::intValue).toArray();
+        this.unkeyedRanks = unkeyed.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    static CategorizationRules compile(List<BankCategorizationRule> entities) {
+        List<Rule> rules = new ArrayList<>(entities.size());
+        for (BankCategorizationRule e : entities) {
+            rules.add(new Rule(
+                    e.getId(),
+                    e.getPriority() != null ? e.getPriority() : 100,
+                    e.getCategory().getId(),
+                    keyword(e.getKeyword()),
+                    pattern(e.getPattern()),
+                    e.getMinAmount(),
+                    e.getMaxAmount(),
+                    e.getCounterparty() != null ? e.getCounterparty().getId() : null));
+        }
+        rules.sort(Comparator.comparingInt(Rule::priority).thenComparingLong(Rule::id));
+        return new CategorizationRules(rules);
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    /** True se almeno una regola è legata alla controparte. */
+    boolean references(long counterpartyId) {
+        for (Rule rule : rules) {
+            if (rule.counterpartyId() != null && rule.counterpartyId() == counterpartyId) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Categoria della regola migliore soddisfatta dal movimento, o null se nessuna.
+     * {@code amount} è con segno (negativo per gli addebiti).
+     */
+    public Long categorize(String description, BigDecimal amount, Long counterpartyId) {
+        if (rules.length == 0) return null;
+        int[] best = {Integer.MAX_VALUE};
+        if (keywordRanks.length > 0) {
+            keywords.match(description != null ? description : "", id -> {
+                int rank = keywordRanks[id];
+                if (rank < best[0] && rules[rank].accepts(description, amount, counterpartyId)) {
+                    best[0] = rank;
+                }
+            });
+        }
+        for (int rank : unkeyedRanks) {
+            if (rank >= best[0]) break;
+            if (rules[rank].accepts(description, amount, counterpartyId)) {
+                best[0] = rank;
+                break;
+            }
+        }
+        return best[0] == Integer.MAX_VALUE ? null : rules[best[0]].categoryId();
+    }
+
+    /** Parola chiave normalizzata con uno spazio davanti: trova solo inizi di parola. */
+    static String keyword(String keyword) {
+        String normalized = CounterpartySearchIndex.normalize(keyword);
+        return normalized.isEmpty() ? null : " " + normalized;
+    }
+
+    static Pattern pattern(String regex) {
+        if (regex == null || regex.isBlank()) return null;
+        return Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    private record Rule(long id, int priority, long categoryId, String keyword, Pattern pattern,
+                        BigDecimal minAmount, BigDecimal maxAmount, Long counterpartyId) {
+
+        boolean accepts(String description, BigDecimal amount, Long counterparty) {
+            if (minAmount != null && (amount == null || amount.compareTo(minAmount) < 0)) return false;
+            if (maxAmount != null && (amount == null || amount.compareTo(maxAmount) > 0)) return false;
+            if (counterpartyId != null && !Objects.equals(counterpartyId, counterparty)) return false;
+            return pattern == null || (description != null && pattern.matcher(description).find());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.veely.account.categorization;
+
+/**
+ * Pubblicato a ogni modifica delle regole di categorizzazione; l'indice si ricompila dopo il commit.
+ */
+public record CategorizationRulesChangedEvent() {
+}
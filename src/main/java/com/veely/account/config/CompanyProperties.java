@@ -0,0 +1,44 @@
+package com.veely.account.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Dati dell'azienda che emette le fatture attive: cedente/prestatore e trasmittente nelle FatturaPA esportate.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "veely.company")
+public class CompanyProperties {
+
+    private String name;
+
+    /** Codice paese della partita IVA (IdPaese). */
+    private String country = "IT";
+
+    private String vatNumber;
+
+    private String taxCode;
+
+    /** Regime fiscale FatturaPA (RF01 = ordinario). */
+    private String taxRegime = "RF01";
+
+    private String address;
+
+    private String postalCode;
+
+    private String city;
+
+    /** Sigla della provincia, facoltativa. */
+    private String province;
+
+    /** Conto su cui ricevere i pagamenti, riportato nei DatiPagamento. */
+    private String iban;
+
+    /** TipoRitenuta per le fatture con ritenuta: RT01 persone fisiche, RT02 persone giuridiche. */
+    private String withholdingKind = "RT01";
+
+    /** CausalePagamento dei DatiRitenuta (modello 770): A = prestazioni di lavoro autonomo professionale. */
+    private String withholdingPaymentReason = "A";
+}
@@ -0,0 +1,14 @@
+package com.veely.account.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "veely.invoices.lines")
+public class InvoiceLineProperties {
+
+    /** Numero massimo di righe accettate da un singolo inserimento massivo (JSON o testo incollato). */
+    private int bulkMaxLines = 5000;
+}
@@ -0,0 +1,24 @@
+package com.veely.account.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "veely.invoices.list")
+public class InvoiceListProperties {
+
+    /** Righe per pagina quando la richiesta non specifica "size". */
+    private int pageSize = 50;
+
+    /** Limite massimo accettato per "size", per evitare pagine arbitrariamente grandi. */
+    private int maxPageSize = 200;
+
+    public int resolvePageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return pageSize;
+        }
+        return Math.min(requested, maxPageSize);
+    }
+}
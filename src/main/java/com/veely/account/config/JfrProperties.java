@@ -0,0 +1,26 @@
+package com.veely.account.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "veely.jfr")
+public class JfrProperties {
+
+    /** Durata massima accettata da POST /actuator/jfr: ogni registrazione si ferma da sola. */
+    private Duration maxDuration = Duration.ofMinutes(10);
+
+    /** Dati tenuti su disco per registrazione: oltre, i chunk più vecchi vengono scartati. */
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+
+    /** Età massima dei dati tenuti su disco per registrazione. */
+    private Duration maxAge = Duration.ofMinutes(15);
+
+    /** Registrazioni avviate dall'endpoint che possono essere attive contemporaneamente. */
+    private int maxRecordings = 1;
+}
@@ -0,0 +1,19 @@
+package com.veely.account.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "veely.lookups.cache")
+public class LookupCacheProperties {
+
+    /** Se false ogni chiamata a LookupService va sul database. */
+    private boolean enabled = true;
+
+    /** Durata massima di uno snapshot anche senza invalidazioni esplicite. */
+    private Duration ttl = Duration.ofMinutes(10);
+}
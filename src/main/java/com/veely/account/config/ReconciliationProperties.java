@@ -0,0 +1,26 @@
+package com.veely.account.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "veely.reconciliation")
+public class ReconciliationProperties {
+
+    /** Giorni dopo la scadenza (o l'emissione, se manca la scadenza) entro cui un movimento può pagare la fattura. */
+    private int windowDays = 120;
+
+    /** Punteggio minimo (0-100) per collegare il movimento alla fattura senza revisione. */
+    private int autoLinkScore = 80;
+
+    /** Punteggio minimo per proporre l'abbinamento nella coda di revisione. */
+    private int reviewScore = 50;
+
+    /** Distacco minimo del migliore dal secondo candidato perché il collegamento automatico non sia ambiguo. */
+    private int ambiguityMargin = 10;
+
+    /** Candidati proposti in revisione per ogni movimento. */
+    private int maxReviewCandidates = 3;
+}
@@ -0,0 +1,49 @@
+package com.veely.account.config;
+
+import com.veely.account.timing.ServerTimingFilter;
+import com.veely.account.timing.ServerTimingInterceptor;
+import com.veely.account.timing.TimingDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Profilazione per richiesta visibile nel browser (header Server-Timing) senza APM esterno:
+ * filtro e interceptor per le fasi della richiesta, DataSource avvolto per contare e cronometrare l'SQL.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "veely.server-timing", name = "enabled", matchIfMissing = true)
+public class ServerTimingConfig implements WebMvcConfigurer {
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(ServerTimingProperties properties) {
+        FilterRegistrationBean<ServerTimingFilter> registration = new FilterRegistrationBean<>(new ServerTimingFilter(properties));
+        // dopo CharacterEncodingFilter, prima di tutto il resto: il totale comprende anche gli altri filtri
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ServerTimingInterceptor());
+    }
+
+    @Bean
+    public static BeanPostProcessor timingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof TimingDataSource)
+                        ? new TimingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+}
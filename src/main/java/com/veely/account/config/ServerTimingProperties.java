@@ -0,0 +1,26 @@
+package com.veely.account.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "veely.server-timing")
+public class ServerTimingProperties {
+
+    /** Se false niente header Server-Timing, niente log e niente proxy sulle connessioni JDBC. */
+    private boolean enabled = true;
+
+    /** Richieste più lente di questa soglia vengono loggate con il dettaglio dei tempi. */
+    private Duration logThreshold = Duration.ofMillis(500);
+
+    /**
+     * Corpo della risposta trattenuto in attesa dell'header: oltre questa dimensione, o al primo flush,
+     * la risposta parte con i tempi misurati fino a quel momento.
+     */
+    private DataSize bufferSize = DataSize.ofKilobytes(256);
+}
@@ -0,0 +1,20 @@
+package com.veely.account.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "veely.vat")
+public class VatReportProperties {
+
+    /** Thread che calcolano in parallelo gli aggregati mensili (una query per mese). */
+    private int workers = 4;
+
+    /**
+     * Giorni dopo la fine del mese oltre i quali il mese è chiuso: i suoi aggregati sono messi in cache
+     * e non più ricalcolati (16 = scadenza del versamento della liquidazione mensile).
+     */
+    private int closingDays = 16;
+}
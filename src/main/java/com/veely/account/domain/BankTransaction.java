@@ -50,6 +50,19 @@ public class BankTransaction {
     @JoinColumn(name = "counterparty_id")
     private Counterparty counterparty;
 
+    @Column(name = "account_iban", length = 34)
+    private String accountIban;
+
+    @Column(name = "counterparty_name", length = 255)
+    private String counterpartyName;
+
+    @Column(name = "counterparty_iban", length = 34)
+    private String counterpartyIban;
+
+    /** Impronta del movimento importato (SHA-256); univoca, rende idempotente il re-import. */
+    @Column(columnDefinition = "CHAR(64)", updatable = false)
+    private String fingerprint;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "linked_invoice_id")
     private Invoice linkedInvoice;
@@ -54,6 +54,23 @@ public class Counterparty {
     @Column(length = 50)
     private String iban;
 
+    @Column(length = 255)
+    private String address;
+
+    @Column(name = "postal_code", length = 10)
+    private String postalCode;
+
+    @Column(length = 100)
+    private String city;
+
+    /** Sigla della provincia (solo per l'Italia). */
+    @Column(length = 2)
+    private String province;
+
+    /** Codice ISO del paese della sede. */
+    @Column(nullable = false, length = 2)
+    private String country = "IT";
+
     @Column(columnDefinition = "TEXT")
     private String notes;
 
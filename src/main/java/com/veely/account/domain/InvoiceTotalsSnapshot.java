@@ -0,0 +1,63 @@
+package com.veely.account.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.Hibernate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "invoice_totals")
+public class InvoiceTotalsSnapshot {
+
+    @Id
+    @Column(name = "invoice_id")
+    private Long invoiceId;
+
+    @Column(name = "net_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal netTotal = BigDecimal.ZERO;
+
+    @Column(name = "vat_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal vatTotal = BigDecimal.ZERO;
+
+    @Column(name = "withholding_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal withholdingTotal = BigDecimal.ZERO;
+
+    @Column(name = "gross_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal grossTotal = BigDecimal.ZERO;
+
+    @Column(name = "payable_total", nullable = false, precision = 14, scale = 2)
+    private BigDecimal payableTotal = BigDecimal.ZERO;
+
+    @Column(name = "line_count", nullable = false)
+    private Integer lineCount = 0;
+
+    // gestito dal DB (ON UPDATE CURRENT_TIMESTAMP), anche per gli update incrementali in bulk
+    @Column(name = "updated_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime updatedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+        InvoiceTotalsSnapshot that = (InvoiceTotalsSnapshot) o;
+        return invoiceId != null && Objects.equals(invoiceId, that.invoiceId);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
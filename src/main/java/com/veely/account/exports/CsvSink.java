@@ -0,0 +1,97 @@
+package com.veely.account.exports;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * CSV per Excel in italiano: separatore ";", virgola decimale, date gg/mm/aaaa e BOM UTF-8
+ * (senza BOM Excel apre il file come ANSI). I byte escono man mano che il buffer si riempie.
+ * Le celle di testo che iniziano con =, +, -, @, tab o a capo ricevono un apice davanti, così
+ * Excel non le interpreta come formule (descrizioni e note arrivano da import e utenti).
+ */
+final class CsvSink implements SpreadsheetSink {
+
+    private static final char DELIMITER = ';';
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final String FORMULA_START = "=+-@\t\r";
+
+    private final Writer writer;
+    private boolean firstCell;
+
+    CsvSink(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write('\uFEFF');
+    }
+
+    @Override
+    public void header(List<String> titles) throws IOException {
+        startRow();
+        for (String title : titles) {
+            text(title);
+        }
+        endRow();
+    }
+
+    @Override
+    public void startRow() {
+        firstCell = true;
+    }
+
+    @Override
+    public void text(String value) throws IOException {
+        delimit();
+        if (value == null) return;
+        if (!value.isEmpty() && FORMULA_START.indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(DELIMITER) >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(value);
+        }
+    }
+
+    @Override
+    public void date(LocalDate value) throws IOException {
+        delimit();
+        if (value != null) writer.write(DATE.format(value));
+    }
+
+    @Override
+    public void amount(BigDecimal value) throws IOException {
+        delimit();
+        if (value != null) writer.write(value.setScale(2, RoundingMode.HALF_UP).toPlainString().replace('.', ','));
+    }
+
+    @Override
+    public void integer(Long value) throws IOException {
+        delimit();
+        if (value != null) writer.write(Long.toString(value));
+    }
+
+    @Override
+    public void endRow() throws IOException {
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.flush();
+    }
+
+    private void delimit() throws IOException {
+        if (!firstCell) writer.write(DELIMITER);
+        firstCell = false;
+    }
+}
@@ -0,0 +1,186 @@
+package com.veely.account.exports;
+
+import com.veely.account.config.CompanyProperties;
+import com.veely.account.service.dto.InvoiceSearchCriteria;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Export delle fatture attive in FatturaPA: uno zip con un XML per fattura, scritto direttamente
+ * sullo stream della risposta.
+ * <p>
+ * Fatture e righe arrivano da una sola query letta in streaming ({@link JdbcStreaming}), ordinata per
+ * fattura: in memoria c'è solo la fattura corrente, quindi l'heap non cresce con il numero di fatture.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FatturaPaExportService {
+
+    private static final String ACTIVE = "ACTIVE";
+
+    private static final String SELECT = """
+            SELECT i.id, i.number, i.issue_date, i.due_date,
+                   c.name, c.vat_number, c.tax_code, c.sdi_code, c.pec,
+                   c.address, c.postal_code, c.city, c.province, c.country,
+                   l.description, l.net_amount, v.rate AS vat_rate, v.custom_nature_sales,
+                   w.rate AS wt_rate, w.taxable_percent
+            FROM invoices i
+            JOIN invoice_directions d ON d.id = i.direction_id
+            JOIN counterparties c ON c.id = i.counterparty_id
+            JOIN invoice_lines l ON l.invoice_id = i.id
+            LEFT JOIN vat_codes v ON v.id = l.vat_code_id
+            LEFT JOIN withholding_types w ON w.id = l.withholding_type_id""";
+
+    /**
+     * Fatture che SDI scarterebbe: sede della controparte incompleta o righe ad aliquota zero senza natura.
+     */
+    private static final String INVALID = """
+            SELECT i.id, i.number, i.year,
+                   CASE WHEN COALESCE(TRIM(c.address), '') = '' OR COALESCE(TRIM(c.postal_code), '') = ''
+                             OR COALESCE(TRIM(c.city), '') = '' THEN 1 ELSE 0 END AS no_address,
+                   CASE WHEN EXISTS (SELECT 1 FROM invoice_lines l LEFT JOIN vat_codes v ON v.id = l.vat_code_id
+                                     WHERE l.invoice_id = i.id AND COALESCE(v.rate, 0) = 0
+                                       AND COALESCE(TRIM(v.custom_nature_sales), '') = '') THEN 1 ELSE 0 END AS no_nature
+            FROM invoices i
+            JOIN invoice_directions d ON d.id = i.direction_id
+            JOIN counterparties c ON c.id = i.counterparty_id""";
+
+    private static final int MAX_REPORTED = 20;
+
+    private final JdbcTemplate jdbc;
+    private final CompanyProperties company;
+
+    /**
+     * Scrive lo zip su {@code out} (che non viene chiuso) e restituisce il numero di fatture esportate.
+     * La direzione dei filtri è sempre ACTIVE; le fatture senza righe non sono esportate.
+     */
+    public int export(InvoiceSearchCriteria criteria, OutputStream out) throws IOException {
+        checkCompany();
+        InvoiceExportQuery query = activeQuery(criteria);
+
+        long start = System.nanoTime();
+        FatturaPaWriter writer = new FatturaPaWriter(company);
+        ZipOutputStream zip = new ZipOutputStream(out);
+        Assembler assembler = new Assembler(writer, zip);
+        JdbcStreaming.query(jdbc, SELECT + query.where() + " ORDER BY i.id, l.id", query.args(), assembler::row);
+        assembler.flush();
+        zip.finish();
+
+        log.info("📤 Export FatturaPA: {} fatture in {} ms.", assembler.exported, (System.nanoTime() - start) / 1_000_000);
+        return assembler.exported;
+    }
+
+    /**
+     * Da chiamare prima di iniziare la risposta: a streaming avviato un errore non può più diventare un 409.
+     */
+    public void checkCompany() {
+        if (!StringUtils.hasText(company.getVatNumber()) || !StringUtils.hasText(company.getName())) {
+            throw new IllegalStateException("Dati azienda mancanti: configurare veely.company.name e veely.company.vat-number");
+        }
+    }
+
+    /**
+     * Rifiuta l'export se una delle fatture selezionate non passerebbe la validazione SDI (sede della
+     * controparte mancante, righe ad aliquota zero senza natura). Come {@link #checkCompany()}, da chiamare
+     * prima di iniziare la risposta.
+     */
+    public void checkInvoices(InvoiceSearchCriteria criteria) {
+        InvoiceExportQuery query = activeQuery(criteria);
+        List<String> problems = new ArrayList<>();
+        jdbc.query("SELECT * FROM (" + INVALID + query.where() + ") x WHERE no_address = 1 OR no_nature = 1"
+                        + " ORDER BY id LIMIT " + (MAX_REPORTED + 1),
+                rs -> {
+                    if (problems.size() == MAX_REPORTED) {
+                        problems.add("...");
+                        return;
+                    }
+                    List<String> reasons = new ArrayList<>(2);
+                    if (rs.getInt("no_address") == 1) reasons.add("sede della controparte incompleta (indirizzo, CAP, comune)");
+                    if (rs.getInt("no_nature") == 1) reasons.add("righe ad aliquota zero senza natura IVA");
+                    problems.add(rs.getString("number") + "/" + rs.getInt("year") + ": " + String.join(", ", reasons));
+                }, query.args());
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Fatture non esportabili in FatturaPA:\n" + String.join("\n", problems));
+        }
+    }
+
+    private static InvoiceExportQuery activeQuery(InvoiceSearchCriteria criteria) {
+        return InvoiceExportQuery.of(InvoiceSearchCriteria.builder()
+                .directionCode(ACTIVE)
+                .statusId(criteria.getStatusId())
+                .counterpartyId(criteria.getCounterpartyId())
+                .from(criteria.getFrom())
+                .to(criteria.getTo())
+                .q(criteria.getQ())
+                .build());
+    }
+
+    /**
+     * Raccoglie le righe della fattura corrente e la scrive nello zip quando il cursore passa alla successiva.
+     */
+    private static final class Assembler {
+
+        private final FatturaPaWriter writer;
+        private final ZipOutputStream zip;
+        private FatturaPaWriter.Invoice current;
+        private final List<FatturaPaWriter.Line> lines = new ArrayList<>();
+        private int exported;
+
+        Assembler(FatturaPaWriter writer, ZipOutputStream zip) {
+            this.writer = writer;
+            this.zip = zip;
+        }
+
+        void row(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            if (current == null || current.id() != id) {
+                flush();
+                Date due = rs.getDate("due_date");
+                current = new FatturaPaWriter.Invoice(id, rs.getString("number"), rs.getDate("issue_date").toLocalDate(),
+                        due != null ? due.toLocalDate() : null,
+                        rs.getString("name"), rs.getString("vat_number"), rs.getString("tax_code"),
+                        rs.getString("sdi_code"), rs.getString("pec"),
+                        new FatturaPaWriter.Address(rs.getString("address"), rs.getString("postal_code"),
+                                rs.getString("city"), rs.getString("province"), rs.getString("country")),
+                        lines);
+            }
+            BigDecimal wtRate = rs.getBigDecimal("wt_rate");
+            lines.add(new FatturaPaWriter.Line(rs.getString("description"), rs.getBigDecimal("net_amount"),
+                    rs.getBigDecimal("vat_rate"), rs.getString("custom_nature_sales"),
+                    wtRate, wtRate != null ? rs.getBigDecimal("taxable_percent") : null));
+        }
+
+        void flush() {
+            if (current == null) return;
+            try {
+                zip.putNextEntry(new ZipEntry(writer.fileName(current)));
+                writer.write(current, zip);
+                zip.closeEntry();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } catch (XMLStreamException ex) {
+                throw new IllegalStateException("Errore nella scrittura della fattura " + current.number(), ex);
+            }
+            exported++;
+            current = null;
+            lines.clear();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.veely.account.exports;
+
+import com.veely.account.config.CompanyProperties;
+import com.veely.account.domain.WithholdingType;
+import com.veely.account.service.InvoiceTotalsCalculator;
+import org.springframework.util.StringUtils;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Scrittura in streaming (StAX) di una FatturaPA FPR12 (fattura verso privati) per una fattura attiva.
+ * <p>
+ * Il cessionario/committente è identificato da partita IVA e codice fiscale, con la sede della controparte;
+ * il codice destinatario è il codice SDI della controparte, oppure "0000000" con la PEC quando il codice manca.
+ * Sede completa e natura sulle righe ad aliquota zero sono verificate prima dell'export
+ * ({@link FatturaPaExportService#checkInvoices}): qui mancarne una è un errore.
+ * I riepiloghi IVA sono per aliquota e natura, con l'imposta calcolata sull'imponibile del gruppo.
+ */
+final class FatturaPaWriter {
+
+    static final String NAMESPACE = "http://ivaservizi.agenziaentrate.gov.it/docs/xsd/fatture/v1.2";
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newFactory();
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    private static final String NO_SDI_CODE = "0000000";
+    private static final String FOREIGN_POSTAL_CODE = "00000";
+
+    private final CompanyProperties company;
+
+    FatturaPaWriter(CompanyProperties company) {
+        this.company = company;
+    }
+
+    record Invoice(long id, String number, LocalDate issueDate, LocalDate dueDate,
+                   String counterpartyName, String vatNumber, String taxCode, String sdiCode, String pec,
+                   Address address, List<Line> lines) {
+    }
+
+    /**
+     * Sede della controparte; {@code country} è il codice ISO del paese.
+     */
+    record Address(String street, String postalCode, String city, String province, String country) {
+    }
+
+    /**
+     * @param nature natura dell'operazione (vat_codes.custom_nature_sales) per le righe senza IVA
+     */
+    record Line(String description, BigDecimal netAmount, BigDecimal vatRate, String nature,
+                BigDecimal withholdingRate, BigDecimal withholdingTaxablePercent) {
+    }
+
+    /**
+     * Nome del file secondo le regole SDI: paese e identificativo del trasmittente, progressivo alfanumerico.
+     */
+    String fileName(Invoice invoice) {
+        return company.getCountry() + transmitterCode() + "_" + progressive(invoice.id(), 5) + ".xml";
+    }
+
+    /**
+     * Scrive il documento senza chiudere {@code out} (tipicamente la voce corrente di uno zip).
+     */
+    void write(Invoice invoice, OutputStream out) throws XMLStreamException {
+        XMLStreamWriter xml = FACTORY.createXMLStreamWriter(out, "UTF-8");
+        try {
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeStartElement("p", "FatturaElettronica", NAMESPACE);
+            xml.writeNamespace("p", NAMESPACE);
+            xml.writeAttribute("versione", "FPR12");
+            writeHeader(xml, invoice);
+            writeBody(xml, invoice);
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+        } finally {
+            xml.close(); // non chiude lo stream sottostante
+        }
+    }
+
+    private void writeHeader(XMLStreamWriter xml, Invoice invoice) throws XMLStreamException {
+        xml.writeStartElement("FatturaElettronicaHeader");
+
+        xml.writeStartElement("DatiTrasmissione");
+        xml.writeStartElement("IdTrasmittente");
+        element(xml, "IdPaese", company.getCountry());
+        element(xml, "IdCodice", transmitterCode());
+        xml.writeEndElement();
+        element(xml, "ProgressivoInvio", progressive(invoice.id(), 10));
+        element(xml, "FormatoTrasmissione", "FPR12");
+        boolean hasSdiCode = StringUtils.hasText(invoice.sdiCode());
+        element(xml, "CodiceDestinatario", hasSdiCode ? invoice.sdiCode().trim().toUpperCase(Locale.ROOT) : NO_SDI_CODE);
+        if (!hasSdiCode && StringUtils.hasText(invoice.pec())) {
+            element(xml, "PECDestinatario", invoice.pec().trim());
+        }
+        xml.writeEndElement();
+
+        xml.writeStartElement("CedentePrestatore");
+        xml.writeStartElement("DatiAnagrafici");
+        xml.writeStartElement("IdFiscaleIVA");
+        element(xml, "IdPaese", company.getCountry());
+        element(xml, "IdCodice", company.getVatNumber());
+        xml.writeEndElement();
+        optional(xml, "CodiceFiscale", company.getTaxCode());
+        xml.writeStartElement("Anagrafica");
+        element(xml, "Denominazione", company.getName());
+        xml.writeEndElement();
+        element(xml, "RegimeFiscale", company.getTaxRegime());
+        xml.writeEndElement();
+        xml.writeStartElement("Sede");
+        element(xml, "Indirizzo", company.getAddress());
+        element(xml, "CAP", company.getPostalCode());
+        element(xml, "Comune", company.getCity());
+        optional(xml, "Provincia", company.getProvince());
+        element(xml, "Nazione", company.getCountry());
+        xml.writeEndElement();
+        xml.writeEndElement();
+
+        xml.writeStartElement("CessionarioCommittente");
+        xml.writeStartElement("DatiAnagrafici");
+        String vat = normalizeVat(invoice.vatNumber());
+        if (vat != null) {
+            boolean foreign = Character.isLetter(vat.charAt(0));
+            xml.writeStartElement("IdFiscaleIVA");
+            element(xml, "IdPaese", foreign ? vat.substring(0, 2) : "IT");
+            element(xml, "IdCodice", foreign ? vat.substring(2) : vat);
+            xml.writeEndElement();
+        }
+        optional(xml, "CodiceFiscale", invoice.taxCode() != null ? invoice.taxCode().trim().toUpperCase(Locale.ROOT) : null);
+        xml.writeStartElement("Anagrafica");
+        element(xml, "Denominazione", invoice.counterpartyName());
+        xml.writeEndElement();
+        xml.writeEndElement();
+        writeCounterpartyAddress(xml, invoice);
+        xml.writeEndElement();
+
+        xml.writeEndElement();
+    }
+
+    private static void writeCounterpartyAddress(XMLStreamWriter xml, Invoice invoice) throws XMLStreamException {
+        Address address = invoice.address();
+        if (address == null || !StringUtils.hasText(address.street()) || !StringUtils.hasText(address.postalCode())
+                || !StringUtils.hasText(address.city())) {
+            throw new IllegalStateException("Fattura " + invoice.number() + ": sede della controparte incompleta");
+        }
+        String country = StringUtils.hasText(address.country()) ? address.country().trim().toUpperCase(Locale.ROOT) : "IT";
+        boolean italian = "IT".equals(country);
+        String postalCode = address.postalCode().trim();
+        xml.writeStartElement("Sede");
+        element(xml, "Indirizzo", address.street().trim());
+        // per le sedi estere il CAP di cinque cifre non esiste: SDI accetta 00000
+        element(xml, "CAP", italian || postalCode.matches("\\d{5}") ? postalCode : FOREIGN_POSTAL_CODE);
+        element(xml, "Comune", address.city().trim());
+        if (italian) {
+            optional(xml, "Provincia", address.province() != null ? address.province().trim().toUpperCase(Locale.ROOT) : null);
+        }
+        element(xml, "Nazione", country);
+        xml.writeEndElement();
+    }
+
+    private void writeBody(XMLStreamWriter xml, Invoice invoice) throws XMLStreamException {
+        Map<String, Summary> summary = new LinkedHashMap<>();
+        Map<BigDecimal, BigDecimal> withholdingByRate = new LinkedHashMap<>();
+        for (Line line : invoice.lines()) {
+            BigDecimal rate = rate(line);
+            String nature = nature(line);
+            if (rate.signum() == 0 && nature == null) {
+                throw new IllegalStateException("Fattura " + invoice.number() + ": riga \"" + line.description()
+                        + "\" ad aliquota zero senza natura");
+            }
+            Summary group = summary.computeIfAbsent(rate.toPlainString() + '|' + (nature != null ? nature : ""),
+                    k -> new Summary(rate, nature));
+            group.taxable = group.taxable.add(line.netAmount());
+            if (line.withholdingRate() != null) {
+                WithholdingType wt = new WithholdingType();
+                wt.setRate(line.withholdingRate());
+                wt.setTaxablePercent(line.withholdingTaxablePercent());
+                BigDecimal amount = InvoiceTotalsCalculator.lineAmounts(line.netAmount(), null, wt).withholding();
+                withholdingByRate.merge(line.withholdingRate().setScale(2, RoundingMode.HALF_UP), amount, BigDecimal::add);
+            }
+        }
+        BigDecimal taxable = BigDecimal.ZERO;
+        BigDecimal tax = BigDecimal.ZERO;
+        for (Summary group : summary.values()) {
+            taxable = taxable.add(group.taxable);
+            tax = tax.add(group.tax());
+        }
+        BigDecimal total = taxable.add(tax);
+        BigDecimal withholding = withholdingByRate.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        xml.writeStartElement("FatturaElettronicaBody");
+
+        xml.writeStartElement("DatiGenerali");
+        xml.writeStartElement("DatiGeneraliDocumento");
+        element(xml, "TipoDocumento", "TD01");
+        element(xml, "Divisa", "EUR");
+        element(xml, "Data", invoice.issueDate().toString());
+        element(xml, "Numero", invoice.number());
+        for (Map.Entry<BigDecimal, BigDecimal> entry : withholdingByRate.entrySet()) {
+            xml.writeStartElement("DatiRitenuta");
+            element(xml, "TipoRitenuta", company.getWithholdingKind());
+            element(xml, "ImportoRitenuta", amount(entry.getValue()));
+            element(xml, "AliquotaRitenuta", amount(entry.getKey()));
+            element(xml, "CausalePagamento", company.getWithholdingPaymentReason());
+            xml.writeEndElement();
+        }
+        element(xml, "ImportoTotaleDocumento", amount(total));
+        xml.writeEndElement();
+        xml.writeEndElement();
+
+        xml.writeStartElement("DatiBeniServizi");
+        int number = 0;
+        for (Line line : invoice.lines()) {
+            xml.writeStartElement("DettaglioLinee");
+            element(xml, "NumeroLinea", Integer.toString(++number));
+            element(xml, "Descrizione", line.description());
+            element(xml, "PrezzoUnitario", amount(line.netAmount()));
+            element(xml, "PrezzoTotale", amount(line.netAmount()));
+            element(xml, "AliquotaIVA", amount(rate(line)));
+            if (line.withholdingRate() != null) {
+                element(xml, "Ritenuta", "SI");
+            }
+            optional(xml, "Natura", nature(line));
+            xml.writeEndElement();
+        }
+        for (Summary group : summary.values()) {
+            xml.writeStartElement("DatiRiepilogo");
+            element(xml, "AliquotaIVA", amount(group.rate));
+            optional(xml, "Natura", group.nature);
+            element(xml, "ImponibileImporto", amount(group.taxable));
+            element(xml, "Imposta", amount(group.tax()));
+            if (group.nature == null) {
+                element(xml, "EsigibilitaIVA", "I");
+            }
+            xml.writeEndElement();
+        }
+        xml.writeEndElement();
+
+        if (invoice.dueDate() != null) {
+            xml.writeStartElement("DatiPagamento");
+            element(xml, "CondizioniPagamento", "TP02");
+            xml.writeStartElement("DettaglioPagamento");
+            element(xml, "ModalitaPagamento", "MP05");
+            element(xml, "DataScadenzaPagamento", invoice.dueDate().toString());
+            element(xml, "ImportoPagamento", amount(total.subtract(withholding)));
+            optional(xml, "IBAN", company.getIban());
+            xml.writeEndElement();
+            xml.writeEndElement();
+        }
+
+        xml.writeEndElement();
+    }
+
+    private String transmitterCode() {
+        return StringUtils.hasText(company.getTaxCode()) ? company.getTaxCode() : company.getVatNumber();
+    }
+
+    private static BigDecimal rate(Line line) {
+        return (line.vatRate() != null ? line.vatRate() : BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static String nature(Line line) {
+        return rate(line).signum() == 0 && StringUtils.hasText(line.nature()) ? line.nature().trim() : null;
+    }
+
+    private static String amount(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static String normalizeVat(String vat) {
+        if (vat == null) return null;
+        String v = vat.replaceAll("[^A-Za-z0-9]", "").toUpperCase(Locale.ROOT);
+        if (v.length() == 13 && v.startsWith("IT")) v = v.substring(2);
+        return v.isEmpty() ? null : v;
+    }
+
+    /**
+     * Id della fattura in base 36, allineato a {@code width} caratteri: univoco e stabile tra export successivi.
+     */
+    private static String progressive(long id, int width) {
+        String base36 = Long.toString(id, 36).toUpperCase(Locale.ROOT);
+        return base36.length() >= width ? base36 : "0".repeat(width - base36.length()) + base36;
+    }
+
+    /**
+     * Riepilogo per aliquota e natura: l'imposta si calcola sull'imponibile del gruppo.
+     */
+    private static final class Summary {
+        private final BigDecimal rate;
+        private final String nature;
+        private BigDecimal taxable = BigDecimal.ZERO;
+
+        Summary(BigDecimal rate, String nature) {
+            this.rate = rate;
+            this.nature = nature;
+        }
+
+        BigDecimal tax() {
+            return taxable.multiply(rate).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+        }
+    }
+
+    private static void element(XMLStreamWriter xml, String name, String value) throws XMLStreamException {
+        xml.writeStartElement(name);
+        xml.writeCharacters(value != null ? value : "");
+        xml.writeEndElement();
+    }
+
+    private static void optional(XMLStreamWriter xml, String name, String value) throws XMLStreamException {
+        if (StringUtils.hasText(value)) {
+            element(xml, name, value);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.veely.account.exports;
+
+import com.veely.account.service.dto.InvoiceSearchCriteria;
+import org.springframework.util.StringUtils;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Condizioni SQL equivalenti ai filtri di InvoiceService.search (stessi parametri della lista /invoices),
+ * per gli export che leggono in streaming con JDBC. Gli alias attesi sono {@code i} (invoices)
+ * e {@code d} (invoice_directions).
+ */
+final class InvoiceExportQuery {
+
+    private final StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+    private final List<Object> args = new ArrayList<>();
+
+    private InvoiceExportQuery() {
+    }
+
+    static InvoiceExportQuery of(InvoiceSearchCriteria criteria) {
+        InvoiceExportQuery query = new InvoiceExportQuery();
+        if (StringUtils.hasText(criteria.getDirectionCode())) {
+            query.and("UPPER(d.code) = ?", criteria.getDirectionCode().trim().toUpperCase(Locale.ROOT));
+        }
+        if (criteria.getStatusId() != null) {
+            query.and("i.status_id = ?", criteria.getStatusId());
+        }
+        if (criteria.getCounterpartyId() != null) {
+            query.and("i.counterparty_id = ?", criteria.getCounterpartyId());
+        }
+        if (criteria.getFrom() != null) {
+            query.and("i.issue_date >= ?", Date.valueOf(criteria.getFrom()));
+        }
+        if (criteria.getTo() != null) {
+            query.and("i.issue_date <= ?", Date.valueOf(criteria.getTo()));
+        }
+        if (StringUtils.hasText(criteria.getQ())) {
+            String q = criteria.getQ().trim();
+            if (q.chars().allMatch(Character::isDigit)) {
+                query.where.append(" AND (LOWER(i.number) LIKE ? OR i.year = ?)");
+                query.args.add("%" + q.toLowerCase(Locale.ROOT) + "%");
+                query.args.add(Integer.valueOf(q));
+            } else {
+                query.and("LOWER(i.number) LIKE ?", "%" + q.toLowerCase(Locale.ROOT) + "%");
+            }
+        }
+        return query;
+    }
+
+    private void and(String condition, Object arg) {
+        where.append(" AND ").append(condition);
+        args.add(arg);
+    }
+
+    String where() {
+        return where.toString();
+    }
+
+    Object[] args() {
+        return args.toArray();
+    }
+}
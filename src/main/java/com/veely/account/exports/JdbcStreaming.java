@@ -0,0 +1,38 @@
+package com.veely.account.exports;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Query in sola lettura e solo in avanti, consumate riga per riga senza caricare il risultato.
+ * Con MySQL serve fetchSize = Integer.MIN_VALUE (il driver altrimenti legge tutto il result set
+ * in memoria prima di restituire la prima riga); gli altri driver usano un fetch a blocchi.
+ * Finché lo streaming è aperto la connessione non può eseguire altre query.
+ */
+public final class JdbcStreaming {
+
+    private static final int FETCH_SIZE = 500;
+
+    private JdbcStreaming() {
+    }
+
+    public static void query(JdbcTemplate jdbc, String sql, Object[] args, RowCallbackHandler handler) {
+        jdbc.query(con -> prepare(con, sql, args), handler);
+    }
+
+    private static PreparedStatement prepare(Connection con, String sql, Object[] args) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        boolean mysql = con.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+        ps.setFetchSize(mysql ? Integer.MIN_VALUE : FETCH_SIZE);
+        for (int i = 0; i < args.length; i++) {
+            ps.setObject(i + 1, args[i]);
+        }
+        return ps;
+    }
+}
@@ -0,0 +1,32 @@
+package com.veely.account.exports;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Destinazione riga per riga degli export tabellari: le celle si aggiungono in ordine di colonna,
+ * nessuna implementazione tiene in memoria le righe già scritte.
+ */
+interface SpreadsheetSink {
+
+    void header(List<String> titles) throws IOException;
+
+    void startRow() throws IOException;
+
+    void text(String value) throws IOException;
+
+    void date(LocalDate value) throws IOException;
+
+    void amount(BigDecimal value) throws IOException;
+
+    void integer(Long value) throws IOException;
+
+    void endRow() throws IOException;
+
+    /**
+     * Completa il documento su {@code out}, che resta aperto.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,124 @@
+package com.veely.account.exports;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Foglio xlsx scritto con SXSSF: in memoria restano solo le ultime {@value #WINDOW} righe,
+ * le altre finiscono in un file temporaneo compresso che viene copiato su {@code out} in {@link #finish()}.
+ * Oltre il limite di righe di Excel si apre un nuovo foglio con la stessa intestazione.
+ */
+final class XlsxSink implements SpreadsheetSink {
+
+    private static final int WINDOW = 200;
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final OutputStream out;
+    private final String sheetName;
+    private final SXSSFWorkbook workbook = new SXSSFWorkbook(WINDOW);
+    private final CellStyle headerStyle;
+    private final CellStyle dateStyle;
+    private final CellStyle amountStyle;
+
+    private List<String> titles;
+    private SXSSFSheet sheet;
+    private SXSSFRow row;
+    private int rowIndex;
+    private int column;
+
+    XlsxSink(OutputStream out, String sheetName) {
+        this.out = out;
+        this.sheetName = sheetName;
+        workbook.setCompressTempFiles(true);
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        headerStyle = workbook.createCellStyle();
+        headerStyle.setFont(bold);
+        dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.createDataFormat().getFormat("dd/mm/yyyy"));
+        amountStyle = workbook.createCellStyle();
+        amountStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+    }
+
+    @Override
+    public void header(List<String> titles) {
+        this.titles = List.copyOf(titles);
+        newSheet();
+    }
+
+    @Override
+    public void startRow() {
+        if (rowIndex >= MAX_ROWS) newSheet();
+        row = sheet.createRow(rowIndex++);
+        column = 0;
+    }
+
+    @Override
+    public void text(String value) {
+        int c = column++;
+        if (value != null) row.createCell(c).setCellValue(value);
+    }
+
+    @Override
+    public void date(LocalDate value) {
+        int c = column++;
+        if (value == null) return;
+        var cell = row.createCell(c);
+        cell.setCellValue(value);
+        cell.setCellStyle(dateStyle);
+    }
+
+    @Override
+    public void amount(BigDecimal value) {
+        int c = column++;
+        if (value == null) return;
+        var cell = row.createCell(c);
+        cell.setCellValue(value.doubleValue());
+        cell.setCellStyle(amountStyle);
+    }
+
+    @Override
+    public void integer(Long value) {
+        int c = column++;
+        if (value != null) row.createCell(c).setCellValue(value);
+    }
+
+    @Override
+    public void endRow() {
+        row = null;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        try {
+            if (sheet == null) workbook.createSheet(sheetName);
+            workbook.write(out);
+            out.flush();
+        } finally {
+            workbook.close(); // in POI 5 elimina anche i file temporanei delle righe già scaricate
+        }
+    }
+
+    private void newSheet() {
+        int number = workbook.getNumberOfSheets();
+        sheet = workbook.createSheet(number == 0 ? sheetName : sheetName + " " + (number + 1));
+        rowIndex = 0;
+        SXSSFRow header = sheet.createRow(rowIndex++);
+        for (int i = 0; i < titles.size(); i++) {
+            var cell = header.createCell(i);
+            cell.setCellValue(titles.get(i));
+            cell.setCellStyle(headerStyle);
+        }
+        sheet.createFreezePane(0, 1);
+    }
+}
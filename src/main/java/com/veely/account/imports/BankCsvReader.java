@@ -0,0 +1,258 @@
+package com.veely.account.imports;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Lettura in streaming di un estratto conto CSV, un record alla volta.
+ * <p>
+ * Le colonne sono riconosciute dall'intestazione (nomi italiani o inglesi più diffusi
+ * negli export bancari: "Data contabile", "Data valuta", "Descrizione"/"Causale",
+ * "Importo" oppure "Dare"/"Avere", ...); il separatore (; , o tab) è dedotto dall'intestazione.
+ * Importi con virgola decimale e separatore delle migliaia sono gestiti.
+ */
+final class BankCsvReader {
+
+    private enum Column {
+        BOOKING_DATE("datacontabile", "dataoperazione", "data", "bookingdate", "date"),
+        VALUE_DATE("datavaluta", "valuta", "valuedate"),
+        DESCRIPTION("descrizione", "causale", "descrizioneoperazione", "dettagli", "description"),
+        AMOUNT("importo", "importoeur", "amount"),
+        DEBIT("dare", "addebiti", "uscite", "debit"),
+        CREDIT("avere", "accrediti", "entrate", "credit"),
+        COUNTERPARTY_NAME("controparte", "beneficiario", "ordinante", "counterparty"),
+        COUNTERPARTY_IBAN("ibancontroparte", "iban", "counterpartyiban"),
+        REFERENCE("riferimento", "idoperazione", "cro", "trn", "reference"),
+        ACCOUNT_IBAN("ibanconto", "accountiban");
+
+        private final String[] aliases;
+
+        Column(String... aliases) {
+            this.aliases = aliases;
+        }
+    }
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("d/M/uuuu"),
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("d.M.uuuu"),
+            DateTimeFormatter.ofPattern("d-M-uuuu"),
+            DateTimeFormatter.ofPattern("d/M/uu"));
+
+    private BankCsvReader() {
+    }
+
+    /**
+     * @param accountIban conto a cui attribuire i movimenti se il file non ha una colonna IBAN conto
+     * @param rowErrors   riceve le righe scartate (numero di riga e motivo)
+     */
+    static void read(Path file, Charset charset, String accountIban, BankMovement.Callback callback,
+                     Consumer<String> rowErrors) throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(file, charset)) {
+            skipBom(reader);
+            String headerLine = reader.readLine();
+            if (headerLine == null) return;
+            char delimiter = detectDelimiter(headerLine);
+            Map<Column, Integer> columns = mapColumns(new RecordReader(new StringReader(headerLine), delimiter).next());
+            if (!columns.containsKey(Column.BOOKING_DATE)
+                    || !(columns.containsKey(Column.AMOUNT) || columns.containsKey(Column.DEBIT) || columns.containsKey(Column.CREDIT))) {
+                throw new IllegalArgumentException("Intestazione CSV non riconosciuta: servono almeno data e importo (" + headerLine + ")");
+            }
+
+            RecordReader records = new RecordReader(reader, delimiter);
+            int rowNumber = 1;
+            List<String> record;
+            while ((record = records.next()) != null) {
+                rowNumber++;
+                if (record.stream().allMatch(String::isBlank)) continue;
+                BankMovement movement;
+                try {
+                    movement = toMovement(record, columns, accountIban);
+                } catch (IllegalArgumentException ex) {
+                    rowErrors.accept("Riga " + rowNumber + ": " + ex.getMessage());
+                    continue;
+                }
+                callback.movement(rowNumber, movement);
+            }
+        }
+    }
+
+    private static BankMovement toMovement(List<String> record, Map<Column, Integer> columns, String accountIban) {
+        LocalDate bookingDate = date(get(record, columns, Column.BOOKING_DATE));
+        if (bookingDate == null) throw new IllegalArgumentException("data contabile mancante");
+
+        BigDecimal amount;
+        String signed = get(record, columns, Column.AMOUNT);
+        if (signed != null) {
+            amount = amount(signed);
+        } else {
+            BigDecimal credit = amount(get(record, columns, Column.CREDIT));
+            BigDecimal debit = amount(get(record, columns, Column.DEBIT));
+            if (credit == null && debit == null) throw new IllegalArgumentException("importo mancante");
+            amount = (credit != null ? credit : BigDecimal.ZERO).subtract(debit != null ? debit.abs() : BigDecimal.ZERO);
+        }
+        if (amount == null) throw new IllegalArgumentException("importo mancante");
+
+        String account = get(record, columns, Column.ACCOUNT_IBAN);
+        return new BankMovement(
+                account != null ? account : accountIban,
+                bookingDate,
+                date(get(record, columns, Column.VALUE_DATE)),
+                amount,
+                get(record, columns, Column.DESCRIPTION),
+                get(record, columns, Column.COUNTERPARTY_NAME),
+                get(record, columns, Column.COUNTERPARTY_IBAN),
+                get(record, columns, Column.REFERENCE));
+    }
+
+    private static String get(List<String> record, Map<Column, Integer> columns, Column column) {
+        Integer idx = columns.get(column);
+        if (idx == null || idx >= record.size()) return null;
+        String v = record.get(idx).trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    private static LocalDate date(String v) {
+        if (v == null) return null;
+        String text = v.length() > 10 && v.charAt(10) == 'T' ? v.substring(0, 10) : v;
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(text, format);
+            } catch (DateTimeParseException ignore) { }
+        }
+        throw new IllegalArgumentException("data non valida: " + v);
+    }
+
+    /**
+     * "1.234,56", "1,234.56", "-12,50", "€ 10" -> BigDecimal con scala 2.
+     */
+    static BigDecimal amount(String v) {
+        if (v == null) return null;
+        String text = v.replaceAll("[^0-9,.+-]", "");
+        if (text.isEmpty() || text.equals("-") || text.equals("+")) return null;
+        int comma = text.lastIndexOf(',');
+        int dot = text.lastIndexOf('.');
+        if (comma >= 0 && dot >= 0) {
+            text = comma > dot
+                    ? text.replace(".", "").replace(',', '.')
+                    : text.replace(",", "");
+        } else if (comma >= 0) {
+            text = text.replace(',', '.');
+        }
+        try {
+            return new BigDecimal(text).setScale(2, RoundingMode.HALF_UP);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("importo non valido: " + v);
+        }
+    }
+
+    private static Map<Column, Integer> mapColumns(List<String> header) {
+        Map<Column, Integer> columns = new HashMap<>();
+        for (Column column : Column.values()) {
+            aliases:
+            for (String alias : column.aliases) {
+                for (int i = 0; i < header.size(); i++) {
+                    if (alias.equals(normalize(header.get(i))) && !columns.containsValue(i)) {
+                        columns.put(column, i);
+                        break aliases;
+                    }
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static String normalize(String name) {
+        String plain = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return plain.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static char detectDelimiter(String header) {
+        char best = ';';
+        long bestCount = -1;
+        for (char candidate : new char[]{';', ',', '\t'}) {
+            long count = header.chars().filter(c -> c == candidate).count();
+            if (count > bestCount) {
+                best = candidate;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private static void skipBom(BufferedReader reader) throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+    }
+
+    /**
+     * Record CSV secondo RFC 4180: campi tra virgolette con separatori, a capo e "" al loro interno.
+     */
+    private static final class RecordReader {
+
+        private final Reader reader;
+        private final char delimiter;
+        private final StringBuilder field = new StringBuilder();
+
+        RecordReader(Reader reader, char delimiter) {
+            this.reader = reader;
+            this.delimiter = delimiter;
+        }
+
+        List<String> next() throws IOException {
+            List<String> record = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) reader.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!any) return null;
+            record.add(field.toString());
+            return record;
+        }
+    }
+}
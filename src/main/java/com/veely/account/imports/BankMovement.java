@@ -0,0 +1,18 @@
+package com.veely.account.imports;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Movimento letto da un estratto conto; {@code amount} è negativo per gli addebiti.
+ * {@code reference} è il riferimento univoco della banca, se il formato lo riporta.
+ */
+public record BankMovement(String accountIban, LocalDate bookingDate, LocalDate valueDate,
+                           BigDecimal amount, String description,
+                           String counterpartyName, String counterpartyIban, String reference) {
+
+    @FunctionalInterface
+    public interface Callback {
+        void movement(int rowNumber, BankMovement movement) throws Exception;
+    }
+}
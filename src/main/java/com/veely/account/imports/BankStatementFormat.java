@@ -0,0 +1,26 @@
+package com.veely.account.imports;
+
+import java.util.Locale;
+
+public enum BankStatementFormat {
+
+    CSV,
+    CAMT053;
+
+    /**
+     * Formato indicato esplicitamente o, in mancanza, dedotto dall'estensione del file.
+     */
+    public static BankStatementFormat resolve(String explicit, String fileName) {
+        if (explicit != null && !explicit.isBlank()) {
+            try {
+                return valueOf(explicit.trim().toUpperCase(Locale.ROOT).replace(".", ""));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Formato estratto conto non supportato: " + explicit);
+            }
+        }
+        String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".xml")) return CAMT053;
+        if (name.endsWith(".csv") || name.endsWith(".txt")) return CSV;
+        throw new IllegalArgumentException("Formato estratto conto non riconosciuto: " + fileName);
+    }
+}
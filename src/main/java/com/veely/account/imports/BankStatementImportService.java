@@ -0,0 +1,79 @@
+package com.veely.account.imports;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Accoda gli import degli estratti conto sullo stesso executor dei dizionari
+ * ({@link ImportJobRegistry}); l'avanzamento si legge con {@link #find(String)}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BankStatementImportService {
+
+    static final String JOB_TYPE = "BANK_STATEMENTS";
+    private static final String FILE_KEY = "STATEMENT";
+
+    private final BankStatementImporter importer;
+    private final ImportJobRegistry jobRegistry;
+
+    /**
+     * Salva il file caricato in una cartella temporanea e accoda il job.
+     *
+     * @param format      CSV o CAMT053; se assente è dedotto dall'estensione
+     * @param accountIban conto dei movimenti, obbligatorio se il file non lo riporta
+     */
+    public ImportJob submit(MultipartFile upload, String format, String accountIban) {
+        if (upload == null || upload.isEmpty()) {
+            throw new IllegalArgumentException("Nessun file da importare");
+        }
+        String fileName = upload.getOriginalFilename() != null ? upload.getOriginalFilename() : "estratto-conto";
+        BankStatementFormat resolved = BankStatementFormat.resolve(format, fileName);
+        try {
+            Path workDir = Files.createTempDirectory("veely-bank-");
+            Path target = workDir.resolve("statement." + (resolved == BankStatementFormat.CSV ? "csv" : "xml"));
+            upload.transferTo(target);
+            ImportJob job = new ImportJob(JOB_TYPE, Map.of(FILE_KEY, fileName));
+            return jobRegistry.submit(job, workDir, () -> run(job, target, resolved, accountIban));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Impossibile salvare il file caricato", ex);
+        }
+    }
+
+    public Optional<ImportJob> find(String id) {
+        return jobRegistry.find(JOB_TYPE, id);
+    }
+
+    public List<ImportJob> recent() {
+        return jobRegistry.recent(JOB_TYPE);
+    }
+
+    private void run(ImportJob job, Path file, BankStatementFormat format, String accountIban) {
+        job.start();
+        try {
+            for (FileProgress progress : job.files()) {
+                progress.start();
+                try {
+                    progress.complete(importer.importFile(file, format, accountIban, progress));
+                } catch (Exception ex) {
+                    log.error("❌ Import estratto conto fallito (job {}): {}", job.id(), ex.getMessage(), ex);
+                    progress.fail(ex.getMessage());
+                }
+            }
+        } finally {
+            job.finish();
+            log.info("✅ Import estratto conto terminato (job {}, stato {}).", job.id(), job.state());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.veely.account.imports;
+
+import com.veely.account.categorization.CategorizationRuleIndex;
+import com.veely.account.categorization.CategorizationRules;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Import in streaming di un estratto conto (CSV o camt.053) in bank_transactions.
+ * I movimenti passano dal lettore al {@link BankTransactionWriter} a blocchi, senza costruire
+ * entità JPA né tenere il file in memoria (restano solo i contatori delle impronte, vedi {@link Fingerprints},
+ * e l'indice degli IBAN delle controparti).
+ * <p>
+ * Ogni movimento ha un'impronta (SHA-256) salvata in bank_transactions.fingerprint: reimportare
+ * lo stesso estratto, o uno che si sovrappone al precedente, non crea duplicati.
+ * La controparte del movimento è riconosciuta dall'IBAN e salvata in counterparty_id, così le regole
+ * legate a una controparte valgono già in import come nella categorizzazione massiva.
+ * I movimenti sono categorizzati in linea con le regole correnti ({@link CategorizationRuleIndex});
+ * quelli che nessuna regola riconosce restano UNCATEGORIZED.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BankStatementImporter {
+
+    private static final int MAX_REPORTED_ERRORS = 50;
+
+    private final JdbcTemplate jdbc;
+    private final Environment env;
+    private final CategorizationRuleIndex categorizationRules;
+
+    /**
+     * Importa il file e restituisce i movimenti inseriti; i movimenti già presenti sono contati
+     * come invariati nel {@link FileProgress.Diff}.
+     */
+    public int importFile(Path file, BankStatementFormat format, String accountIban, FileProgress progress) throws Exception {
+        int batchSize = Integer.parseInt(env.getProperty("veely.import.batch-size", "500"));
+        Charset charset = Charset.forName(env.getProperty("veely.import.bank-csv-charset", StandardCharsets.UTF_8.name()));
+        String account = normalizeIban(accountIban);
+
+        log.info("🏦 Import estratto conto {} ({}): {}", format, account != null ? account : "conto dal file", file.toAbsolutePath());
+        long start = System.nanoTime();
+        long uncategorized = uncategorizedId();
+        CategorizationRules rules = categorizationRules.current();
+        Map<String, Long> counterparties = counterpartiesByIban();
+        BankTransactionWriter writer = new BankTransactionWriter(jdbc, batchSize);
+        Fingerprints fingerprints = new Fingerprints();
+        int[] errors = {0};
+
+        BankMovement.Callback callback = (rowNumber, movement) -> {
+            progress.rowProcessed();
+            BankMovement m = withAccount(movement);
+            Long counterpartyId = m.counterpartyIban() != null ? counterparties.get(m.counterpartyIban()) : null;
+            Long category = rules.categorize(m.description(), m.amount(), counterpartyId);
+            writer.add(m, fingerprints.of(m), counterpartyId, category != null ? category : uncategorized);
+        };
+        switch (format) {
+            case CSV -> BankCsvReader.read(file, charset, account, callback, error -> {
+                if (errors[0]++ < MAX_REPORTED_ERRORS) progress.error(error);
+            });
+            case CAMT053 -> Camt053Reader.read(file, account, callback);
+        }
+        int inserted = writer.finish();
+        progress.diff(new FileProgress.Diff(inserted, 0, writer.duplicates(), 0));
+
+        log.info("✅ Estratto conto importato: {} nuovi movimenti, {} già presenti, {} righe scartate ({} righe/s).",
+                inserted, writer.duplicates(), errors[0], rate(progress.rowsProcessed(), start));
+        return inserted;
+    }
+
+    private Long uncategorizedId() {
+        return jdbc.queryForObject("SELECT id FROM bank_transaction_categories WHERE code = 'UNCATEGORIZED'", Long.class);
+    }
+
+    /**
+     * IBAN normalizzato delle controparti: un IBAN registrato su più controparti non ne identifica nessuna.
+     */
+    private Map<String, Long> counterpartiesByIban() {
+        Map<String, Long> byIban = new HashMap<>();
+        Set<String> ambiguous = new HashSet<>();
+        jdbc.query("SELECT id, iban FROM counterparties WHERE iban IS NOT NULL", (RowCallbackHandler) rs -> {
+            String iban = normalizeIban(rs.getString("iban"));
+            if (iban != null && byIban.putIfAbsent(iban, rs.getLong("id")) != null) {
+                ambiguous.add(iban);
+            }
+        });
+        ambiguous.forEach(byIban::remove);
+        return byIban;
+    }
+
+    private static BankMovement withAccount(BankMovement m) {
+        String account = normalizeIban(m.accountIban());
+        String counterparty = normalizeIban(m.counterpartyIban());
+        if (account == null) {
+            throw new IllegalArgumentException("IBAN del conto mancante: indicarlo nella richiesta o nel file");
+        }
+        if (account.equals(m.accountIban()) && Objects.equals(counterparty, m.counterpartyIban())) return m;
+        return new BankMovement(account, m.bookingDate(), m.valueDate(), m.amount(), m.description(),
+                m.counterpartyName(), counterparty, m.reference());
+    }
+
+    static String normalizeIban(String iban) {
+        if (iban == null) return null;
+        String v = iban.replaceAll("\\s+", "").toUpperCase(Locale.ROOT);
+        return v.isEmpty() ? null : v;
+    }
+
+    private static long rate(long rows, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0 ? Math.round(rows * 1_000_000_000d / elapsed) : rows;
+    }
+
+    /**
+     * Impronta di un movimento. Con il riferimento della banca (CRO/TRN, AcctSvcrRef) bastano
+     * conto, riferimento, data e importo. Senza, si usano i campi del movimento più un contatore
+     * delle occorrenze identiche nella stessa data contabile: due bonifici uguali nello stesso
+     * giorno restano due movimenti, e il re-import li ritrova con lo stesso contatore.
+     * I contatori valgono per tutto il file: non si assume che l'estratto sia ordinato per data,
+     * altrimenti in un file D1, D2, D1 due movimenti identici del giorno D1 avrebbero la stessa impronta
+     * e il secondo verrebbe scartato come duplicato.
+     */
+    static final class Fingerprints {
+
+        private final MessageDigest digest = DictionaryDiff.sha256();
+        private final Map<String, Integer> occurrences = new HashMap<>();
+
+        String of(BankMovement m) {
+            String key;
+            if (m.reference() != null) {
+                key = join("R", m.accountIban(), m.reference(), m.bookingDate(), plain(m.amount()));
+            } else {
+                String base = join("M", m.accountIban(), m.bookingDate(), m.valueDate(), plain(m.amount()),
+                        m.description(), m.counterpartyIban());
+                key = base + '|' + occurrences.merge(base, 1, Integer::sum);
+            }
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        private static String plain(BigDecimal amount) {
+            return amount.stripTrailingZeros().toPlainString();
+        }
+
+        private static String join(Object... parts) {
+            StringBuilder sb = new StringBuilder();
+            for (Object part : parts) {
+                if (!sb.isEmpty()) sb.append('|');
+                sb.append(part == null ? "" : part);
+            }
+            return sb.toString();
+        }
+    }
+}
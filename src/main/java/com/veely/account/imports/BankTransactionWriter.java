@@ -0,0 +1,105 @@
+package com.veely.account.imports;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inserisce i movimenti in bank_transactions a blocchi di {@code batchSize}. Per ogni blocco
+ * una query sulle impronte già presenti scarta i duplicati (re-import dello stesso estratto);
+ * l'INSERT IGNORE copre solo le corse tra import concorrenti sullo stesso file.
+ * Ogni blocco va in commit da solo: un file grande non tiene aperta una transazione enorme
+ * e, essendo l'import idempotente, ripeterlo dopo un errore completa il lavoro.
+ */
+final class BankTransactionWriter {
+
+    private static final String INSERT = """
+            INSERT IGNORE INTO bank_transactions(
+              booking_date, value_date, description, amount,
+              account_iban, counterparty_name, counterparty_iban, counterparty_id,
+              category_id, fingerprint
+            )
+            VALUES(?,?,?,?,?,?,?,?,?,?)
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final int batchSize;
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+    private int inserted;
+    private int duplicates;
+
+    BankTransactionWriter(JdbcTemplate jdbc, int batchSize) {
+        this.jdbc = jdbc;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    void add(BankMovement movement, String fingerprint, Long counterpartyId, long categoryId) {
+        if (pending.putIfAbsent(fingerprint, new Pending(movement, counterpartyId, categoryId)) != null) {
+            duplicates++;
+        }
+        if (pending.size() == batchSize) {
+            flush();
+        }
+    }
+
+    /** Scrive i movimenti rimasti e restituisce il totale dei movimenti inseriti. */
+    int finish() {
+        flush();
+        return inserted;
+    }
+
+    int duplicates() {
+        return duplicates;
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) return;
+        Set<String> existing = existingFingerprints(pending.keySet());
+        List<Object[]> rows = new ArrayList<>(pending.size());
+        pending.forEach((fingerprint, p) -> {
+            if (existing.contains(fingerprint)) {
+                duplicates++;
+                return;
+            }
+            BankMovement m = p.movement();
+            rows.add(new Object[]{
+                    m.bookingDate(), m.valueDate(), description(m), m.amount(),
+                    m.accountIban(), truncate(m.counterpartyName(), 255), truncate(m.counterpartyIban(), 34),
+                    p.counterpartyId(), p.categoryId(), fingerprint});
+        });
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate(INSERT, rows);
+            inserted += rows.size();
+        }
+        pending.clear();
+    }
+
+    private Set<String> existingFingerprints(Set<String> fingerprints) {
+        if (fingerprints.isEmpty()) return Collections.emptySet();
+        String placeholders = String.join(",", Collections.nCopies(fingerprints.size(), "?"));
+        return new HashSet<>(jdbc.queryForList(
+                "SELECT fingerprint FROM bank_transactions WHERE fingerprint IN (" + placeholders + ")",
+                String.class, fingerprints.toArray()));
+    }
+
+    /** description è NOT NULL (255): i movimenti senza causale prendono la controparte o un segnaposto. */
+    private static String description(BankMovement m) {
+        String d = m.description() != null ? m.description()
+                : m.counterpartyName() != null ? m.counterpartyName()
+                : "(senza descrizione)";
+        return truncate(d, 255);
+    }
+
+    private static String truncate(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
+
+    private record Pending(BankMovement movement, Long counterpartyId, long categoryId) {
+    }
+}
@@ -0,0 +1,154 @@
+package com.veely.account.imports;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lettura in streaming (StAX) di un estratto conto ISO 20022 camt.053: un movimento per
+ * ogni {@code Ntry}, senza caricare il documento. Il namespace e la versione del messaggio
+ * non contano, si guardano solo i nomi locali degli elementi.
+ * <p>
+ * La controparte è il debitore per gli accrediti e il creditore per gli addebiti;
+ * la descrizione è la causale non strutturata ({@code Ustrd}) o, in mancanza, {@code AddtlNtryInf}.
+ */
+final class Camt053Reader {
+
+    private static final XMLInputFactory FACTORY = newFactory();
+
+    private final List<String> path = new ArrayList<>();
+    private final StringBuilder text = new StringBuilder();
+
+    private String statementIban;
+    private Entry entry;
+
+    private Camt053Reader() {
+    }
+
+    static void read(Path file, String defaultAccountIban, BankMovement.Callback callback) throws Exception {
+        new Camt053Reader().parse(file, defaultAccountIban, callback);
+    }
+
+    private void parse(Path file, String defaultAccountIban, BankMovement.Callback callback) throws Exception {
+        int entryNumber = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader xml = FACTORY.createXMLStreamReader(in);
+            try {
+                while (xml.hasNext()) {
+                    switch (xml.next()) {
+                        case XMLStreamConstants.START_ELEMENT -> {
+                            String name = xml.getLocalName();
+                            path.add(name);
+                            text.setLength(0);
+                            if (name.equals("Stmt")) {
+                                statementIban = null;
+                            } else if (name.equals("Ntry")) {
+                                entry = new Entry();
+                            }
+                        }
+                        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> text.append(xml.getText());
+                        case XMLStreamConstants.END_ELEMENT -> {
+                            String value = text.toString().trim();
+                            if (entry == null) {
+                                if (endsWith("Stmt", "Acct", "Id", "IBAN")) statementIban = value;
+                            } else if (endsWith("Ntry")) {
+                                entryNumber++;
+                                String account = statementIban != null ? statementIban : defaultAccountIban;
+                                callback.movement(entryNumber, entry.toMovement(account));
+                                entry = null;
+                            } else {
+                                entry.collect(this, value);
+                            }
+                            path.remove(path.size() - 1);
+                            text.setLength(0);
+                        }
+                        default -> {
+                        }
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+        }
+    }
+
+    private boolean endsWith(String... names) {
+        int offset = path.size() - names.length;
+        if (offset < 0) return false;
+        for (int i = 0; i < names.length; i++) {
+            if (!path.get(offset + i).equals(names[i])) return false;
+        }
+        return true;
+    }
+
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private static final class Entry {
+        private BigDecimal amount;
+        private boolean debit;
+        private LocalDate bookingDate;
+        private LocalDate valueDate;
+        private String reference;
+        private String additionalInfo;
+        private final StringBuilder remittance = new StringBuilder();
+        private String debtorName;
+        private String debtorIban;
+        private String creditorName;
+        private String creditorIban;
+
+        void collect(Camt053Reader r, String value) {
+            if (value.isEmpty()) return;
+            if (r.endsWith("Ntry", "Amt")) {
+                amount = new BigDecimal(value);
+            } else if (r.endsWith("Ntry", "CdtDbtInd")) {
+                debit = "DBIT".equals(value);
+            } else if (r.endsWith("Ntry", "BookgDt", "Dt") || r.endsWith("Ntry", "BookgDt", "DtTm")) {
+                bookingDate = LocalDate.parse(value.substring(0, 10));
+            } else if (r.endsWith("Ntry", "ValDt", "Dt") || r.endsWith("Ntry", "ValDt", "DtTm")) {
+                valueDate = LocalDate.parse(value.substring(0, 10));
+            } else if (r.endsWith("Ntry", "AcctSvcrRef") || (reference == null && r.endsWith("Ntry", "NtryRef"))) {
+                reference = value;
+            } else if (r.endsWith("Ntry", "AddtlNtryInf")) {
+                additionalInfo = value;
+            } else if (r.endsWith("RmtInf", "Ustrd")) {
+                if (!remittance.isEmpty()) remittance.append(' ');
+                remittance.append(value);
+            } else if (r.endsWith("RltdPties", "Dbtr", "Nm") || r.endsWith("RltdPties", "Dbtr", "Pty", "Nm")) {
+                if (debtorName == null) debtorName = value;
+            } else if (r.endsWith("RltdPties", "Cdtr", "Nm") || r.endsWith("RltdPties", "Cdtr", "Pty", "Nm")) {
+                if (creditorName == null) creditorName = value;
+            } else if (r.endsWith("RltdPties", "DbtrAcct", "Id", "IBAN")) {
+                if (debtorIban == null) debtorIban = value;
+            } else if (r.endsWith("RltdPties", "CdtrAcct", "Id", "IBAN")) {
+                if (creditorIban == null) creditorIban = value;
+            }
+        }
+
+        BankMovement toMovement(String accountIban) {
+            if (amount == null || bookingDate == null) {
+                throw new IllegalArgumentException("Movimento camt.053 senza importo o data contabile"
+                        + (reference != null ? " (rif. " + reference + ")" : ""));
+            }
+            String description = !remittance.isEmpty() ? remittance.toString() : additionalInfo;
+            return new BankMovement(accountIban, bookingDate, valueDate,
+                    debit ? amount.negate() : amount,
+                    description,
+                    debit ? creditorName : debtorName,
+                    debit ? creditorIban : debtorIban,
+                    reference);
+        }
+    }
+}
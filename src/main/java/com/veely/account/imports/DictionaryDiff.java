@@ -0,0 +1,124 @@
+package com.veely.account.imports;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Confronto riga per riga tra il foglio e la tabella dizionario: ogni riga scritta porta
+ * in import_hash l'impronta dei valori importati, così al re-import le righe invariate
+ * non generano scritture (niente pagine InnoDB sporcate né redo log inutile).
+ */
+final class DictionaryDiff {
+
+    enum Change { INSERTED, UPDATED, UNCHANGED }
+
+    private final String table;
+    /** code -> import_hash attuale; null se la riga va comunque riscritta (mai importata o disattivata). */
+    private final Map<String, String> existing;
+    /** Codici già disattivati in tabella: non contano come mancanti. */
+    private final Set<String> inactive;
+    private final Set<String> seen = new HashSet<>();
+    private int inserted;
+    private int updated;
+    private int unchanged;
+    private int deactivated;
+
+    private DictionaryDiff(String table, Map<String, String> existing, Set<String> inactive) {
+        this.table = table;
+        this.existing = existing;
+        this.inactive = inactive;
+    }
+
+    /**
+     * Carica code e import_hash della tabella; con {@code hasActive} le righe disattivate
+     * risultano modificate, perché l'upsert le riattiva.
+     */
+    static DictionaryDiff load(JdbcTemplate jdbc, String table, boolean hasActive) {
+        Map<String, String> existing = new HashMap<>();
+        Set<String> inactive = new HashSet<>();
+        String sql = hasActive
+                ? "SELECT code, import_hash, active FROM " + table
+                : "SELECT code, import_hash, true FROM " + table;
+        jdbc.query(sql, rs -> {
+            String code = rs.getString(1);
+            boolean active = rs.getBoolean(3);
+            existing.put(code, active ? rs.getString(2) : null);
+            if (!active) inactive.add(code);
+        });
+        return new DictionaryDiff(table, existing, inactive);
+    }
+
+    /**
+     * Accoda la riga in {@code batch} se nuova o modificata; l'impronta è aggiunta come
+     * ultimo parametro, dopo {@code values}.
+     */
+    Change apply(UpsertBatch batch, int rowNumber, String code, Object... values) {
+        String hash = hash(values);
+        seen.add(code);
+        Change change;
+        if (!existing.containsKey(code)) {
+            change = Change.INSERTED;
+            inserted++;
+        } else if (hash.equals(existing.get(code))) {
+            unchanged++;
+            return Change.UNCHANGED;
+        } else {
+            change = Change.UPDATED;
+            updated++;
+        }
+        existing.put(code, hash);
+        Object[] args = Arrays.copyOf(values, values.length + 1);
+        args[values.length] = hash;
+        batch.add(rowNumber, args);
+        return change;
+    }
+
+    /**
+     * Disattiva i codici attivi in tabella e assenti dal foglio (solo tabelle con colonna active).
+     */
+    int deactivateMissing(JdbcTemplate jdbc) {
+        List<String> missing = existing.keySet().stream()
+                .filter(code -> !seen.contains(code) && !inactive.contains(code))
+                .toList();
+        if (missing.isEmpty()) return 0;
+        jdbc.batchUpdate("UPDATE " + table + " SET active = false WHERE code = ?",
+                missing, 500, (ps, code) -> ps.setString(1, code));
+        deactivated = missing.size();
+        return deactivated;
+    }
+
+    FileProgress.Diff summary() {
+        return new FileProgress.Diff(inserted, updated, unchanged, deactivated);
+    }
+
+    static String hash(Object... values) {
+        MessageDigest digest = sha256();
+        for (Object value : values) {
+            String text = value == null ? "\u0000"
+                    : value instanceof BigDecimal bd ? bd.toPlainString()
+                    : value.toString();
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0x1F);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
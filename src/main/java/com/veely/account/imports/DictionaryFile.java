@@ -0,0 +1,49 @@
+package com.veely.account.imports;
+
+import com.veely.account.service.LookupCache;
+
+/**
+ * I tre file dizionario; {@code key} è sia il nome della parte multipart sia il suffisso
+ * della proprietà veely.import.* con il nome del file nella cartella di import.
+ */
+public enum DictionaryFile {
+
+    ACCOUNTS("accounts", "Piano dei conti", "Piano dei conti.XLSX", "accounts", LookupCache.Kind.ACCOUNTS),
+    VAT_CODES("vat", "Codici IVA", "Codici IVA.XLSX", "vat_codes", LookupCache.Kind.VAT_CODES),
+    WITHHOLDING_TYPES("withholding", "Tabella Ritenute", "Tabella Ritenute.XLSX", "withholding_types",
+            LookupCache.Kind.WITHHOLDING_TYPES);
+
+    private final String key;
+    private final String label;
+    private final String defaultFileName;
+    private final String table;
+    private final LookupCache.Kind lookupKind;
+
+    DictionaryFile(String key, String label, String defaultFileName, String table, LookupCache.Kind lookupKind) {
+        this.key = key;
+        this.label = label;
+        this.defaultFileName = defaultFileName;
+        this.table = table;
+        this.lookupKind = lookupKind;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public String defaultFileName() {
+        return defaultFileName;
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public LookupCache.Kind lookupKind() {
+        return lookupKind;
+    }
+}
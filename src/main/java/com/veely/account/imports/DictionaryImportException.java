@@ -0,0 +1,40 @@
+package com.veely.account.imports;
+
+import org.springframework.core.NestedExceptionUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Errore di scrittura durante l'import di un foglio; {@code rows} sono i numeri di riga
+ * del foglio (come mostrati da Excel) coinvolti.
+ */
+public class DictionaryImportException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String sheet;
+    private final int[] rows;
+
+    public DictionaryImportException(String sheet, List<Integer> rows, Throwable cause) {
+        super(sheet + ": errore di scrittura alle righe " + describe(rows)
+                + (cause != null ? " (" + NestedExceptionUtils.getMostSpecificCause(cause).getMessage() + ")" : ""), cause);
+        this.sheet = sheet;
+        this.rows = rows.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public String getSheet() {
+        return sheet;
+    }
+
+    public List<Integer> getRows() {
+        return Arrays.stream(rows).boxed().toList();
+    }
+
+    private static String describe(List<Integer> rows) {
+        if (rows.size() > 20) {
+            return rows.get(0) + "-" + rows.get(rows.size() - 1) + " (" + rows.size() + " righe)";
+        }
+        return rows.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package com.veely.account.imports;
+
+import com.veely.account.service.LookupCache;
+import com.veely.account.service.LookupsChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Accoda e tiene traccia dei job di import dei dizionari. I job girano sull'executor
+ * importExecutor, quindi né l'avvio dell'applicazione né la richiesta HTTP
+ * aspettano la fine dell'import; l'avanzamento si legge con {@link #find(String)}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DictionaryImportService {
+
+    static final String JOB_TYPE = "DICTIONARIES";
+
+    private final ExcelDictionaryImporter importer;
+    private final ImportJobRegistry jobRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Environment env;
+
+    /**
+     * Import dalla cartella veely.import.baseDir all'avvio, se abilitato: ora è un job come gli
+     * altri e non ritarda la readiness.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void importOnStartup() {
+        boolean enabled = Boolean.parseBoolean(env.getProperty("veely.import.enabled", "false"));
+        if (!enabled) return;
+
+        Path base = Path.of(env.getProperty("veely.import.baseDir", "import"));
+        Map<DictionaryFile, Path> files = new EnumMap<>(DictionaryFile.class);
+        for (DictionaryFile file : DictionaryFile.values()) {
+            files.put(file, base.resolve(env.getProperty("veely.import." + file.key(), file.defaultFileName())));
+        }
+        ImportJob job = enqueue(files, null, defaultOptions(false, null));
+        log.info("📥 Import dizionari all'avvio accodato (job {}).", job.id());
+    }
+
+    /**
+     * Salva i file caricati in una cartella temporanea e accoda il job.
+     */
+    public ImportJob submit(Map<DictionaryFile, MultipartFile> uploads, ImportOptions options) {
+        if (uploads.isEmpty()) {
+            throw new IllegalArgumentException("Nessun file da importare");
+        }
+        try {
+            Path workDir = Files.createTempDirectory("veely-import-");
+            Map<DictionaryFile, Path> files = new EnumMap<>(DictionaryFile.class);
+            for (Map.Entry<DictionaryFile, MultipartFile> upload : uploads.entrySet()) {
+                Path target = workDir.resolve(upload.getKey().key() + ".xlsx");
+                upload.getValue().transferTo(target);
+                files.put(upload.getKey(), target);
+            }
+            return enqueue(files, workDir, options);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Impossibile salvare i file caricati", ex);
+        }
+    }
+
+    public Optional<ImportJob> find(String id) {
+        return jobRegistry.find(JOB_TYPE, id);
+    }
+
+    public List<ImportJob> recent() {
+        return jobRegistry.recent(JOB_TYPE);
+    }
+
+    /**
+     * Opzioni con i default da configurazione (veely.import.deactivate-missing).
+     */
+    public ImportOptions defaultOptions(boolean force, Boolean deactivateMissing) {
+        boolean deactivate = deactivateMissing != null
+                ? deactivateMissing
+                : Boolean.parseBoolean(env.getProperty("veely.import.deactivate-missing", "false"));
+        return new ImportOptions(force, deactivate);
+    }
+
+    private ImportJob enqueue(Map<DictionaryFile, Path> files, Path workDir, ImportOptions options) {
+        Map<String, String> names = new LinkedHashMap<>();
+        files.forEach((file, path) -> names.put(file.name(), path.getFileName().toString()));
+        ImportJob job = new ImportJob(JOB_TYPE, names);
+        return jobRegistry.submit(job, workDir, () -> run(job, files, options));
+    }
+
+    private void run(ImportJob job, Map<DictionaryFile, Path> files, ImportOptions options) {
+        job.start();
+        Set<LookupCache.Kind> changed = EnumSet.noneOf(LookupCache.Kind.class);
+        try {
+            for (FileProgress progress : job.files()) {
+                DictionaryFile type = DictionaryFile.valueOf(progress.file());
+                progress.start();
+                try {
+                    int written = importer.importFile(type, files.get(type), options, progress);
+                    if (progress.state() == FileProgress.State.SKIPPED) continue;
+                    progress.complete(written);
+                    if (written > 0 || progress.status().diff().deactivated() > 0) {
+                        changed.add(type.lookupKind());
+                    }
+                } catch (Exception ex) {
+                    log.error("❌ Import {} fallito (job {}): {}", type.label(), job.id(), ex.getMessage(), ex);
+                    progress.fail(ex.getMessage());
+                }
+            }
+        } finally {
+            if (!changed.isEmpty()) {
+                eventPublisher.publishEvent(new LookupsChangedEvent(Set.copyOf(changed)));
+            }
+            job.finish();
+            log.info("✅ Import dizionari terminato (job {}, stato {}).", job.id(), job.state());
+        }
+    }
+}
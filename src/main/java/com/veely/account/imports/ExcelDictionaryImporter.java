@@ -0,0 +1,416 @@
+package com.veely.account.imports;
+
+import com.veely.account.imports.XlsxRowReader.SheetRow;
+import com.veely.account.jfr.DictionarySheetEvent;
+import com.veely.account.metrics.BusinessMetrics;
+import com.veely.account.service.TaxRatesChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Import dei fogli dizionario (piano dei conti, codici IVA, ritenute) in upsert.
+ * Orchestrato da {@link DictionaryImportService}, che lo esegue come job asincrono.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExcelDictionaryImporter {
+
+    private final JdbcTemplate jdbc;
+    private final Environment env;
+    private final PlatformTransactionManager transactionManager;
+    private final BusinessMetrics metrics;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Importa un file dizionario in un'unica transazione e restituisce le righe scritte.
+     * Se l'impronta del file coincide con quella dell'ultimo import riuscito il file è saltato
+     * (salvo {@code options.force()}); altrimenti sono scritte solo le righe nuove o modificate.
+     * Se cambiano aliquote IVA o ritenute pubblica {@link TaxRatesChangedEvent}: i totali delle fatture
+     * che le usano sono ricalcolati dopo il commit.
+     */
+    public int importFile(DictionaryFile type, Path file, ImportOptions options, FileProgress progress) throws Exception {
+        int batchSize = Integer.parseInt(env.getProperty("veely.import.batch-size", "500"));
+        long hashStart = System.nanoTime();
+        DictionarySheetEvent event = new DictionarySheetEvent();
+        event.begin();
+        String fileHash = fileHash(file);
+        if (!options.force() && fileHash.equals(lastFileHash(type))) {
+            log.info("⏭️ {} invariato, import saltato: {}", type.label(), file.toAbsolutePath());
+            progress.skip();
+            metrics.dictionaryImport(type.name().toLowerCase(Locale.ROOT), "skipped", hashStart, 0);
+            emit(event, type, file, "skipped", 0, progress);
+            return 0;
+        }
+
+        log.info("📥 Import {}: {}", type.label(), file.toAbsolutePath());
+        long start = System.nanoTime();
+        int written;
+        try {
+            written = inTransaction(() -> {
+                DictionaryDiff diff = DictionaryDiff.load(jdbc, type.table(), type == DictionaryFile.ACCOUNTS);
+                Map<Long, String> ratesBefore = rates(type);
+                int rows = switch (type) {
+                    case ACCOUNTS -> importAccounts(file, batchSize, progress, diff);
+                    case VAT_CODES -> importVatCodes(file, batchSize, progress, diff);
+                    case WITHHOLDING_TYPES -> importWithholdingTypes(file, batchSize, progress, diff);
+                };
+                if (type == DictionaryFile.ACCOUNTS && options.deactivateMissing()) {
+                    diff.deactivateMissing(jdbc);
+                }
+                recordFileHash(type, file, fileHash, progress.rowsProcessed());
+                progress.diff(diff.summary());
+                publishRateChanges(type, ratesBefore);
+                return rows;
+            });
+        } catch (Exception ex) {
+            metrics.dictionaryImport(type.name().toLowerCase(Locale.ROOT), "failed", start, 0);
+            emit(event, type, file, "failed", 0, progress);
+            throw ex;
+        }
+
+        FileProgress.Diff diff = progress.status().diff();
+        log.info("✅ {} importato: {} nuove, {} modificate, {} invariate, {} disattivate ({} righe/s).",
+                type.label(), diff.inserted(), diff.updated(), diff.unchanged(), diff.deactivated(),
+                rate((int) progress.rowsProcessed(), start));
+        metrics.dictionaryImport(type.name().toLowerCase(Locale.ROOT), "imported", start, progress.rowsProcessed());
+        emit(event, type, file, "imported", written, progress);
+        return written;
+    }
+
+    /**
+     * Aliquote per id dei dizionari che entrano nel calcolo dei totali fattura (codici IVA e ritenute);
+     * vuoto per il piano dei conti.
+     */
+    private Map<Long, String> rates(DictionaryFile type) {
+        String columns = switch (type) {
+            case VAT_CODES -> "rate";
+            case WITHHOLDING_TYPES -> "rate, taxable_percent";
+            case ACCOUNTS -> null;
+        };
+        if (columns == null) return Map.of();
+        Map<Long, String> rates = new HashMap<>();
+        jdbc.query("SELECT id, " + columns + " FROM " + type.table(), rs -> {
+            StringBuilder key = new StringBuilder();
+            for (int i = 2; i <= rs.getMetaData().getColumnCount(); i++) {
+                BigDecimal value = rs.getBigDecimal(i);
+                key.append(value == null ? "-" : value.stripTrailingZeros().toPlainString()).append('|');
+            }
+            rates.put(rs.getLong(1), key.toString());
+        });
+        return rates;
+    }
+
+    private void publishRateChanges(DictionaryFile type, Map<Long, String> before) {
+        if (before.isEmpty()) return;
+        Set<Long> changed = new HashSet<>();
+        rates(type).forEach((id, rate) -> {
+            String previous = before.get(id);
+            if (previous != null && !previous.equals(rate)) changed.add(id);
+        });
+        if (changed.isEmpty()) return;
+        log.info("🔄 {}: aliquote cambiate per {} codici, ricalcolo dei totali fattura dopo il commit.", type.label(), changed.size());
+        eventPublisher.publishEvent(type == DictionaryFile.VAT_CODES
+                ? new TaxRatesChangedEvent(changed, Set.of())
+                : new TaxRatesChangedEvent(Set.of(), changed));
+    }
+
+    private static void emit(DictionarySheetEvent event, DictionaryFile type, Path file, String outcome,
+                             long written, FileProgress progress) {
+        event.commit(type.name().toLowerCase(Locale.ROOT), String.valueOf(file.getFileName()), outcome,
+                progress.rowsProcessed(), written);
+    }
+
+    private int importAccounts(Path file, int batchSize, FileProgress progress, DictionaryDiff diff) throws Exception {
+        UpsertBatch batch = new UpsertBatch(jdbc, "Piano dei conti", """
+            INSERT INTO accounts(code, description, level, active, import_hash)
+            VALUES(?,?,?,true,?)
+            ON DUPLICATE KEY UPDATE description=VALUES(description), level=VALUES(level), active=true,
+              import_hash=VALUES(import_hash)
+        """, batchSize);
+
+        XlsxRowReader.read(file, 1, row -> {
+            progress.rowProcessed();
+            String code = s(row, 0);
+            String desc = s(row, 1);
+            if (blank(code) || blank(desc)) return;
+
+            Integer level = calcLevel(code);
+
+            diff.apply(batch, row.number(), code, code, desc, level);
+        });
+        return batch.finish();
+    }
+
+    private int importVatCodes(Path file, int batchSize, FileProgress progress, DictionaryDiff diff) throws Exception {
+        UpsertBatch batch = new UpsertBatch(jdbc, "Codici IVA", """
+            INSERT INTO vat_codes(
+              code, rate, registry_description, long_description, operation_type, category,
+              use_purchases, use_sales, use_receipts,
+              vat_edf_code, vat_grouping,
+              custom_nature_purchases, custom_nature_sales,
+              stamp_duty_applicable, reverse_charge_relevant,
+              agri_comp_rate, notes, external_code, validity, import_hash
+            )
+            VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)
+            ON DUPLICATE KEY UPDATE
+              rate=VALUES(rate),
+              registry_description=VALUES(registry_description),
+              long_description=VALUES(long_description),
+              operation_type=VALUES(operation_type),
+              category=VALUES(category),
+              use_purchases=VALUES(use_purchases),
+              use_sales=VALUES(use_sales),
+              use_receipts=VALUES(use_receipts),
+              vat_edf_code=VALUES(vat_edf_code),
+              vat_grouping=VALUES(vat_grouping),
+              custom_nature_purchases=VALUES(custom_nature_purchases),
+              custom_nature_sales=VALUES(custom_nature_sales),
+              stamp_duty_applicable=VALUES(stamp_duty_applicable),
+              reverse_charge_relevant=VALUES(reverse_charge_relevant),
+              agri_comp_rate=VALUES(agri_comp_rate),
+              notes=VALUES(notes),
+              external_code=VALUES(external_code),
+              validity=VALUES(validity),
+              import_hash=VALUES(import_hash)
+        """, batchSize);
+
+        XlsxRowReader.read(file, 1, row -> {
+            progress.rowProcessed();
+            String code = s(row, 0);
+            if (blank(code)) return;
+
+            BigDecimal rate = bd(row, 1);
+            String regDesc = s(row, 2);
+            String longDesc = s(row, 3);
+            String opType = s(row, 4);
+            String category = s(row, 5);
+
+            boolean usePurch = boolLike(row, 6);
+            boolean useSales = boolLike(row, 7);
+            boolean useReceipts = boolLike(row, 8);
+
+            String vatEdf = s(row, 9);
+            String grouping = s(row, 10);
+            String natPurch = s(row, 11);
+            String natSales = s(row, 12);
+
+            boolean stampDuty = boolLike(row, 13);
+            boolean reverse = boolLike(row, 14);
+
+            BigDecimal agriComp = bd(row, 15);
+            String notes = s(row, 16);
+            String externalCode = s(row, 17);
+            String validity = s(row, 18);
+
+            diff.apply(batch, row.number(), code,
+                    code, rate, regDesc, longDesc, opType, category,
+                    usePurch, useSales, useReceipts,
+                    vatEdf, grouping,
+                    natPurch, natSales,
+                    stampDuty, reverse,
+                    agriComp, notes, externalCode, validity);
+        });
+        return batch.finish();
+    }
+
+    private int importWithholdingTypes(Path file, int batchSize, FileProgress progress, DictionaryDiff diff) throws Exception {
+        UpsertBatch batch = new UpsertBatch(jdbc, "Tabella Ritenute", """
+            INSERT INTO withholding_types(
+              code, description, category, effective_from,
+              rate, taxable_percent,
+              tribute_code, tribute_description,
+              due_date, due_date_description,
+              short_rent, long_description, import_hash
+            )
+            VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?)
+            ON DUPLICATE KEY UPDATE
+              description=VALUES(description),
+              category=VALUES(category),
+              effective_from=VALUES(effective_from),
+              rate=VALUES(rate),
+              taxable_percent=VALUES(taxable_percent),
+              tribute_code=VALUES(tribute_code),
+              tribute_description=VALUES(tribute_description),
+              due_date=VALUES(due_date),
+              due_date_description=VALUES(due_date_description),
+              short_rent=VALUES(short_rent),
+              long_description=VALUES(long_description),
+              import_hash=VALUES(import_hash)
+        """, batchSize);
+
+        XlsxRowReader.read(file, 1, row -> {
+            progress.rowProcessed();
+            String code = s(row, 0);
+            if (blank(code)) return;
+
+            String description = s(row, 1);
+            String category = s(row, 2);
+            // colonna 3 "Descrizione" (nel tuo file) -> la usiamo come tribute_description se utile
+            String tributeDescription = s(row, 3);
+
+            boolean shortRent = boolLike(row, 4);
+            LocalDate effectiveFrom = date(row, 5);
+
+            BigDecimal rate = bd(row, 6);
+            BigDecimal taxablePercent = bd(row, 7);
+
+            String tributeCode = s(row, 8);
+            // colonna 9 "Descrizione" (nel tuo file) -> descrizione codice tributo/scadenza
+            String dueDateDescription = s(row, 9);
+
+            LocalDate dueDate = date(row, 10);
+            String longDesc = s(row, 11);
+
+            diff.apply(batch, row.number(), code,
+                    code, description, category, effectiveFrom,
+                    rate, taxablePercent,
+                    tributeCode, tributeDescription,
+                    dueDate, dueDateDescription,
+                    shortRent, longDesc);
+        });
+        return batch.finish();
+    }
+
+    /**
+     * Un file = una transazione: se un batch fallisce il foglio non resta importato a metà.
+     */
+    private int inTransaction(SheetImport work) throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        try {
+            return tx.execute(status -> {
+                try {
+                    return work.run();
+                } catch (RuntimeException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    throw new SheetReadException(ex);
+                }
+            });
+        } catch (SheetReadException ex) {
+            throw (Exception) ex.getCause();
+        }
+    }
+
+    private static String fileHash(Path file) throws IOException {
+        MessageDigest digest = DictionaryDiff.sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String lastFileHash(DictionaryFile type) {
+        List<String> hashes = jdbc.queryForList("SELECT file_hash FROM dictionary_imports WHERE dictionary = ?",
+                String.class, type.name());
+        return hashes.isEmpty() ? null : hashes.get(0);
+    }
+
+    private void recordFileHash(DictionaryFile type, Path file, String hash, long rows) {
+        jdbc.update("""
+            INSERT INTO dictionary_imports(dictionary, file_hash, file_name, row_count)
+            VALUES(?,?,?,?)
+            ON DUPLICATE KEY UPDATE file_hash=VALUES(file_hash), file_name=VALUES(file_name),
+              row_count=VALUES(row_count), imported_at=CURRENT_TIMESTAMP
+        """, type.name(), hash, file.getFileName().toString(), rows);
+    }
+
+    private static long rate(int rows, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0 ? Math.round(rows * 1_000_000_000d / elapsed) : rows;
+    }
+
+    @FunctionalInterface
+    private interface SheetImport {
+        int run() throws Exception;
+    }
+
+    private static final class SheetReadException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SheetReadException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    // ---------------- helpers ----------------
+
+    static String s(SheetRow row, int idx) {
+        return row.text(idx);
+    }
+
+    static BigDecimal bd(SheetRow row, int idx) {
+        String v = s(row, idx);
+        if (blank(v)) return null;
+        // gestisce decimali con virgola
+        v = v.trim().replace(",", ".");
+        try {
+            return new BigDecimal(v).setScale(2, RoundingMode.HALF_UP);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static boolean boolLike(SheetRow row, int idx) {
+        String v = s(row, idx);
+        if (blank(v)) return false;
+        v = v.trim().toLowerCase(Locale.ROOT);
+        return v.equals("1") || v.equals("true") || v.equals("si") || v.equals("sì") || v.equals("yes") || v.equals("y") || v.equals("x");
+    }
+
+    static LocalDate date(SheetRow row, int idx) {
+        LocalDate cellDate = row.dateValue(idx);
+        if (cellDate != null) return cellDate;
+
+        String v = s(row, idx);
+        if (blank(v)) return null;
+
+        // prova dd/MM/yyyy
+        try {
+            return LocalDate.parse(v.trim(), DateTimeFormatter.ofPattern("d/M/uuuu"));
+        } catch (Exception ignore) { }
+
+        // prova yyyy-MM-dd
+        try {
+            return LocalDate.parse(v.trim());
+        } catch (Exception ignore) { }
+
+        return null;
+    }
+
+    private static Integer calcLevel(String code) {
+        if (blank(code)) return null;
+        // livello = numero di segmenti separati da "."
+        String[] parts = code.trim().split("\\.");
+        return parts.length;
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
@@ -0,0 +1,32 @@
+package com.veely.account.imports;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Contenuto di un file FatturaPA che serve all'import passivo: il cedente/prestatore
+ * (la controparte) e una fattura per ogni {@code FatturaElettronicaBody} (i "lotti" ne hanno più d'uno).
+ */
+record FatturaPaDocument(Supplier supplier, List<Body> bodies) {
+
+    /**
+     * @param vatNumber partita IVA senza prefisso per i soggetti italiani, con IdPaese per gli esteri
+     */
+    record Supplier(String vatNumber, String taxCode, String name, String iban) {
+    }
+
+    /**
+     * @param withholdingRate aliquota di {@code DatiRitenuta}, applicata alle righe con {@code Ritenuta = SI}
+     */
+    record Body(String documentType, String number, LocalDate date, LocalDate dueDate,
+                BigDecimal withholdingRate, List<Line> lines) {
+    }
+
+    /**
+     * @param nature codice natura (N1...N7) per le righe senza IVA, altrimenti null
+     */
+    record Line(int number, String description, BigDecimal totalPrice, BigDecimal vatRate, String nature,
+                boolean withholding) {
+    }
+}
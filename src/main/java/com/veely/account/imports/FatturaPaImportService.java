@@ -0,0 +1,78 @@
+package com.veely.account.imports;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Accoda gli import FatturaPA (zip o singolo XML) sull'executor degli import
+ * ({@link ImportJobRegistry}); dentro il job i file dello zip sono letti in parallelo da {@link FatturaPaImporter}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FatturaPaImportService {
+
+    static final String JOB_TYPE = "FATTURAPA";
+    private static final String FILE_KEY = "INVOICES";
+
+    private final FatturaPaImporter importer;
+    private final ImportJobRegistry jobRegistry;
+
+    public ImportJob submit(MultipartFile upload) {
+        if (upload == null || upload.isEmpty()) {
+            throw new IllegalArgumentException("Nessun file da importare");
+        }
+        String fileName = upload.getOriginalFilename() != null ? upload.getOriginalFilename() : "fatture.zip";
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        boolean zipped = lower.endsWith(".zip");
+        if (!zipped && !lower.endsWith(".xml")) {
+            throw new IllegalArgumentException("Formato non supportato: caricare uno zip di FatturaPA o un file XML");
+        }
+        try {
+            Path workDir = Files.createTempDirectory("veely-fatturapa-");
+            Path target = workDir.resolve(zipped ? "fatture.zip" : fileName.replaceAll("[^A-Za-z0-9._-]", "_"));
+            upload.transferTo(target);
+            ImportJob job = new ImportJob(JOB_TYPE, Map.of(FILE_KEY, fileName));
+            return jobRegistry.submit(job, workDir, () -> run(job, target, zipped));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Impossibile salvare il file caricato", ex);
+        }
+    }
+
+    public Optional<ImportJob> find(String id) {
+        return jobRegistry.find(JOB_TYPE, id);
+    }
+
+    public List<ImportJob> recent() {
+        return jobRegistry.recent(JOB_TYPE);
+    }
+
+    private void run(ImportJob job, Path file, boolean zipped) {
+        job.start();
+        try {
+            for (FileProgress progress : job.files()) {
+                progress.start();
+                try {
+                    progress.complete(importer.importFile(file, zipped, progress));
+                } catch (Exception ex) {
+                    log.error("❌ Import FatturaPA fallito (job {}): {}", job.id(), ex.getMessage(), ex);
+                    progress.fail(ex.getMessage());
+                }
+            }
+        } finally {
+            job.finish();
+            log.info("✅ Import FatturaPA terminato (job {}, stato {}).", job.id(), job.state());
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.veely.account.imports;
+
+import com.veely.account.domain.Invoice;
+import com.veely.account.domain.InvoiceLine;
+import com.veely.account.domain.VatCode;
+import com.veely.account.domain.WithholdingType;
+import com.veely.account.repository.InvoiceLineRepository;
+import com.veely.account.repository.VatCodeRepository;
+import com.veely.account.repository.WithholdingTypeRepository;
+import com.veely.account.service.CounterpartyService;
+import com.veely.account.service.InvoiceTotalsCalculator;
+import com.veely.account.service.InvoiceTotalsCalculator.LineAmounts;
+import com.veely.account.service.InvoiceTotalsService;
+import com.veely.account.service.dto.CounterpartyDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Import delle fatture passive da FatturaPA: un singolo XML oppure uno zip con molti XML
+ * (come arrivano dal canale SDI).
+ * <p>
+ * Gli XML dello zip sono letti in streaming ({@link FatturaPaReader}) da un pool di
+ * {@code veely.import.fatturapa-workers} thread; ogni file è scritto nella sua transazione, quindi
+ * un file con errori non blocca gli altri. Le fatture già presenti sono riconosciute dalla violazione
+ * di uq_invoice (direzione, numero, anno): se la fattura esistente è dello stesso fornitore è contata
+ * come invariata, altrimenti il numero è già usato da un altro fornitore e viene segnalato come errore.
+ * <p>
+ * La controparte è cercata per partita IVA o codice fiscale in un indice in memoria caricato una
+ * volta per job; se manca viene creata come fornitore. Le righe ({@code DettaglioLinee}) prendono il
+ * codice IVA dall'aliquota e dalla natura ({@code vat_codes.custom_nature_purchases}).
+ * <p>
+ * Sono importati solo i tipi documento che aumentano il debito verso il fornitore
+ * ({@link #SUPPORTED_DOCUMENT_TYPES}): note di credito (TD04), integrazioni e autofatture scartano
+ * il file con un errore, invece di finire tra le fatture passive con importi positivi.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FatturaPaImporter {
+
+    private static final int MAX_REPORTED_ERRORS = 50;
+    private static final int MAX_DESCRIPTION = 255;
+    private static final BigDecimal MIN_NET_AMOUNT = new BigDecimal("0.01");
+
+    /** Fattura, acconto/anticipo su fattura, nota di debito, parcella, fattura differita. */
+    static final Set<String> SUPPORTED_DOCUMENT_TYPES = Set.of("TD01", "TD02", "TD05", "TD06", "TD24", "TD25");
+
+    private static final String INSERT_INVOICE = """
+            INSERT INTO invoices (direction_id, status_id, counterparty_id, number, year, issue_date, due_date, notes)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)""";
+
+    private final JdbcTemplate jdbc;
+    private final Environment env;
+    private final PlatformTransactionManager transactionManager;
+    private final InvoiceLineRepository invoiceLineRepository;
+    private final InvoiceTotalsService invoiceTotalsService;
+    private final CounterpartyService counterpartyService;
+    private final VatCodeRepository vatCodeRepository;
+    private final WithholdingTypeRepository withholdingTypeRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Importa il file (zip o XML) e restituisce le fatture inserite; le righe processate
+     * sono i file XML letti.
+     */
+    public int importFile(Path file, boolean zipped, FileProgress progress) throws Exception {
+        int workers = Math.max(1, Integer.parseInt(env.getProperty("veely.import.fatturapa-workers", "4")));
+        log.info("🧾 Import FatturaPA ({}): {}", zipped ? "zip, " + workers + " thread" : "xml", file.toAbsolutePath());
+        long start = System.nanoTime();
+        Context context = new Context(progress);
+
+        if (zipped) {
+            try (ZipFile zip = new ZipFile(file.toFile());
+                 ExecutorService pool = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("fatturapa-", 1).factory())) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory()) continue;
+                    pool.execute(() -> importEntry(entry.getName(), () -> zip.getInputStream(entry), context));
+                }
+            } // close() del pool attende la fine di tutti i file
+        } else {
+            importEntry(file.getFileName().toString(), () -> Files.newInputStream(file), context);
+        }
+
+        int inserted = context.inserted.get();
+        progress.diff(new FileProgress.Diff(inserted, 0, context.duplicates.get(), 0));
+        log.info("✅ FatturaPA importate: {} nuove fatture, {} già presenti, {} file con errori ({} file/s).",
+                inserted, context.duplicates.get(), context.errors.get(), rate(progress.rowsProcessed(), start));
+        return inserted;
+    }
+
+    private void importEntry(String name, XmlSource source, Context context) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".p7m")) {
+            context.error(name + ": file firmato (.p7m) non supportato, importare l'XML estratto");
+            return;
+        }
+        if (!lower.endsWith(".xml")) return;
+
+        context.progress.rowProcessed();
+        try {
+            FatturaPaDocument document;
+            try (InputStream in = source.open()) {
+                document = FatturaPaReader.read(in);
+            }
+            if (document == null) return; // metadati SDI o altro XML
+
+            long counterpartyId = context.counterparties.resolve(document.supplier());
+            List<MappedInvoice> invoices = new ArrayList<>(document.bodies().size());
+            for (FatturaPaDocument.Body body : document.bodies()) {
+                invoices.add(map(body, name, context));
+            }
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                for (MappedInvoice invoice : invoices) {
+                    switch (write(invoice, counterpartyId, name, context)) {
+                        case INSERTED -> context.inserted.incrementAndGet();
+                        case DUPLICATE -> context.duplicates.incrementAndGet();
+                        case CONFLICT -> { } // già segnalato da write
+                    }
+                }
+            });
+        } catch (Exception ex) {
+            log.warn("FatturaPA {} non importata: {}", name, ex.getMessage());
+            context.error(name + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Risolve codici IVA e ritenute prima di aprire la transazione: un riferimento mancante
+     * scarta il file senza scrivere nulla. Le righe fattura hanno imponibile di almeno 0,01:
+     * una linea negativa (sconto o abbuono) scarta il file, una che arrotondata vale 0,00 è ignorata
+     * e segnalata.
+     */
+    private MappedInvoice map(FatturaPaDocument.Body body, String fileName, Context context) {
+        checkDocumentType(body);
+        List<MappedLine> lines = new ArrayList<>(body.lines().size());
+        for (FatturaPaDocument.Line line : body.lines()) {
+            if (line.totalPrice().signum() == 0) continue; // righe descrittive
+            if (line.totalPrice().signum() < 0) {
+                throw new IllegalArgumentException("fattura " + body.number() + ", linea " + line.number()
+                        + ": importo negativo " + line.totalPrice().toPlainString()
+                        + " (sconto o abbuono) non supportato, le righe fattura devono avere imponibile positivo");
+            }
+            BigDecimal netAmount = line.totalPrice().setScale(2, RoundingMode.HALF_UP);
+            if (netAmount.compareTo(MIN_NET_AMOUNT) < 0) {
+                context.error(fileName + ": fattura " + body.number() + ", linea " + line.number() + ": importo "
+                        + line.totalPrice().toPlainString() + " arrotondato a 0,00, linea ignorata");
+                continue;
+            }
+            Long vatCodeId = context.vatCodes.find(line.vatRate(), line.nature());
+            if (vatCodeId == null) {
+                throw new IllegalArgumentException("fattura " + body.number() + ", linea " + line.number()
+                        + ": nessun codice IVA acquisti per aliquota " + line.vatRate().stripTrailingZeros().toPlainString()
+                        + (line.nature() != null ? " e natura " + line.nature() : ""));
+            }
+            Long withholdingTypeId = null;
+            if (line.withholding() && body.withholdingRate() != null) {
+                withholdingTypeId = context.withholdingTypes.get(key(body.withholdingRate()));
+                if (withholdingTypeId == null) {
+                    context.error(fileName + ": fattura " + body.number() + ", linea " + line.number()
+                            + ": nessuna tipologia ritenuta univoca per l'aliquota " + key(body.withholdingRate()) + ", ritenuta non applicata");
+                }
+            }
+            String description = line.description() != null ? line.description() : "Linea " + line.number();
+            if (description.length() > MAX_DESCRIPTION) description = description.substring(0, MAX_DESCRIPTION);
+            lines.add(new MappedLine(description, netAmount, vatCodeId, withholdingTypeId));
+        }
+        return new MappedInvoice(body, lines);
+    }
+
+    /**
+     * Rifiuta i tipi documento che l'import non sa registrare: una nota di credito scritta come fattura
+     * passiva aumenterebbe debiti, partitario, scadenzario e registro IVA invece di ridurli.
+     */
+    static void checkDocumentType(FatturaPaDocument.Body body) {
+        String type = body.documentType();
+        if (type == null || !SUPPORTED_DOCUMENT_TYPES.contains(type)) {
+            throw new IllegalArgumentException("fattura " + body.number() + ": tipo documento "
+                    + (type != null ? type : "mancante")
+                    + ("TD04".equals(type) ? " (nota di credito)" : "")
+                    + " non supportato dall'import, va registrato a mano");
+        }
+    }
+
+    private enum Outcome { INSERTED, DUPLICATE, CONFLICT }
+
+    /**
+     * Un INSERT che viola uq_invoice annulla solo l'istruzione, non la transazione del file:
+     * si confronta il fornitore della fattura esistente e si prosegue con le altre fatture del file.
+     */
+    private Outcome write(MappedInvoice mapped, long counterpartyId, String fileName, Context context) {
+        FatturaPaDocument.Body body = mapped.body();
+        String notes = "Importata da FatturaPA " + fileName
+                + (!"TD01".equals(body.documentType()) ? " (tipo documento " + body.documentType() + ")" : "");
+        KeyHolder keys = new GeneratedKeyHolder();
+        try {
+            jdbc.update(con -> {
+                PreparedStatement ps = con.prepareStatement(INSERT_INVOICE, new String[]{"id"});
+                ps.setLong(1, context.passiveDirectionId);
+                ps.setLong(2, context.issuedStatusId);
+                ps.setLong(3, counterpartyId);
+                ps.setString(4, body.number());
+                ps.setInt(5, body.date().getYear());
+                ps.setDate(6, Date.valueOf(body.date()));
+                ps.setDate(7, body.dueDate() != null ? Date.valueOf(body.dueDate()) : null);
+                ps.setString(8, notes);
+                return ps;
+            }, keys);
+        } catch (DuplicateKeyException ex) {
+            Long existing = jdbc.queryForObject("""
+                    SELECT counterparty_id FROM invoices WHERE direction_id = ? AND number = ? AND year = ?""",
+                    Long.class, context.passiveDirectionId, body.number(), body.date().getYear());
+            if (existing != null && existing == counterpartyId) {
+                return Outcome.DUPLICATE;
+            }
+            context.error(fileName + ": fattura " + body.number() + "/" + body.date().getYear()
+                    + " non importata, il numero è già registrato per un altro fornitore (controparte " + existing + ")");
+            return Outcome.CONFLICT;
+        }
+
+        Invoice invoice = entityManager.getReference(Invoice.class, keys.getKey().longValue());
+        List<InvoiceLine> lines = new ArrayList<>(mapped.lines().size());
+        LineAmounts added = LineAmounts.NONE;
+        for (MappedLine m : mapped.lines()) {
+            InvoiceLine line = new InvoiceLine();
+            line.setInvoice(invoice);
+            line.setDescription(m.description());
+            line.setNetAmount(m.netAmount());
+            line.setVatCode(entityManager.getReference(VatCode.class, m.vatCodeId()));
+            line.setWithholdingType(m.withholdingTypeId() != null ? entityManager.getReference(WithholdingType.class, m.withholdingTypeId()) : null);
+            lines.add(line);
+            added = added.plus(InvoiceTotalsCalculator.lineAmounts(m.netAmount(),
+                    context.vatCodeValues.get(m.vatCodeId()),
+                    m.withholdingTypeId() != null ? context.withholdingValues.get(m.withholdingTypeId()) : null));
+        }
+        invoiceLineRepository.saveAll(lines);
+        invoiceTotalsService.initialize(invoice);
+        invoiceTotalsService.applyLineChange(invoice, LineAmounts.NONE, added, lines.size());
+        return Outcome.INSERTED;
+    }
+
+    private static String key(BigDecimal rate) {
+        return rate.stripTrailingZeros().toPlainString();
+    }
+
+    private static long rate(long rows, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed > 0 ? Math.round(rows * 1_000_000_000d / elapsed) : rows;
+    }
+
+    @FunctionalInterface
+    private interface XmlSource {
+        InputStream open() throws Exception;
+    }
+
+    private record MappedLine(String description, BigDecimal netAmount, Long vatCodeId, Long withholdingTypeId) {
+    }
+
+    private record MappedInvoice(FatturaPaDocument.Body body, List<MappedLine> lines) {
+    }
+
+    /**
+     * Stato condiviso dai thread di un job: dizionari letti all'avvio e contatori.
+     */
+    private final class Context {
+
+        private final FileProgress progress;
+        private final long passiveDirectionId;
+        private final long issuedStatusId;
+        private final VatCodeMatcher vatCodes;
+        private final Map<Long, VatCode> vatCodeValues = new HashMap<>();
+        private final Map<String, Long> withholdingTypes;
+        private final Map<Long, WithholdingType> withholdingValues = new HashMap<>();
+        private final CounterpartyKeys counterparties;
+        private final AtomicInteger inserted = new AtomicInteger();
+        private final AtomicInteger duplicates = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+
+        Context(FileProgress progress) {
+            this.progress = progress;
+            this.passiveDirectionId = jdbc.queryForObject("SELECT id FROM invoice_directions WHERE code = 'PASSIVE'", Long.class);
+            this.issuedStatusId = jdbc.queryForObject("SELECT id FROM invoice_statuses WHERE code = 'ISSUED'", Long.class);
+            long supplierKindId = jdbc.queryForObject("SELECT id FROM counterparty_kinds WHERE code = 'SUPPLIER'", Long.class);
+
+            // letti dal DB e non dalla cache dei lookup: un job non deve partire da uno snapshot scaduto
+            List<VatCode> vatCodeList = vatCodeRepository.findAll();
+            vatCodeList.forEach(v -> vatCodeValues.put(v.getId(), v));
+            this.vatCodes = new VatCodeMatcher(vatCodeList);
+
+            // aliquota -> tipologia, solo se l'aliquota individua una tipologia sola
+            Map<String, Long> byRate = new HashMap<>();
+            Map<String, Integer> count = new HashMap<>();
+            for (WithholdingType wt : withholdingTypeRepository.findAll()) {
+                withholdingValues.put(wt.getId(), wt);
+                if (wt.getRate() == null) continue;
+                byRate.putIfAbsent(key(wt.getRate()), wt.getId());
+                count.merge(key(wt.getRate()), 1, Integer::sum);
+            }
+            byRate.keySet().removeIf(rate -> count.get(rate) > 1);
+            this.withholdingTypes = byRate;
+
+            this.counterparties = new CounterpartyKeys(supplierKindId);
+        }
+
+        void error(String message) {
+            if (errors.incrementAndGet() <= MAX_REPORTED_ERRORS) progress.error(message);
+        }
+    }
+
+    /**
+     * Codice IVA acquisti per aliquota e natura. Senza natura vale solo un codice senza natura;
+     * con natura si cerca prima il codice esatto (N2.2) e poi quello del gruppo (N2).
+     * A parità vince il codice con id più basso.
+     */
+    private static final class VatCodeMatcher {
+
+        private final Map<String, Long> byKey = new HashMap<>();
+
+        VatCodeMatcher(List<VatCode> vatCodes) {
+            for (VatCode v : vatCodes) {
+                if (v.getRate() == null || Boolean.FALSE.equals(v.getUsePurchases())) continue;
+                String nature = v.getCustomNaturePurchases() != null ? v.getCustomNaturePurchases().trim().toUpperCase(Locale.ROOT) : "";
+                byKey.merge(key(v.getRate()) + '|' + nature, v.getId(), Math::min);
+            }
+        }
+
+        Long find(BigDecimal rate, String nature) {
+            String prefix = key(rate) + '|';
+            if (nature == null || nature.isBlank()) {
+                return byKey.get(prefix);
+            }
+            String n = nature.trim().toUpperCase(Locale.ROOT);
+            Long id = byKey.get(prefix + n);
+            int dot = n.indexOf('.');
+            return id != null || dot < 0 ? id : byKey.get(prefix + n.substring(0, dot));
+        }
+    }
+
+    /**
+     * Controparti per partita IVA e codice fiscale (normalizzati), caricate una volta per job.
+     * Un fornitore nuovo è creato una sola volta anche se compare in più file letti in parallelo:
+     * la creazione, in una transazione propria, avviene sotto il lock dell'indice.
+     */
+    private final class CounterpartyKeys {
+
+        private final long supplierKindId;
+        private final Map<String, Long> byVatNumber = new ConcurrentHashMap<>();
+        private final Map<String, Long> byTaxCode = new ConcurrentHashMap<>();
+
+        CounterpartyKeys(long supplierKindId) {
+            this.supplierKindId = supplierKindId;
+            jdbc.query("SELECT id, vat_number, tax_code FROM counterparties ORDER BY id", rs -> {
+                long id = rs.getLong(1);
+                String vat = normalizeKey(rs.getString(2));
+                String taxCode = normalizeKey(rs.getString(3));
+                if (vat != null) byVatNumber.putIfAbsent(vat, id);
+                if (taxCode != null) byTaxCode.putIfAbsent(taxCode, id);
+            });
+        }
+
+        long resolve(FatturaPaDocument.Supplier supplier) {
+            Long id = find(supplier);
+            if (id != null) return id;
+            synchronized (this) {
+                id = find(supplier);
+                if (id != null) return id;
+                CounterpartyDto dto = CounterpartyDto.builder()
+                        .kindId(supplierKindId)
+                        .name(truncate(supplier.name(), 255))
+                        .vatNumber(truncate(supplier.vatNumber(), 30))
+                        .taxCode(truncate(supplier.taxCode(), 30))
+                        .iban(truncate(supplier.iban(), 50))
+                        .build();
+                long created = counterpartyService.create(dto).getId();
+                String vat = normalizeKey(supplier.vatNumber());
+                String taxCode = normalizeKey(supplier.taxCode());
+                if (vat != null) byVatNumber.put(vat, created);
+                if (taxCode != null) byTaxCode.put(taxCode, created);
+                return created;
+            }
+        }
+
+        private Long find(FatturaPaDocument.Supplier supplier) {
+            String vat = normalizeKey(supplier.vatNumber());
+            Long id = vat != null ? byVatNumber.get(vat) : null;
+            if (id == null) {
+                String taxCode = normalizeKey(supplier.taxCode());
+                id = taxCode != null ? byTaxCode.get(taxCode) : null;
+            }
+            return id;
+        }
+
+        /**
+         * "IT 01234567890" e "01234567890" sono la stessa partita IVA.
+         */
+        private static String normalizeKey(String value) {
+            if (value == null) return null;
+            String v = value.replaceAll("[^A-Za-z0-9]", "").toUpperCase(Locale.ROOT);
+            if (v.length() == 13 && v.startsWith("IT") && v.substring(2).chars().allMatch(Character::isDigit)) {
+                v = v.substring(2);
+            }
+            return v.isEmpty() ? null : v;
+        }
+
+        private static String truncate(String value, int max) {
+            return value == null || value.length() <= max ? value : value.substring(0, max);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.veely.account.imports;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lettura in streaming (StAX) di una FatturaPA (formato FPA12/FPR12), senza costruire il DOM.
+ * Come per {@link Camt053Reader} si guardano solo i nomi locali: prefissi e versione dello schema non contano.
+ */
+final class FatturaPaReader {
+
+    private static final XMLInputFactory FACTORY = newFactory();
+
+    private final List<String> path = new ArrayList<>();
+    private final StringBuilder text = new StringBuilder();
+
+    private String idPaese;
+    private String idCodice;
+    private String taxCode;
+    private String denominazione;
+    private String nome;
+    private String cognome;
+    private String iban;
+    private final List<FatturaPaDocument.Body> bodies = new ArrayList<>();
+    private Body body;
+    private Line line;
+
+    private FatturaPaReader() {
+    }
+
+    /**
+     * @return null se il documento non è una FatturaElettronica (es. i file metadati "_MT_" degli zip SDI)
+     */
+    static FatturaPaDocument read(InputStream in) throws Exception {
+        return new FatturaPaReader().parse(in);
+    }
+
+    private FatturaPaDocument parse(InputStream in) throws Exception {
+        XMLStreamReader xml = FACTORY.createXMLStreamReader(in);
+        try {
+            while (xml.hasNext()) {
+                switch (xml.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        String name = xml.getLocalName();
+                        if (path.isEmpty() && !name.equals("FatturaElettronica")) {
+                            return null;
+                        }
+                        path.add(name);
+                        text.setLength(0);
+                        if (name.equals("FatturaElettronicaBody")) {
+                            body = new Body();
+                        } else if (name.equals("DettaglioLinee") && body != null) {
+                            line = new Line();
+                        }
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> text.append(xml.getText());
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        collect(text.toString().trim());
+                        path.remove(path.size() - 1);
+                        text.setLength(0);
+                    }
+                    default -> {
+                    }
+                }
+            }
+        } finally {
+            xml.close();
+        }
+        if (bodies.isEmpty()) {
+            throw new IllegalArgumentException("Nessun FatturaElettronicaBody: il file non sembra una FatturaPA");
+        }
+        return new FatturaPaDocument(supplier(), bodies);
+    }
+
+    private void collect(String value) {
+        if (endsWith("FatturaElettronicaBody")) {
+            bodies.add(body.toBody());
+            body = null;
+        } else if (endsWith("DettaglioLinee") && line != null) {
+            body.lines.add(line.toLine());
+            line = null;
+        } else if (value.isEmpty()) {
+            return;
+        } else if (line != null) {
+            if (endsWith("DettaglioLinee", "NumeroLinea")) line.number = Integer.parseInt(value);
+            else if (endsWith("DettaglioLinee", "Descrizione")) line.description = value;
+            else if (endsWith("DettaglioLinee", "PrezzoTotale")) line.totalPrice = new BigDecimal(value);
+            else if (endsWith("DettaglioLinee", "AliquotaIVA")) line.vatRate = new BigDecimal(value);
+            else if (endsWith("DettaglioLinee", "Natura")) line.nature = value;
+            else if (endsWith("DettaglioLinee", "Ritenuta")) line.withholding = "SI".equalsIgnoreCase(value);
+        } else if (body != null) {
+            if (endsWith("DatiGeneraliDocumento", "TipoDocumento")) body.documentType = value;
+            else if (endsWith("DatiGeneraliDocumento", "Numero")) body.number = value;
+            else if (endsWith("DatiGeneraliDocumento", "Data")) body.date = LocalDate.parse(value);
+            else if (endsWith("DatiRitenuta", "AliquotaRitenuta")) {
+                if (body.withholdingRate == null) body.withholdingRate = new BigDecimal(value);
+            } else if (endsWith("DettaglioPagamento", "DataScadenzaPagamento")) {
+                if (body.dueDate == null) body.dueDate = LocalDate.parse(value);
+            } else if (endsWith("DettaglioPagamento", "IBAN")) {
+                if (iban == null) iban = value;
+            }
+        } else if (endsWith("CedentePrestatore", "DatiAnagrafici", "IdFiscaleIVA", "IdPaese")) {
+            idPaese = value;
+        } else if (endsWith("CedentePrestatore", "DatiAnagrafici", "IdFiscaleIVA", "IdCodice")) {
+            idCodice = value;
+        } else if (endsWith("CedentePrestatore", "DatiAnagrafici", "CodiceFiscale")) {
+            taxCode = value;
+        } else if (endsWith("CedentePrestatore", "DatiAnagrafici", "Anagrafica", "Denominazione")) {
+            denominazione = value;
+        } else if (endsWith("CedentePrestatore", "DatiAnagrafici", "Anagrafica", "Nome")) {
+            nome = value;
+        } else if (endsWith("CedentePrestatore", "DatiAnagrafici", "Anagrafica", "Cognome")) {
+            cognome = value;
+        }
+    }
+
+    private FatturaPaDocument.Supplier supplier() {
+        String vatNumber = idCodice == null ? null
+                : idPaese == null || idPaese.equalsIgnoreCase("IT") ? idCodice : idPaese + idCodice;
+        String name = denominazione != null ? denominazione
+                : String.join(" ", nome != null ? nome : "", cognome != null ? cognome : "").trim();
+        if (vatNumber == null && taxCode == null) {
+            throw new IllegalArgumentException("Cedente/prestatore senza partita IVA né codice fiscale");
+        }
+        return new FatturaPaDocument.Supplier(vatNumber, taxCode, name.isEmpty() ? vatNumber : name, iban);
+    }
+
+    private boolean endsWith(String... names) {
+        int offset = path.size() - names.length;
+        if (offset < 0) return false;
+        for (int i = 0; i < names.length; i++) {
+            if (!path.get(offset + i).equals(names[i])) return false;
+        }
+        return true;
+    }
+
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    private static final class Body {
+        private String documentType;
+        private String number;
+        private LocalDate date;
+        private LocalDate dueDate;
+        private BigDecimal withholdingRate;
+        private final List<FatturaPaDocument.Line> lines = new ArrayList<>();
+
+        FatturaPaDocument.Body toBody() {
+            if (number == null || date == null) {
+                throw new IllegalArgumentException("Fattura senza numero o data nei DatiGeneraliDocumento");
+            }
+            return new FatturaPaDocument.Body(documentType, number, date, dueDate, withholdingRate, List.copyOf(lines));
+        }
+    }
+
+    private static final class Line {
+        private int number;
+        private String description;
+        private BigDecimal totalPrice;
+        private BigDecimal vatRate;
+        private String nature;
+        private boolean withholding;
+
+        FatturaPaDocument.Line toLine() {
+            if (totalPrice == null || vatRate == null) {
+                throw new IllegalArgumentException("Linea " + number + " senza PrezzoTotale o AliquotaIVA");
+            }
+            return new FatturaPaDocument.Line(number, description, totalPrice, vatRate, nature, withholding);
+        }
+    }
+}
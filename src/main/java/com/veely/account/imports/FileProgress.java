@@ -0,0 +1,100 @@
+package com.veely.account.imports;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Avanzamento di un file dentro un {@link ImportJob}. Scritto dal thread di import,
+ * letto dall'endpoint di polling: i campi sono volatili/atomici e {@link #status()} ne fa una copia.
+ */
+public class FileProgress {
+
+    public enum State { PENDING, RUNNING, COMPLETED, SKIPPED, FAILED }
+
+    /**
+     * Esito del confronto con la tabella: righe nuove, modificate, invariate (per gli estratti conto:
+     * movimenti già presenti) e codici disattivati.
+     */
+    public record Diff(int inserted, int updated, int unchanged, int deactivated) {
+        static final Diff NONE = new Diff(0, 0, 0, 0);
+    }
+
+    public record Status(String file, String fileName, State state,
+                         long rowsProcessed, long rowsWritten, long rowsPerSecond, Diff diff, List<String> errors) {
+    }
+
+    private final String file;
+    private final String fileName;
+    private final AtomicLong rowsProcessed = new AtomicLong();
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+    private volatile State state = State.PENDING;
+    private volatile long rowsWritten;
+    private volatile Diff diff = Diff.NONE;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    FileProgress(String file, String fileName) {
+        this.file = file;
+        this.fileName = fileName;
+    }
+
+    public String file() {
+        return file;
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+        state = State.RUNNING;
+    }
+
+    void rowProcessed() {
+        rowsProcessed.incrementAndGet();
+    }
+
+    long rowsProcessed() {
+        return rowsProcessed.get();
+    }
+
+    /** Riga scartata senza interrompere il file (es. data non valida in un estratto conto). */
+    void error(String error) {
+        errors.add(error);
+    }
+
+    void diff(Diff diff) {
+        this.diff = diff;
+    }
+
+    void skip() {
+        endNanos = System.nanoTime();
+        state = State.SKIPPED;
+    }
+
+    void complete(long written) {
+        rowsWritten = written;
+        endNanos = System.nanoTime();
+        state = State.COMPLETED;
+    }
+
+    void fail(String error) {
+        errors.add(error);
+        endNanos = System.nanoTime();
+        state = State.FAILED;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public long rowsPerSecond() {
+        long start = startNanos;
+        if (start == 0) return 0;
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        long elapsed = end - start;
+        return elapsed > 0 ? Math.round(rowsProcessed.get() * 1_000_000_000d / elapsed) : 0;
+    }
+
+    public Status status() {
+        return new Status(file, fileName, state, rowsProcessed.get(), rowsWritten, rowsPerSecond(), diff, List.copyOf(errors));
+    }
+}
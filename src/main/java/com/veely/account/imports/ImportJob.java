@@ -0,0 +1,78 @@
+package com.veely.account.imports;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Job di import (dizionari o estratti conto): uno o più file eseguiti in sequenza
+ * sull'executor dedicato.
+ */
+public class ImportJob {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    public record Status(String id, String type, State state, Instant submittedAt, Instant startedAt, Instant finishedAt,
+                         List<FileProgress.Status> files) {
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Instant submittedAt = Instant.now();
+    private final String type;
+    private final Map<String, FileProgress> files = new LinkedHashMap<>();
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    /**
+     * @param fileNames chiave del file nel job (es. ACCOUNTS) -> nome del file, nell'ordine di esecuzione
+     */
+    ImportJob(String type, Map<String, String> fileNames) {
+        this.type = type;
+        fileNames.forEach((file, name) -> files.put(file, new FileProgress(file, name)));
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String type() {
+        return type;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public Instant submittedAt() {
+        return submittedAt;
+    }
+
+    Collection<FileProgress> files() {
+        return files.values();
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void finish() {
+        finishedAt = Instant.now();
+        state = files.values().stream().anyMatch(f -> f.state() == FileProgress.State.FAILED)
+                ? State.FAILED
+                : State.COMPLETED;
+    }
+
+    boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    public Status status() {
+        return new Status(id, type, state, submittedAt, startedAt, finishedAt,
+                files.values().stream().map(FileProgress::status).toList());
+    }
+}
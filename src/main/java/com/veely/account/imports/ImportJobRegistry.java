@@ -0,0 +1,90 @@
+package com.veely.account.imports;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Job di import in corso e recenti (gli ultimi {@value #KEEP_FINISHED_JOBS} terminati),
+ * eseguiti uno alla volta sull'executor importExecutor.
+ */
+@Slf4j
+@Component
+public class ImportJobRegistry {
+
+    private static final int KEEP_FINISHED_JOBS = 20;
+
+    private final TaskExecutor executor;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJobRegistry(@Qualifier("importExecutor") TaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Registra il job e lo accoda; {@code workDir}, se presente, è eliminata a fine job
+     * (o subito se l'executor rifiuta il job).
+     */
+    ImportJob submit(ImportJob job, Path workDir, Runnable work) {
+        evictFinished();
+        jobs.put(job.id(), job);
+        try {
+            executor.execute(() -> {
+                try {
+                    work.run();
+                } finally {
+                    deleteQuietly(workDir);
+                }
+            });
+        } catch (RuntimeException ex) {
+            jobs.remove(job.id());
+            deleteQuietly(workDir);
+            throw ex;
+        }
+        return job;
+    }
+
+    public Optional<ImportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public Optional<ImportJob> find(String type, String id) {
+        return find(id).filter(job -> job.type().equals(type));
+    }
+
+    public List<ImportJob> recent(String type) {
+        return jobs.values().stream()
+                .filter(job -> job.type().equals(type))
+                .sorted(Comparator.comparing(ImportJob::submittedAt).reversed())
+                .toList();
+    }
+
+    private void evictFinished() {
+        List<ImportJob> finished = jobs.values().stream()
+                .filter(ImportJob::isFinished)
+                .sorted(Comparator.comparing(ImportJob::submittedAt))
+                .toList();
+        for (int i = 0; i < finished.size() - KEEP_FINISHED_JOBS; i++) {
+            jobs.remove(finished.get(i).id());
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (dir == null) return;
+        try {
+            FileSystemUtils.deleteRecursively(dir);
+        } catch (IOException ex) {
+            log.warn("Impossibile eliminare la cartella temporanea {}", dir, ex);
+        }
+    }
+}
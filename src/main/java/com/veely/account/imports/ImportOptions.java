@@ -0,0 +1,8 @@
+package com.veely.account.imports;
+
+/**
+ * Opzioni di un job di import: {@code force} reimporta anche i file con impronta invariata,
+ * {@code deactivateMissing} disattiva i conti non più presenti nel piano dei conti.
+ */
+public record ImportOptions(boolean force, boolean deactivateMissing) {
+}
@@ -0,0 +1,86 @@
+package com.veely.account.imports;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accumula le righe di un foglio e le scrive con {@code JdbcTemplate.batchUpdate} a blocchi
+ * di {@code batchSize}. Per ogni riga tiene il numero di riga del foglio, così un errore
+ * del batch indica le righe da correggere.
+ */
+final class UpsertBatch {
+
+    private final JdbcTemplate jdbc;
+    private final String sheet;
+    private final String sql;
+    private final int batchSize;
+
+    private final List<Object[]> args;
+    private final int[] rowNumbers;
+    private int written;
+
+    UpsertBatch(JdbcTemplate jdbc, String sheet, String sql, int batchSize) {
+        this.jdbc = jdbc;
+        this.sheet = sheet;
+        this.sql = sql;
+        this.batchSize = Math.max(1, batchSize);
+        this.args = new ArrayList<>(this.batchSize);
+        this.rowNumbers = new int[this.batchSize];
+    }
+
+    void add(int rowNumber, Object... values) {
+        rowNumbers[args.size()] = rowNumber;
+        args.add(values);
+        if (args.size() == batchSize) {
+            flush();
+        }
+    }
+
+    /** Scrive le righe rimaste e restituisce il totale delle righe inviate. */
+    int finish() {
+        flush();
+        return written;
+    }
+
+    private void flush() {
+        if (args.isEmpty()) return;
+        try {
+            jdbc.batchUpdate(sql, args);
+        } catch (DataAccessException ex) {
+            throw new DictionaryImportException(sheet, failedRows(ex), ex);
+        }
+        written += args.size();
+        args.clear();
+    }
+
+    /**
+     * Righe indicate dal driver come fallite; se il driver non lo dice (es. batch riscritto
+     * in un'unica INSERT multi-riga) tutte le righe del batch.
+     */
+    private List<Integer> failedRows(DataAccessException ex) {
+        List<Integer> failed = new ArrayList<>();
+        Throwable cause = ex;
+        while (cause != null && !(cause instanceof BatchUpdateException)) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof BatchUpdateException bue && bue.getUpdateCounts() != null) {
+            int[] counts = bue.getUpdateCounts();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == Statement.EXECUTE_FAILED) failed.add(rowNumbers[i]);
+            }
+            if (failed.isEmpty() && counts.length > 0 && counts.length < args.size()) {
+                // il driver si ferma al primo errore: la riga fallita è la prima senza esito
+                failed.add(rowNumbers[counts.length]);
+            }
+        }
+        if (failed.isEmpty()) {
+            for (int i = 0; i < args.size(); i++) failed.add(rowNumbers[i]);
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,295 @@
+package com.veely.account.imports;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lettura in streaming del primo foglio di un file XLSX: il foglio viene attraversato con SAX
+ * e ogni riga passata alla callback, senza costruire il modello XSSFWorkbook in memoria.
+ * Restano in memoria solo la tabella delle stringhe condivise e gli stili.
+ * <p>
+ * Le celle conservano tipo e valore grezzo, così i convertitori di ExcelDictionaryImporter
+ * si comportano come con l'API usermodel (date formattate, numeri, booleani, formule).
+ */
+public final class XlsxRowReader {
+
+    @FunctionalInterface
+    public interface RowCallback {
+        void row(SheetRow row) throws Exception;
+    }
+
+    enum CellKind { STRING, NUMERIC, BOOLEAN, FORMULA_STRING, FORMULA_NUMERIC, OTHER }
+
+    record XlsxCell(CellKind kind, String value, boolean dateFormatted) {
+    }
+
+    /**
+     * Riga del foglio; {@code index} è 0-based come in {@code Sheet.getRow(r)}.
+     */
+    public static final class SheetRow {
+
+        private final int index;
+        private final List<XlsxCell> cells;
+        private final boolean date1904;
+
+        SheetRow(int index, List<XlsxCell> cells, boolean date1904) {
+            this.index = index;
+            this.cells = cells;
+            this.date1904 = date1904;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        /** Numero di riga come mostrato da Excel (1-based), per i messaggi. */
+        public int number() {
+            return index + 1;
+        }
+
+        /** Equivalente di {@code row.getCell(idx).getStringCellValue()}/numerico formattato come in origine. */
+        public String text(int idx) {
+            XlsxCell c = cell(idx);
+            if (c == null) return null;
+            return switch (c.kind()) {
+                case STRING, FORMULA_STRING -> trimToNull(c.value());
+                case NUMERIC -> {
+                    double d = Double.parseDouble(c.value());
+                    if (isDate(c, d)) {
+                        yield toLocalDate(d).toString();
+                    }
+                    yield trimToNull(BigDecimal.valueOf(d).stripTrailingZeros().toPlainString());
+                }
+                case FORMULA_NUMERIC -> trimToNull(BigDecimal.valueOf(Double.parseDouble(c.value())).stripTrailingZeros().toPlainString());
+                case BOOLEAN -> "1".equals(c.value()) ? "true" : "false";
+                case OTHER -> null;
+            };
+        }
+
+        /** Data se la cella è numerica con formato data, altrimenti null. */
+        public LocalDate dateValue(int idx) {
+            XlsxCell c = cell(idx);
+            if (c == null || c.kind() != CellKind.NUMERIC) return null;
+            double d = Double.parseDouble(c.value());
+            return isDate(c, d) ? toLocalDate(d) : null;
+        }
+
+        private XlsxCell cell(int idx) {
+            return idx < cells.size() ? cells.get(idx) : null;
+        }
+
+        private static boolean isDate(XlsxCell c, double d) {
+            return c.dateFormatted() && DateUtil.isValidExcelDate(d);
+        }
+
+        private LocalDate toLocalDate(double d) {
+            return DateUtil.getJavaDate(d, date1904).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+
+        private static String trimToNull(String s) {
+            if (s == null) return null;
+            String t = s.trim();
+            return t.isEmpty() ? null : t;
+        }
+    }
+
+    private XlsxRowReader() {
+    }
+
+    /**
+     * Legge il primo foglio di {@code file} invocando {@code callback} per ogni riga presente,
+     * a partire da {@code firstRow} (0-based; 1 salta l'intestazione).
+     */
+    public static void read(Path file, int firstRow, RowCallback callback) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+            boolean date1904 = isDate1904(reader);
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) return;
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new SheetHandler(strings, styles, date1904, firstRow, callback));
+                parser.parse(new InputSource(sheet));
+            } catch (SAXException ex) {
+                if (ex.getException() != null) {
+                    throw ex.getException();
+                }
+                throw ex;
+            }
+        }
+    }
+
+    private static boolean isDate1904(XSSFReader reader) throws Exception {
+        boolean[] date1904 = {false};
+        try (InputStream workbook = reader.getWorkbookData()) {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attrs) {
+                    if ("workbookPr".equals(localName)) {
+                        String v = attrs.getValue("date1904");
+                        date1904[0] = "1".equals(v) || "true".equals(v);
+                    }
+                }
+            });
+            parser.parse(new InputSource(workbook));
+        }
+        return date1904[0];
+    }
+
+    private static final class SheetHandler extends DefaultHandler {
+
+        private final ReadOnlySharedStringsTable strings;
+        private final StylesTable styles;
+        private final boolean date1904;
+        private final int firstRow;
+        private final RowCallback callback;
+        private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+
+        private int rowIndex = -1;
+        private List<XlsxCell> cells;
+        private int column;
+        private String type;
+        private int style;
+        private boolean formula;
+        private boolean inValue;
+        private boolean inInlineText;
+        private final StringBuilder value = new StringBuilder();
+
+        SheetHandler(ReadOnlySharedStringsTable strings, StylesTable styles, boolean date1904,
+                     int firstRow, RowCallback callback) {
+            this.strings = strings;
+            this.styles = styles;
+            this.date1904 = date1904;
+            this.firstRow = firstRow;
+            this.callback = callback;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attrs) {
+            switch (localName) {
+                case "row" -> {
+                    String r = attrs.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    cells = new ArrayList<>();
+                    column = -1;
+                }
+                case "c" -> {
+                    String ref = attrs.getValue("r");
+                    column = ref != null ? columnOf(ref) : column + 1;
+                    type = attrs.getValue("t");
+                    String s = attrs.getValue("s");
+                    style = s != null ? Integer.parseInt(s) : 0;
+                    formula = false;
+                    value.setLength(0);
+                }
+                case "f" -> formula = true;
+                case "v" -> inValue = true;
+                case "t" -> inInlineText = "inlineStr".equals(type);
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue || inInlineText) {
+                value.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            switch (localName) {
+                case "v" -> inValue = false;
+                case "t" -> inInlineText = false;
+                case "c" -> {
+                    XlsxCell cell = toCell();
+                    if (cell != null) {
+                        while (cells.size() < column) {
+                            cells.add(null);
+                        }
+                        cells.add(cell);
+                    }
+                }
+                case "row" -> {
+                    if (rowIndex >= firstRow && !cells.isEmpty()) {
+                        try {
+                            callback.row(new SheetRow(rowIndex, cells, date1904));
+                        } catch (Exception ex) {
+                            throw new SAXException(ex);
+                        }
+                    }
+                    cells = null;
+                }
+                default -> {
+                }
+            }
+        }
+
+        private XlsxCell toCell() {
+            if (value.isEmpty()) {
+                return null;
+            }
+            String v = value.toString();
+            if (formula) {
+                if ("str".equals(type)) return new XlsxCell(CellKind.FORMULA_STRING, v, false);
+                if (type == null || "n".equals(type)) return new XlsxCell(CellKind.FORMULA_NUMERIC, v, false);
+                return new XlsxCell(CellKind.OTHER, v, false);
+            }
+            if (type == null || "n".equals(type)) {
+                return new XlsxCell(CellKind.NUMERIC, v, isDateStyle(style));
+            }
+            return switch (type) {
+                case "s" -> new XlsxCell(CellKind.STRING, strings.getItemAt(Integer.parseInt(v)).getString(), false);
+                case "inlineStr", "str" -> new XlsxCell(CellKind.STRING, v, false);
+                case "b" -> new XlsxCell(CellKind.BOOLEAN, v, false);
+                default -> new XlsxCell(CellKind.OTHER, v, false);
+            };
+        }
+
+        private boolean isDateStyle(int index) {
+            return dateStyles.computeIfAbsent(index, i -> {
+                if (styles == null || i >= styles.getNumCellStyles()) return false;
+                XSSFCellStyle cellStyle = styles.getStyleAt(i);
+                return cellStyle != null
+                        && DateUtil.isADateFormat(cellStyle.getDataFormat(), cellStyle.getDataFormatString());
+            });
+        }
+
+        private static int columnOf(String ref) {
+            int col = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char ch = ref.charAt(i);
+                if (ch < 'A' || ch > 'Z') break;
+                col = col * 26 + (ch - 'A' + 1);
+            }
+            return col - 1;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.veely.account.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Foglio dizionario elaborato da ExcelDictionaryImporter: righe lette e scritte.
+ */
+@Name("com.veely.account.DictionarySheet")
+@Label("Import foglio dizionario")
+@Category({"Veely", "Import"})
+@Description("Un foglio dizionario (piano dei conti, codici IVA, ritenute) importato o saltato")
+@StackTrace(false)
+public class DictionarySheetEvent extends Event {
+
+    @Label("Dizionario")
+    String file;
+
+    @Label("Nome file")
+    String fileName;
+
+    @Label("Esito")
+    @Description("imported, skipped (impronta invariata) o failed")
+    String outcome;
+
+    @Label("Righe lette")
+    long rows;
+
+    @Label("Righe scritte")
+    long written;
+
+    public void commit(String file, String fileName, String outcome, long rows, long written) {
+        end();
+        if (shouldCommit()) {
+            this.file = file;
+            this.fileName = fileName;
+            this.outcome = outcome;
+            this.rows = rows;
+            this.written = written;
+            commit();
+        }
+    }
+}
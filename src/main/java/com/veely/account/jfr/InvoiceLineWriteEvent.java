@@ -0,0 +1,39 @@
+package com.veely.account.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Scrittura di righe fattura, compreso l'aggiornamento di invoice_totals nella stessa transazione.
+ */
+@Name("com.veely.account.InvoiceLineWrite")
+@Label("Scrittura righe fattura")
+@Category({"Veely", "Fatture"})
+@Description("Inserimento, modifica o eliminazione di righe fattura da InvoiceService")
+@StackTrace(false)
+public class InvoiceLineWriteEvent extends Event {
+
+    @Label("Operazione")
+    @Description("add, bulk, update o delete")
+    String operation;
+
+    @Label("Fattura")
+    long invoiceId;
+
+    @Label("Righe")
+    int lines;
+
+    public void commit(String operation, long invoiceId, int lines) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.invoiceId = invoiceId;
+            this.lines = lines;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.veely.account.jfr;
+
+import com.veely.account.service.dto.InvoiceSearchCriteria;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Ricerca fatture (pagina a keyset della lista): filtri usati e righe lette dalla query.
+ */
+@Name("com.veely.account.InvoiceSearch")
+@Label("Ricerca fatture")
+@Category({"Veely", "Fatture"})
+@Description("Ricerca fatture da InvoiceService: filtri usati e righe restituite")
+@StackTrace(false)
+public class InvoiceSearchEvent extends Event {
+
+    @Label("Query")
+    @Description("list = ricerca completa, page = pagina a keyset")
+    String query;
+
+    @Label("Filtri")
+    String filters;
+
+    @Label("Righe")
+    int rows;
+
+    public void commit(String query, InvoiceSearchCriteria criteria, int rows) {
+        end();
+        if (shouldCommit()) {
+            this.query = query;
+            this.filters = criteria.filterNames();
+            this.rows = rows;
+            commit();
+        }
+    }
+}
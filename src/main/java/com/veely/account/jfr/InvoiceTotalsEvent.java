@@ -0,0 +1,39 @@
+package com.veely.account.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Calcolo dei totali di un gruppo di fatture: quante fatture e quante righe sono passate dal calcolatore.
+ */
+@Name("com.veely.account.InvoiceTotals")
+@Label("Calcolo totali fatture")
+@Category({"Veely", "Fatture"})
+@Description("Totali calcolati da InvoiceService: fatture e righe elaborate")
+@StackTrace(false)
+public class InvoiceTotalsEvent extends Event {
+
+    @Label("Origine")
+    @Description("lines = ricalcolo dalle righe, list = invoice_totals con ricalcolo delle sole mancanti")
+    String source;
+
+    @Label("Fatture")
+    int invoices;
+
+    @Label("Righe")
+    int lines;
+
+    public void commit(String source, int invoices, int lines) {
+        end();
+        if (shouldCommit()) {
+            this.source = source;
+            this.invoices = invoices;
+            this.lines = lines;
+            commit();
+        }
+    }
+}
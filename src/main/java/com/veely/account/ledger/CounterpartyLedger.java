@@ -0,0 +1,12 @@
+package com.veely.account.ledger;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Partitario di una controparte: saldo attuale, riepiloghi mensili (dal più recente) e una pagina
+ * di voci dalla più recente; {@code nextCursor} è null sull'ultima pagina.
+ */
+public record CounterpartyLedger(long counterpartyId, BigDecimal balance, List<LedgerPeriod> periods,
+                                 List<LedgerEntry> entries, String nextCursor) {
+}
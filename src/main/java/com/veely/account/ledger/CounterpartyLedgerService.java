@@ -0,0 +1,363 @@
+package com.veely.account.ledger;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Partitario per controparte: fatture (netto a pagare, attive + e passive -) e movimenti bancari
+ * collegati alle sue fatture (importo col segno opposto), con saldo progressivo.
+ * <p>
+ * I saldi stanno in counterparty_ledger_periods, una riga per controparte e mese. Chi modifica fatture,
+ * totali o collegamenti pubblica un {@link LedgerChangedEvent}: gli eventi della transazione vengono
+ * raccolti e, dopo il commit, si ricalcolano dalle tabelle di origine solo i mesi toccati (due query
+ * aggregate per controparte) in una transazione nuova che prima blocca le controparti coinvolte.
+ * Così due transazioni concorrenti sulla stessa controparte ricalcolano una dopo l'altra, e la seconda
+ * vede i dati già committati dalla prima: con REPEATABLE READ un ricalcolo prima del commit leggerebbe
+ * una fotografia senza le righe dell'altra e l'ultimo a scrivere lascerebbe un saldo sbagliato.
+ * Se il processo si ferma tra il commit e il ricalcolo i mesi restano indietro fino a {@link #rebuildAll()}.
+ * La lettura prende i riepiloghi mensili e, per il dettaglio, solo i mesi necessari a riempire una pagina.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CounterpartyLedgerService {
+
+    static final int INVOICE = 0;
+    static final int PAYMENT = 1;
+
+    private static final int IN_CHUNK = 500;
+
+    private static final Object PENDING_KEY = new Object();
+
+    private static final String INVOICE_AMOUNT =
+            "CASE WHEN d.code = 'PASSIVE' THEN -COALESCE(t.payable_total, 0) ELSE COALESCE(t.payable_total, 0) END";
+
+    private static final String INVOICE_PERIODS_SQL = """
+            SELECT YEAR(i.issue_date) * 100 + MONTH(i.issue_date) AS period, SUM(%s) AS amount, COUNT(*) AS entries
+            FROM invoices i
+            JOIN invoice_directions d ON d.id = i.direction_id
+            JOIN invoice_statuses s ON s.id = i.status_id
+            LEFT JOIN invoice_totals t ON t.invoice_id = i.id
+            WHERE i.counterparty_id = ? AND i.issue_date >= ? AND i.issue_date < ? AND s.code <> 'CANCELLED'
+            GROUP BY YEAR(i.issue_date) * 100 + MONTH(i.issue_date)""".formatted(INVOICE_AMOUNT);
+
+    private static final String PAYMENT_PERIODS_SQL = """
+            SELECT YEAR(b.booking_date) * 100 + MONTH(b.booking_date) AS period, SUM(-b.amount) AS amount, COUNT(*) AS entries
+            FROM bank_transactions b
+            JOIN invoices i ON i.id = b.linked_invoice_id
+            WHERE i.counterparty_id = ? AND b.booking_date >= ? AND b.booking_date < ?
+            GROUP BY YEAR(b.booking_date) * 100 + MONTH(b.booking_date)""";
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO counterparty_ledger_periods (counterparty_id, period, invoiced, settled, invoice_count, movement_count)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE invoiced = VALUES(invoiced), settled = VALUES(settled),
+                                    invoice_count = VALUES(invoice_count), movement_count = VALUES(movement_count)""";
+
+    private static final String ENTRIES_SQL = """
+            SELECT entry_date, kind, id, direction, reference, amount FROM (
+                SELECT i.issue_date AS entry_date, %d AS kind, i.id, d.code AS direction,
+                       CONCAT(i.number, '/', i.year) AS reference, %s AS amount
+                FROM invoices i
+                JOIN invoice_directions d ON d.id = i.direction_id
+                JOIN invoice_statuses s ON s.id = i.status_id
+                LEFT JOIN invoice_totals t ON t.invoice_id = i.id
+                WHERE i.counterparty_id = ? AND i.issue_date >= ? AND s.code <> 'CANCELLED'
+                UNION ALL
+                SELECT b.booking_date, %d, b.id, NULL, b.description, -b.amount
+                FROM bank_transactions b
+                JOIN invoices i ON i.id = b.linked_invoice_id
+                WHERE i.counterparty_id = ? AND b.booking_date >= ?
+            ) e""".formatted(INVOICE, INVOICE_AMOUNT, PAYMENT);
+
+    private final JdbcTemplate jdbc;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Periodi attuali delle fatture indicate e dei movimenti collegati: da raccogliere prima di una modifica
+     * che sposta una fattura (data, controparte) o la elimina.
+     */
+    public Set<LedgerPeriodKey> keysOf(Collection<Long> invoiceIds) {
+        Set<LedgerPeriodKey> keys = new HashSet<>();
+        List<Long> ids = new ArrayList<>(invoiceIds);
+        for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + IN_CHUNK));
+            String in = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i] = chunk.get(i);
+                args[chunk.size() + i] = chunk.get(i);
+            }
+            jdbc.query("SELECT counterparty_id, issue_date AS d FROM invoices WHERE id IN (" + in + ")"
+                            + " UNION ALL SELECT i.counterparty_id, b.booking_date FROM bank_transactions b"
+                            + " JOIN invoices i ON i.id = b.linked_invoice_id WHERE b.linked_invoice_id IN (" + in + ")",
+                    rs -> {
+                        keys.add(LedgerPeriodKey.of(rs.getLong(1), rs.getDate(2).toLocalDate()));
+                    }, args);
+        }
+        return keys;
+    }
+
+    /**
+     * Accoda le fatture e i periodi dell'evento al ricalcolo della transazione corrente (uno solo, dopo il commit);
+     * senza transazione il ricalcolo è immediato. Se la transazione va in rollback non si ricalcola nulla.
+     */
+    @EventListener
+    public void onLedgerChanged(LedgerChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refreshCommitted(event.invoiceIds(), event.previous());
+            return;
+        }
+        PendingRefresh pending = (PendingRefresh) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending == null) {
+            pending = new PendingRefresh();
+            TransactionSynchronizationManager.bindResource(PENDING_KEY, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.invoiceIds.addAll(event.invoiceIds());
+        pending.previous.addAll(event.previous());
+    }
+
+    private final class PendingRefresh implements TransactionSynchronization {
+
+        private final Set<Long> invoiceIds = new HashSet<>();
+        private final Set<LedgerPeriodKey> previous = new HashSet<>();
+
+        @Override
+        public void afterCommit() {
+            refreshCommitted(invoiceIds, previous);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+        }
+    }
+
+    /**
+     * Ricalcolo su dati committati: i periodi attuali delle fatture si leggono in una transazione a sé,
+     * perché in quella del ricalcolo la prima istruzione deve essere il blocco delle controparti.
+     */
+    private void refreshCommitted(Set<Long> invoiceIds, Set<LedgerPeriodKey> previous) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Set<LedgerPeriodKey> keys = new HashSet<>(previous);
+        if (!invoiceIds.isEmpty()) {
+            keys.addAll(tx.execute(status -> keysOf(invoiceIds)));
+        }
+        if (!keys.isEmpty()) {
+            tx.executeWithoutResult(status -> refresh(keys));
+        }
+    }
+
+    /**
+     * Ricalcola i mesi indicati dalle tabelle di origine; i mesi rimasti vuoti sono eliminati.
+     * Va chiamato all'inizio di una transazione: blocca le controparti (in ordine di id, niente deadlock
+     * tra ricalcoli) prima della prima lettura, così la fotografia REPEATABLE READ è presa a blocco ottenuto
+     * e include tutto ciò che è stato committato da chi ricalcolava prima.
+     */
+    void refresh(Collection<LedgerPeriodKey> keys) {
+        Map<Long, SortedSet<Integer>> byCounterparty = byCounterparty(keys);
+        lockCounterparties(byCounterparty.keySet());
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        byCounterparty.forEach((counterpartyId, periods) -> {
+            Date from = Date.valueOf(LedgerPeriodKey.firstDay(periods.first()));
+            Date to = Date.valueOf(LedgerPeriodKey.firstDay(periods.last()).plusMonths(1));
+            delta(counterpartyId, periods, sums(INVOICE_PERIODS_SQL, counterpartyId, from, to),
+                    sums(PAYMENT_PERIODS_SQL, counterpartyId, from, to), upserts, deletes);
+        });
+        if (!upserts.isEmpty()) jdbc.batchUpdate(UPSERT_SQL, upserts);
+        if (!deletes.isEmpty()) {
+            jdbc.batchUpdate("DELETE FROM counterparty_ledger_periods WHERE counterparty_id = ? AND period = ?", deletes);
+        }
+    }
+
+    /**
+     * Mesi da ricalcolare per controparte, in ordine di id (l'ordine dei blocchi) e di periodo.
+     */
+    static Map<Long, SortedSet<Integer>> byCounterparty(Collection<LedgerPeriodKey> keys) {
+        Map<Long, SortedSet<Integer>> byCounterparty = new TreeMap<>();
+        for (LedgerPeriodKey key : keys) {
+            byCounterparty.computeIfAbsent(key.counterpartyId(), id -> new TreeSet<>()).add(key.period());
+        }
+        return byCounterparty;
+    }
+
+    /**
+     * Righe da scrivere per i mesi ricalcolati di una controparte: i mesi senza fatture né movimenti
+     * vanno eliminati, gli altri riscritti con le somme lette (zero dove manca una delle due).
+     */
+    static void delta(long counterpartyId, SortedSet<Integer> periods, Map<Integer, Sum> invoiced,
+                      Map<Integer, Sum> settled, List<Object[]> upserts, List<Object[]> deletes) {
+        for (int period : periods) {
+            Sum inv = invoiced.getOrDefault(period, Sum.ZERO);
+            Sum pay = settled.getOrDefault(period, Sum.ZERO);
+            if (inv.entries() == 0 && pay.entries() == 0) {
+                deletes.add(new Object[]{counterpartyId, period});
+            } else {
+                upserts.add(new Object[]{counterpartyId, period, inv.amount(), pay.amount(), inv.entries(), pay.entries()});
+            }
+        }
+    }
+
+    private void lockCounterparties(Set<Long> counterpartyIds) {
+        List<Long> ids = new ArrayList<>(counterpartyIds);
+        for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + IN_CHUNK));
+            jdbc.queryForList("SELECT id FROM counterparties WHERE id IN ("
+                    + String.join(",", Collections.nCopies(chunk.size(), "?")) + ") ORDER BY id FOR UPDATE",
+                    Long.class, chunk.toArray());
+        }
+    }
+
+    private Map<Integer, Sum> sums(String sql, long counterpartyId, Date from, Date to) {
+        Map<Integer, Sum> sums = new HashMap<>();
+        jdbc.query(sql, rs -> {
+            sums.put(rs.getInt("period"), new Sum(rs.getBigDecimal("amount"), rs.getInt("entries")));
+        }, counterpartyId, from, to);
+        return sums;
+    }
+
+    record Sum(BigDecimal amount, int entries) {
+        static final Sum ZERO = new Sum(BigDecimal.ZERO, 0);
+    }
+
+    /**
+     * Ricostruzione completa con le stesse query della migrazione V11 (riallineamento dopo modifiche
+     * massive fatte fuori dall'applicazione).
+     */
+    @Transactional
+    public void rebuildAll() {
+        jdbc.update("DELETE FROM counterparty_ledger_periods");
+        int invoiced = jdbc.update("""
+                INSERT INTO counterparty_ledger_periods (counterparty_id, period, invoiced, invoice_count)
+                SELECT i.counterparty_id, YEAR(i.issue_date) * 100 + MONTH(i.issue_date), SUM(%s), COUNT(*)
+                FROM invoices i
+                JOIN invoice_directions d ON d.id = i.direction_id
+                JOIN invoice_statuses s ON s.id = i.status_id
+                LEFT JOIN invoice_totals t ON t.invoice_id = i.id
+                WHERE s.code <> 'CANCELLED'
+                GROUP BY i.counterparty_id, YEAR(i.issue_date) * 100 + MONTH(i.issue_date)""".formatted(INVOICE_AMOUNT));
+        jdbc.update("""
+                INSERT INTO counterparty_ledger_periods (counterparty_id, period, settled, movement_count)
+                SELECT i.counterparty_id, YEAR(b.booking_date) * 100 + MONTH(b.booking_date), SUM(-b.amount), COUNT(*)
+                FROM bank_transactions b
+                JOIN invoices i ON i.id = b.linked_invoice_id
+                GROUP BY i.counterparty_id, YEAR(b.booking_date) * 100 + MONTH(b.booking_date)
+                ON DUPLICATE KEY UPDATE settled = VALUES(settled), movement_count = VALUES(movement_count)""");
+        log.info("Partitari ricostruiti ({} mesi con fatture).", invoiced);
+    }
+
+    /**
+     * Saldo, riepiloghi mensili e una pagina di voci più vecchie di {@code before} (dalle più recenti se null).
+     */
+    @Transactional(readOnly = true)
+    public CounterpartyLedger ledger(long counterpartyId, String before, int size) {
+        List<PeriodRow> periods = jdbc.query("""
+                SELECT period, invoiced, settled, invoice_count, movement_count
+                FROM counterparty_ledger_periods WHERE counterparty_id = ? ORDER BY period""",
+                (rs, n) -> new PeriodRow(rs.getInt("period"), rs.getBigDecimal("invoiced"), rs.getBigDecimal("settled"),
+                        rs.getInt("invoice_count"), rs.getInt("movement_count")),
+                counterpartyId);
+
+        List<LedgerPeriod> summaries = new ArrayList<>(periods.size());
+        BigDecimal balance = BigDecimal.ZERO;
+        BigDecimal[] closing = new BigDecimal[periods.size()];
+        for (int i = 0; i < periods.size(); i++) {
+            PeriodRow p = periods.get(i);
+            balance = balance.add(p.invoiced()).add(p.settled());
+            closing[i] = balance;
+            summaries.add(new LedgerPeriod(p.period() / 100, p.period() % 100, p.invoiced(), p.settled(),
+                    p.invoices(), p.movements(), balance));
+        }
+        Collections.reverse(summaries);
+        if (periods.isEmpty()) {
+            return new CounterpartyLedger(counterpartyId, BigDecimal.ZERO, summaries, List.of(), null);
+        }
+
+        // finestra di dettaglio: il mese del cursore più quanti mesi precedenti servono a riempire la pagina
+        LedgerCursor cursor = LedgerCursor.decode(before);
+        int cursorPeriod = cursor != null ? LedgerPeriodKey.period(cursor.date()) : periods.get(periods.size() - 1).period();
+        int windowPeriod = windowPeriod(periods, cursorPeriod, size);
+        LocalDate windowStart = LedgerPeriodKey.firstDay(windowPeriod);
+        BigDecimal opening = BigDecimal.ZERO;
+        for (int i = 0; i < periods.size() && periods.get(i).period() < windowPeriod; i++) {
+            opening = closing[i];
+        }
+
+        StringBuilder sql = new StringBuilder(ENTRIES_SQL);
+        List<Object> args = new ArrayList<>(List.of(counterpartyId, Date.valueOf(windowStart), counterpartyId, Date.valueOf(windowStart)));
+        if (cursor != null) {
+            sql.append(" WHERE entry_date < ? OR (entry_date = ? AND (kind < ? OR (kind = ? AND id < ?)))");
+            args.addAll(List.of(Date.valueOf(cursor.date()), Date.valueOf(cursor.date()), cursor.kind(), cursor.kind(), cursor.id()));
+        }
+        sql.append(" ORDER BY entry_date, kind, id");
+
+        List<LedgerEntry> window = new ArrayList<>();
+        BigDecimal[] running = {opening};
+        jdbc.query(sql.toString(), rs -> {
+            BigDecimal amount = rs.getBigDecimal("amount");
+            running[0] = running[0].add(amount);
+            window.add(new LedgerEntry(rs.getInt("kind") == INVOICE ? "INVOICE" : "PAYMENT", rs.getLong("id"),
+                    rs.getDate("entry_date").toLocalDate(), rs.getString("direction"), rs.getString("reference"),
+                    amount, running[0]));
+        }, args.toArray());
+
+        boolean olderPeriods = false;
+        for (int i = 0; i < periods.size() && periods.get(i).period() < windowPeriod; i++) {
+            olderPeriods |= periods.get(i).invoices() + periods.get(i).movements() > 0;
+        }
+        List<LedgerEntry> page = new ArrayList<>(window.subList(Math.max(0, window.size() - size), window.size()));
+        Collections.reverse(page);
+        boolean more = window.size() > size || olderPeriods;
+        String next = null;
+        if (more && !page.isEmpty()) {
+            LedgerEntry last = page.get(page.size() - 1);
+            next = new LedgerCursor(last.date(), "INVOICE".equals(last.kind()) ? INVOICE : PAYMENT, last.id()).encode();
+        }
+        return new CounterpartyLedger(counterpartyId, balance, summaries, page, next);
+    }
+
+    /**
+     * Primo mese della finestra di dettaglio: il mese del cursore e, andando indietro, quanti mesi servono
+     * a contare almeno {@code size + 1} voci (una in più per sapere se c'è una pagina successiva).
+     */
+    static int windowPeriod(List<PeriodRow> periods, int cursorPeriod, int size) {
+        int low = periods.size();
+        while (low > 0 && periods.get(low - 1).period() >= cursorPeriod) low--;
+        int needed = size + 1;
+        while (low > 0 && needed > 0) {
+            low--;
+            needed -= periods.get(low).invoices() + periods.get(low).movements();
+        }
+        return low < periods.size() ? Math.min(periods.get(low).period(), cursorPeriod) : cursorPeriod;
+    }
+
+    record PeriodRow(int period, BigDecimal invoiced, BigDecimal settled, int invoices, int movements) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.veely.account.ledger;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Pubblicato da chi modifica fatture, totali o collegamenti bancari. I periodi delle fatture
+ * {@code invoiceIds} (allo stato di fine transazione) e quelli in {@code previous} (lo stato prima
+ * della modifica, per spostamenti di data/controparte e cancellazioni) vengono ricalcolati dopo il commit,
+ * una volta sola per transazione.
+ */
+public record LedgerChangedEvent(Set<Long> invoiceIds, Set<LedgerPeriodKey> previous) {
+
+    public static LedgerChangedEvent of(Long invoiceId) {
+        return new LedgerChangedEvent(Set.of(invoiceId), Set.of());
+    }
+
+    public static LedgerChangedEvent of(Collection<Long> invoiceIds) {
+        return new LedgerChangedEvent(Set.copyOf(invoiceIds), Set.of());
+    }
+}
@@ -0,0 +1,35 @@
+package com.veely.account.ledger;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Posizione di keyset nel dettaglio del partitario: ordinamento (data DESC, tipo DESC, id DESC),
+ * serializzata come token opaco URL-safe nel parametro "before".
+ */
+public record LedgerCursor(LocalDate date, int kind, long id) {
+
+    public String encode() {
+        String raw = date + ":" + kind + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Restituisce null se il token è assente o non valido (si riparte dai movimenti più recenti).
+     */
+    public static LedgerCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 3) {
+                return null;
+            }
+            return new LedgerCursor(LocalDate.parse(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+}
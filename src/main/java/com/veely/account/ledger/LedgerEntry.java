@@ -0,0 +1,13 @@
+package com.veely.account.ledger;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Voce del partitario: fattura (INVOICE) o movimento bancario collegato (PAYMENT).
+ * {@code amount} ha il segno dell'effetto sul saldo (positivo = la controparte ci deve di più),
+ * {@code balance} è il saldo progressivo dopo la voce.
+ */
+public record LedgerEntry(String kind, long id, LocalDate date, String direction, String reference,
+                          BigDecimal amount, BigDecimal balance) {
+}
@@ -0,0 +1,10 @@
+package com.veely.account.ledger;
+
+import java.math.BigDecimal;
+
+/**
+ * Riepilogo mensile del partitario con il saldo a fine mese.
+ */
+public record LedgerPeriod(int year, int month, BigDecimal invoiced, BigDecimal settled,
+                           int invoices, int movements, BigDecimal closingBalance) {
+}
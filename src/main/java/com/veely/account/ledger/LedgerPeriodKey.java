@@ -0,0 +1,21 @@
+package com.veely.account.ledger;
+
+import java.time.LocalDate;
+
+/**
+ * Riga di counterparty_ledger_periods: controparte e mese ({@code period} = anno * 100 + mese).
+ */
+public record LedgerPeriodKey(long counterpartyId, int period) {
+
+    public static LedgerPeriodKey of(long counterpartyId, LocalDate date) {
+        return new LedgerPeriodKey(counterpartyId, period(date));
+    }
+
+    static int period(LocalDate date) {
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+
+    static LocalDate firstDay(int period) {
+        return LocalDate.of(period / 100, period % 100, 1);
+    }
+}
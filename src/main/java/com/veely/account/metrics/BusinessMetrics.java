@@ -0,0 +1,108 @@
+package com.veely.account.metrics;
+
+import com.veely.account.service.dto.InvoiceSearchCriteria;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metriche Micrometer dei percorsi applicativi più costosi (ricerca fatture, totali, scritture
+ * di righe, import dei dizionari), esportate su /actuator/prometheus insieme a quelle di
+ * Hikari, Hibernate e delle richieste HTTP.
+ * <p>
+ * I tag hanno cardinalità limitata per costruzione: nomi di filtro, operazioni e tipi di file,
+ * mai valori inseriti dall'utente. I timer delle operazioni hanno il tag outcome (success o error,
+ * imported/skipped/failed per i dizionari), così gli errori hanno durata e frequenza proprie invece
+ * di sparire dalle percentuali; i tempi sono presi dentro il metodo transazionale, quindi escludono
+ * il commit (un errore al commit non è un error qui).
+ */
+@Component
+@RequiredArgsConstructor
+public class BusinessMetrics {
+
+    private final MeterRegistry registry;
+
+    /**
+     * Ricerca fatture; {@code query} è il tipo di ricerca (oggi solo "page", la pagina a keyset della lista).
+     */
+    public Operation search(String query, InvoiceSearchCriteria criteria) {
+        return new Operation("veely.invoices.search", "Ricerca fatture per combinazione di filtri",
+                Tags.of("query", query, "filters", criteria.filterNames()));
+    }
+
+    /**
+     * Calcolo dei totali; {@code source} è "lines" per il ricalcolo dalle righe, "list" per la lista
+     * che legge invoice_totals.
+     */
+    public Operation totals(String source) {
+        return new Operation("veely.invoices.totals", "Calcolo dei totali fattura", Tags.of("source", source));
+    }
+
+    /** Scrittura di righe fattura (add, bulk, update, delete). */
+    public Operation lineWrite(String operation) {
+        return new Operation("veely.invoices.lines.write", "Scritture di righe fattura", Tags.of("operation", operation));
+    }
+
+    /** Durata di un'operazione iniziata a {@code startNanos}, con esito "success" o "error". */
+    public void record(Operation operation, String outcome, long startNanos) {
+        Timer.builder(operation.name())
+                .description(operation.description())
+                .tags(operation.tags())
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Fatture e righe passate da un calcolo dei totali. */
+    public void totalsSize(String source, int invoices, int lines) {
+        summary("veely.invoices.totals.invoices", "Fatture per calcolo dei totali", "source", source).record(invoices);
+        summary("veely.invoices.totals.lines", "Righe lette per calcolo dei totali", "source", source).record(lines);
+    }
+
+    /** Righe toccate da una scrittura di righe fattura. */
+    public void linesWritten(String operation, int lines) {
+        summary("veely.invoices.lines.written", "Righe fattura scritte per operazione", "operation", operation).record(lines);
+    }
+
+    /**
+     * Import di un file dizionario: durata per esito ("imported", "skipped", "failed"), righe processate
+     * e velocità in righe al secondo.
+     */
+    public void dictionaryImport(String file, String outcome, long startNanos, long rows) {
+        long elapsed = System.nanoTime() - startNanos;
+        Timer.builder("veely.imports.dictionary")
+                .description("Import dei file dizionario")
+                .tag("file", file)
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        if (rows == 0) {
+            return;
+        }
+        summary("veely.imports.dictionary.rows", "Righe processate per import", "file", file).record(rows);
+        if (elapsed > 0) {
+            DistributionSummary.builder("veely.imports.dictionary.rate")
+                    .description("Righe al secondo per import")
+                    .baseUnit("rows.per.second")
+                    .tag("file", file)
+                    .register(registry)
+                    .record(rows * 1_000_000_000d / elapsed);
+        }
+    }
+
+    private DistributionSummary summary(String name, String description, String tag, String value) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag(tag, value)
+                .register(registry);
+    }
+
+    /** Timer di un'operazione applicativa: nome e tag fissi, la durata si registra con {@link #record}. */
+    public record Operation(String name, String description, Tags tags) {
+    }
+}
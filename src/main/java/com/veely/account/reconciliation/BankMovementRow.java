@@ -0,0 +1,10 @@
+package com.veely.account.reconciliation;
+
+import java.time.LocalDate;
+
+/**
+ * Movimento non ancora collegato, come letto da bank_transactions; importo in centesimi con segno.
+ */
+record BankMovementRow(long id, LocalDate bookingDate, long cents, String description,
+                       Long counterpartyId, String counterpartyName, String counterpartyIban) {
+}
@@ -0,0 +1,89 @@
+package com.veely.account.reconciliation;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Token usati per riconoscere il numero fattura nella causale del movimento.
+ * <p>
+ * Per la fattura: il numero compattato (solo lettere e cifre, es. "FT/2025/0012" -> "FT20250012")
+ * e il "progressivo", cioè l'ultima sequenza di cifre senza zeri iniziali ("12").
+ * Per la causale: le parole, le sequenze di cifre senza zeri iniziali e le parole adiacenti
+ * concatenate (due e tre), così "FT 2025/12" e "FT2025-0012" trovano lo stesso numero compattato.
+ */
+final class NumberTokens {
+
+    private NumberTokens() {
+    }
+
+    static Set<String> ofInvoice(String number) {
+        Set<String> tokens = new HashSet<>(2);
+        String compact = compact(number);
+        if (compact.isEmpty()) return tokens;
+        if (hasDigit(compact)) tokens.add(compact);
+        String progressive = progressive(compact);
+        if (progressive != null) tokens.add(progressive);
+        return tokens;
+    }
+
+    static Set<String> ofDescription(String description) {
+        Set<String> tokens = new HashSet<>();
+        if (description == null) return tokens;
+        String[] words = description.toUpperCase(Locale.ROOT).split("[^\\p{Alnum}]+");
+        for (int i = 0; i < words.length; i++) {
+            String w = words[i];
+            if (w.isEmpty()) continue;
+            tokens.add(w);
+            addDigitRuns(w, tokens);
+            if (i + 1 < words.length && !words[i + 1].isEmpty()) {
+                String two = w + words[i + 1];
+                tokens.add(two);
+                if (i + 2 < words.length && !words[i + 2].isEmpty()) {
+                    tokens.add(two + words[i + 2]);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    static String compact(String number) {
+        return number == null ? "" : number.toUpperCase(Locale.ROOT).replaceAll("[^\\p{Alnum}]", "");
+    }
+
+    /** Ultima sequenza di cifre senza zeri iniziali, o null. */
+    static String progressive(String compact) {
+        int end = compact.length();
+        while (end > 0 && !Character.isDigit(compact.charAt(end - 1))) end--;
+        if (end == 0) return null;
+        int start = end;
+        while (start > 0 && Character.isDigit(compact.charAt(start - 1))) start--;
+        return stripZeros(compact.substring(start, end));
+    }
+
+    private static void addDigitRuns(String word, Set<String> tokens) {
+        int i = 0;
+        while (i < word.length()) {
+            if (!Character.isDigit(word.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < word.length() && Character.isDigit(word.charAt(i))) i++;
+            tokens.add(stripZeros(word.substring(start, i)));
+        }
+    }
+
+    private static String stripZeros(String digits) {
+        int i = 0;
+        while (i < digits.length() - 1 && digits.charAt(i) == '0') i++;
+        return digits.substring(i);
+    }
+
+    private static boolean hasDigit(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isDigit(s.charAt(i))) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,17 @@
+package com.veely.account.reconciliation;
+
+import java.time.LocalDate;
+
+/**
+ * Fattura aperta candidata alla riconciliazione. {@code signedCents} è il netto a pagare in
+ * centesimi con il segno atteso sul conto: positivo per le fatture attive (incasso),
+ * negativo per le passive (pagamento).
+ */
+record OpenInvoice(long id, String number, int year, LocalDate issueDate, LocalDate dueDate,
+                   long counterpartyId, String counterpartyName, String counterpartyIban, long signedCents) {
+
+    /** Ultima data utile "naturale" del pagamento: la scadenza, o l'emissione se manca. */
+    LocalDate expectedDate() {
+        return dueDate != null && dueDate.isAfter(issueDate) ? dueDate : issueDate;
+    }
+}
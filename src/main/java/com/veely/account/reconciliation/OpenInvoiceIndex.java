@@ -0,0 +1,216 @@
+package com.veely.account.reconciliation;
+
+import com.veely.account.service.CounterpartySearchIndex;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Indice in memoria delle fatture aperte, costruito a ogni riconciliazione.
+ * <p>
+ * Le fatture occupano uno slot in ordine di data di emissione; per ogni chiave (importo in
+ * centesimi, controparte, IBAN, nome controparte, token del numero) si tiene l'array degli
+ * slot, quindi anch'esso ordinato per data. Per un movimento si leggono solo i bucket delle
+ * sue chiavi e, dentro ogni bucket, con una ricerca binaria solo le fatture emesse entro la data
+ * contabile e, risalendo, finché il bucket contiene fatture con la finestra ancora aperta:
+ * nessun ciclo fatture × movimenti.
+ */
+final class OpenInvoiceIndex {
+
+    private final OpenInvoice[] invoices;
+    private final long[] issueDays;
+    private final long[] lastDays;
+    private final boolean[] consumed;
+    private final String[] ibans;
+    private final String[] names;
+    private final String[] compactNumbers;
+    private final String[] progressives;
+
+    private final Map<Long, Bucket> byCents;
+    private final Map<Long, Bucket> byCounterparty;
+    private final Map<String, Bucket> byIban;
+    private final Map<String, Bucket> byName;
+    private final Map<String, Bucket> byToken;
+
+    /** Marcatura dei candidati già visti per il movimento corrente (evita un Set per movimento). */
+    private final int[] seen;
+    private int stamp;
+
+    OpenInvoiceIndex(List<OpenInvoice> open, int windowDays) {
+        invoices = open.toArray(OpenInvoice[]::new);
+        Arrays.sort(invoices, (a, b) -> a.issueDate().compareTo(b.issueDate()));
+        int n = invoices.length;
+        issueDays = new long[n];
+        lastDays = new long[n];
+        consumed = new boolean[n];
+        ibans = new String[n];
+        names = new String[n];
+        compactNumbers = new String[n];
+        progressives = new String[n];
+        seen = new int[n];
+
+        Map<Long, IntList> cents = new HashMap<>();
+        Map<Long, IntList> counterparties = new HashMap<>();
+        Map<String, IntList> ibanSlots = new HashMap<>();
+        Map<String, IntList> nameSlots = new HashMap<>();
+        Map<String, IntList> tokens = new HashMap<>();
+        for (int slot = 0; slot < n; slot++) {
+            OpenInvoice inv = invoices[slot];
+            issueDays[slot] = inv.issueDate().toEpochDay();
+            lastDays[slot] = inv.expectedDate().toEpochDay() + windowDays;
+
+            cents.computeIfAbsent(inv.signedCents(), k -> new IntList()).add(slot);
+            counterparties.computeIfAbsent(inv.counterpartyId(), k -> new IntList()).add(slot);
+            ibans[slot] = iban(inv.counterpartyIban());
+            if (ibans[slot] != null) ibanSlots.computeIfAbsent(ibans[slot], k -> new IntList()).add(slot);
+            names[slot] = name(inv.counterpartyName());
+            if (names[slot] != null) nameSlots.computeIfAbsent(names[slot], k -> new IntList()).add(slot);
+            compactNumbers[slot] = NumberTokens.compact(inv.number());
+            progressives[slot] = NumberTokens.progressive(compactNumbers[slot]);
+            for (String token : NumberTokens.ofInvoice(inv.number())) {
+                tokens.computeIfAbsent(token, k -> new IntList()).add(slot);
+            }
+        }
+        byCents = freeze(cents);
+        byCounterparty = freeze(counterparties);
+        byIban = freeze(ibanSlots);
+        byName = freeze(nameSlots);
+        byToken = freeze(tokens);
+    }
+
+    int size() {
+        return invoices.length;
+    }
+
+    OpenInvoice get(int slot) {
+        return invoices[slot];
+    }
+
+    /** IBAN della controparte normalizzato, o null. */
+    String iban(int slot) {
+        return ibans[slot];
+    }
+
+    /** Nome della controparte normalizzato, o null se troppo corto. */
+    String name(int slot) {
+        return names[slot];
+    }
+
+    String compactNumber(int slot) {
+        return compactNumbers[slot];
+    }
+
+    String progressive(int slot) {
+        return progressives[slot];
+    }
+
+    /** La fattura è stata collegata in questa esecuzione: non è più candidata. */
+    void consume(int slot) {
+        consumed[slot] = true;
+    }
+
+    /**
+     * Slot delle fatture non ancora consumate che condividono almeno una chiave col movimento
+     * e la cui finestra di pagamento contiene la data contabile; ogni slot è passato una volta sola.
+     */
+    void candidates(BankMovementRow m, String iban, String name, Set<String> descriptionTokens, IntConsumer consumer) {
+        if (++stamp == 0) {
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+        long day = m.bookingDate().toEpochDay();
+        scan(byCents.get(m.cents()), day, consumer);
+        if (m.counterpartyId() != null) scan(byCounterparty.get(m.counterpartyId()), day, consumer);
+        if (iban != null) scan(byIban.get(iban), day, consumer);
+        if (name != null) scan(byName.get(name), day, consumer);
+        for (String token : descriptionTokens) {
+            scan(byToken.get(token), day, consumer);
+        }
+    }
+
+    /** Giorni tra la data contabile e la data attesa del pagamento (negativi se in anticipo). */
+    long daysFromExpected(int slot, LocalDate bookingDate) {
+        return ChronoUnit.DAYS.between(invoices[slot].expectedDate(), bookingDate);
+    }
+
+    private void scan(Bucket bucket, long day, IntConsumer consumer) {
+        if (bucket == null) return;
+        // ultimo slot emesso entro la data contabile; si risale finché qualche fattura più vecchia del bucket
+        // ha ancora la finestra aperta a quella data
+        int hi = upperBound(bucket.slots(), day) - 1;
+        for (int i = hi; i >= 0; i--) {
+            if (bucket.lastDayUpTo()[i] < day) break;
+            int slot = bucket.slots()[i];
+            if (consumed[slot] || seen[slot] == stamp || day > lastDays[slot]) continue;
+            seen[slot] = stamp;
+            consumer.accept(slot);
+        }
+    }
+
+    private int upperBound(int[] bucket, long day) {
+        int lo = 0;
+        int hi = bucket.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (issueDays[bucket[mid]] <= day) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    static String iban(String iban) {
+        if (iban == null) return null;
+        String v = iban.replaceAll("\\s+", "").toUpperCase(Locale.ROOT);
+        return v.isEmpty() ? null : v;
+    }
+
+    static String name(String name) {
+        String v = CounterpartySearchIndex.normalize(name);
+        return v.length() < 3 ? null : v;
+    }
+
+    private <K> Map<K, Bucket> freeze(Map<K, IntList> lists) {
+        Map<K, Bucket> frozen = new HashMap<>(lists.size() * 4 / 3 + 1);
+        lists.forEach((k, v) -> {
+            int[] slots = v.toArray();
+            long[] lastDayUpTo = new long[slots.length];
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < slots.length; i++) {
+                max = Math.max(max, lastDays[slots[i]]);
+                lastDayUpTo[i] = max;
+            }
+            frozen.put(k, new Bucket(slots, lastDayUpTo));
+        });
+        return frozen;
+    }
+
+    /**
+     * Slot di una chiave in ordine di emissione; {@code lastDayUpTo[i]} è l'ultimo giorno di finestra più
+     * lontano tra i primi i+1 slot. Risalendo dal movimento ci si ferma appena nessuna fattura più vecchia
+     * può ancora essere pagata a quella data: una fattura con termini lunghi allunga solo la scansione del
+     * proprio bucket, non quella di tutti.
+     */
+    private record Bucket(int[] slots, long[] lastDayUpTo) {
+    }
+
+    private static final class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.veely.account.reconciliation;
+
+import com.veely.account.config.ReconciliationProperties;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Punteggio dei candidati e decisione per un movimento, senza accesso al database.
+ * <p>
+ * Punteggio (max 100): importo identico 50; stessa controparte (id, IBAN o nome esatto) 30,
+ * nome simile 15; numero fattura nella causale 30 (solo progressivo: 25 con l'anno, 10 senza);
+ * vicinanza alla data attesa fino a 10. Il collegamento automatico richiede l'importo identico,
+ * il punteggio minimo e un distacco sufficiente dal secondo candidato.
+ */
+final class ReconciliationEngine {
+
+    enum Outcome { LINKED, REVIEW, UNMATCHED }
+
+    record Candidate(OpenInvoice invoice, int score) {
+    }
+
+    record Decision(Outcome outcome, List<Candidate> candidates) {
+        static final Decision UNMATCHED = new Decision(Outcome.UNMATCHED, List.of());
+    }
+
+    private static final Comparator<Candidate> BY_SCORE = Comparator.comparingInt(Candidate::score).reversed()
+            .thenComparing(c -> c.invoice().issueDate());
+
+    private final OpenInvoiceIndex index;
+    private final ReconciliationProperties properties;
+
+    ReconciliationEngine(OpenInvoiceIndex index, ReconciliationProperties properties) {
+        this.index = index;
+        this.properties = properties;
+    }
+
+    Decision match(BankMovementRow m) {
+        Set<String> tokens = NumberTokens.ofDescription(m.description());
+        String iban = OpenInvoiceIndex.iban(m.counterpartyIban());
+        String name = OpenInvoiceIndex.name(m.counterpartyName());
+        List<Candidate> candidates = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        index.candidates(m, iban, name, tokens, slot -> {
+            int score = score(m, iban, name, tokens, slot);
+            if (score >= properties.getReviewScore()) {
+                candidates.add(new Candidate(index.get(slot), score));
+                slots.add(slot);
+            }
+        });
+        if (candidates.isEmpty()) return Decision.UNMATCHED;
+
+        int best = 0;
+        for (int i = 1; i < candidates.size(); i++) {
+            if (BY_SCORE.compare(candidates.get(i), candidates.get(best)) < 0) best = i;
+        }
+        Candidate top = candidates.get(best);
+        int runnerUp = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (i != best) runnerUp = Math.max(runnerUp, candidates.get(i).score());
+        }
+        if (top.score() >= properties.getAutoLinkScore()
+                && top.invoice().signedCents() == m.cents()
+                && top.score() - runnerUp >= properties.getAmbiguityMargin()) {
+            index.consume(slots.get(best));
+            return new Decision(Outcome.LINKED, List.of(top));
+        }
+        candidates.sort(BY_SCORE);
+        int limit = Math.min(candidates.size(), Math.max(1, properties.getMaxReviewCandidates()));
+        return new Decision(Outcome.REVIEW, List.copyOf(candidates.subList(0, limit)));
+    }
+
+    private int score(BankMovementRow m, String iban, String name, Set<String> tokens, int slot) {
+        OpenInvoice inv = index.get(slot);
+        int score = 0;
+        if (inv.signedCents() == m.cents()) score += 50;
+        score += counterpartyScore(m, iban, name, inv, slot);
+        score += numberScore(inv, slot, tokens);
+        score += dateScore(index.daysFromExpected(slot, m.bookingDate()));
+        return Math.min(score, 100);
+    }
+
+    private int counterpartyScore(BankMovementRow m, String iban, String name, OpenInvoice inv, int slot) {
+        if (m.counterpartyId() != null && m.counterpartyId() == inv.counterpartyId()) return 30;
+        if (iban != null && iban.equals(index.iban(slot))) return 30;
+        String invName = index.name(slot);
+        if (name == null || invName == null) return 0;
+        if (name.equals(invName)) return 30;
+        return name.contains(invName) || invName.contains(name) ? 15 : 0;
+    }
+
+    private int numberScore(OpenInvoice inv, int slot, Set<String> tokens) {
+        String compact = index.compactNumber(slot);
+        String progressive = index.progressive(slot);
+        if (!compact.equals(progressive) && tokens.contains(compact)) return 30;
+        if (progressive == null || !tokens.contains(progressive)) return 0;
+        String year = Integer.toString(inv.year());
+        return tokens.contains(year) || tokens.contains(year.substring(2)) ? 25 : 10;
+    }
+
+    /** 10 punti fino a 5 giorni dalla data attesa, poi in calo fino a 0 a fine finestra. */
+    private int dateScore(long days) {
+        long distance = Math.abs(days);
+        if (distance <= 5) return 10;
+        int window = Math.max(properties.getWindowDays(), 1);
+        return (int) Math.max(0, 10 - (distance - 5) * 10 / window);
+    }
+}
@@ -0,0 +1,9 @@
+package com.veely.account.reconciliation;
+
+/**
+ * Esito di una riconciliazione: fatture aperte indicizzate, movimenti esaminati,
+ * collegati automaticamente, messi in revisione.
+ */
+public record ReconciliationResult(int openInvoices, int movementsScanned, int linked, int queuedForReview,
+                                   long elapsedMillis) {
+}
@@ -0,0 +1,343 @@
+package com.veely.account.reconciliation;
+
+import com.veely.account.config.ReconciliationProperties;
+import com.veely.account.ledger.LedgerChangedEvent;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Riconciliazione batch tra movimenti bancari non collegati e fatture aperte (stato ISSUED,
+ * netto a pagare non ancora coperto dai movimenti collegati: una fattura incassata in parte resta
+ * candidata per il residuo).
+ * <p>
+ * Le fatture aperte sono lette una volta e indicizzate in memoria ({@link OpenInvoiceIndex});
+ * i movimenti sono letti in ordine di data e valutati uno alla volta ({@link ReconciliationEngine}).
+ * Gli abbinamenti sicuri collegano il movimento (linked_invoice_id, categoria INVOICE_PAYMENT)
+ * e segnano la fattura come pagata se i movimenti collegati coprono il netto a pagare;
+ * gli altri finiscono in bank_reconciliation_reviews.
+ * Le scritture sono fatte in batch, in un'unica transazione a fine esecuzione.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReconciliationService {
+
+    private static final int IN_CHUNK = 500;
+
+    /** Netto a pagare e somma dei movimenti collegati di ogni fattura. */
+    private static final String COVERAGE_SQL = """
+            SELECT i.id, d.code AS direction, t.payable_total, SUM(b.amount) AS settled
+            FROM invoices i
+            JOIN invoice_directions d ON d.id = i.direction_id
+            JOIN invoice_totals t ON t.invoice_id = i.id
+            JOIN bank_transactions b ON b.linked_invoice_id = i.id
+            WHERE i.id IN (%s)
+            GROUP BY i.id, d.code, t.payable_total""";
+
+    /** Somma dei movimenti già collegati a ogni fattura (alias p). */
+    private static final String SETTLED_JOIN = """
+            LEFT JOIN (SELECT linked_invoice_id, SUM(amount) AS settled FROM bank_transactions
+                       WHERE linked_invoice_id IS NOT NULL GROUP BY linked_invoice_id) p ON p.linked_invoice_id = i.id""";
+
+    /** Stesso calcolo di {@link #outstanding} in SQL: netto a pagare meno i movimenti collegati, col segno atteso. */
+    private static final String OUTSTANDING = """
+            t.payable_total - CASE WHEN d.code = 'PASSIVE' THEN -COALESCE(p.settled, 0) ELSE COALESCE(p.settled, 0) END""";
+
+    private final JdbcTemplate jdbc;
+    private final PlatformTransactionManager transactionManager;
+    private final ReconciliationProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReentrantLock running = new ReentrantLock();
+
+    /**
+     * Riconcilia i movimenti non collegati con data contabile tra {@code from} e {@code to}
+     * (estremi opzionali). Una sola esecuzione alla volta.
+     */
+    public ReconciliationResult reconcile(LocalDate from, LocalDate to) {
+        if (!running.tryLock()) {
+            throw new IllegalStateException("Riconciliazione già in corso");
+        }
+        try {
+            long start = System.nanoTime();
+            OpenInvoiceIndex index = new OpenInvoiceIndex(loadOpenInvoices(), properties.getWindowDays());
+            ReconciliationEngine engine = new ReconciliationEngine(index, properties);
+            Map<Long, Set<Long>> dismissed = loadDismissed();
+
+            int[] scanned = {0};
+            List<Object[]> links = new ArrayList<>();
+            List<Object[]> reviews = new ArrayList<>();
+            jdbc.query(unlinkedMovementsSql(from, to) + " ORDER BY booking_date, id", rs -> {
+                BankMovementRow m = new BankMovementRow(
+                        rs.getLong("id"),
+                        rs.getDate("booking_date").toLocalDate(),
+                        rs.getBigDecimal("amount").movePointRight(2).longValueExact(),
+                        rs.getString("description"),
+                        rs.getObject("counterparty_id", Long.class),
+                        rs.getString("counterparty_name"),
+                        rs.getString("counterparty_iban"));
+                scanned[0]++;
+                ReconciliationEngine.Decision decision = engine.match(m);
+                switch (decision.outcome()) {
+                    case LINKED -> {
+                        OpenInvoice inv = decision.candidates().get(0).invoice();
+                        links.add(new Object[]{inv.id(), inv.counterpartyId(), m.id()});
+                    }
+                    case REVIEW -> {
+                        Set<Long> skip = dismissed.getOrDefault(m.id(), Set.of());
+                        for (ReconciliationEngine.Candidate c : decision.candidates()) {
+                            if (!skip.contains(c.invoice().id())) {
+                                reviews.add(new Object[]{m.id(), c.invoice().id(), c.score()});
+                            }
+                        }
+                    }
+                    case UNMATCHED -> {
+                    }
+                }
+            }, dateParams(from, to));
+
+            long writeStart = System.nanoTime();
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                clearPendingReviews(from, to);
+                writeLinks(links);
+                jdbc.batchUpdate("""
+                    INSERT INTO bank_reconciliation_reviews(bank_transaction_id, invoice_id, score)
+                    VALUES(?,?,?)
+                    ON DUPLICATE KEY UPDATE score=VALUES(score)
+                """, reviews);
+            });
+
+            long end = System.nanoTime();
+            long millis = (end - start) / 1_000_000;
+            ReconciliationResult result = new ReconciliationResult(index.size(), scanned[0], links.size(),
+                    (int) reviews.stream().map(r -> r[0]).distinct().count(), millis);
+            log.info("🔗 Riconciliazione: {} fatture aperte, {} movimenti, {} collegati, {} in revisione ({} ms, scrittura {} ms).",
+                    result.openInvoices(), result.movementsScanned(), result.linked(), result.queuedForReview(),
+                    millis, (end - writeStart) / 1_000_000);
+            return result;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /**
+     * Proposte da rivedere per le fatture ancora da saldare (quelle pagate o coperte dai movimenti
+     * collegati nel frattempo non sono più proposte).
+     */
+    @Transactional(readOnly = true)
+    public List<ReviewItem> pendingReviews(int limit) {
+        return jdbc.query("""
+            SELECT r.bank_transaction_id, b.booking_date, b.amount, b.description,
+                   i.id AS invoice_id, i.number, i.year, c.name AS counterparty_name,
+                   t.payable_total, r.score
+            FROM bank_reconciliation_reviews r
+            JOIN bank_transactions b ON b.id = r.bank_transaction_id
+            JOIN invoices i ON i.id = r.invoice_id
+            JOIN invoice_statuses s ON s.id = i.status_id
+            JOIN invoice_directions d ON d.id = i.direction_id
+            JOIN counterparties c ON c.id = i.counterparty_id
+            LEFT JOIN invoice_totals t ON t.invoice_id = i.id
+            %s
+            WHERE r.dismissed = FALSE
+              AND b.linked_invoice_id IS NULL
+              AND s.code <> 'PAID'
+              AND (t.invoice_id IS NULL OR %s > 0)
+            ORDER BY b.booking_date, r.bank_transaction_id, r.score DESC
+            LIMIT ?
+        """.formatted(SETTLED_JOIN, OUTSTANDING), (rs, rowNum) -> new ReviewItem(
+                rs.getLong("bank_transaction_id"),
+                rs.getDate("booking_date").toLocalDate(),
+                rs.getBigDecimal("amount"),
+                rs.getString("description"),
+                rs.getLong("invoice_id"),
+                rs.getString("number"),
+                rs.getInt("year"),
+                rs.getString("counterparty_name"),
+                rs.getBigDecimal("payable_total"),
+                rs.getInt("score")), limit);
+    }
+
+    /**
+     * Conferma un abbinamento (proposto o scelto a mano): collega il movimento alla fattura. Più movimenti
+     * possono essere collegati alla stessa fattura finché non ne coprono il netto a pagare.
+     */
+    @Transactional
+    public void confirm(long bankTransactionId, long invoiceId) {
+        List<LinkTarget> invoice = jdbc.query("""
+            SELECT i.counterparty_id, s.code AS status, t.invoice_id AS totals, %s AS outstanding
+            FROM invoices i
+            JOIN invoice_statuses s ON s.id = i.status_id
+            JOIN invoice_directions d ON d.id = i.direction_id
+            LEFT JOIN invoice_totals t ON t.invoice_id = i.id
+            %s
+            WHERE i.id = ?
+        """.formatted(OUTSTANDING, SETTLED_JOIN), (rs, rowNum) -> new LinkTarget(
+                rs.getLong("counterparty_id"),
+                "PAID".equals(rs.getString("status"))
+                        || rs.getObject("totals") != null && rs.getBigDecimal("outstanding").signum() <= 0), invoiceId);
+        if (invoice.isEmpty()) {
+            throw new EntityNotFoundException("Fattura non trovata: " + invoiceId);
+        }
+        if (invoice.get(0).settled()) {
+            throw new IllegalStateException("La fattura è già saldata dai movimenti collegati");
+        }
+        int[][] updated = writeLinks(List.<Object[]>of(new Object[]{invoiceId, invoice.get(0).counterpartyId(), bankTransactionId}));
+        if (updated[0][0] == 0) {
+            throw new EntityNotFoundException("Movimento non trovato o già collegato: " + bankTransactionId);
+        }
+        jdbc.update("DELETE FROM bank_reconciliation_reviews WHERE bank_transaction_id = ?", bankTransactionId);
+    }
+
+    /**
+     * Scarta le proposte per un movimento (o solo quella per {@code invoiceId}): non saranno riproposte.
+     */
+    @Transactional
+    public int dismiss(long bankTransactionId, Long invoiceId) {
+        if (invoiceId != null) {
+            return jdbc.update("UPDATE bank_reconciliation_reviews SET dismissed = TRUE WHERE bank_transaction_id = ? AND invoice_id = ?",
+                    bankTransactionId, invoiceId);
+        }
+        return jdbc.update("UPDATE bank_reconciliation_reviews SET dismissed = TRUE WHERE bank_transaction_id = ?",
+                bankTransactionId);
+    }
+
+    /**
+     * Fatture ISSUED con un residuo da incassare o pagare; l'importo candidato è il residuo, così il
+     * movimento che salda una fattura già incassata in parte viene abbinato per importo.
+     */
+    private List<OpenInvoice> loadOpenInvoices() {
+        return jdbc.query("""
+            SELECT i.id, i.number, i.year, i.issue_date, i.due_date, d.code AS direction,
+                   c.id AS counterparty_id, c.name AS counterparty_name, c.iban AS counterparty_iban,
+                   %s AS outstanding
+            FROM invoices i
+            JOIN invoice_statuses s ON s.id = i.status_id
+            JOIN invoice_directions d ON d.id = i.direction_id
+            JOIN counterparties c ON c.id = i.counterparty_id
+            JOIN invoice_totals t ON t.invoice_id = i.id
+            %s
+            WHERE s.code = 'ISSUED'
+              AND %s > 0
+        """.formatted(OUTSTANDING, SETTLED_JOIN, OUTSTANDING), (rs, rowNum) -> {
+            long cents = rs.getBigDecimal("outstanding").movePointRight(2).longValueExact();
+            boolean passive = "PASSIVE".equalsIgnoreCase(rs.getString("direction"));
+            Date due = rs.getDate("due_date");
+            return new OpenInvoice(
+                    rs.getLong("id"),
+                    rs.getString("number"),
+                    rs.getInt("year"),
+                    rs.getDate("issue_date").toLocalDate(),
+                    due != null ? due.toLocalDate() : null,
+                    rs.getLong("counterparty_id"),
+                    rs.getString("counterparty_name"),
+                    rs.getString("counterparty_iban"),
+                    passive ? -cents : cents);
+        });
+    }
+
+    private Map<Long, Set<Long>> loadDismissed() {
+        Map<Long, Set<Long>> dismissed = new HashMap<>();
+        jdbc.query("SELECT bank_transaction_id, invoice_id FROM bank_reconciliation_reviews WHERE dismissed = TRUE",
+                rs -> {
+                    dismissed.computeIfAbsent(rs.getLong(1), k -> new HashSet<>()).add(rs.getLong(2));
+                });
+        return dismissed;
+    }
+
+    private static String unlinkedMovementsSql(LocalDate from, LocalDate to) {
+        return "SELECT id, booking_date, amount, description, counterparty_id, counterparty_name, counterparty_iban"
+                + " FROM bank_transactions" + unlinkedMovementsWhere(from, to);
+    }
+
+    private static String unlinkedMovementsWhere(LocalDate from, LocalDate to) {
+        return " WHERE linked_invoice_id IS NULL AND amount <> 0"
+                + (from != null ? " AND booking_date >= ?" : "")
+                + (to != null ? " AND booking_date <= ?" : "");
+    }
+
+    private static Object[] dateParams(LocalDate from, LocalDate to) {
+        List<Object> params = new ArrayList<>(2);
+        if (from != null) params.add(from);
+        if (to != null) params.add(to);
+        return params.toArray();
+    }
+
+    /** Le proposte non scartate dei movimenti esaminati sono ricalcolate a ogni esecuzione. */
+    private void clearPendingReviews(LocalDate from, LocalDate to) {
+        jdbc.update("DELETE FROM bank_reconciliation_reviews WHERE dismissed = FALSE AND bank_transaction_id IN"
+                + " (SELECT id FROM bank_transactions" + unlinkedMovementsWhere(from, to) + ")", dateParams(from, to));
+    }
+
+    /**
+     * Righe {invoiceId, counterpartyId, bankTransactionId}: collega i movimenti ancora liberi e segna come
+     * pagate le fatture il cui collegamento è andato a buon fine e i cui movimenti collegati (con il segno
+     * atteso) coprono il netto a pagare. Un movimento già collegato da altri lascia la fattura com'è; un
+     * incasso parziale la lascia aperta per il residuo.
+     */
+    private int[][] writeLinks(List<Object[]> links) {
+        if (links.isEmpty()) return new int[0][];
+        Long categoryId = jdbc.queryForObject(
+                "SELECT id FROM bank_transaction_categories WHERE code = 'INVOICE_PAYMENT'", Long.class);
+        Long paidId = jdbc.queryForObject("SELECT id FROM invoice_statuses WHERE code = 'PAID'", Long.class);
+        int[][] updated = jdbc.batchUpdate("""
+            UPDATE bank_transactions
+            SET linked_invoice_id = ?, counterparty_id = COALESCE(counterparty_id, ?), category_id = ?
+            WHERE id = ? AND linked_invoice_id IS NULL
+        """, links, links.size(), (ps, link) -> {
+            ps.setLong(1, (Long) link[0]);
+            ps.setLong(2, (Long) link[1]);
+            ps.setLong(3, categoryId);
+            ps.setLong(4, (Long) link[2]);
+        });
+        List<Long> linked = new ArrayList<>(links.size());
+        for (int i = 0; i < links.size(); i++) {
+            if (updated[0][i] != 0) linked.add((Long) links.get(i)[0]);
+        }
+        if (linked.isEmpty()) return updated;
+
+        List<Object[]> paid = new ArrayList<>();
+        for (int from = 0; from < linked.size(); from += IN_CHUNK) {
+            List<Long> chunk = linked.subList(from, Math.min(linked.size(), from + IN_CHUNK));
+            jdbc.query(COVERAGE_SQL.formatted(String.join(",", Collections.nCopies(chunk.size(), "?"))), rs -> {
+                if (outstanding(rs.getString("direction"), rs.getBigDecimal("payable_total"),
+                        rs.getBigDecimal("settled")).signum() <= 0) {
+                    paid.add(new Object[]{paidId, rs.getLong("id")});
+                }
+            }, chunk.toArray());
+        }
+        jdbc.batchUpdate("UPDATE invoices SET status_id = ? WHERE id = ?", paid);
+        eventPublisher.publishEvent(LedgerChangedEvent.of(linked));
+        return updated;
+    }
+
+    /** Fattura da collegare: controparte e se è già pagata o coperta dai movimenti collegati. */
+    private record LinkTarget(long counterpartyId, boolean settled) {
+    }
+
+    /**
+     * Netto a pagare non ancora coperto: {@code settled} è la somma dei movimenti collegati con il segno
+     * del conto (positivi gli incassi delle attive, negativi i pagamenti delle passive).
+     */
+    static BigDecimal outstanding(String direction, BigDecimal payableTotal, BigDecimal settled) {
+        BigDecimal covered = "PASSIVE".equalsIgnoreCase(direction) ? settled.negate() : settled;
+        return payableTotal.subtract(covered);
+    }
+}
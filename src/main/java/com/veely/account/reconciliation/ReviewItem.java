@@ -0,0 +1,12 @@
+package com.veely.account.reconciliation;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Abbinamento proposto in attesa di conferma: movimento e fattura candidata.
+ */
+public record ReviewItem(long bankTransactionId, LocalDate bookingDate, BigDecimal amount, String description,
+                         long invoiceId, String invoiceNumber, int invoiceYear, String counterpartyName,
+                         BigDecimal payableTotal, int score) {
+}
@@ -0,0 +1,12 @@
+package com.veely.account.repository;
+
+import com.veely.account.domain.BankCategorizationRule;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface BankCategorizationRuleRepository extends JpaRepository<BankCategorizationRule, Long> {
+
+    List<BankCategorizationRule> findByActiveTrue(Sort sort);
+}
@@ -1,10 +1,12 @@
 package com.veely.account.repository;
 
 import com.veely.account.domain.Counterparty;
+import com.veely.account.service.dto.CounterpartySuggestion;
 
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,4 +21,8 @@ public interface CounterpartyRepository extends JpaRepository<Counterparty, Long
 
     @EntityGraph(attributePaths = "kind")
     Optional<Counterparty> findWithKindById(Long id);
+
+    @Query("select new com.veely.account.service.dto.CounterpartySuggestion(c.id, c.name, c.vatNumber, c.taxCode) "
+            + "from Counterparty c order by c.id")
+    List<CounterpartySuggestion> findAllSuggestions();
 }
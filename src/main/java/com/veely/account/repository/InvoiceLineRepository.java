@@ -16,5 +16,11 @@ public interface InvoiceLineRepository extends JpaRepository<InvoiceLine, Long>
 
     @Query("select il from InvoiceLine il join fetch il.invoice inv left join fetch il.vatCode left join fetch il.account left join fetch il.withholdingType where inv.id in :invoiceIds")
     List<InvoiceLine> findByInvoiceIdsWithLookups(@Param("invoiceIds") Collection<Long> invoiceIds);
+
+    @Query("select distinct il.invoice.id from InvoiceLine il where il.vatCode.id in :vatCodeIds")
+    List<Long> findInvoiceIdsByVatCodeIds(@Param("vatCodeIds") Collection<Long> vatCodeIds);
+
+    @Query("select distinct il.invoice.id from InvoiceLine il where il.withholdingType.id in :withholdingTypeIds")
+    List<Long> findInvoiceIdsByWithholdingTypeIds(@Param("withholdingTypeIds") Collection<Long> withholdingTypeIds);
 	
 }
@@ -2,13 +2,18 @@ package com.veely.account.repository;
 
 import com.veely.account.domain.Invoice;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
-public interface InvoiceRepository extends JpaRepository<Invoice, Long>, JpaSpecificationExecutor<Invoice> {
+public interface InvoiceRepository extends JpaRepository<Invoice, Long>, JpaSpecificationExecutor<Invoice>, InvoiceRepositoryCustom {
 	 @EntityGraph(attributePaths = {"direction", "status", "counterparty", "lines", "lines.vatCode", "lines.account", "lines.withholdingType"})
 	    Optional<Invoice> findWithLinesAndLookupsById(Long id);
+
+	@EntityGraph(attributePaths = "direction")
+	List<Invoice> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
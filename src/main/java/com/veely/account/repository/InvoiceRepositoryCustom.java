@@ -0,0 +1,18 @@
+package com.veely.account.repository;
+
+import com.veely.account.domain.Invoice;
+import com.veely.account.service.dto.InvoiceListRow;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface InvoiceRepositoryCustom {
+
+    /**
+     * Proiezione della lista fatture: una sola SELECT con left join su direzione, stato e controparte,
+     * senza idratare entità gestite. Le join sono create prima di applicare la specification,
+     * che può riutilizzarle (vedi root.getJoins()).
+     */
+    List<InvoiceListRow> findListRows(Specification<Invoice> spec, Sort sort, int limit);
+}
@@ -0,0 +1,49 @@
+package com.veely.account.repository;
+
+import com.veely.account.domain.InvoiceTotalsSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+
+public interface InvoiceTotalsSnapshotRepository extends JpaRepository<InvoiceTotalsSnapshot, Long> {
+
+    /**
+     * Applica in modo atomico la differenza dovuta a una riga aggiunta/modificata/rimossa.
+     * Ogni colonna è aggiornata solo con il proprio valore precedente (MySQL valuta gli
+     * assegnamenti da sinistra a destra), quindi gross e payable ricevono il loro delta esplicito.
+     * Il contesto di persistenza è svuotato dopo l'update: uno snapshot già caricato nella transazione
+     * non resta con i valori precedenti.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update InvoiceTotalsSnapshot t set
+              t.netTotal = t.netTotal + :net,
+              t.vatTotal = t.vatTotal + :vat,
+              t.withholdingTotal = t.withholdingTotal + :withholding,
+              t.grossTotal = t.grossTotal + :gross,
+              t.payableTotal = t.payableTotal + :payable,
+              t.lineCount = t.lineCount + :lines
+            where t.invoiceId = :invoiceId
+            """)
+    int applyDelta(@Param("invoiceId") Long invoiceId,
+                   @Param("net") BigDecimal net,
+                   @Param("vat") BigDecimal vat,
+                   @Param("withholding") BigDecimal withholding,
+                   @Param("gross") BigDecimal gross,
+                   @Param("payable") BigDecimal payable,
+                   @Param("lines") int lines);
+
+    /**
+     * Ricalcola il da pagare dopo un cambio di direzione: le ritenute si sottraggono solo sulle passive.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update InvoiceTotalsSnapshot t set
+              t.payableTotal = t.grossTotal - t.withholdingTotal * :withholdingFactor
+            where t.invoiceId = :invoiceId
+            """)
+    int updatePayable(@Param("invoiceId") Long invoiceId, @Param("withholdingFactor") BigDecimal withholdingFactor);
+}
@@ -0,0 +1,9 @@
+package com.veely.account.service;
+
+import com.veely.account.service.dto.CounterpartySuggestion;
+
+/**
+ * Pubblicato da CounterpartyService a ogni scrittura; current è null se la controparte è stata eliminata.
+ */
+public record CounterpartyChangedEvent(Long id, CounterpartySuggestion current) {
+}
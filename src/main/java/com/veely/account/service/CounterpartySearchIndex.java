@@ -0,0 +1,305 @@
+package com.veely.account.service;
+
+import com.veely.account.repository.CounterpartyRepository;
+import com.veely.account.service.dto.CounterpartySuggestion;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Indice a trigrammi in memoria su nome, partita IVA e codice fiscale delle controparti,
+ * per il typeahead (un LIKE '%q%' non può usare idx_counterparties_name).
+ * <p>
+ * Ogni controparte occupa uno slot; per ogni trigramma si tiene la lista ordinata degli slot.
+ * La ricerca interseca le liste dei trigrammi della query partendo dalla più corta e verifica
+ * i candidati sul testo normalizzato. Le modifiche marcano lo slot precedente come libero e ne
+ * aggiungono uno nuovo in coda, così le liste restano ordinate senza riscritture; quando gli slot
+ * liberi superano un quarto del totale l'indice viene ricompattato in memoria con le voci vive.
+ * La ricostruzione all'avvio legge le controparti sotto il lock in scrittura: una modifica
+ * committata durante la lettura viene applicata dopo, mai sovrascritta dallo snapshot.
+ * Query di 1-2 caratteri cercano solo l'inizio delle parole (trigrammi con padding).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CounterpartySearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^\\p{Alnum}]+");
+    /** Sotto questa soglia gli slot liberi non giustificano una ricompattazione. */
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    private final CounterpartyRepository counterpartyRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Entry[] slots = new Entry[16];
+    private int slotCount;
+    private int tombstones;
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int size;
+        lock.writeLock().lock();
+        try {
+            List<CounterpartySuggestion> all = counterpartyRepository.findAllSuggestions();
+            reset(all.size());
+            all.forEach(suggestion -> insert(new Entry(suggestion)));
+            size = all.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indice controparti costruito ({} voci, {} trigrammi).", size, postings.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCounterpartyChanged(CounterpartyChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = slotById.remove(event.id());
+            if (previous != null) {
+                slots[previous] = null;
+                tombstones++;
+            }
+            if (event.current() != null) {
+                insert(new Entry(event.current()));
+            }
+            if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones > slotCount / 4) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<CounterpartySuggestion> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        boolean prefixOnly = q.length() < 3;
+        long[] grams = prefixOnly ? new long[]{gram(' ', ' ', q.charAt(0))} : trigrams(q);
+        if (prefixOnly && q.length() == 2) {
+            grams = new long[]{gram(' ', q.charAt(0), q.charAt(1))};
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(grams.length);
+            for (long g : grams) {
+                Postings p = postings.get(g);
+                if (p == null) {
+                    return List.of();
+                }
+                lists.add(p);
+            }
+            lists.sort(Comparator.comparingInt(p -> p.size));
+
+            List<Entry> matches = new ArrayList<>();
+            Postings shortest = lists.get(0);
+            int[] cursors = new int[lists.size()];
+            candidates:
+            for (int i = 0; i < shortest.size; i++) {
+                int slot = shortest.slots[i];
+                for (int l = 1; l < lists.size(); l++) {
+                    Postings other = lists.get(l);
+                    int c = cursors[l];
+                    while (c < other.size && other.slots[c] < slot) {
+                        c++;
+                    }
+                    cursors[l] = c;
+                    if (c == other.size || other.slots[c] != slot) {
+                        continue candidates;
+                    }
+                }
+                Entry entry = slots[slot];
+                if (entry != null && entry.matches(q, prefixOnly)) {
+                    matches.add(entry);
+                }
+            }
+            return matches.stream()
+                    .sorted(Comparator.comparingInt((Entry e) -> e.rank(q)).thenComparing(e -> e.key))
+                    .limit(limit)
+                    .map(e -> e.suggestion)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public CounterpartySuggestion find(Long id) {
+        if (id == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            Integer slot = slotById.get(id);
+            return slot != null ? slots[slot].suggestion : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Slot liberati dalle modifiche e non ancora ricompattati. */
+    int tombstones() {
+        lock.readLock().lock();
+        try {
+            return tombstones;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reinserisce le voci vive nell'ordine degli slot: le liste dei trigrammi tornano dense
+     * e senza slot liberi. Chiamato con il lock in scrittura.
+     */
+    private void compact() {
+        List<Entry> live = new ArrayList<>(slotCount - tombstones);
+        for (int i = 0; i < slotCount; i++) {
+            if (slots[i] != null) {
+                live.add(slots[i]);
+            }
+        }
+        reset(live.size());
+        live.forEach(this::insert);
+        log.debug("Indice controparti ricompattato ({} voci).", live.size());
+    }
+
+    private void reset(int expected) {
+        slots = new Entry[Math.max(16, expected + expected / 4)];
+        slotCount = 0;
+        tombstones = 0;
+        slotById.clear();
+        postings.clear();
+    }
+
+    private void insert(Entry entry) {
+        if (slotCount == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+        }
+        int slot = slotCount++;
+        slots[slot] = entry;
+        slotById.put(entry.suggestion.id(), slot);
+
+        for (String field : entry.fields) {
+            for (long g : indexGrams(field)) {
+                // lo slot è sempre il più alto assegnato: l'append mantiene l'ordinamento
+                postings.computeIfAbsent(g, k -> new Postings()).append(slot);
+            }
+        }
+    }
+
+    /**
+     * Trigrammi del campo più quelli con padding a inizio parola (per le query corte).
+     */
+    private static long[] indexGrams(String field) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (long g : trigrams(field)) {
+            grams.add(g);
+        }
+        for (String word : field.split(" ")) {
+            if (!word.isEmpty()) {
+                grams.add(gram(' ', ' ', word.charAt(0)));
+                if (word.length() > 1) {
+                    grams.add(gram(' ', word.charAt(0), word.charAt(1)));
+                }
+            }
+        }
+        return grams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long[] trigrams(String s) {
+        if (s.length() < 3) {
+            return new long[0];
+        }
+        long[] grams = new long[s.length() - 2];
+        for (int i = 0; i + 2 < s.length(); i++) {
+            grams[i] = gram(s.charAt(i), s.charAt(i + 1), s.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    private static long gram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        String plain = MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+        return NON_ALNUM.matcher(plain).replaceAll(" ").trim();
+    }
+
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int size;
+
+        void append(int slot) {
+            if (size > 0 && slots[size - 1] == slot) {
+                return;
+            }
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+    }
+
+    private static final class Entry {
+        private final CounterpartySuggestion suggestion;
+        private final String key;
+        private final String[] fields;
+
+        Entry(CounterpartySuggestion suggestion) {
+            this.suggestion = suggestion;
+            this.key = normalize(suggestion.name());
+            this.fields = Stream.of(key, normalize(suggestion.vatNumber()), normalize(suggestion.taxCode()))
+                    .filter(f -> !f.isEmpty())
+                    .toArray(String[]::new);
+        }
+
+        boolean matches(String q, boolean prefixOnly) {
+            for (String field : fields) {
+                if (prefixOnly ? (field.startsWith(q) || field.contains(" " + q)) : field.contains(q)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** 0 = il nome inizia con la query, 1 = una parola inizia con la query, 2 = altrove. */
+        int rank(String q) {
+            if (key.startsWith(q)) {
+                return 0;
+            }
+            for (String field : fields) {
+                if (field.startsWith(q) || field.contains(" " + q)) {
+                    return 1;
+                }
+            }
+            return 2;
+        }
+    }
+}
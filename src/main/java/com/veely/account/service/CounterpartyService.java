@@ -5,8 +5,10 @@ import com.veely.account.domain.CounterpartyKind;
 import com.veely.account.repository.CounterpartyKindRepository;
 import com.veely.account.repository.CounterpartyRepository;
 import com.veely.account.service.dto.CounterpartyDto;
+import com.veely.account.service.dto.CounterpartySuggestion;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
@@ -14,6 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.util.List;
+import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
@@ -21,6 +24,8 @@ public class CounterpartyService {
 
     private final CounterpartyRepository counterpartyRepository;
     private final CounterpartyKindRepository counterpartyKindRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CounterpartySearchIndex counterpartySearchIndex;
 
     @Transactional(readOnly = true)
     public List<Counterparty> listAll() {
@@ -35,6 +40,14 @@ public class CounterpartyService {
         return counterpartyRepository.findByNameContainingIgnoreCase(q.trim(), Sort.by(Sort.Direction.ASC, "name"));
     }
 
+    public List<CounterpartySuggestion> suggest(String q, int limit) {
+        return counterpartySearchIndex.search(q, limit);
+    }
+
+    public CounterpartySuggestion findSuggestion(Long id) {
+        return counterpartySearchIndex.find(id);
+    }
+
     @Transactional(readOnly = true)
     public Counterparty getOrThrow(Long id) {
         return counterpartyRepository.findWithKindById(id)
@@ -49,7 +62,9 @@ public class CounterpartyService {
         counterparty.setKind(kind);
         applyData(counterparty, dto);
 
-        return counterpartyRepository.save(counterparty);
+        Counterparty saved = counterpartyRepository.save(counterparty);
+        publishChanged(saved.getId(), saved);
+        return saved;
     }
 
     @Transactional
@@ -57,7 +72,9 @@ public class CounterpartyService {
         Counterparty counterparty = getOrThrow(id);
         counterparty.setKind(getKindOrThrow(dto.getKindId()));
         applyData(counterparty, dto);
-        return counterpartyRepository.save(counterparty);
+        Counterparty saved = counterpartyRepository.save(counterparty);
+        publishChanged(saved.getId(), saved);
+        return saved;
     }
 
     @Transactional
@@ -69,6 +86,7 @@ public class CounterpartyService {
         } catch (DataIntegrityViolationException ex) {
             throw new CounterpartyDeletionException("Non puoi eliminare: ci sono fatture/movimenti collegati", ex);
         }
+        publishChanged(id, null);
     }
 
     public CounterpartyDto toDto(Counterparty counterparty) {
@@ -81,6 +99,11 @@ public class CounterpartyService {
                 .pec(counterparty.getPec())
                 .sdiCode(counterparty.getSdiCode())
                 .iban(counterparty.getIban())
+                .address(counterparty.getAddress())
+                .postalCode(counterparty.getPostalCode())
+                .city(counterparty.getCity())
+                .province(counterparty.getProvince())
+                .country(counterparty.getCountry())
                 .notes(counterparty.getNotes())
                 .build();
     }
@@ -90,6 +113,12 @@ public class CounterpartyService {
                 .orElseThrow(() -> new EntityNotFoundException("Tipo controparte non trovato: " + kindId));
     }
 
+    private void publishChanged(Long id, Counterparty current) {
+        eventPublisher.publishEvent(LookupsChangedEvent.of(LookupCache.Kind.COUNTERPARTIES));
+        eventPublisher.publishEvent(new CounterpartyChangedEvent(id, current == null ? null
+                : new CounterpartySuggestion(current.getId(), current.getName(), current.getVatNumber(), current.getTaxCode())));
+    }
+
     private void applyData(Counterparty counterparty, CounterpartyDto dto) {
         counterparty.setName(dto.getName());
         counterparty.setVatNumber(dto.getVatNumber());
@@ -97,6 +126,11 @@ public class CounterpartyService {
         counterparty.setPec(dto.getPec());
         counterparty.setSdiCode(dto.getSdiCode());
         counterparty.setIban(dto.getIban());
+        counterparty.setAddress(dto.getAddress());
+        counterparty.setPostalCode(dto.getPostalCode());
+        counterparty.setCity(dto.getCity());
+        counterparty.setProvince(StringUtils.hasText(dto.getProvince()) ? dto.getProvince().trim().toUpperCase(Locale.ROOT) : null);
+        counterparty.setCountry(StringUtils.hasText(dto.getCountry()) ? dto.getCountry().trim().toUpperCase(Locale.ROOT) : "IT");
         counterparty.setNotes(dto.getNotes());
     }
 
@@ -0,0 +1,130 @@
+package com.veely.account.service;
+
+import com.veely.account.service.dto.InvoiceLineInput;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Righe incollate da un foglio di calcolo (separate da tab), una riga fattura per riga di testo:
+ * descrizione, imponibile, codice IVA, codice conto, codice ritenuta (le ultime tre facoltative).
+ * Una prima riga con un imponibile non numerico è considerata intestazione e ignorata.
+ * Gli importi accettano la virgola decimale e il separatore delle migliaia ("1.234,56"); quelli
+ * ambigui ("1.234") o con più di due decimali sono segnalati come errore, mai arrotondati.
+ */
+public final class InvoiceLineTsv {
+
+    private static final Pattern NUMBER = Pattern.compile("[+-]?[\\d.,]+");
+
+    private InvoiceLineTsv() {
+    }
+
+    /**
+     * @throws InvoiceService.InvoiceLineValidationException con tutte le righe non leggibili
+     */
+    public static List<InvoiceLineInput> parse(String text) {
+        List<InvoiceLineInput> lines = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        if (text == null) return lines;
+
+        String[] rows = text.split("\r?\n");
+        for (int i = 0; i < rows.length; i++) {
+            String row = rows[i];
+            if (row.isBlank()) continue;
+            String[] cells = row.split("\t", -1);
+            BigDecimal amount;
+            try {
+                amount = amount(cell(cells, 1));
+            } catch (NumberFormatException ex) {
+                if (lines.isEmpty() && errors.isEmpty()) continue; // intestazione
+                errors.add("Riga " + (i + 1) + ": imponibile non valido (" + cell(cells, 1) + ")");
+                continue;
+            } catch (IllegalArgumentException ex) {
+                errors.add("Riga " + (i + 1) + ": imponibile " + cell(cells, 1) + " " + ex.getMessage());
+                continue;
+            }
+            lines.add(InvoiceLineInput.builder()
+                    .description(cell(cells, 0))
+                    .netAmount(amount)
+                    .vatCode(cell(cells, 2))
+                    .accountCode(cell(cells, 3))
+                    .withholdingCode(cell(cells, 4))
+                    .build());
+        }
+        if (!errors.isEmpty()) {
+            throw new InvoiceService.InvoiceLineValidationException(errors);
+        }
+        return lines;
+    }
+
+    private static String cell(String[] cells, int index) {
+        if (index >= cells.length) return null;
+        String v = cells[index].trim();
+        if (v.length() >= 2 && v.startsWith("\"") && v.endsWith("\"")) {
+            v = v.substring(1, v.length() - 1).replace("\"\"", "\"").trim();
+        }
+        return v.isEmpty() ? null : v;
+    }
+
+    /**
+     * Con un solo separatore e tre cifre dopo ("1.234", "12,345") non si può capire se sia il
+     * separatore delle migliaia o quello decimale: l'importo è rifiutato invece di indovinare.
+     * Gli importi non sono mai arrotondati, più di due decimali sono un errore.
+     *
+     * @throws NumberFormatException se il testo non è un numero (es. l'intestazione)
+     * @throws IllegalArgumentException se il numero è ambiguo o ha più di due decimali
+     */
+    static BigDecimal amount(String v) {
+        if (v == null) return null;
+        String text = v.replace("€", "").replace(" ", "").replace("\u00a0", "");
+        if (!NUMBER.matcher(text).matches()) {
+            throw new NumberFormatException(v);
+        }
+        String sign = text.startsWith("-") ? "-" : "";
+        String digits = text.startsWith("-") || text.startsWith("+") ? text.substring(1) : text;
+
+        int comma = digits.lastIndexOf(',');
+        int dot = digits.lastIndexOf('.');
+        char decimal;
+        char grouping;
+        if (comma >= 0 && dot >= 0) {
+            decimal = comma > dot ? ',' : '.';
+            grouping = comma > dot ? '.' : ',';
+        } else if (comma >= 0 || dot >= 0) {
+            char separator = comma >= 0 ? ',' : '.';
+            int last = Math.max(comma, dot);
+            if (digits.indexOf(separator) != last) {
+                decimal = 0; // separatore ripetuto: solo migliaia ("1.234.567")
+                grouping = separator;
+            } else if (digits.length() - last - 1 == 3 && last <= 3) {
+                throw new IllegalArgumentException("ambiguo, non è chiaro se '" + separator
+                        + "' separi le migliaia o i decimali: usare \"1.234,00\" o \"1234\"");
+            } else {
+                decimal = separator;
+                grouping = 0;
+            }
+        } else {
+            decimal = 0;
+            grouping = 0;
+        }
+
+        int split = decimal != 0 ? digits.lastIndexOf(decimal) : digits.length();
+        String integer = digits.substring(0, split);
+        String fraction = decimal != 0 ? digits.substring(split + 1) : "";
+        if (integer.isEmpty() || (decimal != 0 && fraction.isEmpty())) {
+            throw new NumberFormatException(v);
+        }
+        if (grouping != 0 && !integer.matches("\\d{1,3}(\\" + grouping + "\\d{3})+")) {
+            throw new IllegalArgumentException("separatore delle migliaia in posizione non valida");
+        }
+        if (fraction.length() > 2) {
+            throw new IllegalArgumentException("più di due decimali");
+        }
+        String plain = sign + (grouping != 0 ? integer.replace(String.valueOf(grouping), "") : integer)
+                + (fraction.isEmpty() ? "" : "." + fraction);
+        return new BigDecimal(plain).setScale(2, RoundingMode.UNNECESSARY);
+    }
+}
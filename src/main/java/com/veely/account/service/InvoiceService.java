@@ -1,5 +1,7 @@
 package com.veely.account.service;
 
+import com.veely.account.config.InvoiceLineProperties;
+import com.veely.account.config.InvoiceListProperties;
 import com.veely.account.domain.Account;
 import com.veely.account.domain.Counterparty;
 import com.veely.account.domain.Invoice;
@@ -8,17 +10,29 @@ import com.veely.account.domain.InvoiceLine;
 import com.veely.account.domain.InvoiceStatus;
 import com.veely.account.domain.VatCode;
 import com.veely.account.domain.WithholdingType;
-import com.veely.account.repository.AccountRepository;
-import com.veely.account.repository.CounterpartyRepository;
-import com.veely.account.repository.InvoiceDirectionRepository;
+import com.veely.account.jfr.InvoiceLineWriteEvent;
+import com.veely.account.jfr.InvoiceSearchEvent;
+import com.veely.account.jfr.InvoiceTotalsEvent;
+import com.veely.account.ledger.CounterpartyLedgerService;
+import com.veely.account.ledger.LedgerChangedEvent;
+import com.veely.account.ledger.LedgerPeriodKey;
+import com.veely.account.metrics.BusinessMetrics;
 import com.veely.account.repository.InvoiceLineRepository;
 import com.veely.account.repository.InvoiceRepository;
-import com.veely.account.repository.InvoiceStatusRepository;
-import com.veely.account.repository.VatCodeRepository;
-import com.veely.account.repository.WithholdingTypeRepository;
+import com.veely.account.service.InvoiceTotalsCalculator.LineAmounts;
+import com.veely.account.service.dto.BulkLinesResult;
+import com.veely.account.service.dto.InvoiceCursor;
+import com.veely.account.service.dto.InvoiceLineInput;
+import com.veely.account.service.dto.InvoiceListRow;
+import com.veely.account.service.dto.InvoicePage;
+import com.veely.account.service.dto.InvoiceSearchCriteria;
 import com.veely.account.service.dto.InvoiceTotals;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jdk.jfr.Event;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
@@ -27,68 +41,60 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class InvoiceService {
 
+    private static final BigDecimal MIN_NET_AMOUNT = new BigDecimal("0.01");
+
     private final InvoiceRepository invoiceRepository;
     private final InvoiceLineRepository invoiceLineRepository;
-    private final InvoiceDirectionRepository invoiceDirectionRepository;
-    private final InvoiceStatusRepository invoiceStatusRepository;
-    private final CounterpartyRepository counterpartyRepository;
-    private final VatCodeRepository vatCodeRepository;
-    private final AccountRepository accountRepository;
-    private final WithholdingTypeRepository withholdingTypeRepository;
-
+    private final ReferenceResolver referenceResolver;
+    private final InvoiceListProperties invoiceListProperties;
+    private final InvoiceTotalsService invoiceTotalsService;
+    private final CounterpartyLedgerService counterpartyLedgerService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InvoiceLineProperties invoiceLineProperties;
+    private final LookupService lookupService;
+    private final BusinessMetrics metrics;
+
+    /**
+     * Ricerca paginata a keyset su (issue_date, id): ogni pagina è una seek sull'indice
+     * idx_invoices_issue_date (che in InnoDB contiene anche la PK), quindi il costo non
+     * dipende da quante pagine sono state scorse.
+     * Con "before" valorizzato si torna alla pagina precedente, altrimenti si prosegue dopo "after".
+     * Le righe sono proiezioni in sola lettura lette con una sola query, senza lazy load per riga.
+     */
     @Transactional(readOnly = true)
-    public List<Invoice> search(String directionCode, Long statusId, Long counterpartyId, LocalDate from, LocalDate to, String q) {
-        Specification<Invoice> spec = Specification.where(null);
-
-        if (StringUtils.hasText(directionCode)) {
-            String normalized = directionCode.trim().toUpperCase();
-            spec = spec.and((root, query, cb) -> cb.equal(cb.upper(root.join("direction").get("code")), normalized));
-        }
-
-        if (statusId != null) {
-            spec = spec.and((root, query, cb) -> cb.equal(root.join("status").get("id"), statusId));
-        }
-
-        if (counterpartyId != null) {
-            spec = spec.and((root, query, cb) -> cb.equal(root.join("counterparty").get("id"), counterpartyId));
-        }
-
-        if (from != null) {
-            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("issueDate"), from));
-        }
-
-        if (to != null) {
-            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("issueDate"), to));
+    public InvoicePage<InvoiceListRow> searchPage(InvoiceSearchCriteria criteria, String after, String before, Integer size) {
+        int pageSize = invoiceListProperties.resolvePageSize(size);
+        InvoiceCursor beforeCursor = InvoiceCursor.decode(before);
+        boolean backward = beforeCursor != null;
+        InvoiceCursor cursor = backward ? beforeCursor : InvoiceCursor.decode(after);
+
+        Specification<Invoice> spec = toSpecification(criteria);
+        if (cursor != null) {
+            spec = spec.and(keyset(cursor, backward));
         }
-
-        if (StringUtils.hasText(q)) {
-            String trimmed = q.trim();
-            spec = spec.and((root, query, cb) -> {
-                var predicates = cb.disjunction();
-                predicates.getExpressions().add(cb.like(cb.lower(root.get("number")), "%" + trimmed.toLowerCase() + "%"));
-                if (trimmed.chars().allMatch(Character::isDigit)) {
-                    predicates.getExpressions().add(cb.equal(root.get("year"), Integer.valueOf(trimmed)));
-                }
-                return predicates;
-            });
-        }
-
-        return invoiceRepository.findAll(spec, Sort.by(Sort.Direction.DESC, "issueDate"));
+        Specification<Invoice> query = spec;
+        List<InvoiceListRow> rows = timed(new InvoiceSearchEvent(), metrics.search("page", criteria),
+                () -> new ArrayList<>(invoiceRepository.findListRows(query, listSort(backward), pageSize + 1)),
+                (event, found) -> event.commit("page", criteria, found.size()));
+        return InvoicePage.of(rows, pageSize, cursor != null, backward, InvoiceService::cursorOf);
     }
 
     @Transactional(readOnly = true)
@@ -101,64 +107,187 @@ public class InvoiceService {
     public Invoice create(Invoice dto) {
         Invoice invoice = new Invoice();
         applyHeaderData(invoice, dto);
-        return invoiceRepository.save(invoice);
+        Invoice saved = invoiceRepository.save(invoice);
+        invoiceTotalsService.initialize(saved);
+        return saved;
     }
 
     @Transactional
     public Invoice updateHeader(Long id, Invoice dto) {
         Invoice invoice = invoiceRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Fattura non trovata: " + id));
+        Long previousDirectionId = invoice.getDirection() != null ? invoice.getDirection().getId() : null;
+        // data, controparte o stato possono spostare la fattura in un altro mese/partitario
+        Set<LedgerPeriodKey> previousPeriods = counterpartyLedgerService.keysOf(List.of(id));
         applyHeaderData(invoice, dto);
-        return invoiceRepository.save(invoice);
+        Invoice saved = invoiceRepository.save(invoice);
+        if (!Objects.equals(previousDirectionId, saved.getDirection().getId())) {
+            invoiceTotalsService.directionChanged(saved);
+        }
+        eventPublisher.publishEvent(new LedgerChangedEvent(Set.of(id), previousPeriods));
+        return saved;
     }
 
     @Transactional
     public void delete(Long id) {
         Invoice invoice = invoiceRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Fattura non trovata: " + id));
+        Set<LedgerPeriodKey> previousPeriods = counterpartyLedgerService.keysOf(List.of(id));
         try {
             invoiceRepository.delete(invoice);
             invoiceRepository.flush();
         } catch (DataIntegrityViolationException ex) {
             throw new InvoiceDeletionException("Non puoi eliminare: ci sono dati collegati", ex);
         }
+        eventPublisher.publishEvent(new LedgerChangedEvent(Set.of(), previousPeriods));
     }
 
     @Transactional
     public InvoiceLine addLine(Long invoiceId, InvoiceLine dto) {
+        return timed(new InvoiceLineWriteEvent(), metrics.lineWrite("add"), () -> {
+            Invoice invoice = invoiceRepository.findById(invoiceId)
+                    .orElseThrow(() -> new EntityNotFoundException("Fattura non trovata: " + invoiceId));
+
+            InvoiceLine line = new InvoiceLine();
+            line.setInvoice(invoice);
+            applyLineData(line, dto);
+
+            InvoiceLine saved = invoiceLineRepository.save(line);
+            invoiceTotalsService.applyLineChange(invoice, LineAmounts.NONE, lineAmounts(saved), 1);
+            return saved;
+        }, (event, saved) -> lineWritten(event, "add", invoiceId, 1));
+    }
+
+    /**
+     * Inserimento massivo di righe (JSON o testo incollato). Tutti i riferimenti, per id o per codice,
+     * sono validati con una sola risoluzione e gli errori raccolti riga per riga: se ce n'è anche
+     * uno solo non si scrive nulla. Le INSERT vanno in batch JDBC (id a blocchi, vedi InvoiceLine)
+     * e invoice_totals riceve un solo delta con la somma dei contributi delle righe.
+     */
+    @Transactional
+    public BulkLinesResult addLines(Long invoiceId, List<InvoiceLineInput> inputs) {
+        return timed(new InvoiceLineWriteEvent(), metrics.lineWrite("bulk"), () -> insertLines(invoiceId, inputs),
+                (event, result) -> lineWritten(event, "bulk", invoiceId, result.getInserted()));
+    }
+
+    private BulkLinesResult insertLines(Long invoiceId, List<InvoiceLineInput> inputs) {
+        if (inputs == null || inputs.isEmpty()) {
+            throw new InvoiceLineValidationException(List.of("Nessuna riga da inserire"));
+        }
+        int maxLines = invoiceLineProperties.getBulkMaxLines();
+        if (inputs.size() > maxLines) {
+            throw new InvoiceLineValidationException(List.of(
+                    "Troppe righe: " + inputs.size() + " (massimo " + maxLines + ")"));
+        }
         Invoice invoice = invoiceRepository.findById(invoiceId)
                 .orElseThrow(() -> new EntityNotFoundException("Fattura non trovata: " + invoiceId));
 
-        InvoiceLine line = new InvoiceLine();
-        line.setInvoice(invoice);
-        applyLineData(line, dto);
+        Map<String, Long> vatCodes = codeIndex(inputs, InvoiceLineInput::getVatCode,
+                lookupService::listVatCodes, VatCode::getCode, VatCode::getId);
+        Map<String, Long> accounts = codeIndex(inputs, InvoiceLineInput::getAccountCode,
+                lookupService::listAccounts, Account::getCode, Account::getId);
+        Map<String, Long> withholdingTypes = codeIndex(inputs, InvoiceLineInput::getWithholdingCode,
+                lookupService::listWithholdingTypes, WithholdingType::getCode, WithholdingType::getId);
+
+        List<String> errors = new ArrayList<>();
+        Long[][] refIds = new Long[inputs.size()][];
+        ReferenceResolver.Request request = referenceResolver.request();
+        for (int i = 0; i < inputs.size(); i++) {
+            InvoiceLineInput input = inputs.get(i);
+            String row = "Riga " + (i + 1) + ": ";
+            if (!StringUtils.hasText(input.getDescription())) {
+                errors.add(row + "descrizione obbligatoria");
+            } else if (input.getDescription().trim().length() > 255) {
+                errors.add(row + "descrizione oltre 255 caratteri");
+            }
+            BigDecimal net = input.getNetAmount();
+            if (net == null) {
+                errors.add(row + "imponibile obbligatorio");
+            } else if (net.compareTo(MIN_NET_AMOUNT) < 0) {
+                errors.add(row + "l'imponibile deve essere almeno 0,01");
+            } else if (net.stripTrailingZeros().scale() > 2) {
+                errors.add(row + "l'imponibile ha più di due decimali");
+            }
+            Long vatCodeId = refId(input.getVatCodeId(), input.getVatCode(), vatCodes, row + "codice IVA sconosciuto: ", errors);
+            Long accountId = refId(input.getAccountId(), input.getAccountCode(), accounts, row + "conto sconosciuto: ", errors);
+            Long withholdingTypeId = refId(input.getWithholdingTypeId(), input.getWithholdingCode(), withholdingTypes,
+                    row + "tipologia ritenuta sconosciuta: ", errors);
+            refIds[i] = new Long[]{vatCodeId, accountId, withholdingTypeId};
+            request.add(ReferenceResolver.Type.VAT_CODE, vatCodeId)
+                    .add(ReferenceResolver.Type.ACCOUNT, accountId)
+                    .add(ReferenceResolver.Type.WITHHOLDING_TYPE, withholdingTypeId);
+        }
+
+        ReferenceResolver.Resolved refs = request.resolve();
+        for (int i = 0; i < inputs.size(); i++) {
+            Long[] ids = refIds[i];
+            String row = "Riga " + (i + 1) + ": ";
+            if (!refs.contains(ReferenceResolver.Type.VAT_CODE, ids[0])) errors.add(row + "codice IVA non trovato: " + ids[0]);
+            if (!refs.contains(ReferenceResolver.Type.ACCOUNT, ids[1])) errors.add(row + "conto non trovato: " + ids[1]);
+            if (!refs.contains(ReferenceResolver.Type.WITHHOLDING_TYPE, ids[2])) errors.add(row + "tipologia ritenuta non trovata: " + ids[2]);
+        }
+        if (!errors.isEmpty()) {
+            throw new InvoiceLineValidationException(errors);
+        }
 
-        return invoiceLineRepository.save(line);
+        List<InvoiceLine> lines = new ArrayList<>(inputs.size());
+        LineAmounts added = LineAmounts.NONE;
+        for (int i = 0; i < inputs.size(); i++) {
+            InvoiceLineInput input = inputs.get(i);
+            Long[] ids = refIds[i];
+            InvoiceLine line = new InvoiceLine();
+            line.setInvoice(invoice);
+            line.setDescription(input.getDescription().trim());
+            line.setNetAmount(input.getNetAmount().setScale(2));
+            line.setVatCode(refs.vatCode(ids[0]));
+            line.setAccount(refs.account(ids[1]));
+            line.setWithholdingType(refs.withholdingType(ids[2]));
+            lines.add(line);
+            added = added.plus(lineAmounts(line));
+        }
+
+        invoiceLineRepository.saveAll(lines);
+        invoiceTotalsService.applyLineChange(invoice, LineAmounts.NONE, added, lines.size());
+        return BulkLinesResult.builder()
+                .invoiceId(invoiceId)
+                .inserted(lines.size())
+                .totals(invoiceTotalsService.findTotals(List.of(invoiceId)).get(invoiceId))
+                .build();
     }
 
     @Transactional
     public InvoiceLine updateLine(Long invoiceId, Long lineId, InvoiceLine dto) {
-        InvoiceLine line = invoiceLineRepository.findById(lineId)
-                .orElseThrow(() -> new EntityNotFoundException("Riga non trovata: " + lineId));
+        return timed(new InvoiceLineWriteEvent(), metrics.lineWrite("update"), () -> {
+            InvoiceLine line = invoiceLineRepository.findById(lineId)
+                    .orElseThrow(() -> new EntityNotFoundException("Riga non trovata: " + lineId));
 
-        if (!Objects.equals(line.getInvoice().getId(), invoiceId)) {
-            throw new EntityNotFoundException("Riga non trovata per questa fattura");
-        }
+            if (!Objects.equals(line.getInvoice().getId(), invoiceId)) {
+                throw new EntityNotFoundException("Riga non trovata per questa fattura");
+            }
 
-        applyLineData(line, dto);
-        return invoiceLineRepository.save(line);
+            LineAmounts before = lineAmounts(line);
+            applyLineData(line, dto);
+            InvoiceLine saved = invoiceLineRepository.save(line);
+            invoiceTotalsService.applyLineChange(saved.getInvoice(), before, lineAmounts(saved), 0);
+            return saved;
+        }, (event, saved) -> lineWritten(event, "update", invoiceId, 1));
     }
 
     @Transactional
     public void deleteLine(Long invoiceId, Long lineId) {
-        InvoiceLine line = invoiceLineRepository.findById(lineId)
-                .orElseThrow(() -> new EntityNotFoundException("Riga non trovata: " + lineId));
+        timed(new InvoiceLineWriteEvent(), metrics.lineWrite("delete"), () -> {
+            InvoiceLine line = invoiceLineRepository.findById(lineId)
+                    .orElseThrow(() -> new EntityNotFoundException("Riga non trovata: " + lineId));
 
-        if (!Objects.equals(line.getInvoice().getId(), invoiceId)) {
-            throw new EntityNotFoundException("Riga non trovata per questa fattura");
-        }
+            if (!Objects.equals(line.getInvoice().getId(), invoiceId)) {
+                throw new EntityNotFoundException("Riga non trovata per questa fattura");
+            }
 
-        invoiceLineRepository.delete(line);
+            LineAmounts before = lineAmounts(line);
+            invoiceLineRepository.delete(line);
+            invoiceTotalsService.applyLineChange(line.getInvoice(), before, LineAmounts.NONE, -1);
+            return line;
+        }, (event, line) -> lineWritten(event, "delete", invoiceId, 1));
     }
 
     @Transactional(readOnly = true)
@@ -166,131 +295,286 @@ public class InvoiceService {
         if (invoices == null || invoices.isEmpty()) {
             return Map.of();
         }
+        return timed(new InvoiceTotalsEvent(), metrics.totals("lines"), () -> computeTotals(invoices),
+                (event, run) -> totalsComputed(event, "lines", invoices.size(), run.lines())).totals();
+    }
+
+    private TotalsRun computeTotals(List<Invoice> invoices) {
         Set<Long> invoiceIds = invoices.stream()
                 .map(Invoice::getId)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
 
         List<InvoiceLine> lines = invoiceLineRepository.findByInvoiceIdsWithLookups(invoiceIds);
-        Map<Long, List<InvoiceLine>> linesByInvoice = lines.stream()
-                .collect(Collectors.groupingBy(line -> line.getInvoice().getId()));
+        return new TotalsRun(InvoiceTotalsCalculator.computeAll(invoices, lines), lines.size());
+    }
 
-        Map<Long, InvoiceTotals> totals = new HashMap<>();
-        for (Invoice invoice : invoices) {
-            List<InvoiceLine> invoiceLines = linesByInvoice.getOrDefault(invoice.getId(), List.of());
-            totals.put(invoice.getId(), computeTotals(invoice, invoiceLines));
+    /**
+     * Totali della lista letti da invoice_totals; solo le fatture senza riga precalcolata
+     * (backfill non ancora eseguito) vengono ricalcolate dalle righe.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, InvoiceTotals> calculateListTotals(List<InvoiceListRow> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return Map.of();
         }
-        return totals;
+        return timed(new InvoiceTotalsEvent(), metrics.totals("list"), () -> readListTotals(rows),
+                (event, run) -> totalsComputed(event, "list", rows.size(), run.lines())).totals();
+    }
+
+    private TotalsRun readListTotals(List<InvoiceListRow> rows) {
+        List<Long> invoiceIds = rows.stream()
+                .map(InvoiceListRow::id)
+                .toList();
+
+        Map<Long, InvoiceTotals> totals = new HashMap<>(invoiceTotalsService.findTotals(invoiceIds));
+        List<InvoiceListRow> missing = rows.stream()
+                .filter(row -> !totals.containsKey(row.id()))
+                .toList();
+        int lineCount = 0;
+        if (!missing.isEmpty()) {
+            List<InvoiceLine> lines = invoiceLineRepository.findByInvoiceIdsWithLookups(missing.stream().map(InvoiceListRow::id).toList());
+            lineCount = lines.size();
+            Map<Long, List<InvoiceLine>> linesByInvoice = lines.stream()
+                    .collect(Collectors.groupingBy(line -> line.getInvoice().getId()));
+            for (InvoiceListRow row : missing) {
+                totals.put(row.id(), InvoiceTotalsCalculator.compute(row.directionCode(),
+                        linesByInvoice.getOrDefault(row.id(), List.of())));
+            }
+        }
+        return new TotalsRun(totals, lineCount);
     }
 
     @Transactional(readOnly = true)
     public InvoiceTotals calculateTotals(Invoice invoice) {
-        return computeTotals(invoice, invoice.getLines());
+        return InvoiceTotalsCalculator.compute(InvoiceTotalsCalculator.directionCode(invoice), invoice.getLines());
     }
 
-    private void applyHeaderData(Invoice invoice, Invoice dto) {
-        invoice.setDirection(getDirection(dto.getDirection()));
-        invoice.setStatus(getStatus(dto.getStatus()));
-        invoice.setCounterparty(getCounterparty(dto.getCounterparty()));
-        invoice.setNumber(dto.getNumber());
-        invoice.setYear(dto.getYear());
-        invoice.setIssueDate(dto.getIssueDate());
-        invoice.setDueDate(dto.getDueDate());
-        invoice.setNotes(dto.getNotes());
+    /**
+     * Esegue {@code work} dentro l'evento JFR {@code event} e ne registra la durata sul timer di {@code operation}
+     * con outcome=success, o outcome=error se lancia un'eccezione (l'evento in quel caso non viene emesso);
+     * {@code commit} riceve il risultato e chiude l'evento con i suoi campi. Il tempo è preso dentro il metodo
+     * transazionale, quindi esclude il commit.
+     */
+    private <E extends Event, R> R timed(E event, BusinessMetrics.Operation operation, Supplier<R> work, BiConsumer<E, R> commit) {
+        long start = System.nanoTime();
+        event.begin();
+        R result;
+        try {
+            result = work.get();
+        } catch (RuntimeException | Error ex) {
+            metrics.record(operation, "error", start);
+            throw ex;
+        }
+        metrics.record(operation, "success", start);
+        commit.accept(event, result);
+        return result;
     }
 
-    private InvoiceDirection getDirection(InvoiceDirection direction) {
-        Long directionId = Optional.ofNullable(direction).map(InvoiceDirection::getId)
-                .orElseThrow(() -> new EntityNotFoundException("Direzione obbligatoria"));
-        return invoiceDirectionRepository.findById(directionId)
-                .orElseThrow(() -> new EntityNotFoundException("Direzione non trovata: " + directionId));
+    private void lineWritten(InvoiceLineWriteEvent event, String operation, Long invoiceId, int lines) {
+        metrics.linesWritten(operation, lines);
+        event.commit(operation, invoiceId, lines);
     }
 
-    private InvoiceStatus getStatus(InvoiceStatus status) {
-        Long statusId = Optional.ofNullable(status).map(InvoiceStatus::getId)
-                .orElseThrow(() -> new EntityNotFoundException("Stato obbligatorio"));
-        return invoiceStatusRepository.findById(statusId)
-                .orElseThrow(() -> new EntityNotFoundException("Stato non trovato: " + statusId));
+    private void totalsComputed(InvoiceTotalsEvent event, String source, int invoices, int lines) {
+        metrics.totalsSize(source, invoices, lines);
+        event.commit(source, invoices, lines);
     }
 
-    private Counterparty getCounterparty(Counterparty counterparty) {
-        Long counterpartyId = Optional.ofNullable(counterparty).map(Counterparty::getId)
-                .orElseThrow(() -> new EntityNotFoundException("Controparte obbligatoria"));
-        return counterpartyRepository.findById(counterpartyId)
-                .orElseThrow(() -> new EntityNotFoundException("Controparte non trovata: " + counterpartyId));
+    /** Totali calcolati e righe lette per calcolarli. */
+    private record TotalsRun(Map<Long, InvoiceTotals> totals, int lines) {
     }
 
-    private VatCode getVatCode(VatCode vatCode) {
-        if (vatCode == null || vatCode.getId() == null) {
-            return null;
+    private Specification<Invoice> toSpecification(InvoiceSearchCriteria criteria) {
+        Specification<Invoice> spec = Specification.where(null);
+
+        String directionCode = criteria.getDirectionCode();
+        if (StringUtils.hasText(directionCode)) {
+            String normalized = directionCode.trim().toUpperCase();
+            spec = spec.and((root, query, cb) -> cb.equal(cb.upper(joinOnce(root, "direction").get("code")), normalized));
+        }
+
+        Long statusId = criteria.getStatusId();
+        if (statusId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(joinOnce(root, "status").get("id"), statusId));
+        }
+
+        Long counterpartyId = criteria.getCounterpartyId();
+        if (counterpartyId != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(joinOnce(root, "counterparty").get("id"), counterpartyId));
+        }
+
+        LocalDate from = criteria.getFrom();
+        if (from != null) {
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("issueDate"), from));
+        }
+
+        LocalDate to = criteria.getTo();
+        if (to != null) {
+            spec = spec.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("issueDate"), to));
         }
-        return vatCodeRepository.findById(vatCode.getId())
-                .orElseThrow(() -> new EntityNotFoundException("Codice IVA non trovato: " + vatCode.getId()));
+
+        String q = criteria.getQ();
+        if (StringUtils.hasText(q)) {
+            String trimmed = q.trim();
+            spec = spec.and((root, query, cb) -> {
+                var predicates = cb.disjunction();
+                predicates.getExpressions().add(cb.like(cb.lower(root.get("number")), "%" + trimmed.toLowerCase() + "%"));
+                if (trimmed.chars().allMatch(Character::isDigit)) {
+                    predicates.getExpressions().add(cb.equal(root.get("year"), Integer.valueOf(trimmed)));
+                }
+                return predicates;
+            });
+        }
+
+        return spec;
     }
 
-    private Account getAccount(Account account) {
-        if (account == null || account.getId() == null) {
-            return null;
+    /**
+     * (issue_date, id) oltre il cursore, scritto come {@code issue_date <= d AND (issue_date < d OR id < i)}:
+     * la condizione sola su issue_date dà l'inizio del range sull'indice anche agli ottimizzatori che
+     * non ricavano un range dall'OR, così la seek non scorre le righe delle pagine precedenti.
+     */
+    private static Specification<Invoice> keyset(InvoiceCursor cursor, boolean backward) {
+        return (root, query, cb) -> {
+            var issueDate = root.<LocalDate>get("issueDate");
+            var id = root.<Long>get("id");
+            if (backward) {
+                return cb.and(cb.greaterThanOrEqualTo(issueDate, cursor.issueDate()),
+                        cb.or(cb.greaterThan(issueDate, cursor.issueDate()), cb.greaterThan(id, cursor.id())));
+            }
+            return cb.and(cb.lessThanOrEqualTo(issueDate, cursor.issueDate()),
+                    cb.or(cb.lessThan(issueDate, cursor.issueDate()), cb.lessThan(id, cursor.id())));
+        };
+    }
+
+    private static Sort listSort(boolean backward) {
+        Sort.Direction direction = backward ? Sort.Direction.ASC : Sort.Direction.DESC;
+        return Sort.by(direction, "issueDate").and(Sort.by(direction, "id"));
+    }
+
+    private static InvoiceCursor cursorOf(InvoiceListRow row) {
+        return new InvoiceCursor(row.issueDate(), row.id());
+    }
+
+    /**
+     * Riusa una join già presente sulla root (es. le left join della proiezione della lista) invece di
+     * aggiungerne un'altra sulla stessa associazione; le FK di testata sono NOT NULL, quindi un filtro
+     * sulla left join scarta le stesse righe di una inner join.
+     */
+    @SuppressWarnings("unchecked")
+    private static <Y> Join<Invoice, Y> joinOnce(Root<Invoice> root, String attribute) {
+        for (Join<Invoice, ?> join : root.getJoins()) {
+            if (attribute.equals(join.getAttribute().getName())) {
+                return (Join<Invoice, Y>) join;
+            }
         }
-        return accountRepository.findById(account.getId())
-                .orElseThrow(() -> new EntityNotFoundException("Conto non trovato: " + account.getId()));
+        return root.join(attribute);
     }
 
-    private WithholdingType getWithholdingType(WithholdingType withholdingType) {
-        if (withholdingType == null || withholdingType.getId() == null) {
-            return null;
+    private void applyHeaderData(Invoice invoice, Invoice dto) {
+        Long directionId = Optional.ofNullable(dto.getDirection()).map(InvoiceDirection::getId).orElse(null);
+        Long statusId = Optional.ofNullable(dto.getStatus()).map(InvoiceStatus::getId).orElse(null);
+        Long counterpartyId = Optional.ofNullable(dto.getCounterparty()).map(Counterparty::getId).orElse(null);
+
+        ReferenceResolver.Resolved refs = referenceResolver.request()
+                .add(ReferenceResolver.Type.DIRECTION, directionId)
+                .add(ReferenceResolver.Type.STATUS, statusId)
+                .add(ReferenceResolver.Type.COUNTERPARTY, counterpartyId)
+                .resolve();
+
+        // stesso ordine dei controlli di prima: per ogni campo prima "obbligatorio", poi "non trovato"
+        InvoiceDirection direction = required(directionId, "Direzione obbligatoria", refs::direction);
+        InvoiceStatus status = required(statusId, "Stato obbligatorio", refs::status);
+        Counterparty counterparty = required(counterpartyId, "Controparte obbligatoria", refs::counterparty);
+
+        invoice.setDirection(direction);
+        invoice.setStatus(status);
+        invoice.setCounterparty(counterparty);
+        invoice.setNumber(dto.getNumber());
+        invoice.setYear(dto.getYear());
+        invoice.setIssueDate(dto.getIssueDate());
+        invoice.setDueDate(dto.getDueDate());
+        invoice.setNotes(dto.getNotes());
+    }
+
+    private static <T> T required(Long id, String missingMessage, Function<Long, T> resolved) {
+        if (id == null) {
+            throw new EntityNotFoundException(missingMessage);
         }
-        return withholdingTypeRepository.findById(withholdingType.getId())
-                .orElseThrow(() -> new EntityNotFoundException("Tipologia ritenuta non trovata: " + withholdingType.getId()));
+        return resolved.apply(id);
     }
 
     private void applyLineData(InvoiceLine target, InvoiceLine dto) {
+        Long vatCodeId = Optional.ofNullable(dto.getVatCode()).map(VatCode::getId).orElse(null);
+        Long accountId = Optional.ofNullable(dto.getAccount()).map(Account::getId).orElse(null);
+        Long withholdingTypeId = Optional.ofNullable(dto.getWithholdingType()).map(WithholdingType::getId).orElse(null);
+
+        ReferenceResolver.Resolved refs = referenceResolver.request()
+                .add(ReferenceResolver.Type.VAT_CODE, vatCodeId)
+                .add(ReferenceResolver.Type.ACCOUNT, accountId)
+                .add(ReferenceResolver.Type.WITHHOLDING_TYPE, withholdingTypeId)
+                .resolve();
+
         target.setDescription(dto.getDescription());
         target.setNetAmount(dto.getNetAmount());
-        target.setVatCode(getVatCode(dto.getVatCode()));
-        target.setAccount(getAccount(dto.getAccount()));
-        target.setWithholdingType(getWithholdingType(dto.getWithholdingType()));
+        target.setVatCode(refs.vatCode(vatCodeId));
+        target.setAccount(refs.account(accountId));
+        target.setWithholdingType(refs.withholdingType(withholdingTypeId));
     }
 
-    private InvoiceTotals computeTotals(Invoice invoice, Collection<InvoiceLine> lines) {
-        BigDecimal netTotal = BigDecimal.ZERO;
-        BigDecimal vatTotal = BigDecimal.ZERO;
-        BigDecimal withholdingTotal = BigDecimal.ZERO;
-
-        for (InvoiceLine line : lines) {
-            BigDecimal lineNet = line.getNetAmount() != null ? line.getNetAmount() : BigDecimal.ZERO;
-            netTotal = netTotal.add(lineNet);
+    /**
+     * Contributo della riga ai totali con le aliquote prese dai dizionari in cache,
+     * senza inizializzare i proxy di codice IVA e ritenuta.
+     */
+    private LineAmounts lineAmounts(InvoiceLine line) {
+        return InvoiceTotalsCalculator.lineAmounts(line.getNetAmount(),
+                referenceResolver.dictionaryValue(line.getVatCode()),
+                referenceResolver.dictionaryValue(line.getWithholdingType()));
+    }
 
-            BigDecimal vatRate = Optional.ofNullable(line.getVatCode())
-                    .map(VatCode::getRate)
-                    .orElse(BigDecimal.ZERO);
-            if (vatRate != null) {
-                vatTotal = vatTotal.add(lineNet.multiply(vatRate).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP));
+    /**
+     * Codice (case-insensitive) -> id dal dizionario in cache; vuota se nessuna riga usa codici di quel tipo.
+     */
+    private static <T> Map<String, Long> codeIndex(List<InvoiceLineInput> inputs, Function<InvoiceLineInput, String> codeGetter,
+                                                   Supplier<List<T>> values, Function<T, String> code, Function<T, Long> id) {
+        if (inputs.stream().noneMatch(input -> StringUtils.hasText(codeGetter.apply(input)))) {
+            return Map.of();
+        }
+        Map<String, Long> index = new HashMap<>();
+        for (T value : values.get()) {
+            String key = code.apply(value);
+            if (key != null) {
+                index.putIfAbsent(key.trim().toUpperCase(Locale.ROOT), id.apply(value));
             }
+        }
+        return index;
+    }
 
-            WithholdingType wt = line.getWithholdingType();
-            if (wt != null && wt.getRate() != null) {
-                BigDecimal taxablePercent = Optional.ofNullable(wt.getTaxablePercent()).orElse(BigDecimal.valueOf(100));
-                BigDecimal withholdingBase = lineNet.multiply(taxablePercent).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-                withholdingTotal = withholdingTotal.add(withholdingBase.multiply(wt.getRate()).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP));
-            }
+    private static Long refId(Long id, String code, Map<String, Long> byCode, String unknownMessage, List<String> errors) {
+        if (id != null || !StringUtils.hasText(code)) {
+            return id;
         }
+        Long resolved = byCode.get(code.trim().toUpperCase(Locale.ROOT));
+        if (resolved == null) {
+            errors.add(unknownMessage + code.trim());
+        }
+        return resolved;
+    }
 
-        BigDecimal grossTotal = netTotal.add(vatTotal);
-        boolean isPassive = Optional.ofNullable(invoice.getDirection())
-                .map(InvoiceDirection::getCode)
-                .map(String::toUpperCase)
-                .map("PASSIVE"::equals)
-                .orElse(false);
-        BigDecimal payableTotal = isPassive ? grossTotal.subtract(withholdingTotal) : grossTotal;
-
-        return InvoiceTotals.builder()
-                .netTotal(netTotal)
-                .vatTotal(vatTotal)
-                .grossTotal(grossTotal)
-                .withholdingTotal(withholdingTotal)
-                .payableTotal(payableTotal)
-                .build();
+    public static class InvoiceLineValidationException extends RuntimeException {
+        private static final long serialVersionUID = -4215823604455183772L;
+
+        private final String[] errors;
+
+        public InvoiceLineValidationException(List<String> errors) {
+            super(String.join("; ", errors));
+            this.errors = errors.toArray(String[]::new);
+        }
+
+        public List<String> getErrors() {
+            return List.of(errors);
+        }
     }
 
     public static class InvoiceDeletionException extends RuntimeException {
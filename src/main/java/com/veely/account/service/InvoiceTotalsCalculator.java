@@ -0,0 +1,145 @@
+package com.veely.account.service;
+
+import com.veely.account.domain.Invoice;
+import com.veely.account.domain.InvoiceDirection;
+import com.veely.account.domain.InvoiceLine;
+import com.veely.account.domain.VatCode;
+import com.veely.account.domain.WithholdingType;
+import com.veely.account.service.dto.InvoiceTotals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Regole di calcolo dei totali fattura. IVA e ritenuta sono arrotondate HALF_UP a 2 decimali
+ * riga per riga, quindi il contributo di ogni riga è additivo: gli stessi importi servono sia
+ * al ricalcolo completo sia all'aggiornamento incrementale di invoice_totals.
+ */
+public final class InvoiceTotalsCalculator {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private InvoiceTotalsCalculator() {
+    }
+
+    /**
+     * Totali della fattura con {@link InvoiceTotalsKernel} (centesimi e aliquote intere); gli importi
+     * che il kernel non rappresenta esattamente (più di due decimali, overflow) passano dal calcolo
+     * BigDecimal di {@link #lineAmounts}, con lo stesso risultato.
+     */
+    public static InvoiceTotals compute(String directionCode, Collection<InvoiceLine> lines) {
+        long net = 0;
+        long vat = 0;
+        long withholding = 0;
+        try {
+            for (InvoiceLine line : lines) {
+                long lineNet = line.getNetAmount() != null ? InvoiceTotalsKernel.cents(line.getNetAmount()) : 0;
+                VatCode vatCode = line.getVatCode();
+                WithholdingType wt = line.getWithholdingType();
+                net = Math.addExact(net, lineNet);
+                vat = Math.addExact(vat, InvoiceTotalsKernel.vat(lineNet,
+                        vatCode != null && vatCode.getRate() != null ? InvoiceTotalsKernel.rate(vatCode.getRate()) : 0));
+                if (wt != null && wt.getRate() != null) {
+                    withholding = Math.addExact(withholding, InvoiceTotalsKernel.withholding(lineNet,
+                            InvoiceTotalsKernel.rate(wt.getRate()),
+                            wt.getTaxablePercent() != null ? InvoiceTotalsKernel.rate(wt.getTaxablePercent()) : InvoiceTotalsKernel.FULL_TAXABLE));
+                }
+            }
+        } catch (ArithmeticException ex) {
+            LineAmounts sum = LineAmounts.NONE;
+            for (InvoiceLine line : lines) {
+                sum = sum.plus(lineAmounts(line));
+            }
+            return totals(directionCode, sum.net(), sum.vat(), sum.withholding());
+        }
+        return totals(directionCode, InvoiceTotalsKernel.toAmount(net), InvoiceTotalsKernel.toAmount(vat),
+                InvoiceTotalsKernel.toAmount(withholding));
+    }
+
+    /**
+     * Totali di più fatture a partire dalle loro righe lette in blocco: raggruppa per fattura e
+     * calcola ciascuna con {@link #compute}; una fattura senza righe ha totali a zero.
+     */
+    public static Map<Long, InvoiceTotals> computeAll(Collection<Invoice> invoices, Collection<InvoiceLine> lines) {
+        Map<Long, List<InvoiceLine>> linesByInvoice = lines.stream()
+                .collect(Collectors.groupingBy(line -> line.getInvoice().getId()));
+
+        Map<Long, InvoiceTotals> totals = new HashMap<>();
+        for (Invoice invoice : invoices) {
+            List<InvoiceLine> invoiceLines = linesByInvoice.getOrDefault(invoice.getId(), List.of());
+            totals.put(invoice.getId(), compute(directionCode(invoice), invoiceLines));
+        }
+        return totals;
+    }
+
+    public static String directionCode(Invoice invoice) {
+        return Optional.ofNullable(invoice.getDirection())
+                .map(InvoiceDirection::getCode)
+                .orElse(null);
+    }
+
+    private static InvoiceTotals totals(String directionCode, BigDecimal netTotal, BigDecimal vatTotal, BigDecimal withholdingTotal) {
+        BigDecimal grossTotal = netTotal.add(vatTotal);
+        BigDecimal payableTotal = isPassive(directionCode) ? grossTotal.subtract(withholdingTotal) : grossTotal;
+
+        return InvoiceTotals.builder()
+                .netTotal(netTotal)
+                .vatTotal(vatTotal)
+                .grossTotal(grossTotal)
+                .withholdingTotal(withholdingTotal)
+                .payableTotal(payableTotal)
+                .build();
+    }
+
+    public static LineAmounts lineAmounts(InvoiceLine line) {
+        return lineAmounts(line.getNetAmount(), line.getVatCode(), line.getWithholdingType());
+    }
+
+    public static LineAmounts lineAmounts(BigDecimal netAmount, VatCode vatCode, WithholdingType wt) {
+        BigDecimal lineNet = netAmount != null ? netAmount : BigDecimal.ZERO;
+
+        BigDecimal vatRate = Optional.ofNullable(vatCode)
+                .map(VatCode::getRate)
+                .orElse(BigDecimal.ZERO);
+        BigDecimal vat = lineNet.multiply(vatRate).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+
+        BigDecimal withholding = BigDecimal.ZERO;
+        if (wt != null && wt.getRate() != null) {
+            BigDecimal taxablePercent = Optional.ofNullable(wt.getTaxablePercent()).orElse(HUNDRED);
+            BigDecimal withholdingBase = lineNet.multiply(taxablePercent).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+            withholding = withholdingBase.multiply(wt.getRate()).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+        }
+
+        return new LineAmounts(lineNet, vat, withholding);
+    }
+
+    public static boolean isPassive(String directionCode) {
+        return directionCode != null && "PASSIVE".equals(directionCode.toUpperCase());
+    }
+
+    /**
+     * Contributo di una singola riga ai totali della fattura.
+     */
+    public record LineAmounts(BigDecimal net, BigDecimal vat, BigDecimal withholding) {
+
+        public static final LineAmounts NONE = new LineAmounts(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        public LineAmounts plus(LineAmounts other) {
+            return new LineAmounts(net.add(other.net), vat.add(other.vat), withholding.add(other.withholding));
+        }
+
+        public BigDecimal gross() {
+            return net.add(vat);
+        }
+
+        public BigDecimal payable(String directionCode) {
+            return isPassive(directionCode) ? gross().subtract(withholding) : gross();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.veely.account.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Calcolo dei totali su interi: importi in centesimi di euro ({@code long}) e aliquote in
+ * centesimi di punto percentuale ({@code int}, 22% = 2200, 50% = 5000).
+ * <p>
+ * Gli arrotondamenti HALF_UP sono esatti e negli stessi passaggi di
+ * {@link InvoiceTotalsCalculator#lineAmounts}: IVA sull'imponibile di riga, base della ritenuta
+ * arrotondata al centesimo e poi ritenuta sulla base. Il risultato coincide riga per riga
+ * con il calcolo BigDecimal, senza allocare oggetti per riga.
+ * <p>
+ * Gli overflow non vengono troncati: {@link ArithmeticException}, come per gli importi con più
+ * di due decimali in {@link #cents} e {@link #rate}.
+ */
+public final class InvoiceTotalsKernel {
+
+    /** Posizioni nell'array dei totali di {@link #accumulate}. */
+    public static final int NET = 0;
+    public static final int VAT = 1;
+    public static final int WITHHOLDING = 2;
+
+    /** Imponibile della ritenuta quando il tipo non ne indica uno: 100%. */
+    public static final int FULL_TAXABLE = 10_000;
+
+    // centesimi x (punti percentuali x 100) / 10000 = centesimi
+    private static final long SCALE = 10_000;
+
+    private InvoiceTotalsKernel() {
+    }
+
+    public static long vat(long netCents, int vatRate) {
+        return divideHalfUp(Math.multiplyExact(netCents, vatRate));
+    }
+
+    public static long withholding(long netCents, int withholdingRate, int taxablePercent) {
+        if (withholdingRate == 0) {
+            return 0;
+        }
+        long base = divideHalfUp(Math.multiplyExact(netCents, taxablePercent));
+        return divideHalfUp(Math.multiplyExact(base, withholdingRate));
+    }
+
+    /**
+     * Somma in {@code totals} (indici {@link #NET}, {@link #VAT}, {@link #WITHHOLDING}) le righe
+     * {@code [from, to)}. Aliquota 0 significa senza IVA o senza ritenuta; {@code totals} non viene
+     * azzerato, così più intervalli possono confluire negli stessi totali.
+     */
+    public static void accumulate(long[] amounts, int[] vatRates, int[] withholdingRates, int[] taxablePercents,
+                                  int from, int to, long[] totals) {
+        long net = totals[NET];
+        long vat = totals[VAT];
+        long withholding = totals[WITHHOLDING];
+        for (int i = from; i < to; i++) {
+            long lineNet = amounts[i];
+            net = Math.addExact(net, lineNet);
+            vat = Math.addExact(vat, vat(lineNet, vatRates[i]));
+            withholding = Math.addExact(withholding, withholding(lineNet, withholdingRates[i], taxablePercents[i]));
+        }
+        totals[NET] = net;
+        totals[VAT] = vat;
+        totals[WITHHOLDING] = withholding;
+    }
+
+    /**
+     * Importo in centesimi; {@link ArithmeticException} se ha più di due decimali o non sta in un long.
+     */
+    public static long cents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    /**
+     * Aliquota percentuale in centesimi di punto; {@link ArithmeticException} oltre i due decimali.
+     */
+    public static int rate(BigDecimal percent) {
+        return percent.movePointRight(2).intValueExact();
+    }
+
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    static long divideHalfUp(long value) {
+        long quotient = value / SCALE;
+        long remainder = value % SCALE;
+        if (Math.abs(remainder) * 2 >= SCALE) {
+            quotient += Long.signum(value);
+        }
+        return quotient;
+    }
+}
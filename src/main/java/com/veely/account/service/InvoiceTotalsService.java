@@ -0,0 +1,237 @@
+package com.veely.account.service;
+
+import com.veely.account.domain.Invoice;
+import com.veely.account.domain.InvoiceDirection;
+import com.veely.account.domain.InvoiceLine;
+import com.veely.account.domain.InvoiceTotalsSnapshot;
+import com.veely.account.ledger.LedgerChangedEvent;
+import com.veely.account.repository.InvoiceLineRepository;
+import com.veely.account.repository.InvoiceRepository;
+import com.veely.account.repository.InvoiceTotalsSnapshotRepository;
+import com.veely.account.service.InvoiceTotalsCalculator.LineAmounts;
+import com.veely.account.service.dto.InvoiceTotals;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Mantiene la tabella invoice_totals. Le scritture di InvoiceService applicano qui il delta
+ * della riga nella stessa transazione; la lista e i report leggono solo i valori precalcolati.
+ * Ogni variazione del netto a pagare è segnalata al partitario ({@link LedgerChangedEvent}).
+ * Un cambio di aliquote da re-import dei dizionari ({@link TaxRatesChangedEvent}) ricalcola le fatture coinvolte.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InvoiceTotalsService {
+
+    private static final int REBUILD_CHUNK = 500;
+
+    private final InvoiceTotalsSnapshotRepository snapshotRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceLineRepository invoiceLineRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ReferenceResolver referenceResolver;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional(readOnly = true)
+    public Map<Long, InvoiceTotals> findTotals(Collection<Long> invoiceIds) {
+        if (invoiceIds == null || invoiceIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, InvoiceTotals> totals = new HashMap<>();
+        for (InvoiceTotalsSnapshot snapshot : snapshotRepository.findAllById(invoiceIds)) {
+            totals.put(snapshot.getInvoiceId(), toTotals(snapshot));
+        }
+        return totals;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void initialize(Invoice invoice) {
+        InvoiceTotalsSnapshot snapshot = new InvoiceTotalsSnapshot();
+        snapshot.setInvoiceId(invoice.getId());
+        snapshotRepository.save(snapshot);
+    }
+
+    /**
+     * Sostituisce il contributo "before" con "after" (NONE per inserimento/cancellazione).
+     * Se la fattura non ha ancora una riga in invoice_totals (backfill mancante) la ricalcola da zero.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applyLineChange(Invoice invoice, LineAmounts before, LineAmounts after, int lineCountDelta) {
+        TotalsDelta delta = TotalsDelta.of(directionCode(invoice), before, after, lineCountDelta);
+        int updated = snapshotRepository.applyDelta(invoice.getId(), delta.net(), delta.vat(), delta.withholding(),
+                delta.gross(), delta.payable(), delta.lines());
+        if (rebuildRequired(updated)) {
+            rebuild(invoice);
+        }
+        eventPublisher.publishEvent(LedgerChangedEvent.of(invoice.getId()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void directionChanged(Invoice invoice) {
+        BigDecimal factor = InvoiceTotalsCalculator.isPassive(directionCode(invoice)) ? BigDecimal.ONE : BigDecimal.ZERO;
+        if (snapshotRepository.updatePayable(invoice.getId(), factor) == 0) {
+            rebuild(invoice);
+        }
+        eventPublisher.publishEvent(LedgerChangedEvent.of(invoice.getId()));
+    }
+
+    @Transactional
+    public InvoiceTotals rebuild(Invoice invoice) {
+        invoiceLineRepository.flush();
+        List<InvoiceLine> lines = invoiceLineRepository.findByInvoiceIdWithLookups(invoice.getId());
+        InvoiceTotalsSnapshot snapshot = toSnapshot(invoice.getId(), directionCode(invoice), lines);
+        snapshotRepository.save(snapshot);
+        return toTotals(snapshot);
+    }
+
+    /**
+     * Ricostruzione completa (backfill e riallineamento): scorre le fatture per id a blocchi,
+     * una transazione per blocco, così il contesto di persistenza resta piccolo.
+     */
+    public long rebuildAll() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long processed = 0;
+        long lastId = 0;
+        while (true) {
+            long afterId = lastId;
+            RebuildChunk chunk = tx.execute(status -> rebuildChunk(afterId));
+            if (chunk == null || chunk.size() == 0) {
+                break;
+            }
+            processed += chunk.size();
+            lastId = chunk.lastId();
+        }
+        log.info("Totali fattura ricostruiti (fatture processate: {}).", processed);
+        return processed;
+    }
+
+    /**
+     * Aliquote IVA o ritenute cambiate da un re-import: dopo il commit dell'import si ricalcolano, a blocchi
+     * e in transazioni proprie, i totali delle sole fatture con righe su quei codici, e se ne aggiorna il partitario.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaxRatesChanged(TaxRatesChangedEvent event) {
+        Set<Long> affected = new TreeSet<>();
+        if (!event.vatCodeIds().isEmpty()) {
+            affected.addAll(invoiceLineRepository.findInvoiceIdsByVatCodeIds(event.vatCodeIds()));
+        }
+        if (!event.withholdingTypeIds().isEmpty()) {
+            affected.addAll(invoiceLineRepository.findInvoiceIdsByWithholdingTypeIds(event.withholdingTypeIds()));
+        }
+        if (affected.isEmpty()) {
+            return;
+        }
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<Long> ids = List.copyOf(affected);
+        for (int from = 0; from < ids.size(); from += REBUILD_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + REBUILD_CHUNK));
+            tx.executeWithoutResult(status -> {
+                rebuildInvoices(invoiceRepository.findAllById(chunk));
+                eventPublisher.publishEvent(LedgerChangedEvent.of(chunk));
+            });
+        }
+        log.info("Totali fattura ricalcolati per cambio aliquote (fatture: {}).", ids.size());
+    }
+
+    private RebuildChunk rebuildChunk(long afterId) {
+        List<Invoice> invoices = invoiceRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(REBUILD_CHUNK));
+        if (invoices.isEmpty()) {
+            return new RebuildChunk(afterId, 0);
+        }
+        List<Long> ids = rebuildInvoices(invoices);
+        return new RebuildChunk(ids.get(ids.size() - 1), ids.size());
+    }
+
+    private List<Long> rebuildInvoices(List<Invoice> invoices) {
+        List<Long> ids = invoices.stream().map(Invoice::getId).toList();
+        Map<Long, List<InvoiceLine>> linesByInvoice = invoiceLineRepository.findByInvoiceIdsWithLookups(ids).stream()
+                .collect(Collectors.groupingBy(line -> line.getInvoice().getId()));
+
+        // carica le righe esistenti nel contesto: il merge di saveAll non fa una select per fattura
+        snapshotRepository.findAllById(ids);
+        List<InvoiceTotalsSnapshot> snapshots = invoices.stream()
+                .map(invoice -> toSnapshot(invoice.getId(), directionCode(invoice),
+                        linesByInvoice.getOrDefault(invoice.getId(), List.of())))
+                .toList();
+        snapshotRepository.saveAll(snapshots);
+        return ids;
+    }
+
+    private static InvoiceTotalsSnapshot toSnapshot(Long invoiceId, String directionCode, List<InvoiceLine> lines) {
+        InvoiceTotals totals = InvoiceTotalsCalculator.compute(directionCode, lines);
+        InvoiceTotalsSnapshot snapshot = new InvoiceTotalsSnapshot();
+        snapshot.setInvoiceId(invoiceId);
+        snapshot.setNetTotal(totals.getNetTotal());
+        snapshot.setVatTotal(totals.getVatTotal());
+        snapshot.setWithholdingTotal(totals.getWithholdingTotal());
+        snapshot.setGrossTotal(totals.getGrossTotal());
+        snapshot.setPayableTotal(totals.getPayableTotal());
+        snapshot.setLineCount(lines.size());
+        return snapshot;
+    }
+
+    private static InvoiceTotals toTotals(InvoiceTotalsSnapshot snapshot) {
+        return InvoiceTotals.builder()
+                .netTotal(snapshot.getNetTotal())
+                .vatTotal(snapshot.getVatTotal())
+                .grossTotal(snapshot.getGrossTotal())
+                .withholdingTotal(snapshot.getWithholdingTotal())
+                .payableTotal(snapshot.getPayableTotal())
+                .build();
+    }
+
+    /**
+     * Il delta vale solo se invoice_totals ha già la riga della fattura: nessuna riga aggiornata
+     * significa backfill mancante, e si ricalcola da zero dalle righe.
+     */
+    static boolean rebuildRequired(int updatedRows) {
+        return updatedRows == 0;
+    }
+
+    /**
+     * Variazione da sommare a invoice_totals quando il contributo di una o più righe passa da "before" ad "after".
+     */
+    record TotalsDelta(BigDecimal net, BigDecimal vat, BigDecimal withholding, BigDecimal gross, BigDecimal payable,
+                       int lines) {
+
+        static TotalsDelta of(String directionCode, LineAmounts before, LineAmounts after, int lineCountDelta) {
+            return new TotalsDelta(
+                    after.net().subtract(before.net()),
+                    after.vat().subtract(before.vat()),
+                    after.withholding().subtract(before.withholding()),
+                    after.gross().subtract(before.gross()),
+                    after.payable(directionCode).subtract(before.payable(directionCode)),
+                    lineCountDelta);
+        }
+    }
+
+    private record RebuildChunk(long lastId, int size) {
+    }
+
+    private String directionCode(Invoice invoice) {
+        return Optional.ofNullable(referenceResolver.dictionaryValue(invoice.getDirection()))
+                .map(InvoiceDirection::getCode)
+                .orElse(null);
+    }
+}
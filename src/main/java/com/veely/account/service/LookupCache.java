@@ -0,0 +1,160 @@
+package com.veely.account.service;
+
+import com.veely.account.config.LookupCacheProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache in-process delle liste di riferimento servite da LookupService.
+ * Una voce per tipo di lista (quindi limitata per costruzione), ognuna con uno snapshot
+ * immutabile, un TTL e un numero di versione: l'invalidazione incrementa la versione e uno
+ * snapshot caricato con una versione precedente non viene più servito.
+ * <p>
+ * Come MeterBinder espone per tipo i contatori hit/miss già mantenuti e la durata dei caricamenti
+ * dal database ({@code veely.lookups.load}, anche a cache disabilitata).
+ */
+@Component
+@RequiredArgsConstructor
+public class LookupCache implements MeterBinder {
+
+    public enum Kind {
+        COUNTERPARTY_KINDS,
+        COUNTERPARTIES,
+        INVOICE_DIRECTIONS,
+        INVOICE_STATUSES,
+        VAT_CODES,
+        ACCOUNTS,
+        WITHHOLDING_TYPES
+    }
+
+    private final LookupCacheProperties properties;
+    private final Map<Kind, Slot> slots = new EnumMap<>(Kind.class);
+
+    {
+        for (Kind kind : Kind.values()) {
+            slots.put(kind, new Slot());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Map.Entry<Kind, Slot> entry : slots.entrySet()) {
+            String kind = entry.getKey().name().toLowerCase(Locale.ROOT);
+            Slot slot = entry.getValue();
+            FunctionCounter.builder("veely.lookups.requests", slot.hits, LongAdder::sum)
+                    .description("Richieste alla cache delle liste di riferimento")
+                    .tags("kind", kind, "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("veely.lookups.requests", slot.misses, LongAdder::sum)
+                    .description("Richieste alla cache delle liste di riferimento")
+                    .tags("kind", kind, "result", "miss")
+                    .register(registry);
+            slot.loads = Timer.builder("veely.lookups.load")
+                    .description("Caricamento di una lista di riferimento dal database")
+                    .tag("kind", kind)
+                    .register(registry);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(Kind kind, Supplier<List<T>> loader) {
+        if (!properties.isEnabled()) {
+            return load(slots.get(kind), loader);
+        }
+        Slot slot = slots.get(kind);
+        Snapshot snapshot = slot.snapshot;
+        if (isValid(slot, snapshot)) {
+            slot.hits.increment();
+            return (List<T>) snapshot.values();
+        }
+        synchronized (slot) {
+            snapshot = slot.snapshot;
+            if (isValid(slot, snapshot)) {
+                slot.hits.increment();
+                return (List<T>) snapshot.values();
+            }
+            slot.misses.increment();
+            long version = slot.version.get();
+            List<T> values = List.copyOf(load(slot, loader));
+            slot.snapshot = new Snapshot(version, System.nanoTime(), values);
+            return values;
+        }
+    }
+
+    public void invalidate(Kind kind) {
+        Slot slot = slots.get(kind);
+        slot.version.incrementAndGet();
+        slot.snapshot = null;
+    }
+
+    public void invalidateAll() {
+        for (Kind kind : Kind.values()) {
+            invalidate(kind);
+        }
+    }
+
+    /**
+     * Le scritture pubblicano l'evento dentro la transazione: invalidare solo dopo il commit evita
+     * che una lettura concorrente ricarichi i dati vecchi con la versione nuova.
+     * Senza transazione attiva (es. import JDBC) l'invalidazione è immediata.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLookupsChanged(LookupsChangedEvent event) {
+        event.kinds().forEach(this::invalidate);
+    }
+
+    public List<Stats> stats() {
+        List<Stats> stats = new ArrayList<>();
+        long now = System.nanoTime();
+        for (Map.Entry<Kind, Slot> entry : slots.entrySet()) {
+            Slot slot = entry.getValue();
+            Snapshot snapshot = slot.snapshot;
+            stats.add(new Stats(entry.getKey(),
+                    slot.hits.sum(),
+                    slot.misses.sum(),
+                    slot.version.get(),
+                    snapshot != null ? snapshot.values().size() : 0,
+                    snapshot != null ? (now - snapshot.loadedAt()) / 1_000_000_000L : -1));
+        }
+        return stats;
+    }
+
+    private static <T> List<T> load(Slot slot, Supplier<List<T>> loader) {
+        Timer loads = slot.loads;
+        return loads != null ? loads.record(loader) : loader.get();
+    }
+
+    private boolean isValid(Slot slot, Snapshot snapshot) {
+        return snapshot != null
+                && snapshot.version() == slot.version.get()
+                && System.nanoTime() - snapshot.loadedAt() < properties.getTtl().toNanos();
+    }
+
+    private static final class Slot {
+        private final AtomicLong version = new AtomicLong();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private volatile Snapshot snapshot;
+        private volatile Timer loads;
+    }
+
+    private record Snapshot(long version, long loadedAt, List<?> values) {
+    }
+
+    public record Stats(Kind kind, long hits, long misses, long version, int size, long ageSeconds) {
+    }
+}
@@ -14,6 +14,7 @@ import com.veely.account.repository.InvoiceDirectionRepository;
 import com.veely.account.repository.InvoiceStatusRepository;
 import com.veely.account.repository.VatCodeRepository;
 import com.veely.account.repository.WithholdingTypeRepository;
+import com.veely.account.service.LookupCache.Kind;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Sort;
@@ -31,34 +32,43 @@ public class LookupService {
     private final InvoiceStatusRepository invoiceStatusRepository;
     private final VatCodeRepository vatCodeRepository;
     private final WithholdingTypeRepository withholdingTypeRepository;
-    
-    
+    private final LookupCache lookupCache;
+
+    // Le liste restituite sono snapshot immutabili condivisi tra le richieste (entità detached):
+    // vanno solo lette, mai modificate.
 
     public List<CounterpartyKind> listCounterpartyKinds() {
-        return counterpartyKindRepository.findAll(Sort.by(Sort.Direction.ASC, "description"));
+        return lookupCache.get(Kind.COUNTERPARTY_KINDS,
+                () -> counterpartyKindRepository.findAll(Sort.by(Sort.Direction.ASC, "description")));
     }
     
     public List<Counterparty> listCounterparties() {
-        return counterpartyRepository.findAll(Sort.by(Sort.Direction.ASC, "name"));
+        return lookupCache.get(Kind.COUNTERPARTIES,
+                () -> counterpartyRepository.findAll(Sort.by(Sort.Direction.ASC, "name")));
     }
 
     public List<InvoiceDirection> listInvoiceDirections() {
-        return invoiceDirectionRepository.findAll(Sort.by(Sort.Direction.ASC, "description"));
+        return lookupCache.get(Kind.INVOICE_DIRECTIONS,
+                () -> invoiceDirectionRepository.findAll(Sort.by(Sort.Direction.ASC, "description")));
     }
 
     public List<InvoiceStatus> listInvoiceStatuses() {
-        return invoiceStatusRepository.findAll(Sort.by(Sort.Direction.ASC, "description"));
+        return lookupCache.get(Kind.INVOICE_STATUSES,
+                () -> invoiceStatusRepository.findAll(Sort.by(Sort.Direction.ASC, "description")));
     }
 
     public List<VatCode> listVatCodes() {
-        return vatCodeRepository.findAll(Sort.by(Sort.Direction.ASC, "code"));
+        return lookupCache.get(Kind.VAT_CODES,
+                () -> vatCodeRepository.findAll(Sort.by(Sort.Direction.ASC, "code")));
     }
 
     public List<Account> listAccounts() {
-        return accountRepository.findAll(Sort.by(Sort.Direction.ASC, "code"));
+        return lookupCache.get(Kind.ACCOUNTS,
+                () -> accountRepository.findAll(Sort.by(Sort.Direction.ASC, "code")));
     }
 
     public List<WithholdingType> listWithholdingTypes() {
-        return withholdingTypeRepository.findAll(Sort.by(Sort.Direction.ASC, "code"));
+        return lookupCache.get(Kind.WITHHOLDING_TYPES,
+                () -> withholdingTypeRepository.findAll(Sort.by(Sort.Direction.ASC, "code")));
     }
 }
@@ -0,0 +1,14 @@
+package com.veely.account.service;
+
+import java.util.Set;
+
+/**
+ * Pubblicato quando cambiano i dati di una o più liste di riferimento;
+ * LookupCache invalida gli snapshot relativi dopo il commit.
+ */
+public record LookupsChangedEvent(Set<LookupCache.Kind> kinds) {
+
+    public static LookupsChangedEvent of(LookupCache.Kind... kinds) {
+        return new LookupsChangedEvent(Set.of(kinds));
+    }
+}
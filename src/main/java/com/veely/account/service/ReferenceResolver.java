@@ -0,0 +1,286 @@
+package com.veely.account.service;
+
+import com.veely.account.domain.Account;
+import com.veely.account.domain.Counterparty;
+import com.veely.account.domain.InvoiceDirection;
+import com.veely.account.domain.InvoiceStatus;
+import com.veely.account.domain.VatCode;
+import com.veely.account.domain.WithholdingType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Risolve le chiavi esterne di una scrittura (testata o righe fattura) con al più una query.
+ * <ul>
+ *     <li>direzioni, stati, codici IVA e ritenute sono validati sugli snapshot di LookupService
+ *     (indicizzati per id), quindi senza accessi al database;</li>
+ *     <li>controparti e conti vengono verificati tutti insieme con una sola SELECT multi-tabella.</li>
+ * </ul>
+ * In entrambi i casi si ottengono reference lazy (solo la FK, nessuna idratazione).
+ * Gli id non trovati producono le stesse EntityNotFoundException ("... non trovato: id") di prima.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReferenceResolver {
+
+    public enum Type {
+        DIRECTION(InvoiceDirection.class, "invoice_directions", "Direzione non trovata: ", LookupCache.Kind.INVOICE_DIRECTIONS),
+        STATUS(InvoiceStatus.class, "invoice_statuses", "Stato non trovato: ", LookupCache.Kind.INVOICE_STATUSES),
+        COUNTERPARTY(Counterparty.class, "counterparties", "Controparte non trovata: ", null),
+        VAT_CODE(VatCode.class, "vat_codes", "Codice IVA non trovato: ", LookupCache.Kind.VAT_CODES),
+        ACCOUNT(Account.class, "accounts", "Conto non trovato: ", null),
+        WITHHOLDING_TYPE(WithholdingType.class, "withholding_types", "Tipologia ritenuta non trovata: ", LookupCache.Kind.WITHHOLDING_TYPES);
+
+        private final Class<?> entityClass;
+        private final String table;
+        private final String notFoundMessage;
+        private final LookupCache.Kind lookupKind;
+
+        Type(Class<?> entityClass, String table, String notFoundMessage, LookupCache.Kind lookupKind) {
+            this.entityClass = entityClass;
+            this.table = table;
+            this.notFoundMessage = notFoundMessage;
+            this.lookupKind = lookupKind;
+        }
+    }
+
+    private final LookupService lookupService;
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Type, IndexedSnapshot> indexes = new EnumMap<>(Type.class);
+
+    public Request request() {
+        return new Request();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (Type type : Type.values()) {
+            if (type.lookupKind != null) {
+                index(type);
+            }
+        }
+    }
+
+    /**
+     * Valori del dizionario in cache per un riferimento (anche proxy non inizializzato) da usare
+     * in sola lettura, es. per le aliquote nel calcolo dei totali; se l'id non è nello snapshot
+     * restituisce il riferimento stesso.
+     */
+    public VatCode dictionaryValue(VatCode reference) {
+        return dictionaryValue(Type.VAT_CODE, reference, reference != null ? reference.getId() : null, VatCode.class);
+    }
+
+    public WithholdingType dictionaryValue(WithholdingType reference) {
+        return dictionaryValue(Type.WITHHOLDING_TYPE, reference, reference != null ? reference.getId() : null, WithholdingType.class);
+    }
+
+    public InvoiceDirection dictionaryValue(InvoiceDirection reference) {
+        return dictionaryValue(Type.DIRECTION, reference, reference != null ? reference.getId() : null, InvoiceDirection.class);
+    }
+
+    private <T> T dictionaryValue(Type type, T reference, Long id, Class<T> entityClass) {
+        if (id == null) {
+            return reference;
+        }
+        Object cached = index(type).get(id);
+        return cached != null ? entityClass.cast(cached) : reference;
+    }
+
+    private Resolved resolve(Request request) {
+        Map<Type, Set<Long>> found = new EnumMap<>(Type.class);
+        Map<Type, Set<Long>> toCheck = new EnumMap<>(Type.class);
+
+        request.ids.forEach((type, ids) -> {
+            Set<Long> resolved = new HashSet<>();
+            found.put(type, resolved);
+            if (type.lookupKind != null) {
+                Map<Long, ?> index = index(type);
+                for (Long id : ids) {
+                    if (index.containsKey(id)) {
+                        resolved.add(id);
+                    } else {
+                        toCheck.computeIfAbsent(type, t -> new HashSet<>()).add(id);
+                    }
+                }
+            } else {
+                toCheck.put(type, ids);
+            }
+        });
+
+        if (!toCheck.isEmpty()) {
+            Set<LookupCache.Kind> stale = new HashSet<>();
+            for (Map.Entry<Type, Long> existing : findExisting(toCheck)) {
+                Type type = existing.getKey();
+                found.get(type).add(existing.getValue());
+                if (type.lookupKind != null) {
+                    // voce di dizionario creata dopo lo snapshot: va ricaricato
+                    stale.add(type.lookupKind);
+                }
+            }
+            if (!stale.isEmpty()) {
+                eventPublisher.publishEvent(new LookupsChangedEvent(stale));
+            }
+        }
+        return new Resolved(found);
+    }
+
+    /**
+     * Una sola SELECT con un ramo UNION ALL per tabella: restituisce le coppie (tipo, id) esistenti.
+     */
+    private List<Map.Entry<Type, Long>> findExisting(Map<Type, Set<Long>> toCheck) {
+        StringBuilder sql = new StringBuilder();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        for (Map.Entry<Type, Set<Long>> entry : toCheck.entrySet()) {
+            Type type = entry.getKey();
+            if (!sql.isEmpty()) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT ").append(type.ordinal()).append(" AS ref_type, id FROM ").append(type.table)
+                    .append(" WHERE id IN (:").append(type.name()).append(')');
+            params.addValue(type.name(), entry.getValue());
+        }
+        Type[] types = Type.values();
+        return jdbc.query(sql.toString(), params,
+                (rs, rowNum) -> Map.entry(types[rs.getInt("ref_type")], rs.getLong("id")));
+    }
+
+    private Map<Long, ?> index(Type type) {
+        List<?> values = switch (type.lookupKind) {
+            case INVOICE_DIRECTIONS -> lookupService.listInvoiceDirections();
+            case INVOICE_STATUSES -> lookupService.listInvoiceStatuses();
+            case VAT_CODES -> lookupService.listVatCodes();
+            case WITHHOLDING_TYPES -> lookupService.listWithholdingTypes();
+            default -> throw new IllegalStateException("Lookup non indicizzabile: " + type);
+        };
+        synchronized (indexes) {
+            IndexedSnapshot current = indexes.get(type);
+            // LookupCache restituisce la stessa istanza finché lo snapshot è valido
+            if (current == null || current.source() != values) {
+                current = new IndexedSnapshot(values, indexById(values));
+                indexes.put(type, current);
+            }
+            return current.byId();
+        }
+    }
+
+    private static Map<Long, Object> indexById(List<?> values) {
+        Map<Long, Object> byId = new HashMap<>(values.size() * 2);
+        for (Object value : values) {
+            Long id = switch (value) {
+                case InvoiceDirection d -> d.getId();
+                case InvoiceStatus s -> s.getId();
+                case VatCode v -> v.getId();
+                case WithholdingType w -> w.getId();
+                default -> throw new IllegalStateException("Tipo non previsto: " + value.getClass());
+            };
+            byId.put(id, value);
+        }
+        return Map.copyOf(byId);
+    }
+
+    private record IndexedSnapshot(List<?> source, Map<Long, Object> byId) {
+    }
+
+    /**
+     * Raccoglie gli id da risolvere; null viene ignorato (riferimento facoltativo non valorizzato).
+     */
+    public final class Request {
+
+        private final Map<Type, Set<Long>> ids = new EnumMap<>(Type.class);
+
+        private Request() {
+        }
+
+        public Request add(Type type, Long id) {
+            if (id != null) {
+                ids.computeIfAbsent(type, t -> new LinkedHashSet<>()).add(id);
+            }
+            return this;
+        }
+
+        public <T> Request add(Type type, T reference, Function<T, Long> idGetter) {
+            return add(type, reference != null ? idGetter.apply(reference) : null);
+        }
+
+        public Resolved resolve() {
+            return ReferenceResolver.this.resolve(this);
+        }
+    }
+
+    /**
+     * Id validati: i getter restituiscono reference gestite dal contesto di persistenza
+     * (getReference, nessuna query), mai le istanze condivise degli snapshot.
+     */
+    public final class Resolved {
+
+        private final Map<Type, Set<Long>> found;
+
+        private Resolved(Map<Type, Set<Long>> found) {
+            this.found = found;
+        }
+
+        public InvoiceDirection direction(Long id) {
+            return get(Type.DIRECTION, id, InvoiceDirection.class);
+        }
+
+        public InvoiceStatus status(Long id) {
+            return get(Type.STATUS, id, InvoiceStatus.class);
+        }
+
+        public Counterparty counterparty(Long id) {
+            return get(Type.COUNTERPARTY, id, Counterparty.class);
+        }
+
+        public VatCode vatCode(Long id) {
+            return get(Type.VAT_CODE, id, VatCode.class);
+        }
+
+        public Account account(Long id) {
+            return get(Type.ACCOUNT, id, Account.class);
+        }
+
+        public WithholdingType withholdingType(Long id) {
+            return get(Type.WITHHOLDING_TYPE, id, WithholdingType.class);
+        }
+
+        /**
+         * true se l'id è stato trovato (o è null); per validare molti riferimenti raccogliendo
+         * tutti gli errori invece di fermarsi al primo.
+         */
+        public boolean contains(Type type, Long id) {
+            return id == null || found.getOrDefault(type, Set.of()).contains(id);
+        }
+
+        private <T> T get(Type type, Long id, Class<T> entityClass) {
+            if (id == null) {
+                return null;
+            }
+            if (!found.getOrDefault(type, Set.of()).contains(id)) {
+                throw new EntityNotFoundException(type.notFoundMessage + id);
+            }
+            return entityManager.getReference(entityClass, id);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.veely.account.service;
+
+import java.util.Set;
+
+/**
+ * Pubblicato dall'import dei dizionari quando cambiano aliquota IVA, aliquota o imponibile di una ritenuta;
+ * InvoiceTotalsService ricalcola dopo il commit i totali delle fatture che usano quei codici.
+ */
+public record TaxRatesChangedEvent(Set<Long> vatCodeIds, Set<Long> withholdingTypeIds) {
+}
@@ -0,0 +1,15 @@
+package com.veely.account.service.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class BulkLinesResult {
+
+    private final Long invoiceId;
+
+    private final int inserted;
+
+    private final InvoiceTotals totals;
+}
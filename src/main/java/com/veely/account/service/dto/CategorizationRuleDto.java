@@ -0,0 +1,45 @@
+package com.veely.account.service.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CategorizationRuleDto {
+
+    private Long id;
+
+    @NotBlank(message = "Il nome è obbligatorio")
+    @Size(max = 100)
+    private String name;
+
+    @NotNull(message = "La categoria è obbligatoria")
+    private Long categoryId;
+
+    @Size(max = 255)
+    private String keyword;
+
+    @Size(max = 500)
+    private String pattern;
+
+    private BigDecimal minAmount;
+
+    private BigDecimal maxAmount;
+
+    private Long counterpartyId;
+
+    private Integer priority;
+
+    private Boolean active;
+}
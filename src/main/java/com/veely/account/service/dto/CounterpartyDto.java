@@ -2,6 +2,7 @@ package com.veely.account.service.dto;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -40,5 +41,21 @@ public class CounterpartyDto {
     @Size(max = 50)
     private String iban;
 
+    @Size(max = 255)
+    private String address;
+
+    @Size(max = 10)
+    private String postalCode;
+
+    @Size(max = 100)
+    private String city;
+
+    @Size(max = 2)
+    private String province;
+
+    /** Vuoto = IT. */
+    @Pattern(regexp = "([A-Za-z]{2})?", message = "Il paese è un codice ISO di due lettere (es. IT)")
+    private String country;
+
     private String notes;
 }
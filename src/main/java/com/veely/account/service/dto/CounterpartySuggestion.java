@@ -0,0 +1,7 @@
+package com.veely.account.service.dto;
+
+/**
+ * Voce restituita dal typeahead controparti.
+ */
+public record CounterpartySuggestion(Long id, String name, String vatNumber, String taxCode) {
+}
@@ -0,0 +1,37 @@
+package com.veely.account.service.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Posizione di keyset sulla lista fatture: ordinamento (issue_date DESC, id DESC).
+ * Viene serializzata in un token opaco URL-safe da passare nei parametri "after"/"before".
+ */
+public record InvoiceCursor(LocalDate issueDate, Long id) {
+
+    public String encode() {
+        String raw = issueDate + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un token; restituisce null se il token è assente o non valido
+     * (in quel caso la lista riparte dalla prima pagina).
+     */
+    public static InvoiceCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep < 0) {
+                return null;
+            }
+            return new InvoiceCursor(LocalDate.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.veely.account.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Riga dell'inserimento massivo. I riferimenti si indicano per id oppure per codice
+ * (come nelle righe incollate da un foglio di calcolo); se ci sono entrambi vale l'id.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InvoiceLineInput {
+
+    private String description;
+
+    private BigDecimal netAmount;
+
+    private Long vatCodeId;
+
+    private String vatCode;
+
+    private Long accountId;
+
+    private String accountCode;
+
+    private Long withholdingTypeId;
+
+    private String withholdingCode;
+}
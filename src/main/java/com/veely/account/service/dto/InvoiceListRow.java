@@ -0,0 +1,21 @@
+package com.veely.account.service.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Riga in sola lettura della lista fatture: colonne di testata più le descrizioni
+ * delle lookup e il nome della controparte, lette con un'unica query in join.
+ */
+public record InvoiceListRow(
+        Long id,
+        String number,
+        Integer year,
+        LocalDate issueDate,
+        LocalDate dueDate,
+        String directionCode,
+        String directionDescription,
+        String statusCode,
+        String statusDescription,
+        Long counterpartyId,
+        String counterpartyName) {
+}
@@ -0,0 +1,48 @@
+package com.veely.account.service.dto;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pagina della lista fatture con i token di navigazione keyset.
+ * nextCursor/previousCursor sono null quando non esiste una pagina in quella direzione.
+ */
+public record InvoicePage<T>(List<T> content, String nextCursor, String previousCursor, int pageSize) {
+
+    /**
+     * Pagina da {@code rows}, lette con limite {@code pageSize + 1} nell'ordine della query: la riga in più
+     * dice che in quella direzione c'è altro. {@code fromCursor} indica se la lettura partiva da un cursore,
+     * {@code backward} se andava all'indietro (le righe sono riportate nell'ordine della lista).
+     * {@code rows} deve essere modificabile.
+     */
+    public static <T> InvoicePage<T> of(List<T> rows, int pageSize, boolean fromCursor, boolean backward,
+                                        Function<T, InvoiceCursor> cursorOf) {
+        boolean more = rows.size() > pageSize;
+        if (more) {
+            rows.subList(pageSize, rows.size()).clear();
+        }
+        if (backward) {
+            Collections.reverse(rows);
+        }
+        if (rows.isEmpty()) {
+            return new InvoicePage<>(rows, null, null, pageSize);
+        }
+
+        InvoiceCursor first = cursorOf.apply(rows.get(0));
+        InvoiceCursor last = cursorOf.apply(rows.get(rows.size() - 1));
+        // in avanti: c'è una pagina successiva se abbiamo letto una riga in più, una precedente se partivamo da un cursore;
+        // all'indietro il ragionamento è speculare
+        String next = (backward || more) ? last.encode() : null;
+        String previous = backward ? (more ? first.encode() : null) : (fromCursor ? first.encode() : null);
+        return new InvoicePage<>(rows, next, previous, pageSize);
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.veely.account.service.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.util.StringJoiner;
+
+/**
+ * Filtri della ricerca fatture (gli stessi parametri della lista /invoices).
+ */
+@Getter
+@Builder
+public class InvoiceSearchCriteria {
+
+    private final String directionCode;
+    private final Long statusId;
+    private final Long counterpartyId;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final String q;
+
+    /**
+     * Nomi dei filtri usati, in ordine fisso ("direction,status,..." oppure "none"): mai i valori,
+     * così resta utilizzabile come tag di metriche ed eventi.
+     */
+    public String filterNames() {
+        StringJoiner used = new StringJoiner(",");
+        if (StringUtils.hasText(directionCode)) used.add("direction");
+        if (statusId != null) used.add("status");
+        if (counterpartyId != null) used.add("counterparty");
+        if (from != null || to != null) used.add("period");
+        if (StringUtils.hasText(q)) used.add("text");
+        return used.length() > 0 ? used.toString() : "none";
+    }
+}
@@ -0,0 +1,103 @@
+package com.veely.account.timing;
+
+import java.util.Locale;
+
+/**
+ * Tempi di una richiesta HTTP, raccolti sul thread che la serve: istruzioni SQL (numero e durata),
+ * esecuzione dell'handler (controller e servizi) e render della vista.
+ * <p>
+ * I tempi SQL arrivano da {@link TimingDataSource} solo mentre la richiesta è attiva sul thread;
+ * il lavoro asincrono (export in streaming) non viene attribuito alla richiesta.
+ */
+public final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private int sqlCount;
+    private long sqlNanos;
+    private long handlerStart;
+    private long handlerEnd;
+    private long renderStart;
+    private long renderEnd;
+    private long endNanos;
+
+    private RequestTiming() {
+    }
+
+    static RequestTiming start() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    void sql(long nanos) {
+        sqlCount++;
+        sqlNanos += nanos;
+    }
+
+    void handlerStarted() {
+        handlerStart = System.nanoTime();
+    }
+
+    void handlerFinished() {
+        if (handlerEnd == 0) handlerEnd = System.nanoTime();
+    }
+
+    void renderStarted() {
+        renderStart = System.nanoTime();
+    }
+
+    void renderFinished() {
+        if (renderStart != 0 && renderEnd == 0) renderEnd = System.nanoTime();
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    int sqlCount() {
+        return sqlCount;
+    }
+
+    double sqlMillis() {
+        return millis(sqlNanos);
+    }
+
+    /** Handler al netto dell'SQL, fino all'istante {@code now} se non è ancora terminato. */
+    double serviceMillis(long now) {
+        if (handlerStart == 0) return 0;
+        long handler = (handlerEnd != 0 ? handlerEnd : now) - handlerStart;
+        return millis(Math.max(0, handler - sqlNanos));
+    }
+
+    double viewMillis(long now) {
+        if (renderStart == 0) return 0;
+        return millis((renderEnd != 0 ? renderEnd : now) - renderStart);
+    }
+
+    double totalMillis(long now) {
+        return millis((endNanos != 0 ? endNanos : now) - startNanos);
+    }
+
+    /**
+     * Valore dell'header Server-Timing con i tempi misurati fino a {@code now}.
+     */
+    String header(long now) {
+        return String.format(Locale.ROOT,
+                "db;dur=%.1f;desc=\"%d query\", app;dur=%.1f, view;dur=%.1f, total;dur=%.1f",
+                sqlMillis(), sqlCount, serviceMillis(now), viewMillis(now), totalMillis(now));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+}
@@ -0,0 +1,64 @@
+package com.veely.account.timing;
+
+import com.veely.account.config.ServerTimingProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Apre la {@link RequestTiming} della richiesta, scrive l'header Server-Timing
+ * (db, app, view, total) e logga le richieste più lente di {@code veely.server-timing.log-threshold}.
+ * <p>
+ * Le fasi handler e vista sono segnate da {@link ServerTimingInterceptor}. Se la richiesta termina
+ * con un'eccezione il corpo trattenuto viene scartato: la pagina d'errore la scrive il container.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String RESPONSE_ATTRIBUTE = ServerTimingFilter.class.getName() + ".response";
+
+    private final ServerTimingProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTiming timing = RequestTiming.start();
+        ServerTimingResponse timed = new ServerTimingResponse(response, timing,
+                (int) Math.min(Integer.MAX_VALUE, properties.getBufferSize().toBytes()));
+        request.setAttribute(RESPONSE_ATTRIBUTE, timed);
+        boolean completed = false;
+        try {
+            chain.doFilter(request, timed);
+            completed = true;
+        } finally {
+            RequestTiming.clear();
+            timing.finish();
+            if (request.isAsyncStarted()) {
+                timed.passThrough();
+            } else if (completed) {
+                timed.complete();
+            }
+            logIfSlow(request, response, timing);
+        }
+    }
+
+    private void logIfSlow(HttpServletRequest request, HttpServletResponse response, RequestTiming timing) {
+        long now = System.nanoTime();
+        double total = timing.totalMillis(now);
+        if (total < properties.getLogThreshold().toMillis() || request.isAsyncStarted()) {
+            return;
+        }
+        log.warn(String.format(Locale.ROOT,
+                "⏱️ Richiesta lenta method=%s uri=%s status=%d total_ms=%.1f sql_count=%d sql_ms=%.1f service_ms=%.1f view_ms=%.1f",
+                request.getMethod(), request.getRequestURI(), response.getStatus(), total,
+                timing.sqlCount(), timing.sqlMillis(), timing.serviceMillis(now), timing.viewMillis(now)));
+    }
+}
@@ -0,0 +1,73 @@
+package com.veely.account.timing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpEntity;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Segna su {@link RequestTiming} le fasi dell'handler (controller e servizi) e del render della vista.
+ * Per gli handler asincroni o in streaming la risposta passa subito al client senza header.
+ */
+public class ServerTimingInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return true;
+        }
+        if (handler instanceof HandlerMethod method && isAsync(method)
+                && request.getAttribute(ServerTimingFilter.RESPONSE_ATTRIBUTE) instanceof ServerTimingResponse timed) {
+            timed.passThrough();
+        }
+        timing.handlerStarted();
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return;
+        }
+        timing.handlerFinished();
+        if (modelAndView != null && !modelAndView.wasCleared()) {
+            timing.renderStarted();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return;
+        }
+        timing.handlerFinished();
+        timing.renderFinished();
+    }
+
+    private static boolean isAsync(HandlerMethod method) {
+        ResolvableType type = ResolvableType.forMethodParameter(method.getReturnType());
+        if (HttpEntity.class.isAssignableFrom(type.toClass())) {
+            type = type.as(HttpEntity.class).getGeneric(0);
+        }
+        Class<?> body = type.toClass();
+        return StreamingResponseBody.class.isAssignableFrom(body)
+                || ResponseBodyEmitter.class.isAssignableFrom(body)
+                || Callable.class.isAssignableFrom(body)
+                || DeferredResult.class.isAssignableFrom(body)
+                || WebAsyncTask.class.isAssignableFrom(body)
+                || CompletionStage.class.isAssignableFrom(body);
+    }
+}
@@ -0,0 +1,204 @@
+package com.veely.account.timing;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Risposta che trattiene il corpo finché i tempi non sono noti, per poter scrivere l'header
+ * Server-Timing prima del commit.
+ * <p>
+ * Il corpo parte verso il client alla fine della richiesta, al primo flush (le viste e i message
+ * converter fanno flush a fine scrittura, gli export in streaming durante) oppure quando supera
+ * {@code bufferSize}; in questi ultimi casi l'header riporta i tempi misurati fino a quel momento.
+ */
+final class ServerTimingResponse extends HttpServletResponseWrapper {
+
+    static final String HEADER = "Server-Timing";
+
+    private final RequestTiming timing;
+    private final int bufferSize;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+    private boolean committed;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    ServerTimingResponse(HttpServletResponse response, RequestTiming timing, int bufferSize) {
+        super(response);
+        this.timing = timing;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Da qui in poi il corpo va direttamente al client, senza header: per le risposte asincrone
+     * o in streaming i tempi della richiesta non dicono nulla di utile.
+     */
+    void passThrough() throws IOException {
+        if (!committed) {
+            committed = true;
+            buffer.writeTo(getResponse().getOutputStream());
+            buffer.reset();
+        }
+    }
+
+    /**
+     * Fine della richiesta: header con i tempi finali e corpo trattenuto verso il client.
+     */
+    void complete() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        commit();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() già chiamato su questa risposta");
+        }
+        if (outputStream == null) {
+            outputStream = new TimingOutputStream(getResponse().getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (outputStream != null && writer == null) {
+            throw new IllegalStateException("getOutputStream() già chiamato su questa risposta");
+        }
+        if (writer == null) {
+            outputStream = new TimingOutputStream(getResponse().getOutputStream());
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else if (outputStream != null) {
+            outputStream.flush();
+        }
+        commit();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (!committed) {
+            buffer.reset();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if (!committed) {
+            buffer.reset();
+        }
+        super.reset();
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        buffer.reset();
+        commitHeader();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        buffer.reset();
+        commitHeader();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        buffer.reset();
+        commitHeader();
+        super.sendRedirect(location);
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        // il buffer è il nostro: quello del container servirebbe solo a committare prima
+    }
+
+    private void commitHeader() {
+        if (!committed) {
+            committed = true;
+            if (!super.isCommitted()) {
+                setHeader(HEADER, timing.header(System.nanoTime()));
+            }
+        }
+    }
+
+    private void commit() throws IOException {
+        if (committed) {
+            return;
+        }
+        commitHeader();
+        if (buffer.size() > 0) {
+            buffer.writeTo(getResponse().getOutputStream());
+            buffer.reset();
+        }
+    }
+
+    private final class TimingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream target;
+
+        TimingOutputStream(ServletOutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (committed) {
+                target.write(b);
+                return;
+            }
+            buffer.write(b);
+            if (buffer.size() > bufferSize) {
+                commit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (committed) {
+                target.write(b, off, len);
+                return;
+            }
+            buffer.write(b, off, len);
+            if (buffer.size() > bufferSize) {
+                commit();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            commit();
+            target.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            target.setWriteListener(listener);
+        }
+    }
+}
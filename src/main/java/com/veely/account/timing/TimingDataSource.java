@@ -0,0 +1,89 @@
+package com.veely.account.timing;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource che misura le istruzioni SQL eseguite durante una richiesta HTTP (JPA e JdbcTemplate).
+ * <p>
+ * Le connessioni sono avvolte in un proxy solo se sul thread c'è una {@link RequestTiming} attiva:
+ * startup, job di import e lavoro asincrono ricevono la connessione del pool così com'è.
+ * Si misura l'esecuzione ({@code execute*}); lo scorrimento del ResultSet resta nel tempo applicativo.
+ * {@code unwrap}/{@code isWrapperFor} arrivano al pool, quindi le metriche Hikari restano collegate.
+ */
+public class TimingDataSource extends DelegatingDataSource {
+
+    public TimingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private static Connection wrap(Connection connection) {
+        if (RequestTiming.current() == null) {
+            return connection;
+        }
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            return switch (method.getName()) {
+                case "createStatement" -> proxy(Statement.class, new TimedStatement(result));
+                case "prepareStatement" -> proxy(PreparedStatement.class, new TimedStatement(result));
+                case "prepareCall" -> proxy(CallableStatement.class, new TimedStatement(result));
+                default -> result;
+            };
+        });
+    }
+
+    /**
+     * Cronometra i metodi {@code execute*} e li attribuisce alla richiesta attiva sul thread che esegue.
+     */
+    private record TimedStatement(Object target) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return TimingDataSource.invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return TimingDataSource.invoke(target, method, args);
+            } finally {
+                RequestTiming timing = RequestTiming.current();
+                if (timing != null) {
+                    timing.sql(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(TimingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+}
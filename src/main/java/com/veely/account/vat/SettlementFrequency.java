@@ -0,0 +1,19 @@
+package com.veely.account.vat;
+
+/**
+ * Periodicità della liquidazione IVA.
+ */
+public enum SettlementFrequency {
+    MONTHLY(1),
+    QUARTERLY(3);
+
+    private final int months;
+
+    SettlementFrequency(int months) {
+        this.months = months;
+    }
+
+    public int months() {
+        return months;
+    }
+}
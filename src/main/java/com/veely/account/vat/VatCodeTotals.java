@@ -0,0 +1,11 @@
+package com.veely.account.vat;
+
+import java.math.BigDecimal;
+
+/**
+ * Riepilogo di un registro per codice IVA: imponibile, imposta e numero di documenti.
+ * {@code vatCodeId} è null per le righe senza codice IVA.
+ */
+public record VatCodeTotals(Long vatCodeId, String code, String description, BigDecimal rate, String grouping,
+                            String nature, boolean reverseCharge, long documents, BigDecimal taxable, BigDecimal vat) {
+}
@@ -0,0 +1,11 @@
+package com.veely.account.vat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Registro IVA vendite (ACTIVE) o acquisti (PASSIVE) di un intervallo di date, con i totali per codice IVA.
+ */
+public record VatRegister(String direction, LocalDate from, LocalDate to,
+                          List<VatRegisterEntry> entries, List<VatCodeTotals> totals) {
+}
@@ -0,0 +1,12 @@
+package com.veely.account.vat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Riga di registro IVA: una fattura per ciascun codice IVA delle sue righe.
+ */
+public record VatRegisterEntry(long invoiceId, LocalDate issueDate, String number, int year,
+                               String counterpartyName, String vatNumber,
+                               String vatCode, BigDecimal rate, BigDecimal taxable, BigDecimal vat) {
+}
@@ -0,0 +1,371 @@
+package com.veely.account.vat;
+
+import com.veely.account.config.VatReportProperties;
+import com.veely.account.domain.VatCode;
+import com.veely.account.ledger.LedgerChangedEvent;
+import com.veely.account.ledger.LedgerPeriodKey;
+import com.veely.account.repository.VatCodeRepository;
+import com.veely.account.service.LookupCache;
+import com.veely.account.service.LookupsChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Registri IVA vendite/acquisti e liquidazioni periodiche.
+ * <p>
+ * La base di tutto sono gli aggregati mensili per direzione e codice IVA, calcolati in SQL sulle righe
+ * (IVA arrotondata riga per riga come in {@code InvoiceTotalsCalculator}); i dodici mesi di un anno sono
+ * interrogati in parallelo su un pool dedicato. Gli aggregati dei mesi chiusi (oltre
+ * {@code veely.vat.closing-days} dalla fine del mese) restano in cache e non sono più ricalcolati:
+ * a ogni richiesta si interrogano solo i mesi ancora aperti. Una modifica committata a fatture o righe
+ * ({@link LedgerChangedEvent}) scarta dalla cache i mesi toccati, un import dei codici IVA tutta la cache.
+ * Le fatture annullate sono escluse.
+ */
+@Slf4j
+@Service
+public class VatReportService {
+
+    public static final String SALES = "ACTIVE";
+    public static final String PURCHASES = "PASSIVE";
+
+    /** Sotto questa soglia il debito non si versa e passa al periodo successivo. */
+    private static final BigDecimal MIN_PAYMENT = new BigDecimal("25.82");
+    /** Interessi dell'1% sui versamenti trimestrali. */
+    private static final BigDecimal QUARTERLY_INTEREST = new BigDecimal("0.01");
+
+    private static final int IN_CHUNK = 500;
+
+    private static final String LINE_VAT = "ROUND(l.net_amount * COALESCE(v.rate, 0) / 100, 2)";
+
+    private static final String MONTH_SQL = """
+            SELECT d.code AS direction, l.vat_code_id,
+                   COUNT(DISTINCT i.id) AS documents, SUM(l.net_amount) AS taxable, SUM(%s) AS vat
+            FROM invoices i
+            JOIN invoice_directions d ON d.id = i.direction_id
+            JOIN invoice_statuses s ON s.id = i.status_id
+            JOIN invoice_lines l ON l.invoice_id = i.id
+            LEFT JOIN vat_codes v ON v.id = l.vat_code_id
+            WHERE i.issue_date >= ? AND i.issue_date < ? AND s.code <> 'CANCELLED'
+            GROUP BY d.code, l.vat_code_id""".formatted(LINE_VAT);
+
+    private static final String REGISTER_SQL = """
+            SELECT i.id, i.issue_date, i.number, i.year, c.name, c.vat_number,
+                   l.vat_code_id, v.code AS vat_code, v.rate,
+                   SUM(l.net_amount) AS taxable, SUM(%s) AS vat
+            FROM invoices i
+            JOIN invoice_directions d ON d.id = i.direction_id
+            JOIN invoice_statuses s ON s.id = i.status_id
+            JOIN counterparties c ON c.id = i.counterparty_id
+            JOIN invoice_lines l ON l.invoice_id = i.id
+            LEFT JOIN vat_codes v ON v.id = l.vat_code_id
+            WHERE d.code = ? AND i.issue_date >= ? AND i.issue_date <= ? AND s.code <> 'CANCELLED'
+            GROUP BY i.id, i.issue_date, i.number, i.year, c.name, c.vat_number, l.vat_code_id, v.code, v.rate
+            ORDER BY i.issue_date, i.id, v.code""".formatted(LINE_VAT);
+
+    private final JdbcTemplate jdbc;
+    private final VatCodeRepository vatCodeRepository;
+    private final VatReportProperties properties;
+    private final ExecutorService pool;
+    private final Map<YearMonth, List<MonthAggregate>> closedMonths = new ConcurrentHashMap<>();
+    /** Incrementato a ogni eviction: un mese letto prima di un'eviction non entra in cache. */
+    private long cacheGeneration;
+
+    public VatReportService(JdbcTemplate jdbc, VatCodeRepository vatCodeRepository, VatReportProperties properties) {
+        this.jdbc = jdbc;
+        this.vatCodeRepository = vatCodeRepository;
+        this.properties = properties;
+        this.pool = Executors.newFixedThreadPool(Math.max(1, properties.getWorkers()),
+                Thread.ofPlatform().name("vat-report-", 1).daemon().factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Aggregato di un mese per direzione e codice IVA ({@code vatCodeId} null = righe senza codice).
+     */
+    record MonthAggregate(String direction, Long vatCodeId, long documents, BigDecimal taxable, BigDecimal vat) {
+    }
+
+    /**
+     * Liquidazioni dell'anno: il credito iniziale è zero (il riporto dalla dichiarazione annuale non è gestito).
+     */
+    public VatSettlementReport settlement(int year, SettlementFrequency frequency) {
+        long start = System.nanoTime();
+        Map<YearMonth, List<MonthAggregate>> months = monthsOf(year);
+        Map<Long, VatCode> vatCodes = vatCodes();
+        List<VatSettlementPeriod> periods = settle(year, frequency, months, vatCodes, this::isClosed);
+
+        List<MonthAggregate> all = months.values().stream().flatMap(List::stream).toList();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        log.info("🧾 Liquidazione IVA {} {}: {} ms ({} mesi in cache).", year, frequency, elapsed,
+                months.keySet().stream().filter(closedMonths::containsKey).count());
+        return new VatSettlementReport(year, frequency, periods,
+                summarize(all, SALES, vatCodes), summarize(all, PURCHASES, vatCodes), elapsed);
+    }
+
+    /**
+     * Calcolo delle liquidazioni dagli aggregati mensili: riporto del credito, debito sotto
+     * {@link #MIN_PAYMENT} rinviato al periodo successivo e interessi trimestrali.
+     */
+    static List<VatSettlementPeriod> settle(int year, SettlementFrequency frequency, Map<YearMonth, List<MonthAggregate>> months,
+                                            Map<Long, VatCode> vatCodes, Predicate<YearMonth> closedMonth) {
+        List<VatSettlementPeriod> periods = new ArrayList<>();
+        BigDecimal carriedCredit = BigDecimal.ZERO;
+        BigDecimal carriedDebit = BigDecimal.ZERO;
+        for (int first = 1, number = 1; first <= 12; first += frequency.months(), number++) {
+            BigDecimal sales = BigDecimal.ZERO;
+            BigDecimal reverseCharge = BigDecimal.ZERO;
+            BigDecimal purchases = BigDecimal.ZERO;
+            boolean closed = true;
+            for (int m = first; m < first + frequency.months(); m++) {
+                YearMonth month = YearMonth.of(year, m);
+                closed &= closedMonth.test(month);
+                for (MonthAggregate a : months.getOrDefault(month, List.of())) {
+                    if (SALES.equals(a.direction())) {
+                        sales = sales.add(a.vat());
+                    } else if (PURCHASES.equals(a.direction())) {
+                        purchases = purchases.add(a.vat());
+                        VatCode code = a.vatCodeId() != null ? vatCodes.get(a.vatCodeId()) : null;
+                        if (code != null && Boolean.TRUE.equals(code.getReverseChargeRelevant())) {
+                            reverseCharge = reverseCharge.add(a.vat());
+                        }
+                    }
+                }
+            }
+
+            BigDecimal balance = sales.add(reverseCharge).subtract(purchases).subtract(carriedCredit).add(carriedDebit);
+            BigDecimal interest = BigDecimal.ZERO;
+            BigDecimal payable = BigDecimal.ZERO;
+            BigDecimal previousCredit = carriedCredit;
+            BigDecimal previousDebit = carriedDebit;
+            carriedCredit = BigDecimal.ZERO;
+            carriedDebit = BigDecimal.ZERO;
+            if (balance.signum() > 0) {
+                if (frequency == SettlementFrequency.QUARTERLY) {
+                    interest = balance.multiply(QUARTERLY_INTEREST).setScale(2, RoundingMode.HALF_UP);
+                }
+                if (balance.add(interest).compareTo(MIN_PAYMENT) < 0) {
+                    interest = BigDecimal.ZERO;
+                    carriedDebit = balance;
+                } else {
+                    payable = balance.add(interest);
+                }
+            } else {
+                carriedCredit = balance.negate();
+            }
+
+            YearMonth last = YearMonth.of(year, first + frequency.months() - 1);
+            periods.add(new VatSettlementPeriod(number, YearMonth.of(year, first).atDay(1), last.atEndOfMonth(), closed,
+                    sales, reverseCharge, purchases, previousCredit, previousDebit, balance, interest, payable));
+        }
+        return periods;
+    }
+
+    /**
+     * Registro IVA di una direzione (ACTIVE = vendite, PASSIVE = acquisti) tra {@code from} e {@code to} inclusi.
+     */
+    public VatRegister register(String direction, LocalDate from, LocalDate to) {
+        Map<Long, VatCode> vatCodes = vatCodes();
+        List<VatRegisterEntry> entries = new ArrayList<>();
+        List<MonthAggregate> rows = new ArrayList<>();
+        jdbc.query(REGISTER_SQL, rs -> {
+            Long vatCodeId = rs.getObject("vat_code_id", Long.class);
+            BigDecimal taxable = rs.getBigDecimal("taxable");
+            BigDecimal vat = rs.getBigDecimal("vat");
+            entries.add(new VatRegisterEntry(rs.getLong("id"), rs.getDate("issue_date").toLocalDate(),
+                    rs.getString("number"), rs.getInt("year"), rs.getString("name"), rs.getString("vat_number"),
+                    rs.getString("vat_code"), rs.getBigDecimal("rate"), taxable, vat));
+            rows.add(new MonthAggregate(direction, vatCodeId, 1, taxable, vat));
+        }, direction, Date.valueOf(from), Date.valueOf(to));
+        return new VatRegister(direction, from, to, entries, summarize(rows, direction, vatCodes));
+    }
+
+    /**
+     * Aggregati di tutti i mesi dell'anno: i chiusi dalla cache, gli altri interrogati in parallelo.
+     * I mesi futuri sono vuoti.
+     */
+    private Map<YearMonth, List<MonthAggregate>> monthsOf(int year) {
+        YearMonth current = YearMonth.now();
+        Map<YearMonth, CompletableFuture<List<MonthAggregate>>> futures = new LinkedHashMap<>();
+        for (int m = 1; m <= 12; m++) {
+            YearMonth month = YearMonth.of(year, m);
+            List<MonthAggregate> cached = closedMonths.get(month);
+            if (cached != null) {
+                futures.put(month, CompletableFuture.completedFuture(cached));
+            } else if (month.isAfter(current)) {
+                futures.put(month, CompletableFuture.completedFuture(List.of()));
+            } else {
+                futures.put(month, CompletableFuture.supplyAsync(() -> loadMonth(month), pool));
+            }
+        }
+        Map<YearMonth, List<MonthAggregate>> months = new LinkedHashMap<>();
+        try {
+            futures.forEach((month, future) -> months.put(month, future.join()));
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+        return months;
+    }
+
+    private List<MonthAggregate> loadMonth(YearMonth month) {
+        long generation;
+        synchronized (closedMonths) {
+            generation = cacheGeneration;
+        }
+        List<MonthAggregate> rows = jdbc.query(MONTH_SQL, (rs, i) -> new MonthAggregate(
+                        rs.getString("direction"),
+                        rs.getObject("vat_code_id", Long.class),
+                        rs.getLong("documents"),
+                        rs.getBigDecimal("taxable"),
+                        rs.getBigDecimal("vat")),
+                Date.valueOf(month.atDay(1)), Date.valueOf(month.plusMonths(1).atDay(1)));
+        if (isClosed(month)) {
+            synchronized (closedMonths) {
+                if (generation == cacheGeneration) {
+                    closedMonths.put(month, List.copyOf(rows));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private boolean isClosed(YearMonth month) {
+        return LocalDate.now().isAfter(month.atEndOfMonth().plusDays(properties.getClosingDays()));
+    }
+
+    /**
+     * Dopo il commit di una modifica a fatture o righe scarta dalla cache i mesi toccati: quelli di prima
+     * della modifica (dall'evento, per spostamenti di data e cancellazioni) e quelli attuali di emissione.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLedgerChanged(LedgerChangedEvent event) {
+        Set<YearMonth> months = new HashSet<>();
+        for (LedgerPeriodKey key : event.previous()) {
+            months.add(YearMonth.of(key.period() / 100, key.period() % 100));
+        }
+        if (!closedMonths.isEmpty()) {
+            months.addAll(issueMonths(event.invoiceIds()));
+        }
+        evict(months);
+    }
+
+    /**
+     * Un import dei codici IVA può cambiare aliquote già usate in mesi chiusi: la cache va svuotata.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLookupsChanged(LookupsChangedEvent event) {
+        if (event.kinds().contains(LookupCache.Kind.VAT_CODES)) {
+            evictClosedPeriods();
+        }
+    }
+
+    private Set<YearMonth> issueMonths(Collection<Long> invoiceIds) {
+        Set<YearMonth> months = new HashSet<>();
+        List<Long> ids = new ArrayList<>(invoiceIds);
+        for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + IN_CHUNK));
+            jdbc.query("SELECT DISTINCT issue_date FROM invoices WHERE id IN ("
+                            + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                    (RowCallbackHandler) rs -> months.add(YearMonth.from(rs.getDate(1).toLocalDate())), chunk.toArray());
+        }
+        return months;
+    }
+
+    private void evict(Collection<YearMonth> months) {
+        synchronized (closedMonths) {
+            cacheGeneration++;
+            closedMonths.keySet().removeAll(months);
+        }
+    }
+
+    /**
+     * Svuota la cache dei mesi chiusi, da usare dopo una rettifica di un periodo già liquidato.
+     */
+    public void evictClosedPeriods() {
+        synchronized (closedMonths) {
+            cacheGeneration++;
+            closedMonths.clear();
+        }
+    }
+
+    public int closedPeriodsCached() {
+        return closedMonths.size();
+    }
+
+    /**
+     * Letti dalla tabella a ogni richiesta (poche righe): il flag reverse charge deve essere quello attuale.
+     */
+    private Map<Long, VatCode> vatCodes() {
+        return vatCodeRepository.findAll().stream().collect(Collectors.toMap(VatCode::getId, Function.identity()));
+    }
+
+    private static List<VatCodeTotals> summarize(List<MonthAggregate> rows, String direction, Map<Long, VatCode> vatCodes) {
+        Map<Long, MonthAggregate> byCode = new HashMap<>();
+        boolean withoutCode = false;
+        MonthAggregate noCode = new MonthAggregate(direction, null, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+        for (MonthAggregate a : rows) {
+            if (!direction.equals(a.direction())) continue;
+            if (a.vatCodeId() == null) {
+                noCode = plus(noCode, a);
+                withoutCode = true;
+            } else {
+                byCode.merge(a.vatCodeId(), a, VatReportService::plus);
+            }
+        }
+        List<VatCodeTotals> totals = new ArrayList<>();
+        byCode.values().forEach(a -> totals.add(toTotals(a, vatCodes.get(a.vatCodeId()))));
+        totals.sort(Comparator.comparing(VatCodeTotals::code, Comparator.nullsLast(Comparator.naturalOrder())));
+        if (withoutCode) totals.add(toTotals(noCode, null));
+        return totals;
+    }
+
+    private static MonthAggregate plus(MonthAggregate a, MonthAggregate b) {
+        return new MonthAggregate(a.direction(), a.vatCodeId(), a.documents() + b.documents(),
+                a.taxable().add(b.taxable()), a.vat().add(b.vat()));
+    }
+
+    private static VatCodeTotals toTotals(MonthAggregate a, VatCode code) {
+        if (code == null) {
+            return new VatCodeTotals(a.vatCodeId(), null, "Senza codice IVA", null, null, null, false,
+                    a.documents(), a.taxable(), a.vat());
+        }
+        String nature = SALES.equals(a.direction()) ? code.getCustomNatureSales() : code.getCustomNaturePurchases();
+        return new VatCodeTotals(code.getId(), code.getCode(),
+                Objects.requireNonNullElse(code.getRegistryDescription(), code.getCode()),
+                code.getRate(), code.getVatGrouping(), nature, Boolean.TRUE.equals(code.getReverseChargeRelevant()),
+                a.documents(), a.taxable(), a.vat());
+    }
+}
@@ -0,0 +1,20 @@
+package com.veely.account.vat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Liquidazione di un periodo (mese o trimestre).
+ * <p>
+ * IVA a debito = vendite + integrazione dei reverse charge sugli acquisti; IVA a credito = acquisti.
+ * {@code balance} è il saldo del periodo comprensivo di crediti e debiti riportati (positivo = a debito),
+ * {@code payable} l'importo da versare (saldo più interessi trimestrali), zero se sotto la soglia minima:
+ * in quel caso il debito passa al periodo successivo.
+ *
+ * @param closed true se il periodo è chiuso (aggregati in cache, non più ricalcolati)
+ */
+public record VatSettlementPeriod(int number, LocalDate from, LocalDate to, boolean closed,
+                                  BigDecimal salesVat, BigDecimal reverseChargeVat, BigDecimal purchaseVat,
+                                  BigDecimal previousCredit, BigDecimal previousDebit,
+                                  BigDecimal balance, BigDecimal interest, BigDecimal payable) {
+}
@@ -0,0 +1,10 @@
+package com.veely.account.vat;
+
+import java.util.List;
+
+/**
+ * Liquidazioni IVA di un anno con i riepiloghi annuali per codice IVA dei registri vendite e acquisti.
+ */
+public record VatSettlementReport(int year, SettlementFrequency frequency, List<VatSettlementPeriod> periods,
+                                  List<VatCodeTotals> sales, List<VatCodeTotals> purchases, long elapsedMillis) {
+}
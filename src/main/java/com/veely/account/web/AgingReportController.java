@@ -0,0 +1,30 @@
+package com.veely.account.web;
+
+import com.veely.account.aging.AgingReport;
+import com.veely.account.aging.AgingReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+/**
+ * Scadenzario delle fatture aperte alla data {@code asOf} (default oggi).
+ */
+@RestController
+@RequestMapping("/aging")
+@RequiredArgsConstructor
+public class AgingReportController {
+
+    private final AgingReportService agingReportService;
+
+    @GetMapping
+    public AgingReport report(@RequestParam(name = "asOf", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf,
+                              @RequestParam(name = "direction", required = false) String direction,
+                              @RequestParam(name = "counterpartyId", required = false) Long counterpartyId) {
+        return agingReportService.report(asOf != null ? asOf : LocalDate.now(), direction, counterpartyId);
+    }
+}
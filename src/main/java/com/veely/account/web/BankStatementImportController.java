@@ -0,0 +1,64 @@
+package com.veely.account.web;
+
+import com.veely.account.imports.BankStatementImportService;
+import com.veely.account.imports.ImportJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Upload di un estratto conto (parte multipart {@code file}, CSV o camt.053) e polling dei job.
+ * {@code format} (CSV, CAMT053) serve solo se l'estensione non basta; {@code accountIban}
+ * se il file non riporta il conto. I movimenti già importati sono ignorati.
+ */
+@RestController
+@RequestMapping("/imports/bank-statements")
+@RequiredArgsConstructor
+public class BankStatementImportController {
+
+    private final BankStatementImportService bankStatementImportService;
+
+    @PostMapping
+    public ResponseEntity<ImportJob.Status> upload(@RequestParam("file") MultipartFile file,
+                                                   @RequestParam(name = "format", required = false) String format,
+                                                   @RequestParam(name = "accountIban", required = false) String accountIban) {
+        ImportJob job = bankStatementImportService.submit(file, format, accountIban);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(job.id()).toUri())
+                .body(job.status());
+    }
+
+    @GetMapping
+    public List<ImportJob.Status> list() {
+        return bankStatementImportService.recent().stream().map(ImportJob::status).toList();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJob.Status> status(@PathVariable String id) {
+        return bankStatementImportService.find(id)
+                .map(job -> ResponseEntity.ok(job.status()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Troppi import in coda, riprova più tardi");
+    }
+}
@@ -0,0 +1,69 @@
+package com.veely.account.web;
+
+import com.veely.account.categorization.BankCategorizationService;
+import com.veely.account.service.dto.CategorizationRuleDto;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regole di categorizzazione dei movimenti bancari (JSON) e applicazione massiva
+ * ai movimenti non ancora categorizzati.
+ */
+@RestController
+@RequestMapping("/categorization")
+@RequiredArgsConstructor
+public class CategorizationRuleController {
+
+    private final BankCategorizationService bankCategorizationService;
+
+    @GetMapping("/rules")
+    public List<CategorizationRuleDto> list() {
+        return bankCategorizationService.listRules();
+    }
+
+    @PostMapping("/rules")
+    public ResponseEntity<CategorizationRuleDto> create(@Valid @RequestBody CategorizationRuleDto dto) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(bankCategorizationService.create(dto));
+    }
+
+    @PutMapping("/rules/{id}")
+    public CategorizationRuleDto update(@PathVariable Long id, @Valid @RequestBody CategorizationRuleDto dto) {
+        return bankCategorizationService.update(id, dto);
+    }
+
+    @DeleteMapping("/rules/{id}")
+    public ResponseEntity<Void> delete(@PathVariable Long id) {
+        bankCategorizationService.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/apply")
+    public Map<String, Integer> apply() {
+        return Map.of("categorized", bankCategorizationService.applyToUncategorized());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<String> notFound(EntityNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+}
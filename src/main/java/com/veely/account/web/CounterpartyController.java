@@ -4,6 +4,7 @@ import com.veely.account.domain.Counterparty;
 import com.veely.account.service.CounterpartyService;
 import com.veely.account.service.LookupService;
 import com.veely.account.service.dto.CounterpartyDto;
+import com.veely.account.service.dto.CounterpartySuggestion;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -16,13 +17,18 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.List;
+
 @Controller
 @RequestMapping("/counterparties")
 @RequiredArgsConstructor
 public class CounterpartyController {
 
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final CounterpartyService counterpartyService;
     private final LookupService lookupService;
 
@@ -34,6 +40,13 @@ public class CounterpartyController {
         return "counterparties/list";
     }
 
+    @GetMapping("/suggest")
+    @ResponseBody
+    public List<CounterpartySuggestion> suggest(@RequestParam(name = "q", required = false) String q,
+                                                @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return counterpartyService.suggest(q, Math.min(limit, MAX_SUGGESTIONS));
+    }
+
     @GetMapping("/new")
     public String newCounterparty(Model model) {
         model.addAttribute("counterparty", new CounterpartyDto());
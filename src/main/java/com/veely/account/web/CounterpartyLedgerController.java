@@ -0,0 +1,36 @@
+package com.veely.account.web;
+
+import com.veely.account.ledger.CounterpartyLedger;
+import com.veely.account.ledger.CounterpartyLedgerService;
+import com.veely.account.repository.CounterpartyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Partitario di una controparte; le pagine successive si chiedono con il cursore "before" della risposta.
+ */
+@RestController
+@RequestMapping("/counterparties/{id}/ledger")
+@RequiredArgsConstructor
+public class CounterpartyLedgerController {
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private final CounterpartyLedgerService counterpartyLedgerService;
+    private final CounterpartyRepository counterpartyRepository;
+
+    @GetMapping
+    public ResponseEntity<CounterpartyLedger> ledger(@PathVariable long id,
+                                                     @RequestParam(name = "before", required = false) String before,
+                                                     @RequestParam(name = "size", defaultValue = "50") int size) {
+        if (!counterpartyRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(counterpartyLedgerService.ledger(id, before, Math.max(1, Math.min(size, MAX_PAGE_SIZE))));
+    }
+}
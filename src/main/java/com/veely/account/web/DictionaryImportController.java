@@ -0,0 +1,74 @@
+package com.veely.account.web;
+
+import com.veely.account.imports.DictionaryFile;
+import com.veely.account.imports.DictionaryImportService;
+import com.veely.account.imports.ImportJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Upload dei file dizionario (parti multipart accounts, vat, withholding; anche solo alcune)
+ * e polling dell'avanzamento dei job. {@code force=true} reimporta anche i file invariati,
+ * {@code deactivateMissing} sovrascrive veely.import.deactivate-missing. I limiti di dimensione sono quelli di spring.servlet.multipart.
+ */
+@RestController
+@RequestMapping("/imports/dictionaries")
+@RequiredArgsConstructor
+public class DictionaryImportController {
+
+    private final DictionaryImportService dictionaryImportService;
+
+    @PostMapping
+    public ResponseEntity<ImportJob.Status> upload(@RequestParam Map<String, MultipartFile> parts,
+                                                   @RequestParam(name = "force", defaultValue = "false") boolean force,
+                                                   @RequestParam(name = "deactivateMissing", required = false) Boolean deactivateMissing) {
+        Map<DictionaryFile, MultipartFile> uploads = new EnumMap<>(DictionaryFile.class);
+        for (DictionaryFile file : DictionaryFile.values()) {
+            MultipartFile part = parts.get(file.key());
+            if (part != null && !part.isEmpty()) {
+                uploads.put(file, part);
+            }
+        }
+        ImportJob job = dictionaryImportService.submit(uploads, dictionaryImportService.defaultOptions(force, deactivateMissing));
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(job.id()).toUri())
+                .body(job.status());
+    }
+
+    @GetMapping
+    public List<ImportJob.Status> list() {
+        return dictionaryImportService.recent().stream().map(ImportJob::status).toList();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJob.Status> status(@PathVariable String id) {
+        return dictionaryImportService.find(id)
+                .map(job -> ResponseEntity.ok(job.status()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Troppi import in coda, riprova più tardi");
+    }
+}
@@ -0,0 +1,61 @@
+package com.veely.account.web;
+
+import com.veely.account.imports.FatturaPaImportService;
+import com.veely.account.imports.ImportJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Upload delle fatture passive in formato FatturaPA (parte multipart {@code file}: zip dal canale SDI
+ * o singolo XML) e polling dei job. Le fatture già presenti sono ignorate.
+ */
+@RestController
+@RequestMapping("/imports/fatturapa")
+@RequiredArgsConstructor
+public class FatturaPaImportController {
+
+    private final FatturaPaImportService fatturaPaImportService;
+
+    @PostMapping
+    public ResponseEntity<ImportJob.Status> upload(@RequestParam("file") MultipartFile file) {
+        ImportJob job = fatturaPaImportService.submit(file);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(job.id()).toUri())
+                .body(job.status());
+    }
+
+    @GetMapping
+    public List<ImportJob.Status> list() {
+        return fatturaPaImportService.recent().stream().map(ImportJob::status).toList();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJob.Status> status(@PathVariable String id) {
+        return fatturaPaImportService.find(id)
+                .map(job -> ResponseEntity.ok(job.status()))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(ex.getMessage());
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Troppi import in coda, riprova più tardi");
+    }
+}
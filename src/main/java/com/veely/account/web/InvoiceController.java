@@ -2,8 +2,13 @@ package com.veely.account.web;
 
 import com.veely.account.domain.Invoice;
 import com.veely.account.domain.InvoiceLine;
+import com.veely.account.service.CounterpartyService;
 import com.veely.account.service.InvoiceService;
 import com.veely.account.service.LookupService;
+import com.veely.account.service.dto.CounterpartySuggestion;
+import com.veely.account.service.dto.InvoiceListRow;
+import com.veely.account.service.dto.InvoicePage;
+import com.veely.account.service.dto.InvoiceSearchCriteria;
 import com.veely.account.service.dto.InvoiceTotals;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
@@ -20,7 +25,6 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -31,6 +35,7 @@ public class InvoiceController {
 
     private final InvoiceService invoiceService;
     private final LookupService lookupService;
+    private final CounterpartyService counterpartyService;
 
     @GetMapping
     public String list(@RequestParam(name = "direction", required = false) String direction,
@@ -39,19 +44,33 @@ public class InvoiceController {
                        @RequestParam(name = "from", required = false) LocalDate from,
                        @RequestParam(name = "to", required = false) LocalDate to,
                        @RequestParam(name = "q", required = false) String q,
+                       @RequestParam(name = "after", required = false) String after,
+                       @RequestParam(name = "before", required = false) String before,
+                       @RequestParam(name = "size", required = false) Integer size,
                        Model model) {
-        List<Invoice> invoices = invoiceService.search(direction, statusId, counterpartyId, from, to, q);
-        Map<Long, InvoiceTotals> totals = invoiceService.calculateTotals(invoices);
+        InvoiceSearchCriteria criteria = InvoiceSearchCriteria.builder()
+                .directionCode(direction)
+                .statusId(statusId)
+                .counterpartyId(counterpartyId)
+                .from(from)
+                .to(to)
+                .q(q)
+                .build();
+        InvoicePage<InvoiceListRow> page = invoiceService.searchPage(criteria, after, before, size);
+        Map<Long, InvoiceTotals> totals = invoiceService.calculateListTotals(page.content());
 
         populateLookups(model);
-        model.addAttribute("invoices", invoices);
+        model.addAttribute("invoices", page.content());
+        model.addAttribute("page", page);
         model.addAttribute("totals", totals);
         model.addAttribute("direction", direction);
         model.addAttribute("status", statusId);
         model.addAttribute("counterpartyId", counterpartyId);
+        model.addAttribute("counterpartyName", counterpartyName(counterpartyId));
         model.addAttribute("from", from);
         model.addAttribute("to", to);
         model.addAttribute("q", q);
+        model.addAttribute("size", size);
         model.addAttribute("pageTitle", "Fatture");
         return "invoices/list";
     }
@@ -60,6 +79,7 @@ public class InvoiceController {
     public String newInvoice(Model model) {
         model.addAttribute("invoice", new Invoice());
         populateLookups(model);
+        populateCounterparty(model, null);
         model.addAttribute("pageTitle", "Nuova fattura");
         return "invoices/form";
     }
@@ -71,6 +91,7 @@ public class InvoiceController {
                          RedirectAttributes redirectAttributes) {
         if (bindingResult.hasErrors()) {
             populateLookups(model);
+            populateCounterparty(model, invoice);
             model.addAttribute("pageTitle", "Nuova fattura");
             return "invoices/form";
         }
@@ -86,6 +107,7 @@ public class InvoiceController {
             Invoice invoice = invoiceService.getOrThrow(id);
             model.addAttribute("invoice", invoice);
             populateLookups(model);
+            populateCounterparty(model, invoice);
             model.addAttribute("pageTitle", "Modifica fattura");
             return "invoices/form";
         } catch (EntityNotFoundException ex) {
@@ -102,6 +124,7 @@ public class InvoiceController {
                          RedirectAttributes redirectAttributes) {
         if (bindingResult.hasErrors()) {
             populateLookups(model);
+            populateCounterparty(model, invoice);
             model.addAttribute("pageTitle", "Modifica fattura");
             return "invoices/form";
         }
@@ -245,9 +268,22 @@ public class InvoiceController {
     private void populateLookups(Model model) {
         model.addAttribute("directions", lookupService.listInvoiceDirections());
         model.addAttribute("statuses", lookupService.listInvoiceStatuses());
-        model.addAttribute("counterparties", lookupService.listCounterparties());
         model.addAttribute("vatCodes", lookupService.listVatCodes());
         model.addAttribute("accounts", lookupService.listAccounts());
         model.addAttribute("withholdingTypes", lookupService.listWithholdingTypes());
     }
+
+    /**
+     * Le controparti non sono più caricate in blocco: il form riceve solo il nome di quella selezionata
+     * e le altre arrivano dal typeahead.
+     */
+    private void populateCounterparty(Model model, Invoice invoice) {
+        Long id = invoice != null && invoice.getCounterparty() != null ? invoice.getCounterparty().getId() : null;
+        model.addAttribute("counterpartyName", counterpartyName(id));
+    }
+
+    private String counterpartyName(Long id) {
+        CounterpartySuggestion suggestion = counterpartyService.findSuggestion(id);
+        return suggestion != null ? suggestion.name() : null;
+    }
 }
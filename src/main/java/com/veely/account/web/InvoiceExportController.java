@@ -0,0 +1,109 @@
+package com.veely.account.web;
+
+import com.veely.account.exports.FatturaPaExportService;
+import com.veely.account.exports.InvoiceSpreadsheetExportService;
+import com.veely.account.service.dto.InvoiceSearchCriteria;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Export delle fatture con gli stessi filtri della lista /invoices, scritti in streaming sulla risposta.
+ */
+@RestController
+@RequestMapping("/invoices")
+@RequiredArgsConstructor
+public class InvoiceExportController {
+
+    private static final MediaType XLSX = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+    private final FatturaPaExportService fatturaPaExportService;
+    private final InvoiceSpreadsheetExportService spreadsheetExportService;
+
+    /**
+     * Zip con una FatturaPA per ogni fattura attiva che rispetta i filtri.
+     */
+    @GetMapping("/export/fatturapa")
+    public ResponseEntity<StreamingResponseBody> fatturaPa(@RequestParam(name = "status", required = false) Long statusId,
+                                                           @RequestParam(name = "counterpartyId", required = false) Long counterpartyId,
+                                                           @RequestParam(name = "from", required = false) LocalDate from,
+                                                           @RequestParam(name = "to", required = false) LocalDate to,
+                                                           @RequestParam(name = "q", required = false) String q) {
+        InvoiceSearchCriteria criteria = criteria(null, statusId, counterpartyId, from, to, q);
+        fatturaPaExportService.checkCompany();
+        fatturaPaExportService.checkInvoices(criteria);
+        StreamingResponseBody body = out -> fatturaPaExportService.export(criteria, out);
+        return attachment("fatture-" + LocalDate.now() + ".zip", MediaType.parseMediaType("application/zip"), body);
+    }
+
+    /**
+     * Lista fatture in Excel; con {@code lines=true} una riga per ogni riga fattura.
+     */
+    @GetMapping("/export.xlsx")
+    public ResponseEntity<StreamingResponseBody> xlsx(@RequestParam(name = "direction", required = false) String direction,
+                                                      @RequestParam(name = "status", required = false) Long statusId,
+                                                      @RequestParam(name = "counterpartyId", required = false) Long counterpartyId,
+                                                      @RequestParam(name = "from", required = false) LocalDate from,
+                                                      @RequestParam(name = "to", required = false) LocalDate to,
+                                                      @RequestParam(name = "q", required = false) String q,
+                                                      @RequestParam(name = "lines", defaultValue = "false") boolean lines) {
+        return spreadsheet(InvoiceSpreadsheetExportService.Format.XLSX, XLSX,
+                criteria(direction, statusId, counterpartyId, from, to, q), lines);
+    }
+
+    @GetMapping("/export.csv")
+    public ResponseEntity<StreamingResponseBody> csv(@RequestParam(name = "direction", required = false) String direction,
+                                                     @RequestParam(name = "status", required = false) Long statusId,
+                                                     @RequestParam(name = "counterpartyId", required = false) Long counterpartyId,
+                                                     @RequestParam(name = "from", required = false) LocalDate from,
+                                                     @RequestParam(name = "to", required = false) LocalDate to,
+                                                     @RequestParam(name = "q", required = false) String q,
+                                                     @RequestParam(name = "lines", defaultValue = "false") boolean lines) {
+        return spreadsheet(InvoiceSpreadsheetExportService.Format.CSV, CSV,
+                criteria(direction, statusId, counterpartyId, from, to, q), lines);
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> notConfigured(IllegalStateException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
+    private ResponseEntity<StreamingResponseBody> spreadsheet(InvoiceSpreadsheetExportService.Format format, MediaType mediaType,
+                                                              InvoiceSearchCriteria criteria, boolean lines) {
+        StreamingResponseBody body = out -> spreadsheetExportService.export(criteria, lines, format, out);
+        String fileName = (lines ? "righe-fatture-" : "fatture-") + LocalDate.now() + "." + format.name().toLowerCase(Locale.ROOT);
+        return attachment(fileName, mediaType, body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> attachment(String fileName, MediaType mediaType, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    private static InvoiceSearchCriteria criteria(String direction, Long statusId, Long counterpartyId,
+                                                  LocalDate from, LocalDate to, String q) {
+        return InvoiceSearchCriteria.builder()
+                .directionCode(direction)
+                .statusId(statusId)
+                .counterpartyId(counterpartyId)
+                .from(from)
+                .to(to)
+                .q(q)
+                .build();
+    }
+}
@@ -0,0 +1,55 @@
+package com.veely.account.web;
+
+import com.veely.account.service.InvoiceLineTsv;
+import com.veely.account.service.InvoiceService;
+import com.veely.account.service.InvoiceService.InvoiceLineValidationException;
+import com.veely.account.service.dto.BulkLinesResult;
+import com.veely.account.service.dto.InvoiceLineInput;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserimento massivo di righe fattura: elenco JSON di {@link InvoiceLineInput} oppure testo
+ * incollato da un foglio di calcolo (text/plain, colonne separate da tab, vedi {@link InvoiceLineTsv}).
+ * Tutto o niente: con un errore su una riga non viene inserita nessuna riga e la risposta
+ * elenca tutti gli errori.
+ */
+@RestController
+@RequestMapping("/invoices/{invoiceId}/lines/bulk")
+@RequiredArgsConstructor
+public class InvoiceLineBulkController {
+
+    private final InvoiceService invoiceService;
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkLinesResult> addJson(@PathVariable Long invoiceId, @RequestBody List<InvoiceLineInput> lines) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(invoiceService.addLines(invoiceId, lines));
+    }
+
+    @PostMapping(consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<BulkLinesResult> addPasted(@PathVariable Long invoiceId, @RequestBody String text) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(invoiceService.addLines(invoiceId, InvoiceLineTsv.parse(text)));
+    }
+
+    @ExceptionHandler(InvoiceLineValidationException.class)
+    public ResponseEntity<Map<String, List<String>>> invalid(InvoiceLineValidationException ex) {
+        return ResponseEntity.badRequest().body(Map.of("errors", ex.getErrors()));
+    }
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<String> notFound(EntityNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+}
@@ -0,0 +1,68 @@
+package com.veely.account.web;
+
+import com.veely.account.reconciliation.ReconciliationResult;
+import com.veely.account.reconciliation.ReconciliationService;
+import com.veely.account.reconciliation.ReviewItem;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Avvio della riconciliazione banca/fatture (facoltativamente limitata alle date contabili
+ * {@code from}-{@code to}) e gestione della coda di revisione.
+ */
+@RestController
+@RequestMapping("/reconciliation")
+@RequiredArgsConstructor
+public class ReconciliationController {
+
+    private static final int MAX_REVIEWS = 500;
+
+    private final ReconciliationService reconciliationService;
+
+    @PostMapping("/run")
+    public ReconciliationResult run(@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                    @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return reconciliationService.reconcile(from, to);
+    }
+
+    @GetMapping("/reviews")
+    public List<ReviewItem> reviews(@RequestParam(name = "limit", defaultValue = "100") int limit) {
+        return reconciliationService.pendingReviews(Math.max(1, Math.min(limit, MAX_REVIEWS)));
+    }
+
+    @PostMapping("/reviews/{bankTransactionId}/confirm")
+    public ResponseEntity<Void> confirm(@PathVariable long bankTransactionId, @RequestParam(name = "invoiceId") long invoiceId) {
+        reconciliationService.confirm(bankTransactionId, invoiceId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/reviews/{bankTransactionId}/dismiss")
+    public ResponseEntity<Void> dismiss(@PathVariable long bankTransactionId, @RequestParam(name = "invoiceId", required = false) Long invoiceId) {
+        return reconciliationService.dismiss(bankTransactionId, invoiceId) > 0
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<String> notFound(EntityNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> conflict(IllegalStateException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+}
@@ -0,0 +1,64 @@
+package com.veely.account.web;
+
+import com.veely.account.vat.SettlementFrequency;
+import com.veely.account.vat.VatRegister;
+import com.veely.account.vat.VatReportService;
+import com.veely.account.vat.VatSettlementReport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Liquidazioni IVA dell'anno e registri IVA vendite/acquisti.
+ */
+@RestController
+@RequestMapping("/vat")
+@RequiredArgsConstructor
+public class VatReportController {
+
+    private static final long MAX_REGISTER_DAYS = 366;
+
+    private final VatReportService vatReportService;
+
+    @GetMapping("/settlement")
+    public VatSettlementReport settlement(@RequestParam(name = "year") int year,
+                                          @RequestParam(name = "frequency", defaultValue = "MONTHLY") SettlementFrequency frequency) {
+        return vatReportService.settlement(year, frequency);
+    }
+
+    /**
+     * {@code /vat/registers/sales} o {@code /vat/registers/purchases}, al massimo un anno per richiesta.
+     */
+    @GetMapping("/registers/{register}")
+    public ResponseEntity<VatRegister> register(@PathVariable String register,
+                                                @RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        String direction = switch (register) {
+            case "sales" -> VatReportService.SALES;
+            case "purchases" -> VatReportService.PURCHASES;
+            default -> null;
+        };
+        if (direction == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_REGISTER_DAYS) {
+            throw new IllegalArgumentException("Intervallo non valido: al massimo un anno, con from <= to");
+        }
+        return ResponseEntity.ok(vatReportService.register(direction, from, to));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+}
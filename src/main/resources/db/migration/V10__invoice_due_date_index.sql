@@ -0,0 +1,6 @@
+-- ============================================================================
+-- V10__invoice_due_date_index.sql
+-- Scadenzario: le fatture aperte si leggono per stato e scadenza
+-- ============================================================================
+
+CREATE INDEX idx_invoices_status_due ON invoices(status_id, due_date);
@@ -0,0 +1,39 @@
+-- ============================================================================
+-- V11__counterparty_ledger_periods.sql
+-- Saldi per controparte e mese (partitario): fatture non annullate al netto a pagare
+-- (attive +, passive -) e movimenti bancari collegati (col segno opposto all'importo).
+-- Il saldo progressivo è la somma dei mesi; mantenuta in modo incrementale dall'applicazione
+-- ============================================================================
+
+CREATE TABLE counterparty_ledger_periods (
+    counterparty_id BIGINT NOT NULL,
+    period INT NOT NULL,                          -- anno * 100 + mese
+    invoiced DECIMAL(14,2) NOT NULL DEFAULT 0,
+    settled DECIMAL(14,2) NOT NULL DEFAULT 0,
+    invoice_count INT NOT NULL DEFAULT 0,
+    movement_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (counterparty_id, period),
+    CONSTRAINT fk_ledger_counterparty
+        FOREIGN KEY (counterparty_id) REFERENCES counterparties(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- movimenti della controparte di una fattura (dettaglio del partitario)
+CREATE INDEX idx_bank_linked_invoice ON bank_transactions(linked_invoice_id, booking_date);
+
+INSERT INTO counterparty_ledger_periods (counterparty_id, period, invoiced, invoice_count)
+SELECT i.counterparty_id, YEAR(i.issue_date) * 100 + MONTH(i.issue_date),
+       SUM(CASE WHEN d.code = 'PASSIVE' THEN -COALESCE(t.payable_total, 0) ELSE COALESCE(t.payable_total, 0) END),
+       COUNT(*)
+FROM invoices i
+JOIN invoice_directions d ON d.id = i.direction_id
+JOIN invoice_statuses s ON s.id = i.status_id
+LEFT JOIN invoice_totals t ON t.invoice_id = i.id
+WHERE s.code <> 'CANCELLED'
+GROUP BY i.counterparty_id, YEAR(i.issue_date) * 100 + MONTH(i.issue_date);
+
+INSERT INTO counterparty_ledger_periods (counterparty_id, period, settled, movement_count)
+SELECT i.counterparty_id, YEAR(b.booking_date) * 100 + MONTH(b.booking_date), SUM(-b.amount), COUNT(*)
+FROM bank_transactions b
+JOIN invoices i ON i.id = b.linked_invoice_id
+GROUP BY i.counterparty_id, YEAR(b.booking_date) * 100 + MONTH(b.booking_date)
+ON DUPLICATE KEY UPDATE settled = VALUES(settled), movement_count = VALUES(movement_count);
@@ -0,0 +1,11 @@
+-- ============================================================================
+-- V12__counterparty_address.sql
+-- Sede della controparte: obbligatoria per il CessionarioCommittente delle FatturaPA esportate
+-- ============================================================================
+
+ALTER TABLE counterparties
+    ADD COLUMN address VARCHAR(255) NULL,
+    ADD COLUMN postal_code VARCHAR(10) NULL,
+    ADD COLUMN city VARCHAR(100) NULL,
+    ADD COLUMN province VARCHAR(2) NULL,
+    ADD COLUMN country VARCHAR(2) NOT NULL DEFAULT 'IT';
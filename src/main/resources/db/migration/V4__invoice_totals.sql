@@ -0,0 +1,45 @@
+-- ============================================================================
+-- V4__invoice_totals.sql
+-- Totali fattura precalcolati, aggiornati in modo incrementale dal servizio
+-- a ogni modifica di righe/testata (la lista non rilegge più le righe)
+-- ============================================================================
+
+CREATE TABLE invoice_totals (
+    invoice_id BIGINT PRIMARY KEY,
+    net_total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    vat_total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    withholding_total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    gross_total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    payable_total DECIMAL(14,2) NOT NULL DEFAULT 0,
+    line_count INT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    CONSTRAINT fk_totals_invoice
+        FOREIGN KEY (invoice_id) REFERENCES invoices(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Backfill: stesse regole di arrotondamento del calcolo applicativo
+-- (IVA e ritenuta arrotondate HALF_UP a 2 decimali riga per riga)
+INSERT INTO invoice_totals (invoice_id, net_total, vat_total, withholding_total, gross_total, payable_total, line_count)
+SELECT i.id,
+       COALESCE(t.net_total, 0),
+       COALESCE(t.vat_total, 0),
+       COALESCE(t.withholding_total, 0),
+       COALESCE(t.net_total, 0) + COALESCE(t.vat_total, 0),
+       COALESCE(t.net_total, 0) + COALESCE(t.vat_total, 0)
+           - CASE WHEN UPPER(d.code) = 'PASSIVE' THEN COALESCE(t.withholding_total, 0) ELSE 0 END,
+       COALESCE(t.line_count, 0)
+FROM invoices i
+JOIN invoice_directions d ON d.id = i.direction_id
+LEFT JOIN (
+    SELECT l.invoice_id,
+           SUM(l.net_amount) AS net_total,
+           SUM(ROUND(l.net_amount * COALESCE(v.rate, 0) / 100, 2)) AS vat_total,
+           SUM(CASE WHEN w.rate IS NULL THEN 0
+                    ELSE ROUND(ROUND(l.net_amount * COALESCE(w.taxable_percent, 100) / 100, 2) * w.rate / 100, 2)
+               END) AS withholding_total,
+           COUNT(*) AS line_count
+    FROM invoice_lines l
+    LEFT JOIN vat_codes v ON v.id = l.vat_code_id
+    LEFT JOIN withholding_types w ON w.id = l.withholding_type_id
+    GROUP BY l.invoice_id
+) t ON t.invoice_id = i.id;
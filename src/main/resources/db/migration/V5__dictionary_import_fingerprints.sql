@@ -0,0 +1,23 @@
+-- ============================================================================
+-- V5__dictionary_import_fingerprints.sql
+-- Impronte per il re-import incrementale dei dizionari: per file (file invariato
+-- = import saltato) e per riga (solo righe nuove o modificate vengono scritte)
+-- ============================================================================
+
+CREATE TABLE dictionary_imports (
+    dictionary VARCHAR(30) PRIMARY KEY,
+    file_hash CHAR(64) NOT NULL,
+    file_name VARCHAR(255) NULL,
+    row_count INT NOT NULL DEFAULT 0,
+    imported_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- SHA-256 dei valori importati; NULL sulle righe esistenti = riscritte al primo import
+ALTER TABLE accounts
+  ADD COLUMN import_hash CHAR(64) NULL;
+
+ALTER TABLE vat_codes
+  ADD COLUMN import_hash CHAR(64) NULL;
+
+ALTER TABLE withholding_types
+  ADD COLUMN import_hash CHAR(64) NULL;
@@ -0,0 +1,13 @@
+-- ============================================================================
+-- V6__bank_transaction_import.sql
+-- Campi per l'import degli estratti conto (CSV, CAMT.053): conto, controparte
+-- come riportata dalla banca e impronta del movimento per il re-import idempotente
+-- ============================================================================
+
+ALTER TABLE bank_transactions
+  ADD COLUMN account_iban VARCHAR(34) NULL,
+  ADD COLUMN counterparty_name VARCHAR(255) NULL,
+  ADD COLUMN counterparty_iban VARCHAR(34) NULL,
+  ADD COLUMN fingerprint CHAR(64) NULL;
+
+CREATE UNIQUE INDEX uq_bank_fingerprint ON bank_transactions(fingerprint);
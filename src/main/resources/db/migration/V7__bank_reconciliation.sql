@@ -0,0 +1,20 @@
+-- ============================================================================
+-- V7__bank_reconciliation.sql
+-- Coda di revisione della riconciliazione banca/fatture: abbinamenti proposti
+-- con punteggio sotto la soglia di collegamento automatico
+-- ============================================================================
+
+CREATE TABLE bank_reconciliation_reviews (
+    bank_transaction_id BIGINT NOT NULL,
+    invoice_id BIGINT NOT NULL,
+    score INT NOT NULL,
+    dismissed BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (bank_transaction_id, invoice_id),
+    CONSTRAINT fk_review_bank
+        FOREIGN KEY (bank_transaction_id) REFERENCES bank_transactions(id) ON DELETE CASCADE,
+    CONSTRAINT fk_review_invoice
+        FOREIGN KEY (invoice_id) REFERENCES invoices(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_review_invoice ON bank_reconciliation_reviews(invoice_id);
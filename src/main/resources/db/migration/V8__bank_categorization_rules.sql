@@ -0,0 +1,27 @@
+-- ============================================================================
+-- V8__bank_categorization_rules.sql
+-- Regole di categorizzazione automatica dei movimenti bancari: parola chiave,
+-- espressione regolare, intervallo di importo e controparte (in AND tra loro)
+-- ============================================================================
+
+CREATE TABLE bank_categorization_rules (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    category_id BIGINT NOT NULL,
+    keyword VARCHAR(255) NULL,
+    pattern VARCHAR(500) NULL,
+    min_amount DECIMAL(12,2) NULL,
+    max_amount DECIMAL(12,2) NULL,
+    counterparty_id BIGINT NULL,
+    priority INT NOT NULL DEFAULT 100,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    CONSTRAINT fk_rule_category
+        FOREIGN KEY (category_id) REFERENCES bank_transaction_categories(id),
+    CONSTRAINT fk_rule_counterparty
+        FOREIGN KEY (counterparty_id) REFERENCES counterparties(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- la categorizzazione massiva scorre i movimenti non categorizzati per id
+CREATE INDEX idx_bank_category ON bank_transactions(category_id, id);
@@ -0,0 +1,14 @@
+-- ============================================================================
+-- V9__invoice_line_id_pool.sql
+-- Generatore di id a blocchi per invoice_lines: con IDENTITY Hibernate deve
+-- eseguire ogni INSERT subito per leggere la chiave e non può raggrupparle in batch.
+-- La tabella contiene il prossimo limite superiore del blocco (allocationSize = 100):
+-- il primo blocco parte dopo l'id più alto già presente.
+-- ============================================================================
+
+CREATE TABLE invoice_lines_seq (
+    next_val BIGINT NOT NULL
+);
+
+INSERT INTO invoice_lines_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 101 FROM invoice_lines;
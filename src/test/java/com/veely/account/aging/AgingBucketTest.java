@@ -0,0 +1,55 @@
+package com.veely.account.aging;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Assegnazione delle fasce dello scadenzario: estremi inclusi (30, 60, 90 giorni) e scadenza
+ * mancante sostituita dalla data di emissione.
+ */
+class AgingBucketTest {
+
+    private static final LocalDate AS_OF = LocalDate.of(2024, 6, 30);
+
+    @Test
+    void notYetDueOrDueTodayIsCurrent() {
+        assertThat(AgingBucket.of(AS_OF.plusDays(10), null, AS_OF)).isEqualTo(AgingBucket.CURRENT);
+        assertThat(AgingBucket.of(AS_OF, null, AS_OF)).isEqualTo(AgingBucket.CURRENT);
+    }
+
+    @Test
+    void boundariesBelongToTheLowerBucket() {
+        assertThat(bucket(1)).isEqualTo(AgingBucket.DAYS_30);
+        assertThat(bucket(30)).isEqualTo(AgingBucket.DAYS_30);
+        assertThat(bucket(31)).isEqualTo(AgingBucket.DAYS_60);
+        assertThat(bucket(60)).isEqualTo(AgingBucket.DAYS_60);
+        assertThat(bucket(61)).isEqualTo(AgingBucket.DAYS_90);
+        assertThat(bucket(90)).isEqualTo(AgingBucket.DAYS_90);
+        assertThat(bucket(91)).isEqualTo(AgingBucket.OVER_90);
+        assertThat(bucket(3650)).isEqualTo(AgingBucket.OVER_90);
+    }
+
+    @Test
+    void daysAreCountedAcrossMonthsAndLeapYears() {
+        // 31 gennaio -> 1 marzo 2024: 30 giorni (febbraio bisestile)
+        assertThat(AgingBucket.of(LocalDate.of(2024, 1, 31), null, LocalDate.of(2024, 3, 1)))
+                .isEqualTo(AgingBucket.DAYS_30);
+        assertThat(AgingBucket.of(LocalDate.of(2024, 1, 31), null, LocalDate.of(2024, 3, 2)))
+                .isEqualTo(AgingBucket.DAYS_60);
+    }
+
+    @Test
+    void missingDueDateFallsBackToIssueDate() {
+        LocalDate issued = AS_OF.minusDays(45);
+
+        assertThat(AgingBucket.of(null, issued, AS_OF)).isEqualTo(AgingBucket.DAYS_60);
+        assertThat(AgingBucket.of(AS_OF.plusDays(30), issued, AS_OF)).isEqualTo(AgingBucket.CURRENT);
+    }
+
+    private static AgingBucket bucket(int daysOverdue) {
+        return AgingBucket.of(AS_OF.minusDays(daysOverdue), AS_OF.minusDays(daysOverdue + 30), AS_OF);
+    }
+}
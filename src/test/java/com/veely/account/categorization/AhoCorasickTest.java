@@ -0,0 +1,107 @@
+package com.veely.account.categorization;
+
+import com.veely.account.service.CounterpartySearchIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Automa delle parole chiave: occorrenze sovrapposte e ripetute, normalizzazione del testo grezzo
+ * durante la scansione e confronto con una ricerca ingenua sul testo normalizzato (seme fisso).
+ */
+class AhoCorasickTest {
+
+    private static final String ALPHABET = "abcdeABE019 .-/àèÉçÜ";
+
+    @Test
+    void findsOverlappingAndRepeatedPatterns() {
+        AhoCorasick automaton = new AhoCorasick(List.of("he", "she", "his", "hers"));
+
+        assertThat(matches(automaton, "ushers")).containsExactly(1, 0, 3);
+        assertThat(matches(automaton, "hehe")).containsExactly(0, 0);
+        assertThat(matches(automaton, "xyz")).isEmpty();
+    }
+
+    @Test
+    void foldsCaseAccentsAndSeparatorsWhileScanning() {
+        AhoCorasick automaton = new AhoCorasick(List.of(
+                CategorizationRules.keyword("Bonifico SEPA"),
+                CategorizationRules.keyword("caffè"),
+                CategorizationRules.keyword("POS")));
+
+        assertThat(matches(automaton, "BONIFICO---  sepa a favore di")).containsExactly(0);
+        assertThat(matches(automaton, "Bar: CAFFÈ e brioche")).containsExactly(1);
+        assertThat(matches(automaton, "PAG. POS 1234")).containsExactly(2);
+    }
+
+    @Test
+    void keywordsMatchOnlyAtWordStart() {
+        AhoCorasick automaton = new AhoCorasick(List.of(CategorizationRules.keyword("pos")));
+
+        assertThat(matches(automaton, "DEPOSITO CAUZIONALE")).isEmpty();
+        assertThat(matches(automaton, "POSTE ITALIANE")).containsExactly(0);
+        assertThat(matches(automaton, "pos")).containsExactly(0);
+    }
+
+    @Test
+    void agreesWithNaiveSearchOnNormalizedText() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int round = 0; round < 200; round++) {
+            List<String> patterns = new ArrayList<>();
+            for (int p = 0; p < 1 + random.nextInt(20); p++) {
+                String normalized = CounterpartySearchIndex.normalize(text(random, 1 + random.nextInt(4)));
+                if (!normalized.isEmpty()) patterns.add(random.nextBoolean() ? " " + normalized : normalized);
+            }
+            if (patterns.isEmpty()) continue;
+            AhoCorasick automaton = new AhoCorasick(patterns);
+            for (int t = 0; t < 20; t++) {
+                String text = text(random, random.nextInt(40));
+                assertThat(countMatches(automaton, text)).as(patterns + " in '" + text + "'")
+                        .isEqualTo(naive(patterns, text));
+            }
+        }
+    }
+
+    private static List<Integer> matches(AhoCorasick automaton, String text) {
+        List<Integer> ids = new ArrayList<>();
+        automaton.match(text, ids::add);
+        return ids;
+    }
+
+    private static int[] countMatches(AhoCorasick automaton, String text) {
+        List<Integer> ids = matches(automaton, text);
+        int[] counts = new int[ids.stream().mapToInt(Integer::intValue).max().orElse(-1) + 1];
+        for (int id : ids) counts[id]++;
+        return trim(counts);
+    }
+
+    /** Occorrenze (anche sovrapposte) di ogni pattern nel testo normalizzato con uno spazio in testa e in coda. */
+    private static int[] naive(List<String> patterns, String text) {
+        String normalized = CounterpartySearchIndex.normalize(text);
+        String haystack = normalized.isEmpty() ? " " : " " + normalized + " ";
+        int[] counts = new int[patterns.size()];
+        for (int id = 0; id < patterns.size(); id++) {
+            for (int from = haystack.indexOf(patterns.get(id)); from >= 0; from = haystack.indexOf(patterns.get(id), from + 1)) {
+                counts[id]++;
+            }
+        }
+        return trim(counts);
+    }
+
+    private static int[] trim(int[] counts) {
+        int length = counts.length;
+        while (length > 0 && counts[length - 1] == 0) length--;
+        return Arrays.copyOf(counts, length);
+    }
+
+    private static String text(SplittableRandom random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.veely.account.exports;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Celle del CSV: quoting di separatore, virgolette e a capo, formato di date e importi,
+ * e neutralizzazione del testo che Excel leggerebbe come formula.
+ */
+class CsvSinkTest {
+
+    @Test
+    void quotesDelimitersQuotesAndNewlines() throws IOException {
+        assertThat(row(List.of("a;b", "di \"Rossi\"", "riga 1\nriga 2", "semplice")))
+                .isEqualTo("\"a;b\";\"di \"\"Rossi\"\"\";\"riga 1\nriga 2\";semplice\r\n");
+    }
+
+    @Test
+    void prefixesFormulaLikeText() throws IOException {
+        assertThat(row(List.of("=HYPERLINK(\"http://x\")", "+39 333", "-5", "@SUM(A1)", "\tx", "a=b", "")))
+                .isEqualTo("\"'=HYPERLINK(\"\"http://x\"\")\";'+39 333;'-5;'@SUM(A1);'\tx;a=b;\r\n");
+    }
+
+    @Test
+    void writesItalianDatesAndAmounts() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvSink sink = new CsvSink(out);
+        sink.startRow();
+        sink.date(LocalDate.of(2024, 3, 5));
+        sink.amount(new BigDecimal("-1234.5"));
+        sink.integer(7L);
+        sink.text(null);
+        sink.endRow();
+        sink.finish();
+
+        assertThat(content(out)).isEqualTo("05/03/2024;-1234,50;7;\r\n");
+    }
+
+    private static String row(List<String> cells) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvSink sink = new CsvSink(out);
+        sink.header(cells);
+        sink.finish();
+        return content(out);
+    }
+
+    private static String content(ByteArrayOutputStream out) {
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertThat(csv).startsWith("\uFEFF");
+        return csv.substring(1);
+    }
+}
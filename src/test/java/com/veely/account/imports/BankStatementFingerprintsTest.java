@@ -0,0 +1,84 @@
+package com.veely.account.imports;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Impronte dei movimenti senza riferimento bancario: movimenti identici nello stesso giorno restano distinti
+ * anche se l'estratto non è ordinato per data, e lo stesso file (o lo stesso file riordinato) dà le stesse impronte.
+ */
+class BankStatementFingerprintsTest {
+
+    private static final String IBAN = "IT60X0542811101000000123456";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void repeatedSameDayMovementsInUnsortedFileStayDistinct() throws Exception {
+        List<String> fingerprints = fingerprints(csv("""
+                Data contabile;Descrizione;Importo
+                01/03/2024;Bonifico Rossi;-100,00
+                02/03/2024;Canone;-10,00
+                01/03/2024;Bonifico Rossi;-100,00
+                02/03/2024;Canone;-10,00
+                01/03/2024;Bonifico Rossi;-100,00
+                """));
+
+        assertThat(fingerprints).hasSize(5).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void reorderedFileGivesSameFingerprints() throws Exception {
+        List<String> unsorted = fingerprints(csv("""
+                Data contabile;Descrizione;Importo
+                01/03/2024;Bonifico Rossi;-100,00
+                02/03/2024;Canone;-10,00
+                01/03/2024;Bonifico Rossi;-100,00
+                """));
+        List<String> sorted = fingerprints(csv("""
+                Data contabile;Descrizione;Importo
+                01/03/2024;Bonifico Rossi;-100,00
+                01/03/2024;Bonifico Rossi;-100,00
+                02/03/2024;Canone;-10,00
+                """));
+
+        assertThat(unsorted).containsExactlyInAnyOrderElementsOf(sorted);
+    }
+
+    @Test
+    void bankReferenceIgnoresOccurrences() throws Exception {
+        List<String> fingerprints = fingerprints(csv("""
+                Data contabile;Descrizione;Importo;CRO
+                01/03/2024;Bonifico Rossi;-100,00;A1
+                01/03/2024;Bonifico Rossi;-100,00;A2
+                01/03/2024;Bonifico Rossi;-100,00;A1
+                """));
+
+        assertThat(fingerprints.get(0)).isEqualTo(fingerprints.get(2)).isNotEqualTo(fingerprints.get(1));
+    }
+
+    private Path csv(String content) throws Exception {
+        Path file = Files.createTempFile(dir, "estratto", ".csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static List<String> fingerprints(Path file) throws Exception {
+        BankStatementImporter.Fingerprints fingerprints = new BankStatementImporter.Fingerprints();
+        List<String> result = new ArrayList<>();
+        BankCsvReader.read(file, StandardCharsets.UTF_8, IBAN, (row, movement) -> result.add(fingerprints.of(movement)),
+                error -> {
+                    throw new AssertionError(error);
+                });
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package com.veely.account.imports;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Lettura di una FatturaPA (fornitore, tipo documento, righe) e tipi documento accettati dall'import:
+ * una nota di credito TD04 ha importi positivi nell'XML e va rifiutata, non registrata come fattura.
+ */
+class FatturaPaReaderTest {
+
+    @Test
+    void readsSupplierBodyAndLines() throws Exception {
+        FatturaPaDocument document = read(xml("TD01", "FT/12"));
+
+        assertThat(document.supplier().vatNumber()).isEqualTo("01234567890");
+        assertThat(document.supplier().name()).isEqualTo("Rossi & C.");
+        FatturaPaDocument.Body body = document.bodies().get(0);
+        assertThat(body.documentType()).isEqualTo("TD01");
+        assertThat(body.number()).isEqualTo("FT/12");
+        assertThat(body.lines()).singleElement().satisfies(line -> {
+            assertThat(line.totalPrice()).isEqualByComparingTo("100.00");
+            assertThat(line.vatRate()).isEqualByComparingTo("22.00");
+        });
+        FatturaPaImporter.checkDocumentType(body);
+    }
+
+    @Test
+    void creditNoteIsRejected() throws Exception {
+        FatturaPaDocument.Body body = read(xml("TD04", "NC/3")).bodies().get(0);
+
+        assertThat(body.documentType()).isEqualTo("TD04");
+        assertThat(body.lines().get(0).totalPrice()).isEqualByComparingTo(new BigDecimal("100.00"));
+        assertThatThrownBy(() -> FatturaPaImporter.checkDocumentType(body))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("NC/3")
+                .hasMessageContaining("TD04 (nota di credito)");
+    }
+
+    @Test
+    void otherUnhandledTypesAreRejected() throws Exception {
+        assertThatThrownBy(() -> FatturaPaImporter.checkDocumentType(read(xml("TD17", "INT/1")).bodies().get(0)))
+                .hasMessageContaining("tipo documento TD17");
+        assertThatThrownBy(() -> FatturaPaImporter.checkDocumentType(read(xml(null, "X/1")).bodies().get(0)))
+                .hasMessageContaining("tipo documento mancante");
+        FatturaPaImporter.checkDocumentType(read(xml("TD05", "ND/1")).bodies().get(0));
+    }
+
+    private static FatturaPaDocument read(String xml) throws Exception {
+        return FatturaPaReader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String xml(String documentType, String number) {
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <p:FatturaElettronica versione="FPR12" xmlns:p="http://ivaservizi.agenziaentrate.gov.it/docs/xsd/fatture/v1.2">
+                  <FatturaElettronicaHeader><CedentePrestatore><DatiAnagrafici>
+                    <IdFiscaleIVA><IdPaese>IT</IdPaese><IdCodice>01234567890</IdCodice></IdFiscaleIVA>
+                    <Anagrafica><Denominazione>Rossi &amp; C.</Denominazione></Anagrafica>
+                  </DatiAnagrafici></CedentePrestatore></FatturaElettronicaHeader>
+                  <FatturaElettronicaBody>
+                    <DatiGenerali><DatiGeneraliDocumento>%s<Data>2025-02-10</Data><Numero>%s</Numero></DatiGeneraliDocumento></DatiGenerali>
+                    <DatiBeniServizi><DettaglioLinee><NumeroLinea>1</NumeroLinea><Descrizione>Servizio</Descrizione>
+                      <PrezzoTotale>100.00</PrezzoTotale><AliquotaIVA>22.00</AliquotaIVA></DettaglioLinee></DatiBeniServizi>
+                  </FatturaElettronicaBody>
+                </p:FatturaElettronica>""".formatted(
+                documentType != null ? "<TipoDocumento>" + documentType + "</TipoDocumento>" : "", number).strip();
+    }
+}
@@ -0,0 +1,116 @@
+package com.veely.account.imports;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lettura in streaming di workbook generati con POI: valori delle celle come con l'API usermodel
+ * (stringhe condivise e inline, numeri, date formattate, booleani, formule, celle mancanti) e
+ * un foglio grande letto riga per riga.
+ */
+class XlsxRowReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsCellsLikeUsermodel() throws Exception {
+        Path file = dir.resolve("celle.xlsx");
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            CellStyle dateStyle = wb.createCellStyle();
+            dateStyle.setDataFormat(wb.getCreationHelper().createDataFormat().getFormat("dd/mm/yyyy"));
+            Sheet sheet = wb.createSheet("Conti");
+            header(sheet);
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue("  01.02.003  ");
+            row.createCell(1).setCellValue(1234.5);
+            row.createCell(2).setCellValue(LocalDate.of(2024, 2, 29));
+            row.getCell(2).setCellStyle(dateStyle);
+            row.createCell(3).setCellValue(true);
+            row.createCell(5).setCellFormula("B2*2");
+            row.createCell(6).setCellFormula("A2&\"-X\"");
+            sheet.createRow(2); // riga vuota: non passata alla callback
+            Row last = sheet.createRow(3);
+            last.createCell(1).setCellValue(42);
+            last.createCell(2).setCellValue("31/12/2024");
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            write(wb, file);
+        }
+
+        List<XlsxRowReader.SheetRow> rows = new ArrayList<>();
+        XlsxRowReader.read(file, 1, rows::add);
+
+        assertThat(rows).extracting(XlsxRowReader.SheetRow::number).containsExactly(2, 4);
+        XlsxRowReader.SheetRow first = rows.get(0);
+        assertThat(first.text(0)).isEqualTo("01.02.003");
+        assertThat(first.text(1)).isEqualTo("1234.5");
+        assertThat(first.dateValue(2)).isEqualTo(LocalDate.of(2024, 2, 29));
+        assertThat(first.text(2)).isEqualTo("2024-02-29");
+        assertThat(first.dateValue(1)).isNull();
+        assertThat(first.text(3)).isEqualTo("true");
+        assertThat(first.text(4)).isNull();
+        assertThat(first.text(5)).isEqualTo("2469");
+        assertThat(first.text(6)).isEqualTo("01.02.003  -X");
+        assertThat(first.text(9)).isNull();
+
+        XlsxRowReader.SheetRow second = rows.get(1);
+        assertThat(second.text(0)).isNull();
+        assertThat(second.text(1)).isEqualTo("42");
+        assertThat(second.dateValue(2)).isNull();
+        assertThat(second.text(2)).isEqualTo("31/12/2024");
+    }
+
+    @Test
+    void readsLargeGeneratedSheetRowByRow() throws Exception {
+        int rows = 20_000;
+        Path file = dir.resolve("grande.xlsx");
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(100)) {
+            Sheet sheet = wb.createSheet("Conti");
+            header(sheet);
+            for (int r = 1; r <= rows; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("CONTO." + r);
+                row.createCell(1).setCellValue("Descrizione conto " + r);
+                row.createCell(2).setCellValue(r / 100.0);
+                row.createCell(3).setCellValue(r % 2 == 0);
+            }
+            write(wb, file);
+            wb.dispose();
+        }
+
+        int[] count = {0};
+        XlsxRowReader.read(file, 1, row -> {
+            count[0]++;
+            assertThat(row.index()).isEqualTo(count[0]);
+            assertThat(row.text(0)).isEqualTo("CONTO." + count[0]);
+        });
+        assertThat(count[0]).isEqualTo(rows);
+    }
+
+    private static void header(Sheet sheet) {
+        Row header = sheet.createRow(0);
+        header.createCell(0).setCellValue("Codice");
+        header.createCell(1).setCellValue("Importo");
+    }
+
+    private static void write(Workbook wb, Path file) throws Exception {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            wb.write(out);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.veely.account.ledger;
+
+import com.veely.account.ledger.CounterpartyLedgerService.PeriodRow;
+import com.veely.account.ledger.CounterpartyLedgerService.Sum;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parti pure del partitario: chiavi di periodo, raggruppamento dei mesi da ricalcolare, righe da
+ * riscrivere o eliminare dopo un ricalcolo e primo mese della finestra di dettaglio.
+ */
+class LedgerPeriodsTest {
+
+    @Test
+    void periodKeysRoundTripAcrossYearEnd() {
+        assertThat(LedgerPeriodKey.of(7L, LocalDate.of(2023, 12, 31))).isEqualTo(new LedgerPeriodKey(7L, 202312));
+        assertThat(LedgerPeriodKey.firstDay(202312)).isEqualTo(LocalDate.of(2023, 12, 1));
+        assertThat(LedgerPeriodKey.period(LedgerPeriodKey.firstDay(202312).plusMonths(1))).isEqualTo(202401);
+    }
+
+    @Test
+    void keysAreGroupedByCounterpartyInLockOrder() {
+        Map<Long, SortedSet<Integer>> grouped = CounterpartyLedgerService.byCounterparty(List.of(
+                new LedgerPeriodKey(9L, 202403), new LedgerPeriodKey(2L, 202401),
+                new LedgerPeriodKey(9L, 202312), new LedgerPeriodKey(9L, 202403)));
+
+        assertThat(grouped.keySet()).containsExactly(2L, 9L);
+        assertThat(grouped.get(2L)).containsExactly(202401);
+        assertThat(grouped.get(9L)).containsExactly(202312, 202403);
+    }
+
+    @Test
+    void emptyMonthsAreDeletedAndOthersRewritten() {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+
+        CounterpartyLedgerService.delta(5L, periods(202401, 202402, 202403, 202404),
+                Map.of(202401, new Sum(new BigDecimal("100.00"), 2),
+                        // fattura e nota di credito che si annullano: il mese resta, a saldo zero
+                        202404, new Sum(new BigDecimal("0.00"), 2)),
+                Map.of(202402, new Sum(new BigDecimal("-50.00"), 1)),
+                upserts, deletes);
+
+        assertThat(upserts).containsExactly(
+                new Object[]{5L, 202401, new BigDecimal("100.00"), BigDecimal.ZERO, 2, 0},
+                new Object[]{5L, 202402, BigDecimal.ZERO, new BigDecimal("-50.00"), 0, 1},
+                new Object[]{5L, 202404, new BigDecimal("0.00"), BigDecimal.ZERO, 2, 0});
+        assertThat(deletes).containsExactly(new Object[]{5L, 202403});
+    }
+
+    @Test
+    void windowCoversCursorMonthAndEnoughEarlierEntries() {
+        List<PeriodRow> rows = List.of(row(202401, 1, 0), row(202402, 30, 20), row(202403, 1, 0));
+
+        assertThat(CounterpartyLedgerService.windowPeriod(rows, 202403, 10)).isEqualTo(202402);
+        assertThat(CounterpartyLedgerService.windowPeriod(rows, 202403, 50)).isEqualTo(202401);
+        assertThat(CounterpartyLedgerService.windowPeriod(rows, 202402, 0)).isEqualTo(202401);
+    }
+
+    @Test
+    void windowSkipsMonthsWithoutEntries() {
+        List<PeriodRow> rows = List.of(row(202401, 3, 0), row(202402, 0, 0), row(202403, 0, 0));
+
+        assertThat(CounterpartyLedgerService.windowPeriod(rows, 202403, 2)).isEqualTo(202401);
+    }
+
+    @Test
+    void cursorMonthWithoutRowStillStartsTheWindow() {
+        List<PeriodRow> rows = List.of(row(202312, 2, 0), row(202405, 4, 0));
+
+        assertThat(CounterpartyLedgerService.windowPeriod(rows, 202402, 1)).isEqualTo(202312);
+        assertThat(CounterpartyLedgerService.windowPeriod(rows, 202311, 1)).isEqualTo(202311);
+    }
+
+    private static SortedSet<Integer> periods(Integer... periods) {
+        return new TreeSet<>(List.of(periods));
+    }
+
+    private static PeriodRow row(int period, int invoices, int movements) {
+        return new PeriodRow(period, BigDecimal.ZERO, BigDecimal.ZERO, invoices, movements);
+    }
+}
@@ -0,0 +1,114 @@
+package com.veely.account.reconciliation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Candidati dell'indice: finestra di date per bucket (una fattura con termini lunghi resta trovabile
+ * anche dietro fatture più recenti a breve termine), fatture consumate, e confronto con una
+ * scansione completa su dati generati (seme fisso).
+ */
+class OpenInvoiceIndexTest {
+
+    private static final int WINDOW = 30;
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void longTermInvoiceIsFoundBehindNewerShortTermOnes() {
+        List<OpenInvoice> open = new ArrayList<>();
+        open.add(invoice(1, START, START.plusDays(360), 1, 10_000));
+        for (int i = 0; i < 50; i++) {
+            open.add(invoice(100 + i, START.plusDays(100 + i), null, 1, 10_000));
+        }
+        OpenInvoiceIndex index = new OpenInvoiceIndex(open, WINDOW);
+
+        assertThat(candidates(index, movement(START.plusDays(380), 10_000, null))).containsExactly(1L);
+        assertThat(candidates(index, movement(START.plusDays(360 + WINDOW + 1), 10_000, null))).isEmpty();
+    }
+
+    @Test
+    void eachCandidateIsReportedOnceAndConsumedOnesAreSkipped() {
+        OpenInvoiceIndex index = new OpenInvoiceIndex(List.of(
+                invoice(1, START, null, 5, 10_000),
+                invoice(2, START, null, 6, 20_000)), WINDOW);
+
+        // stessa fattura trovata per importo e per controparte
+        assertThat(candidates(index, movement(START, 10_000, 5L))).containsExactly(1L);
+        index.consume(slotOf(index, 1));
+        assertThat(candidates(index, movement(START, 10_000, 5L))).isEmpty();
+        assertThat(candidates(index, movement(START, 20_000, 5L))).containsExactly(2L);
+    }
+
+    @Test
+    void agreesWithFullScanOnGeneratedData() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int round = 0; round < 50; round++) {
+            List<OpenInvoice> open = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                LocalDate issue = START.plusDays(random.nextInt(365));
+                LocalDate due = random.nextInt(4) == 0 ? null : issue.plusDays(random.nextInt(random.nextInt(10) == 0 ? 400 : 60));
+                open.add(invoice(i + 1, issue, due, random.nextInt(20), 100L * random.nextInt(1, 30)));
+            }
+            OpenInvoiceIndex index = new OpenInvoiceIndex(open, WINDOW);
+            for (int i = 0; i < index.size(); i++) {
+                if (random.nextInt(10) == 0) index.consume(i);
+            }
+            for (int m = 0; m < 100; m++) {
+                BankMovementRow movement = movement(START.plusDays(random.nextInt(500)), 100L * random.nextInt(1, 30),
+                        random.nextBoolean() ? (long) random.nextInt(20) : null);
+                assertThat(candidates(index, movement)).as(movement.toString()).isEqualTo(fullScan(index, movement));
+            }
+        }
+    }
+
+    private static Set<Long> candidates(OpenInvoiceIndex index, BankMovementRow m) {
+        Set<Long> ids = new HashSet<>();
+        index.candidates(m, null, null, Set.of(), slot -> assertThat(ids.add(index.get(slot).id())).as("slot ripetuto").isTrue());
+        return ids;
+    }
+
+    private static Set<Long> fullScan(OpenInvoiceIndex index, BankMovementRow m) {
+        Set<Long> ids = new HashSet<>();
+        for (int slot = 0; slot < index.size(); slot++) {
+            OpenInvoice inv = index.get(slot);
+            boolean sharesKey = inv.signedCents() == m.cents()
+                    || (m.counterpartyId() != null && m.counterpartyId() == inv.counterpartyId());
+            boolean inWindow = !m.bookingDate().isBefore(inv.issueDate())
+                    && !m.bookingDate().isAfter(inv.expectedDate().plusDays(WINDOW));
+            if (sharesKey && inWindow && !isConsumed(index, slot)) ids.add(inv.id());
+        }
+        return ids;
+    }
+
+    /** Una fattura consumata non è più restituita nemmeno per la sua data di emissione e il suo importo. */
+    private static boolean isConsumed(OpenInvoiceIndex index, int slot) {
+        OpenInvoice inv = index.get(slot);
+        Set<Long> found = new HashSet<>();
+        index.candidates(new BankMovementRow(0, inv.issueDate(), inv.signedCents(), null, null, null, null), null, null, Set.of(),
+                s -> found.add(index.get(s).id()));
+        return !found.contains(inv.id());
+    }
+
+    private static int slotOf(OpenInvoiceIndex index, long id) {
+        for (int slot = 0; slot < index.size(); slot++) {
+            if (index.get(slot).id() == id) return slot;
+        }
+        throw new IllegalArgumentException("fattura " + id);
+    }
+
+    private static OpenInvoice invoice(long id, LocalDate issue, LocalDate due, long counterpartyId, long cents) {
+        return new OpenInvoice(id, "N" + id, issue.getYear(), issue, due, counterpartyId, null, null, cents);
+    }
+
+    private static BankMovementRow movement(LocalDate booking, long cents, Long counterpartyId) {
+        return new BankMovementRow(1, booking, cents, null, counterpartyId, null, null);
+    }
+}
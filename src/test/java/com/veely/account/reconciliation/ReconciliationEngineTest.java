@@ -0,0 +1,147 @@
+package com.veely.account.reconciliation;
+
+import com.veely.account.config.ReconciliationProperties;
+import com.veely.account.reconciliation.ReconciliationEngine.Candidate;
+import com.veely.account.reconciliation.ReconciliationEngine.Decision;
+import com.veely.account.reconciliation.ReconciliationEngine.Outcome;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Punteggio e decisione con le soglie predefinite (collegamento da 80, revisione da 50, distacco 10,
+ * finestra 120 giorni): importo, controparte, numero fattura nella causale e vicinanza alla data attesa;
+ * residuo delle fatture incassate in più movimenti.
+ */
+class ReconciliationEngineTest {
+
+    private static final LocalDate JAN_10 = LocalDate.of(2024, 1, 10);
+    private static final LocalDate FEB_10 = LocalDate.of(2024, 2, 10);
+
+    @Test
+    void linksExactAmountWithCounterpartyAndNumberOnce() {
+        ReconciliationEngine engine = engine(
+                invoice(1, "FT/2024/0012", JAN_10, FEB_10, 7, "ACME SPA", 122_000));
+
+        Decision first = engine.match(movement(FEB_10.plusDays(2), 122_000, "Bonifico FT2024-0012", 7L, null));
+        assertThat(first.outcome()).isEqualTo(Outcome.LINKED);
+        assertThat(first.candidates()).extracting(c -> c.invoice().id(), Candidate::score).containsExactly(tuple(1L, 100));
+
+        // la fattura collegata non è più candidata
+        Decision second = engine.match(movement(FEB_10.plusDays(3), 122_000, "Bonifico FT2024-0012", 7L, null));
+        assertThat(second.outcome()).isEqualTo(Outcome.UNMATCHED);
+    }
+
+    @Test
+    void amountAloneGoesToReview() {
+        ReconciliationEngine engine = engine(invoice(2, "45", JAN_10, FEB_10, 8, "ROSSI SRL", 50_000));
+
+        Decision decision = engine.match(movement(FEB_10, 50_000, "Pagamento", null, null));
+
+        assertThat(decision.outcome()).isEqualTo(Outcome.REVIEW);
+        assertThat(decision.candidates()).extracting(Candidate::score).containsExactly(60);
+    }
+
+    @Test
+    void numberScoresDependOnHowMuchOfItIsInTheDescription() {
+        OpenInvoice invoice = invoice(3, "FT12", JAN_10, FEB_10, 8, "ROSSI SRL", 50_000);
+
+        // progressivo e anno: 50 + 25 + 10
+        assertThat(engine(invoice).match(movement(FEB_10, 50_000, "Saldo fatt. 12 del 2024", null, null)).candidates())
+                .extracting(Candidate::score).containsExactly(85);
+        // solo il progressivo: 50 + 10 + 10
+        assertThat(engine(invoice).match(movement(FEB_10, 50_000, "Saldo fatt. 12", null, null)).candidates())
+                .extracting(Candidate::score).containsExactly(70);
+    }
+
+    @Test
+    void equalCandidatesAreNeverLinkedAutomatically() {
+        ReconciliationEngine engine = engine(
+                invoice(5, "A1", LocalDate.of(2024, 3, 5), null, 9, "BIANCHI", 10_000),
+                invoice(4, "A2", LocalDate.of(2024, 3, 1), null, 9, "BIANCHI", 10_000));
+
+        Decision decision = engine.match(movement(LocalDate.of(2024, 3, 6), 10_000, "Bonifico", 9L, null));
+
+        assertThat(decision.outcome()).isEqualTo(Outcome.REVIEW);
+        assertThat(decision.candidates()).extracting(c -> c.invoice().id(), Candidate::score)
+                .containsExactly(tuple(4L, 90), tuple(5L, 90));
+    }
+
+    @Test
+    void dateScoreDecaysAcrossTheWindow() {
+        ReconciliationEngine engine = engine(invoice(6, "77", JAN_10, FEB_10, 8, "ROSSI SRL", 30_000));
+
+        // 65 giorni dalla scadenza: 10 - (65 - 5) * 10 / 120 = 5
+        assertThat(engine.match(movement(FEB_10.plusDays(65), 30_000, "x", null, null)).candidates())
+                .extracting(Candidate::score).containsExactly(55);
+        // oltre la finestra o prima dell'emissione non è candidata
+        assertThat(engine.match(movement(FEB_10.plusDays(121), 30_000, "x", null, null)).outcome()).isEqualTo(Outcome.UNMATCHED);
+        assertThat(engine.match(movement(JAN_10.minusDays(1), 30_000, "x", null, null)).outcome()).isEqualTo(Outcome.UNMATCHED);
+    }
+
+    @Test
+    void passiveInvoicesMatchOutgoingPaymentsByName() {
+        ReconciliationEngine engine = engine(
+                invoice(7, "9", JAN_10, FEB_10, 10, "Fornitore Rossi", -30_000),
+                invoice(8, "10", JAN_10, FEB_10, 11, "Verdi", -40_000));
+
+        Decision exactName = engine.match(movement(FEB_10, -30_000, "Bonifico", null, "FORNITORE ROSSI"));
+        assertThat(exactName.outcome()).isEqualTo(Outcome.LINKED);
+        assertThat(exactName.candidates()).extracting(Candidate::score).containsExactly(90);
+
+        // nome simile: 50 + 15 + 10, sotto la soglia di collegamento
+        Decision similar = engine.match(movement(FEB_10, -40_000, "Bonifico", null, "Verdi Mario"));
+        assertThat(similar.outcome()).isEqualTo(Outcome.REVIEW);
+        assertThat(similar.candidates()).extracting(Candidate::score).containsExactly(75);
+        // segno opposto: nessun punteggio d'importo
+        assertThat(engine.match(movement(FEB_10, 40_000, "Bonifico", null, "VERDI")).candidates())
+                .extracting(Candidate::score).isEmpty();
+    }
+
+    @Test
+    void twoPartialPaymentsSettleTheInvoice() {
+        // primo acconto confermato a mano: la fattura resta aperta per il residuo
+        BigDecimal outstanding = ReconciliationService.outstanding("ACTIVE", new BigDecimal("1220.00"), new BigDecimal("500.00"));
+        assertThat(outstanding).isEqualByComparingTo("720.00");
+
+        ReconciliationEngine engine = engine(invoice(9, "FT12", JAN_10, FEB_10, 7, "ACME SPA",
+                outstanding.movePointRight(2).longValueExact()));
+        Decision balance = engine.match(movement(FEB_10, 72_000, "Saldo fatt. 12 del 2024", 7L, null));
+        assertThat(balance.outcome()).isEqualTo(Outcome.LINKED);
+
+        // con il saldo i movimenti collegati coprono il netto a pagare
+        assertThat(ReconciliationService.outstanding("ACTIVE", new BigDecimal("1220.00"), new BigDecimal("1220.00")).signum()).isZero();
+    }
+
+    @Test
+    void passiveOutstandingCountsOutgoingPayments() {
+        assertThat(ReconciliationService.outstanding("PASSIVE", new BigDecimal("300.00"), new BigDecimal("-100.00")))
+                .isEqualByComparingTo("200.00");
+        assertThat(ReconciliationService.outstanding("PASSIVE", new BigDecimal("300.00"), new BigDecimal("-300.00")).signum()).isZero();
+        // un incasso su una passiva non la copre
+        assertThat(ReconciliationService.outstanding("PASSIVE", new BigDecimal("300.00"), new BigDecimal("100.00")))
+                .isEqualByComparingTo("400.00");
+    }
+
+    private static ReconciliationEngine engine(OpenInvoice... invoices) {
+        ReconciliationProperties properties = new ReconciliationProperties();
+        return new ReconciliationEngine(new OpenInvoiceIndex(List.of(invoices), properties.getWindowDays()), properties);
+    }
+
+    static OpenInvoice invoice(long id, String number, LocalDate issue, LocalDate due, long counterpartyId,
+                               String name, long signedCents) {
+        return new OpenInvoice(id, number, issue.getYear(), issue, due, counterpartyId, name, null, signedCents);
+    }
+
+    private static BankMovementRow movement(LocalDate booking, long cents, String description, Long counterpartyId, String name) {
+        return new BankMovementRow(1, booking, cents, description, counterpartyId, name, null);
+    }
+
+    private static org.assertj.core.groups.Tuple tuple(Object... values) {
+        return org.assertj.core.groups.Tuple.tuple(values);
+    }
+}
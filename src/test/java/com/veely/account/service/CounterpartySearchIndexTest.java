@@ -0,0 +1,54 @@
+package com.veely.account.service;
+
+import com.veely.account.service.dto.CounterpartySuggestion;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Indice aggiornato solo dagli eventi di modifica: ricerca e lookup per id dopo rinomine ed
+ * eliminazioni, e ricompattazione degli slot liberi oltre la soglia senza perdere voci.
+ */
+class CounterpartySearchIndexTest {
+
+    @Test
+    void renamedAndDeletedCounterpartiesAreNoLongerFound() {
+        CounterpartySearchIndex index = new CounterpartySearchIndex(null);
+        index.onCounterpartyChanged(changed(1, "Rossi Costruzioni", "01234567890"));
+        index.onCounterpartyChanged(changed(2, "Bianchi Srl", null));
+
+        index.onCounterpartyChanged(changed(1, "Verdi Costruzioni", "01234567890"));
+        index.onCounterpartyChanged(new CounterpartyChangedEvent(2L, null));
+
+        assertThat(index.search("rossi", 10)).isEmpty();
+        assertThat(index.search("costruz", 10)).extracting(CounterpartySuggestion::name).containsExactly("Verdi Costruzioni");
+        assertThat(index.search("4567", 10)).extracting(CounterpartySuggestion::id).containsExactly(1L);
+        assertThat(index.search("bi", 10)).isEmpty();
+        assertThat(index.find(2L)).isNull();
+        assertThat(index.tombstones()).isEqualTo(2);
+    }
+
+    @Test
+    void compactsTombstonesWithoutLosingEntries() {
+        CounterpartySearchIndex index = new CounterpartySearchIndex(null);
+        for (long id = 1; id <= 2_000; id++) {
+            index.onCounterpartyChanged(changed(id, "Cliente " + id, null));
+        }
+        // ogni rinomina libera uno slot: oltre 1024 (e un quarto degli slot) l'indice si ricompatta
+        for (int round = 0; round < 3; round++) {
+            for (long id = 1; id <= 2_000; id++) {
+                index.onCounterpartyChanged(changed(id, "Cliente " + id + " r" + round, null));
+            }
+        }
+
+        assertThat(index.tombstones()).isLessThan(1_024);
+        assertThat(index.find(1_500L).name()).isEqualTo("Cliente 1500 r2");
+        assertThat(index.search("cliente 1500", 10)).extracting(CounterpartySuggestion::id).containsExactly(1_500L);
+        assertThat(index.search("r1", 10)).isEmpty();
+        assertThat(index.search("r2", 5_000)).hasSize(2_000);
+    }
+
+    private static CounterpartyChangedEvent changed(long id, String name, String vatNumber) {
+        return new CounterpartyChangedEvent(id, new CounterpartySuggestion(id, name, vatNumber, null));
+    }
+}
@@ -0,0 +1,84 @@
+package com.veely.account.service;
+
+import com.veely.account.service.dto.InvoiceLineInput;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Lettura degli importi incollati: formati italiani e anglosassoni non ambigui, rifiuto degli
+ * importi ambigui o con più di due decimali (mai arrotondati) e riconoscimento dell'intestazione.
+ */
+class InvoiceLineTsvTest {
+
+    @Test
+    void readsUnambiguousAmounts() {
+        assertAmount("1234", "1234.00");
+        assertAmount("1234,5", "1234.50");
+        assertAmount("1234,56", "1234.56");
+        assertAmount("1234.56", "1234.56");
+        assertAmount("1.234,56", "1234.56");
+        assertAmount("1,234.56", "1234.56");
+        assertAmount("1.234.567", "1234567.00");
+        assertAmount("1.234.567,8", "1234567.80");
+        assertAmount("€ 1.234,00", "1234.00");
+        assertAmount("1 234,00", "1234.00");
+        assertAmount("-12,30", "-12.30");
+        assertAmount("0,01", "0.01");
+    }
+
+    @Test
+    void rejectsAmbiguousThousandsSeparator() {
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("1.234")).isInstanceOf(IllegalArgumentException.class)
+                .isNotInstanceOf(NumberFormatException.class).hasMessageContaining("ambiguo");
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("12,345")).hasMessageContaining("ambiguo");
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("123.000")).hasMessageContaining("ambiguo");
+    }
+
+    @Test
+    void rejectsMoreThanTwoDecimalsInsteadOfRounding() {
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("1234.567")).hasMessageContaining("più di due decimali");
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("1.234,567")).hasMessageContaining("più di due decimali");
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("0,0049")).hasMessageContaining("più di due decimali");
+    }
+
+    @Test
+    void rejectsMisplacedGrouping() {
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("12.34.56")).hasMessageContaining("migliaia");
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("1.23,45")).hasMessageContaining("migliaia");
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("1,234,5.00")).hasMessageContaining("migliaia");
+    }
+
+    @Test
+    void nonNumericTextIsNotAnAmount() {
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("Imponibile")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("12,")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> InvoiceLineTsv.amount("-")).isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    void skipsHeaderButReportsAmbiguousFirstRow() {
+        List<InvoiceLineInput> lines = InvoiceLineTsv.parse("Descrizione\tImponibile\tIVA\nConsulenza\t1.234,00\t22\n");
+        assertThat(lines).singleElement().satisfies(line -> {
+            assertThat(line.getDescription()).isEqualTo("Consulenza");
+            assertThat(line.getNetAmount()).isEqualByComparingTo("1234.00");
+            assertThat(line.getVatCode()).isEqualTo("22");
+        });
+
+        assertThatThrownBy(() -> InvoiceLineTsv.parse("Consulenza\t1.234\t22\nTrasferta\t12,345\t22\nSpese\t10,00\n"))
+                .isInstanceOfSatisfying(InvoiceService.InvoiceLineValidationException.class, ex ->
+                        assertThat(ex.getErrors()).containsExactly(
+                                "Riga 1: imponibile 1.234 ambiguo, non è chiaro se '.' separi le migliaia o i decimali: usare \"1.234,00\" o \"1234\"",
+                                "Riga 2: imponibile 12,345 ambiguo, non è chiaro se ',' separi le migliaia o i decimali: usare \"1.234,00\" o \"1234\""));
+    }
+
+    private static void assertAmount(String text, String expected) {
+        BigDecimal amount = InvoiceLineTsv.amount(text);
+        assertThat(amount).as(text).isEqualByComparingTo(expected);
+        assertThat(amount.scale()).as(text).isEqualTo(2);
+    }
+}
@@ -0,0 +1,146 @@
+package com.veely.account.service;
+
+import com.veely.account.domain.InvoiceLine;
+import com.veely.account.domain.VatCode;
+import com.veely.account.domain.WithholdingType;
+import com.veely.account.service.InvoiceTotalsCalculator.LineAmounts;
+import com.veely.account.service.InvoiceTotalsService.TotalsDelta;
+import com.veely.account.service.dto.InvoiceTotals;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Aggiornamento incrementale di invoice_totals: scelta tra delta e ricalcolo, segno del netto a pagare
+ * sulle passive e, su sequenze generate di inserimenti, modifiche e cancellazioni (seme fisso),
+ * somma dei delta uguale al ricalcolo da zero delle righe rimaste.
+ */
+class InvoiceTotalsDeltaTest {
+
+    @Test
+    void rebuildOnlyWhenNoTotalsRowWasUpdated() {
+        assertThat(InvoiceTotalsService.rebuildRequired(0)).isTrue();
+        assertThat(InvoiceTotalsService.rebuildRequired(1)).isFalse();
+    }
+
+    @Test
+    void withholdingReducesPayableOnlyOnPassiveInvoices() {
+        LineAmounts before = new LineAmounts(new BigDecimal("100.00"), new BigDecimal("22.00"), new BigDecimal("20.00"));
+        LineAmounts after = new LineAmounts(new BigDecimal("150.00"), new BigDecimal("33.00"), new BigDecimal("30.00"));
+
+        TotalsDelta active = TotalsDelta.of("ACTIVE", before, after, 0);
+        TotalsDelta passive = TotalsDelta.of("passive", before, after, 0);
+
+        assertThat(active.net()).isEqualByComparingTo("50.00");
+        assertThat(active.vat()).isEqualByComparingTo("11.00");
+        assertThat(active.withholding()).isEqualByComparingTo("10.00");
+        assertThat(active.gross()).isEqualByComparingTo("61.00");
+        assertThat(active.payable()).isEqualByComparingTo("61.00");
+        assertThat(passive.payable()).isEqualByComparingTo("51.00");
+        assertThat(passive.lines()).isZero();
+    }
+
+    @Test
+    void deletingALineRemovesItsWholeContribution() {
+        LineAmounts line = new LineAmounts(new BigDecimal("80.00"), new BigDecimal("17.60"), new BigDecimal("16.00"));
+
+        TotalsDelta delta = TotalsDelta.of("PASSIVE", line, LineAmounts.NONE, -1);
+
+        assertThat(delta.gross()).isEqualByComparingTo("-97.60");
+        assertThat(delta.payable()).isEqualByComparingTo("-81.60");
+        assertThat(delta.lines()).isEqualTo(-1);
+    }
+
+    @Test
+    void summedDeltasMatchRebuild() {
+        SplittableRandom random = new SplittableRandom(31L);
+        for (int invoice = 0; invoice < 500; invoice++) {
+            String direction = random.nextBoolean() ? "ACTIVE" : "PASSIVE";
+            List<InvoiceLine> lines = new ArrayList<>();
+            Totals totals = new Totals();
+            for (int op = 0; op < 40; op++) {
+                int kind = lines.isEmpty() ? 0 : random.nextInt(4);
+                switch (kind) {
+                    case 0 -> {
+                        InvoiceLine added = line(random);
+                        lines.add(added);
+                        totals.add(TotalsDelta.of(direction, LineAmounts.NONE, InvoiceTotalsCalculator.lineAmounts(added), 1));
+                    }
+                    case 1 -> {
+                        // inserimento in blocco: un solo delta con la somma delle righe nuove
+                        LineAmounts added = LineAmounts.NONE;
+                        int count = random.nextInt(1, 6);
+                        for (int i = 0; i < count; i++) {
+                            InvoiceLine line = line(random);
+                            lines.add(line);
+                            added = added.plus(InvoiceTotalsCalculator.lineAmounts(line));
+                        }
+                        totals.add(TotalsDelta.of(direction, LineAmounts.NONE, added, count));
+                    }
+                    case 2 -> {
+                        int index = random.nextInt(lines.size());
+                        LineAmounts before = InvoiceTotalsCalculator.lineAmounts(lines.get(index));
+                        InvoiceLine updated = line(random);
+                        lines.set(index, updated);
+                        totals.add(TotalsDelta.of(direction, before, InvoiceTotalsCalculator.lineAmounts(updated), 0));
+                    }
+                    default -> {
+                        InvoiceLine removed = lines.remove(random.nextInt(lines.size()));
+                        totals.add(TotalsDelta.of(direction, InvoiceTotalsCalculator.lineAmounts(removed), LineAmounts.NONE, -1));
+                    }
+                }
+            }
+
+            InvoiceTotals rebuilt = InvoiceTotalsCalculator.compute(direction, lines);
+            assertThat(totals.net).isEqualByComparingTo(rebuilt.getNetTotal());
+            assertThat(totals.vat).isEqualByComparingTo(rebuilt.getVatTotal());
+            assertThat(totals.withholding).isEqualByComparingTo(rebuilt.getWithholdingTotal());
+            assertThat(totals.gross).isEqualByComparingTo(rebuilt.getGrossTotal());
+            assertThat(totals.payable).isEqualByComparingTo(rebuilt.getPayableTotal());
+            assertThat(totals.lines).isEqualTo(lines.size());
+        }
+    }
+
+    /**
+     * Riga di invoice_totals come la aggiorna InvoiceTotalsSnapshotRepository#applyDelta.
+     */
+    private static final class Totals {
+        private BigDecimal net = BigDecimal.ZERO;
+        private BigDecimal vat = BigDecimal.ZERO;
+        private BigDecimal withholding = BigDecimal.ZERO;
+        private BigDecimal gross = BigDecimal.ZERO;
+        private BigDecimal payable = BigDecimal.ZERO;
+        private int lines;
+
+        void add(TotalsDelta delta) {
+            net = net.add(delta.net());
+            vat = vat.add(delta.vat());
+            withholding = withholding.add(delta.withholding());
+            gross = gross.add(delta.gross());
+            payable = payable.add(delta.payable());
+            lines += delta.lines();
+        }
+    }
+
+    private static InvoiceLine line(SplittableRandom random) {
+        InvoiceLine line = new InvoiceLine();
+        line.setNetAmount(BigDecimal.valueOf(random.nextLong(-50_000, 5_000_000), 2));
+        if (random.nextInt(5) != 0) {
+            VatCode vatCode = new VatCode();
+            vatCode.setRate(BigDecimal.valueOf(random.nextInt(0, 10_001), 2));
+            line.setVatCode(vatCode);
+        }
+        if (random.nextBoolean()) {
+            WithholdingType wt = new WithholdingType();
+            wt.setRate(BigDecimal.valueOf(random.nextInt(0, 5_001), 2));
+            wt.setTaxablePercent(random.nextBoolean() ? BigDecimal.valueOf(random.nextInt(0, 10_001), 2) : null);
+            line.setWithholdingType(wt);
+        }
+        return line;
+    }
+}
@@ -0,0 +1,172 @@
+package com.veely.account.service;
+
+import com.veely.account.domain.InvoiceLine;
+import com.veely.account.domain.VatCode;
+import com.veely.account.domain.WithholdingType;
+import com.veely.account.service.InvoiceTotalsCalculator.LineAmounts;
+import com.veely.account.service.dto.InvoiceTotals;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Equivalenza del kernel a interi con il calcolo BigDecimal di {@link InvoiceTotalsCalculator#lineAmounts}
+ * su casi generati (seme fisso, riproducibili) e sui bordi dell'arrotondamento HALF_UP.
+ */
+class InvoiceTotalsKernelTest {
+
+    private static final int CASES = 200_000;
+    private static final String[] COMMON_RATES = {"0", "4", "5", "10", "22", "20", "23", "4.5", "0.01", "99.99"};
+
+    @Test
+    void lineAmountsMatchBigDecimal() {
+        SplittableRandom random = new SplittableRandom(20240601L);
+        for (int i = 0; i < CASES; i++) {
+            BigDecimal net = amount(random);
+            BigDecimal vatRate = rate(random);
+            BigDecimal withholdingRate = rate(random);
+            BigDecimal taxablePercent = random.nextInt(4) == 0 ? null : rate(random);
+
+            LineAmounts expected = InvoiceTotalsCalculator.lineAmounts(net, vatCode(vatRate), withholding(withholdingRate, taxablePercent));
+            long cents = InvoiceTotalsKernel.cents(net);
+            int taxable = taxablePercent != null ? InvoiceTotalsKernel.rate(taxablePercent) : InvoiceTotalsKernel.FULL_TAXABLE;
+
+            String input = net + " IVA " + vatRate + " rit. " + withholdingRate + " su " + taxablePercent;
+            assertThat(InvoiceTotalsKernel.toAmount(InvoiceTotalsKernel.vat(cents, InvoiceTotalsKernel.rate(vatRate))))
+                    .as(input).isEqualByComparingTo(expected.vat());
+            assertThat(InvoiceTotalsKernel.toAmount(InvoiceTotalsKernel.withholding(cents, InvoiceTotalsKernel.rate(withholdingRate), taxable)))
+                    .as(input).isEqualByComparingTo(expected.withholding());
+        }
+    }
+
+    @Test
+    void roundingBoundaries() {
+        // 0,05 x 10% = 0,005 -> 0,01; 0,04 x 10% = 0,004 -> 0,00; simmetrico sui negativi
+        assertThat(InvoiceTotalsKernel.vat(5, 1000)).isEqualTo(1);
+        assertThat(InvoiceTotalsKernel.vat(4, 1000)).isZero();
+        assertThat(InvoiceTotalsKernel.vat(-5, 1000)).isEqualTo(-1);
+        assertThat(InvoiceTotalsKernel.vat(-4, 1000)).isZero();
+        // base ritenuta arrotondata prima dell'aliquota: 0,03 al 50% = 0,015 -> 0,02; 0,02 x 20% = 0,004 -> 0,00
+        assertThat(InvoiceTotalsKernel.withholding(3, 2000, 5000)).isZero();
+        assertThat(InvoiceTotalsKernel.withholding(3, 5000, 5000)).isEqualTo(1);
+        assertThat(InvoiceTotalsKernel.withholding(123_456, 0, 5000)).isZero();
+    }
+
+    @Test
+    void accumulateMatchesLineByLine() {
+        SplittableRandom random = new SplittableRandom(7L);
+        int n = 5_000;
+        long[] amounts = new long[n];
+        int[] vatRates = new int[n];
+        int[] withholdingRates = new int[n];
+        int[] taxablePercents = new int[n];
+        LineAmounts expected = LineAmounts.NONE;
+        for (int i = 0; i < n; i++) {
+            BigDecimal net = amount(random);
+            BigDecimal vatRate = rate(random);
+            BigDecimal withholdingRate = random.nextBoolean() ? rate(random) : null;
+            BigDecimal taxablePercent = random.nextBoolean() ? rate(random) : null;
+            expected = expected.plus(InvoiceTotalsCalculator.lineAmounts(net, vatCode(vatRate), withholding(withholdingRate, taxablePercent)));
+            amounts[i] = InvoiceTotalsKernel.cents(net);
+            vatRates[i] = InvoiceTotalsKernel.rate(vatRate);
+            withholdingRates[i] = withholdingRate != null ? InvoiceTotalsKernel.rate(withholdingRate) : 0;
+            taxablePercents[i] = taxablePercent != null ? InvoiceTotalsKernel.rate(taxablePercent) : InvoiceTotalsKernel.FULL_TAXABLE;
+        }
+
+        long[] totals = new long[3];
+        InvoiceTotalsKernel.accumulate(amounts, vatRates, withholdingRates, taxablePercents, 0, n / 2, totals);
+        InvoiceTotalsKernel.accumulate(amounts, vatRates, withholdingRates, taxablePercents, n / 2, n, totals);
+
+        assertThat(InvoiceTotalsKernel.toAmount(totals[InvoiceTotalsKernel.NET])).isEqualByComparingTo(expected.net());
+        assertThat(InvoiceTotalsKernel.toAmount(totals[InvoiceTotalsKernel.VAT])).isEqualByComparingTo(expected.vat());
+        assertThat(InvoiceTotalsKernel.toAmount(totals[InvoiceTotalsKernel.WITHHOLDING])).isEqualByComparingTo(expected.withholding());
+    }
+
+    @Test
+    void computeMatchesSumOfLineAmounts() {
+        SplittableRandom random = new SplittableRandom(99L);
+        for (int invoice = 0; invoice < 2_000; invoice++) {
+            List<InvoiceLine> lines = new ArrayList<>();
+            int count = random.nextInt(0, 30);
+            for (int i = 0; i < count; i++) {
+                BigDecimal taxablePercent = random.nextBoolean() ? rate(random) : null;
+                lines.add(line(amount(random), random.nextInt(5) == 0 ? null : rate(random),
+                        random.nextBoolean() ? rate(random) : null, taxablePercent));
+            }
+            // importi fuori dal kernel (tre decimali): stesso risultato dal ramo BigDecimal
+            if (invoice % 100 == 0) {
+                lines.add(line(new BigDecimal("10.005"), new BigDecimal("22"), null, null));
+            }
+            for (String direction : new String[]{"ACTIVE", "PASSIVE"}) {
+                assertTotals(InvoiceTotalsCalculator.compute(direction, lines), lines, direction);
+            }
+        }
+    }
+
+    @Test
+    void conversionsRejectInexactValues() {
+        assertThatThrownBy(() -> InvoiceTotalsKernel.cents(new BigDecimal("1.005"))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> InvoiceTotalsKernel.rate(new BigDecimal("22.125"))).isInstanceOf(ArithmeticException.class);
+        assertThat(InvoiceTotalsKernel.rate(new BigDecimal("22.000"))).isEqualTo(2200);
+        assertThatThrownBy(() -> InvoiceTotalsKernel.vat(Long.MAX_VALUE / 100, 2200)).isInstanceOf(ArithmeticException.class);
+    }
+
+    private static void assertTotals(InvoiceTotals actual, List<InvoiceLine> lines, String direction) {
+        LineAmounts sum = LineAmounts.NONE;
+        for (InvoiceLine line : lines) {
+            sum = sum.plus(InvoiceTotalsCalculator.lineAmounts(line));
+        }
+        assertThat(actual.getNetTotal()).isEqualByComparingTo(sum.net());
+        assertThat(actual.getVatTotal()).isEqualByComparingTo(sum.vat());
+        assertThat(actual.getWithholdingTotal()).isEqualByComparingTo(sum.withholding());
+        assertThat(actual.getGrossTotal()).isEqualByComparingTo(sum.gross());
+        assertThat(actual.getPayableTotal()).isEqualByComparingTo(sum.payable(direction));
+    }
+
+    /**
+     * Importi su più ordini di grandezza, con centesimi che cadono spesso sui bordi di arrotondamento.
+     */
+    private static BigDecimal amount(SplittableRandom random) {
+        long cents = switch (random.nextInt(4)) {
+            case 0 -> random.nextLong(-1_000, 1_000);
+            case 1 -> random.nextLong(1, 100_000);
+            case 2 -> random.nextLong(1, 100_000_000_000L);
+            default -> random.nextLong(1, 10_000) * 50 + random.nextInt(-1, 2);
+        };
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static BigDecimal rate(SplittableRandom random) {
+        return random.nextInt(3) == 0
+                ? new BigDecimal(COMMON_RATES[random.nextInt(COMMON_RATES.length)])
+                : BigDecimal.valueOf(random.nextInt(0, 10_001), 2);
+    }
+
+    private static InvoiceLine line(BigDecimal net, BigDecimal vatRate, BigDecimal withholdingRate, BigDecimal taxablePercent) {
+        InvoiceLine line = new InvoiceLine();
+        line.setNetAmount(net);
+        line.setVatCode(vatRate != null ? vatCode(vatRate) : null);
+        line.setWithholdingType(withholding(withholdingRate, taxablePercent));
+        return line;
+    }
+
+    private static VatCode vatCode(BigDecimal rate) {
+        VatCode vatCode = new VatCode();
+        vatCode.setRate(rate);
+        return vatCode;
+    }
+
+    private static WithholdingType withholding(BigDecimal rate, BigDecimal taxablePercent) {
+        if (rate == null) return null;
+        WithholdingType wt = new WithholdingType();
+        wt.setRate(rate);
+        wt.setTaxablePercent(taxablePercent);
+        return wt;
+    }
+}
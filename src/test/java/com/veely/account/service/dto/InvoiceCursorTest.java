@@ -0,0 +1,42 @@
+package com.veely.account.service.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Token di keyset della lista fatture: andata e ritorno, alfabeto URL-safe senza padding e token
+ * non validi trattati come assenti (la lista riparte dalla prima pagina).
+ */
+class InvoiceCursorTest {
+
+    @Test
+    void roundTripsDateAndId() {
+        InvoiceCursor cursor = new InvoiceCursor(LocalDate.of(2024, 2, 29), 9_007_199_254_740_993L);
+
+        String token = cursor.encode();
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(InvoiceCursor.decode(token)).isEqualTo(cursor);
+        assertThat(InvoiceCursor.decode("  " + token + " ")).isEqualTo(cursor);
+    }
+
+    @Test
+    void missingOrInvalidTokensDecodeToNull() {
+        assertThat(InvoiceCursor.decode(null)).isNull();
+        assertThat(InvoiceCursor.decode("")).isNull();
+        assertThat(InvoiceCursor.decode("   ")).isNull();
+        assertThat(InvoiceCursor.decode("%%%")).isNull();
+        assertThat(InvoiceCursor.decode(base64("2024-01-01"))).isNull();
+        assertThat(InvoiceCursor.decode(base64("2024-13-01:5"))).isNull();
+        assertThat(InvoiceCursor.decode(base64("2024-01-01:abc"))).isNull();
+    }
+
+    private static String base64(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,105 @@
+package com.veely.account.service.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Navigazione a keyset ai bordi della lista: prima e ultima pagina, ritorno alla prima, lista vuota
+ * e lista lunga esattamente una pagina. Le letture simulano la query di InvoiceService su righe
+ * ordinate per (issue_date DESC, id DESC), con date ripetute per esercitare lo spareggio sull'id.
+ */
+class InvoicePageTest {
+
+    private static final int SIZE = 3;
+    private static final Comparator<InvoiceCursor> LIST_ORDER = Comparator
+            .comparing(InvoiceCursor::issueDate).thenComparing(InvoiceCursor::id).reversed();
+
+    @Test
+    void walksForwardToTheEndAndBackToTheStart() {
+        List<InvoiceCursor> all = rows(8);
+
+        InvoicePage<InvoiceCursor> first = page(all, null, null);
+        assertThat(first.content()).isEqualTo(all.subList(0, 3));
+        assertThat(first.hasPrevious()).isFalse();
+        assertThat(first.hasNext()).isTrue();
+
+        InvoicePage<InvoiceCursor> second = page(all, first.nextCursor(), null);
+        assertThat(second.content()).isEqualTo(all.subList(3, 6));
+        assertThat(second.hasPrevious()).isTrue();
+        assertThat(second.hasNext()).isTrue();
+
+        InvoicePage<InvoiceCursor> last = page(all, second.nextCursor(), null);
+        assertThat(last.content()).isEqualTo(all.subList(6, 8));
+        assertThat(last.hasNext()).isFalse();
+        assertThat(last.hasPrevious()).isTrue();
+
+        InvoicePage<InvoiceCursor> backToSecond = page(all, null, last.previousCursor());
+        assertThat(backToSecond.content()).isEqualTo(second.content());
+        assertThat(backToSecond.hasNext()).isTrue();
+        assertThat(backToSecond.hasPrevious()).isTrue();
+
+        InvoicePage<InvoiceCursor> backToFirst = page(all, null, backToSecond.previousCursor());
+        assertThat(backToFirst.content()).isEqualTo(first.content());
+        assertThat(backToFirst.hasPrevious()).isFalse();
+        assertThat(backToFirst.nextCursor()).isEqualTo(first.nextCursor());
+    }
+
+    @Test
+    void exactlyOnePageHasNoNeighbours() {
+        List<InvoiceCursor> all = rows(SIZE);
+
+        InvoicePage<InvoiceCursor> only = page(all, null, null);
+
+        assertThat(only.content()).isEqualTo(all);
+        assertThat(only.hasNext()).isFalse();
+        assertThat(only.hasPrevious()).isFalse();
+    }
+
+    @Test
+    void lastFullPageEndsWithoutAnEmptyNextPage() {
+        List<InvoiceCursor> all = rows(2 * SIZE);
+
+        InvoicePage<InvoiceCursor> second = page(all, page(all, null, null).nextCursor(), null);
+
+        assertThat(second.content()).isEqualTo(all.subList(3, 6));
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void emptyResultHasNoCursors() {
+        InvoicePage<InvoiceCursor> empty = page(List.of(), null, null);
+
+        assertThat(empty.content()).isEmpty();
+        assertThat(empty.hasNext()).isFalse();
+        assertThat(empty.hasPrevious()).isFalse();
+    }
+
+    /** Stessa lettura di InvoiceService.searchPage: keyset dal cursore, ordine della direzione, limite SIZE + 1. */
+    private static InvoicePage<InvoiceCursor> page(List<InvoiceCursor> all, String after, String before) {
+        InvoiceCursor beforeCursor = InvoiceCursor.decode(before);
+        boolean backward = beforeCursor != null;
+        InvoiceCursor cursor = backward ? beforeCursor : InvoiceCursor.decode(after);
+        Comparator<InvoiceCursor> order = backward ? LIST_ORDER.reversed() : LIST_ORDER;
+        List<InvoiceCursor> read = new ArrayList<>(all.stream()
+                .filter(row -> cursor == null || order.compare(row, cursor) > 0)
+                .sorted(order)
+                .limit(SIZE + 1)
+                .toList());
+        return InvoicePage.of(read, SIZE, cursor != null, backward, row -> row);
+    }
+
+    private static List<InvoiceCursor> rows(int n) {
+        List<InvoiceCursor> rows = new ArrayList<>();
+        for (long id = 1; id <= n; id++) {
+            rows.add(new InvoiceCursor(LocalDate.of(2024, 1, 1).plusDays(id / 3), id));
+        }
+        rows.sort(LIST_ORDER);
+        return rows;
+    }
+}
@@ -0,0 +1,129 @@
+package com.veely.account.vat;
+
+import com.veely.account.domain.VatCode;
+import com.veely.account.vat.VatReportService.MonthAggregate;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Aritmetica delle liquidazioni su aggregati mensili sintetici: riporto del credito, debito sotto
+ * la soglia di 25,82 € rinviato, interessi dell'1% sui trimestri e integrazione del reverse charge.
+ */
+class VatSettlementTest {
+
+    private static final int YEAR = 2024;
+    private static final long ORDINARY = 1L;
+    private static final long REVERSE_CHARGE = 2L;
+
+    private final Map<YearMonth, List<MonthAggregate>> months = new HashMap<>();
+
+    @Test
+    void creditIsCarriedForwardUntilUsed() {
+        month(1, "100.00", "300.00");
+        month(2, "150.00", "0");
+        month(3, "500.00", "100.00");
+
+        List<VatSettlementPeriod> periods = settle(SettlementFrequency.MONTHLY);
+
+        assertPeriod(periods.get(0), "0", "0", "-200.00", "0", "0");
+        assertPeriod(periods.get(1), "200.00", "0", "-50.00", "0", "0");
+        assertPeriod(periods.get(2), "50.00", "0", "350.00", "0", "350.00");
+        assertPeriod(periods.get(3), "0", "0", "0", "0", "0");
+    }
+
+    @Test
+    void debitBelowThresholdIsPostponed() {
+        month(1, "25.81", "0");
+        month(2, "10.00", "0");
+        month(3, "25.82", "0");
+
+        List<VatSettlementPeriod> periods = settle(SettlementFrequency.MONTHLY);
+
+        assertPeriod(periods.get(0), "0", "0", "25.81", "0", "0");
+        assertPeriod(periods.get(1), "0", "25.81", "35.81", "0", "35.81");
+        assertPeriod(periods.get(2), "0", "0", "25.82", "0", "25.82");
+    }
+
+    @Test
+    void quarterlyInterestCountsTowardsThreshold() {
+        month(1, "600.00", "0");
+        month(3, "400.00", "0");
+        month(4, "25.55", "0");
+        month(7, "25.56", "0");
+
+        List<VatSettlementPeriod> periods = settle(SettlementFrequency.QUARTERLY);
+
+        assertThat(periods).hasSize(4);
+        assertPeriod(periods.get(0), "0", "0", "1000.00", "10.00", "1010.00");
+        // 25,55 + 0,26 = 25,81: sotto soglia, niente interessi e debito rinviato
+        assertPeriod(periods.get(1), "0", "0", "25.55", "0", "0");
+        // 25,56 + 25,55 riportati = 51,11, interessi 0,51
+        assertPeriod(periods.get(2), "0", "25.55", "51.11", "0.51", "51.62");
+        assertPeriod(periods.get(3), "0", "0", "0", "0", "0");
+    }
+
+    @Test
+    void reverseChargePurchasesAreAddedToOutputVat() {
+        add(1, new MonthAggregate(VatReportService.SALES, ORDINARY, 2, new BigDecimal("1000.00"), new BigDecimal("220.00")));
+        add(1, new MonthAggregate(VatReportService.PURCHASES, ORDINARY, 1, new BigDecimal("500.00"), new BigDecimal("110.00")));
+        add(1, new MonthAggregate(VatReportService.PURCHASES, REVERSE_CHARGE, 1, new BigDecimal("200.00"), new BigDecimal("44.00")));
+
+        VatSettlementPeriod january = settle(SettlementFrequency.MONTHLY).get(0);
+
+        assertThat(january.salesVat()).isEqualByComparingTo("220.00");
+        assertThat(january.reverseChargeVat()).isEqualByComparingTo("44.00");
+        assertThat(january.purchaseVat()).isEqualByComparingTo("154.00");
+        assertThat(january.balance()).isEqualByComparingTo("110.00");
+    }
+
+    @Test
+    void periodIsClosedOnlyWhenAllItsMonthsAre() {
+        List<VatSettlementPeriod> periods = VatReportService.settle(YEAR, SettlementFrequency.QUARTERLY, months, vatCodes(),
+                month -> month.isBefore(YearMonth.of(YEAR, 6)));
+
+        assertThat(periods).extracting(VatSettlementPeriod::closed).containsExactly(true, false, false, false);
+        assertThat(periods.get(1).from()).isEqualTo(YearMonth.of(YEAR, 4).atDay(1));
+        assertThat(periods.get(1).to()).isEqualTo(YearMonth.of(YEAR, 6).atEndOfMonth());
+    }
+
+    private List<VatSettlementPeriod> settle(SettlementFrequency frequency) {
+        return VatReportService.settle(YEAR, frequency, months, vatCodes(), month -> true);
+    }
+
+    private void month(int month, String salesVat, String purchaseVat) {
+        add(month, new MonthAggregate(VatReportService.SALES, ORDINARY, 1, BigDecimal.ZERO, new BigDecimal(salesVat)));
+        add(month, new MonthAggregate(VatReportService.PURCHASES, ORDINARY, 1, BigDecimal.ZERO, new BigDecimal(purchaseVat)));
+    }
+
+    private void add(int month, MonthAggregate aggregate) {
+        months.computeIfAbsent(YearMonth.of(YEAR, month), m -> new ArrayList<>()).add(aggregate);
+    }
+
+    private static Map<Long, VatCode> vatCodes() {
+        VatCode ordinary = new VatCode();
+        ordinary.setId(ORDINARY);
+        ordinary.setReverseChargeRelevant(false);
+        VatCode reverseCharge = new VatCode();
+        reverseCharge.setId(REVERSE_CHARGE);
+        reverseCharge.setReverseChargeRelevant(true);
+        return Map.of(ORDINARY, ordinary, REVERSE_CHARGE, reverseCharge);
+    }
+
+    private static void assertPeriod(VatSettlementPeriod period, String previousCredit, String previousDebit,
+                                     String balance, String interest, String payable) {
+        String as = "periodo " + period.number();
+        assertThat(period.previousCredit()).as(as + " credito riportato").isEqualByComparingTo(previousCredit);
+        assertThat(period.previousDebit()).as(as + " debito riportato").isEqualByComparingTo(previousDebit);
+        assertThat(period.balance()).as(as + " saldo").isEqualByComparingTo(balance);
+        assertThat(period.interest()).as(as + " interessi").isEqualByComparingTo(interest);
+        assertThat(period.payable()).as(as + " da versare").isEqualByComparingTo(payable);
+    }
+}